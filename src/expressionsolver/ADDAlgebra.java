@@ -0,0 +1,109 @@
+package expressionsolver;
+
+import jadd.ADD;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+/**
+ * Interpretation of expressions as operations on ADDs.
+ */
+public class ADDAlgebra implements ExpressionAlgebra<ADD> {
+
+    private JADD jadd;
+
+    public ADDAlgebra(JADD jadd) {
+        this.jadd = jadd;
+    }
+
+    @Override
+    public ADD constant(double value) {
+        return jadd.makeConstant(value);
+    }
+
+    @Override
+    public ADD add(ADD a, ADD b) {
+        return a.plus(b);
+    }
+
+    @Override
+    public ADD subtract(ADD a, ADD b) {
+        return a.minus(b);
+    }
+
+    @Override
+    public ADD multiply(ADD a, ADD b) {
+        return a.times(b);
+    }
+
+    @Override
+    public ADD divide(ADD a, ADD b) {
+        return a.dividedBy(b);
+    }
+
+    /**
+     * Only constant, integer exponents are supported. The power is computed
+     * by repeated multiplication.
+     */
+    @Override
+    public ADD power(ADD base, ADD exponent) {
+        if (!exponent.isConstant()) {
+            throw new IllegalArgumentException("Invalid parameter type. Exponent must be constant.");
+        }
+        double exponentValue = 0;
+        try {
+            exponentValue = exponent.eval(new String[]{});
+        } catch (UnrecognizedVariableException e) {
+            // Unreachable
+        }
+        long times = Math.round(exponentValue);
+        if (times == 0) {
+            ADD one = jadd.makeConstant(1);
+            ADD zero = jadd.makeConstant(0);
+            try {
+                return base.ifThenElse(one, zero);
+            } finally {
+                one.close();
+                zero.close();
+            }
+        }
+        ADD result = base;
+        for (int i = 1; i < times; i++) {
+            ADD product = result.times(base);
+            // Partial products are intermediate results of this operation alone.
+            if (result != base) {
+                result.close();
+            }
+            result = product;
+        }
+        return result;
+    }
+
+    @Override
+    public ADD negate(ADD a) {
+        return a.negate();
+    }
+
+    @Override
+    public ADD and(ADD a, ADD b) {
+        return a.and(b);
+    }
+
+    @Override
+    public ADD or(ADD a, ADD b) {
+        return a.or(b);
+    }
+
+    @Override
+    public ADD not(ADD a) {
+        return a.complement();
+    }
+
+    /**
+     * Closes intermediate ADDs, so that CUDD can reclaim their nodes.
+     */
+    @Override
+    public void release(ADD value) {
+        value.close();
+    }
+
+}
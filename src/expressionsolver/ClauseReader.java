@@ -0,0 +1,204 @@
+package expressionsolver;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a formula in conjunctive normal form, such as a feature model in
+ * the FeatureIDE format ({@code (!A  ||  B)  &&  C  &&  ...}), into its
+ * top-level conjuncts, one character at a time.
+ *
+ * Besides the text of each conjunct, the reader tells plain clauses apart
+ * and collects the variables (and boolean literals) mentioned in each
+ * conjunct, so that clauses can be encoded or analyzed without parsing
+ * them again. Other syntax errors are left to the parser of non-clause
+ * conjuncts, but operators which lack an operand are rejected right away,
+ * since they could otherwise go unnoticed in plain clauses.
+ */
+public class ClauseReader {
+    private final Reader input;
+    private int lookahead;
+    // Offset of the lookahead character.
+    private int position = 0;
+    // Whether the last conjunct was followed by a top-level &&.
+    private boolean conjunctionPending = false;
+
+    public ClauseReader(Reader input) throws IOException {
+        this.input = input;
+        this.lookahead = input.read();
+    }
+
+    /**
+     * Top-level conjunct of a formula. If it is a plain clause (a possibly
+     * parenthesized disjunction of possibly negated variables or literals),
+     * the negation of each literal is also meaningful.
+     */
+    public static class Conjunct {
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> literals = new ArrayList<String>();
+        private final List<Boolean> negations = new ArrayList<Boolean>();
+        private boolean isClause = true;
+
+        public String getText() {
+            return text.toString();
+        }
+
+        /**
+         * @return whether this conjunct is a plain clause.
+         */
+        public boolean isClause() {
+            return isClause;
+        }
+
+        /**
+         * @return the names of the variables and boolean literals, in order of
+         *          appearance (with repetitions).
+         */
+        public List<String> getLiterals() {
+            return Collections.unmodifiableList(literals);
+        }
+
+        /**
+         * @return whether each literal is negated, if this conjunct is a plain clause.
+         */
+        public List<Boolean> getNegations() {
+            return Collections.unmodifiableList(negations);
+        }
+    }
+
+    /**
+     * @return the next conjunct, or null at the end of the formula.
+     * @throws ExpressionParseException if an operator lacks an operand
+     *          (e.g., {@code (A  ||)} or a trailing {@code &&}).
+     */
+    public Conjunct next() throws IOException, ExpressionParseException {
+        skipWhitespace();
+        if (lookahead < 0) {
+            checkOperand(!conjunctionPending);
+            return null;
+        }
+        conjunctionPending = false;
+        Conjunct conjunct = new Conjunct();
+        int depth = 0;
+        // Whether a parenthesized group is over, so nothing but && may follow.
+        boolean closed = false;
+        boolean negated = false;
+        // Whether the last token was an operand (so that an operator is expected).
+        boolean operand = false;
+        // Whether the last token was an operator or an opening parenthesis
+        // (so that an operand is required).
+        boolean operandMissing = true;
+        while (lookahead >= 0) {
+            char c = (char) lookahead;
+            if (Character.isWhitespace(c)) {
+                conjunct.text.append(c);
+                advance();
+            } else if (c == '&') {
+                checkOperand(!operandMissing);
+                advance();
+                if (lookahead != '&') {
+                    conjunct.isClause = false;
+                    conjunct.text.append(c);
+                    operandMissing = true;
+                    continue;
+                }
+                advance();
+                if (depth == 0) {
+                    conjunctionPending = true;
+                    break;
+                }
+                conjunct.text.append("&&");
+                conjunct.isClause = false;
+                operand = false;
+                operandMissing = true;
+            } else if (c == '|') {
+                checkOperand(!operandMissing);
+                operandMissing = true;
+                conjunct.text.append(c);
+                advance();
+                if (lookahead == '|') {
+                    conjunct.text.append('|');
+                    advance();
+                } else {
+                    conjunct.isClause = false;
+                }
+                if (!operand || depth == 0 && closed) {
+                    conjunct.isClause = false;
+                }
+                operand = false;
+            } else if (c == '!') {
+                operandMissing = true;
+                conjunct.text.append(c);
+                advance();
+                if (negated || operand) {
+                    conjunct.isClause = false;
+                }
+                negated = true;
+            } else if (c == '(') {
+                operandMissing = true;
+                conjunct.text.append(c);
+                advance();
+                if (depth > 0 || negated || operand || closed) {
+                    conjunct.isClause = false;
+                }
+                depth++;
+            } else if (c == ')') {
+                checkOperand(!operandMissing);
+                conjunct.text.append(c);
+                advance();
+                depth--;
+                if (depth == 0) {
+                    closed = true;
+                }
+            } else if (Character.isLetter(c) || c == '_') {
+                StringBuilder name = new StringBuilder();
+                while (lookahead >= 0 && (Character.isLetterOrDigit(lookahead) || lookahead == '_')) {
+                    name.append((char) lookahead);
+                    advance();
+                }
+                conjunct.text.append(name);
+                if (operand || closed) {
+                    conjunct.isClause = false;
+                }
+                conjunct.literals.add(name.toString());
+                conjunct.negations.add(negated);
+                negated = false;
+                operand = true;
+                operandMissing = false;
+            } else {
+                // E.g., a number, left for the parser of non-clause conjuncts to judge.
+                conjunct.text.append(c);
+                advance();
+                conjunct.isClause = false;
+                operandMissing = false;
+            }
+        }
+        checkOperand(!operandMissing);
+        if (depth != 0 || negated || !operand && conjunct.literals.isEmpty()) {
+            conjunct.isClause = false;
+        }
+        return conjunct;
+    }
+
+    private void checkOperand(boolean present) throws ExpressionParseException {
+        if (!present) {
+            String found = (lookahead < 0) ? "end of formula" : "'" + (char) lookahead + "'";
+            throw new ExpressionParseException("Missing operand before " + found, position);
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (lookahead >= 0 && Character.isWhitespace(lookahead)) {
+            advance();
+        }
+    }
+
+    private void advance() throws IOException {
+        lookahead = input.read();
+        position++;
+    }
+
+}
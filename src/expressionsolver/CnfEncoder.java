@@ -0,0 +1,179 @@
+package expressionsolver;
+
+import jadd.ADD;
+import jadd.JADD;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Encodes propositional formulas in conjunctive normal form, such as feature
+ * models in the FeatureIDE format ({@code (!A  ||  B)  &&  C  &&  ...}), as 0,1-ADDs.
+ *
+ * Clauses are read in a single streaming pass (see {@link ClauseReader}), and each one is encoded on its
+ * own as the disjunction of its literals. Instead of conjoining clauses in
+ * order of appearance (which yields a long chain of ever-growing intermediate
+ * ADDs), clauses are clustered by the position of their top variable in the
+ * current variable order and then conjoined pairwise, in a balanced tree.
+ * Thus, clauses over nearby variables are combined first, and each
+ * intermediate ADD only involves a limited part of the formula.
+ *
+ * Top-level conjuncts which are not plain clauses (e.g., with nested
+ * conjunctions) are encoded by an {@link ExpressionSolver}.
+ */
+public class CnfEncoder {
+    private static final Logger LOGGER = Logger.getLogger(CnfEncoder.class.getName());
+
+    private final JADD jadd;
+    private final ExpressionSolver expressionSolver;
+
+    public CnfEncoder(JADD jadd, ExpressionSolver expressionSolver) {
+        this.jadd = jadd;
+        this.expressionSolver = expressionSolver;
+    }
+
+    /**
+     * @return the 0,1-ADD for {@code formula}, or null if it cannot be parsed.
+     */
+    public ADD encode(String formula) {
+        try {
+            return encode(new StringReader(formula));
+        } catch (IOException e) {
+            // Not thrown by StringReader.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads and encodes a formula.
+     *
+     * @return the 0,1-ADD for the formula, or null if it cannot be parsed.
+     * @throws IOException if the formula cannot be read.
+     */
+    public ADD encode(Reader formula) throws IOException {
+        List<ADD> clauses = new ArrayList<ADD>();
+        boolean unsatisfiable = false;
+        ClauseReader reader = new ClauseReader(formula);
+        while (true) {
+            ClauseReader.Conjunct conjunct;
+            try {
+                conjunct = reader.next();
+            } catch (ExpressionParseException e) {
+                LOGGER.warning("Parser error in formula: " + e.getMessage());
+                closeAll(clauses);
+                return null;
+            }
+            if (conjunct == null) {
+                break;
+            }
+            ADD clause = encode(conjunct);
+            if (clause == null) {
+                LOGGER.warning("Parser error in conjunct: " + conjunct.getText());
+                closeAll(clauses);
+                return null;
+            }
+            if (clause.isConstant()) {
+                // Constant clauses are either redundant or make the whole formula false.
+                // Reading goes on, though, so that all variables are created anyway.
+                unsatisfiable |= clause.getPathsToNonZeroTerminalsCount() == 0;
+                clause.close();
+            } else {
+                clauses.add(clause);
+            }
+        }
+        if (unsatisfiable) {
+            closeAll(clauses);
+            return jadd.makeConstant(0);
+        }
+        if (clauses.isEmpty()) {
+            return jadd.makeConstant(1);
+        }
+        return conjoin(clauses);
+    }
+
+    private ADD encode(ClauseReader.Conjunct conjunct) {
+        if (!conjunct.isClause()) {
+            // Not memoized, since the resulting ADD is closed once conjoined.
+            CompiledExpression compiledConjunct = expressionSolver.compileFormula(conjunct.getText());
+            return (compiledConjunct != null) ? expressionSolver.encodeFormula(compiledConjunct) : null;
+        }
+        ADD clause = null;
+        List<String> literals = conjunct.getLiterals();
+        List<Boolean> negations = conjunct.getNegations();
+        for (int i = 0; i < literals.size(); i++) {
+            String name = literals.get(i);
+            boolean negated = negations.get(i);
+            ADD literal;
+            if (ExpressionSolver.isTrueLiteral(name) || ExpressionSolver.isFalseLiteral(name)) {
+                boolean value = ExpressionSolver.isTrueLiteral(name) != negated;
+                literal = jadd.makeConstant(value ? 1 : 0);
+            } else {
+                ADD variable = jadd.getVariable(name);
+                literal = negated ? variable.complement() : variable;
+            }
+            if (clause == null) {
+                clause = literal;
+            } else {
+                ADD disjunction = clause.or(literal);
+                clause.close();
+                literal.close();
+                clause = disjunction;
+            }
+        }
+        return clause;
+    }
+
+    /**
+     * Conjoins clauses clustered by top variable, in a balanced tree.
+     */
+    private ADD conjoin(List<ADD> clauses) {
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        List<String> order = jadd.getVariableOrder();
+        for (int level = 0; level < order.size(); level++) {
+            levels.put(order.get(level), level);
+        }
+        Map<ADD, Integer> topLevels = new IdentityHashMap<ADD, Integer>();
+        for (ADD clause : clauses) {
+            int top = Integer.MAX_VALUE;
+            for (String variable : clause.getVariables()) {
+                top = Math.min(top, levels.get(variable));
+            }
+            topLevels.put(clause, top);
+        }
+        List<ADD> layer = new ArrayList<ADD>(clauses);
+        // Bottom-most clusters first, so that neighbors share variables.
+        layer.sort(Comparator.comparing((ADD clause) -> topLevels.get(clause)).reversed());
+
+        while (layer.size() > 1) {
+            List<ADD> next = new ArrayList<ADD>((layer.size() + 1) / 2);
+            for (int i = 0; i + 1 < layer.size(); i += 2) {
+                ADD first = layer.get(i);
+                ADD second = layer.get(i + 1);
+                next.add(first.and(second));
+                first.close();
+                second.close();
+            }
+            if (layer.size() % 2 == 1) {
+                next.add(layer.get(layer.size() - 1));
+            }
+            layer = next;
+        }
+        return layer.get(0);
+    }
+
+    private static void closeAll(List<ADD> adds) {
+        for (ADD add : adds) {
+            add.close();
+        }
+    }
+
+}
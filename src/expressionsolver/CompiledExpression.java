@@ -0,0 +1,676 @@
+package expressionsolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Expression compiled into an immutable DAG, flattened as a sequence of
+ * instructions in topological order.
+ *
+ * Structurally equal subexpressions are represented (and thus evaluated)
+ * only once. Variables are resolved to positional slots at compile-time,
+ * so evaluation needs no symbol-table lookups. Instances are thread-safe.
+ *
+ * Supported operators, from lowest to highest precedence:
+ * <pre>
+ * ||
+ * &amp;&amp;
+ * + -        (binary)
+ * * /
+ * - + !      (unary)
+ * ^          (right-associative)
+ * </pre>
+ */
+public final class CompiledExpression {
+
+    static final byte CONSTANT = 0;
+    static final byte VARIABLE = 1;
+    static final byte ADD = 2;
+    static final byte SUBTRACT = 3;
+    static final byte MULTIPLY = 4;
+    static final byte DIVIDE = 5;
+    static final byte POWER = 6;
+    static final byte NEGATE = 7;
+    static final byte AND = 8;
+    static final byte OR = 9;
+    static final byte NOT = 10;
+
+    private final String source;
+    private final byte[] opcodes;
+    /**
+     * Instruction operands. For VARIABLE instructions, {@code left} holds the
+     * variable's slot. For CONSTANT instructions, the value is in {@code constants}.
+     */
+    private final int[] left;
+    private final int[] right;
+    private final double[] constants;
+    private final int root;
+    /**
+     * Number of instructions which take the result of each instruction.
+     */
+    private final int[] uses;
+    private final String[] variables;
+    private final Map<String, Integer> variableSlots;
+
+    private CompiledExpression(String source,
+                               byte[] opcodes,
+                               int[] left,
+                               int[] right,
+                               double[] constants,
+                               int root,
+                               String[] variables) {
+        this.source = source;
+        this.opcodes = opcodes;
+        this.left = left;
+        this.right = right;
+        this.constants = constants;
+        this.root = root;
+        this.uses = new int[opcodes.length];
+        for (int i = 0; i < opcodes.length; i++) {
+            int arity = arity(opcodes[i]);
+            if (arity > 0) {
+                uses[left[i]]++;
+            }
+            if (arity > 1) {
+                uses[right[i]]++;
+            }
+        }
+        this.variables = variables;
+        this.variableSlots = new HashMap<String, Integer>();
+        for (int i = 0; i < variables.length; i++) {
+            variableSlots.put(variables[i], i);
+        }
+    }
+
+    /**
+     * @return the number of instructions whose results an instruction takes.
+     */
+    private static int arity(byte opcode) {
+        switch (opcode) {
+        case CONSTANT:
+        case VARIABLE:
+            return 0;
+        case NEGATE:
+        case NOT:
+            return 1;
+        default:
+            return 2;
+        }
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression
+     * @return the compiled expression.
+     * @throws ExpressionParseException if the expression is malformed.
+     */
+    public static CompiledExpression compile(String expression) throws ExpressionParseException {
+        return new Compiler(expression).compile();
+    }
+
+    /**
+     * @return the names of the variables in the expression, in slot order.
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    /**
+     * @return the slot of {@code variable}, or -1 if it does not occur in the expression.
+     */
+    public int getVariableSlot(String variable) {
+        Integer slot = variableSlots.get(variable);
+        return (slot != null) ? slot : -1;
+    }
+
+    /**
+     * @return the number of distinct subexpressions (i.e., DAG nodes).
+     */
+    public int size() {
+        return opcodes.length;
+    }
+
+    /**
+     * Evaluates the expression over doubles.
+     *
+     * @param values Values of the variables, indexed by slot.
+     */
+    public double evaluate(double[] values) {
+        return evaluate(values, new double[opcodes.length]);
+    }
+
+    /**
+     * Evaluates the expression over doubles, without allocating memory.
+     *
+     * @param values Values of the variables, indexed by slot.
+     * @param scratch Buffer for intermediate results, with at least {@link #size()}
+     *          positions. It must not be shared among concurrent evaluations.
+     */
+    public double evaluate(double[] values, double[] scratch) {
+        return evaluate(values, null, scratch);
+    }
+
+    /**
+     * Evaluates the expression over doubles, reading variables from a shared
+     * environment instead of a slot-indexed array. This allows many expressions
+     * to be evaluated against the same array of values without copying.
+     *
+     * @param environment Values available for binding.
+     * @param binding Position in {@code environment} of the value of each variable,
+     *          indexed by slot.
+     * @param scratch Buffer for intermediate results, with at least {@link #size()}
+     *          positions. It must not be shared among concurrent evaluations.
+     */
+    public double evaluate(double[] environment, int[] binding, double[] scratch) {
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+            case CONSTANT:
+                scratch[i] = constants[i];
+                break;
+            case VARIABLE:
+                scratch[i] = (binding == null) ? environment[left[i]] : environment[binding[left[i]]];
+                break;
+            case ADD:
+                scratch[i] = scratch[left[i]] + scratch[right[i]];
+                break;
+            case SUBTRACT:
+                scratch[i] = scratch[left[i]] - scratch[right[i]];
+                break;
+            case MULTIPLY:
+                scratch[i] = scratch[left[i]] * scratch[right[i]];
+                break;
+            case DIVIDE:
+                scratch[i] = scratch[left[i]] / scratch[right[i]];
+                break;
+            case POWER:
+                scratch[i] = Math.pow(scratch[left[i]], scratch[right[i]]);
+                break;
+            case NEGATE:
+                scratch[i] = -scratch[left[i]];
+                break;
+            case AND:
+                scratch[i] = and(scratch[left[i]], scratch[right[i]]);
+                break;
+            case OR:
+                scratch[i] = or(scratch[left[i]], scratch[right[i]]);
+                break;
+            case NOT:
+                scratch[i] = not(scratch[left[i]]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown opcode " + opcodes[i]);
+            }
+        }
+        return scratch[root];
+    }
+
+    /**
+     * Evaluates the expression over an arbitrary algebra.
+     *
+     * Intermediate results are handed over to {@link ExpressionAlgebra#release(Object)}
+     * as soon as no instruction yet to be evaluated takes them, except for the
+     * values of variables (which belong to the caller) and the result itself.
+     *
+     * @param values Values of the variables, indexed by slot.
+     * @param algebra Interpretation of constants and operators.
+     */
+    public <T> T evaluate(List<? extends T> values, ExpressionAlgebra<T> algebra) {
+        List<T> results = new ArrayList<T>(opcodes.length);
+        // Number of instructions yet to take each result. The root's is taken by the caller.
+        int[] pendingUses = uses.clone();
+        pendingUses[root]++;
+        // Operators may return one of their operands as is, so the same object
+        // may be the result of many instructions. Thus, it is only released once
+        // none of them has pending uses.
+        Set<Object> kept = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        kept.addAll(values);
+        Map<T, Integer> holders = new IdentityHashMap<T, Integer>();
+        for (int i = 0; i < opcodes.length; i++) {
+            T result;
+            switch (opcodes[i]) {
+            case CONSTANT:
+                result = algebra.constant(constants[i]);
+                break;
+            case VARIABLE:
+                result = values.get(left[i]);
+                break;
+            case ADD:
+                result = algebra.add(results.get(left[i]), results.get(right[i]));
+                break;
+            case SUBTRACT:
+                result = algebra.subtract(results.get(left[i]), results.get(right[i]));
+                break;
+            case MULTIPLY:
+                result = algebra.multiply(results.get(left[i]), results.get(right[i]));
+                break;
+            case DIVIDE:
+                result = algebra.divide(results.get(left[i]), results.get(right[i]));
+                break;
+            case POWER:
+                result = algebra.power(results.get(left[i]), results.get(right[i]));
+                break;
+            case NEGATE:
+                result = algebra.negate(results.get(left[i]));
+                break;
+            case AND:
+                result = algebra.and(results.get(left[i]), results.get(right[i]));
+                break;
+            case OR:
+                result = algebra.or(results.get(left[i]), results.get(right[i]));
+                break;
+            case NOT:
+                result = algebra.not(results.get(left[i]));
+                break;
+            default:
+                throw new IllegalStateException("Unknown opcode " + opcodes[i]);
+            }
+            results.add(result);
+            if (result != null && !kept.contains(result)) {
+                holders.merge(result, 1, Integer::sum);
+            }
+            int arity = arity(opcodes[i]);
+            if (arity > 0 && --pendingUses[left[i]] == 0) {
+                releaseIntermediateResult(results.get(left[i]), holders, algebra);
+            }
+            if (arity > 1 && --pendingUses[right[i]] == 0) {
+                releaseIntermediateResult(results.get(right[i]), holders, algebra);
+            }
+            if (pendingUses[i] == 0) {
+                releaseIntermediateResult(result, holders, algebra);
+            }
+        }
+        return results.get(root);
+    }
+
+    /**
+     * Releases an intermediate result, unless it is also the result of
+     * some instruction with pending uses.
+     *
+     * @param holders Number of instructions with pending uses which yielded
+     *          each intermediate result.
+     */
+    private static <T> void releaseIntermediateResult(T result, Map<T, Integer> holders, ExpressionAlgebra<T> algebra) {
+        Integer numHolders = holders.get(result);
+        if (numHolders == null) {
+            return;
+        } else if (numHolders > 1) {
+            holders.put(result, numHolders - 1);
+        } else {
+            holders.remove(result);
+            algebra.release(result);
+        }
+    }
+
+    /**
+     * Conjunction with the semantics of a product of 0,1-ADDs.
+     */
+    static double and(double a, double b) {
+        return a * b;
+    }
+
+    /**
+     * Disjunction with the semantics of CUDD's Cudd_addOr on constants.
+     */
+    static double or(double a, double b) {
+        return (a == 1 || b == 1) ? 1 : b;
+    }
+
+    /**
+     * Complement with the semantics of CUDD's Cudd_addCmpl on constants.
+     */
+    static double not(double a) {
+        return (a == 0) ? 1 : 0;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Operator-precedence compiler with hash-consing of DAG nodes.
+     *
+     * Pending operators and operands are kept in explicit stacks instead of
+     * the call stack, so that nesting depth is only bounded by the heap.
+     */
+    private static class Compiler {
+        // Marks an open parenthesis in the operator stack.
+        private static final byte PARENTHESIS = -1;
+
+        private final String input;
+        private int position;
+
+        private final List<Byte> opcodes = new ArrayList<Byte>();
+        private final List<Integer> left = new ArrayList<Integer>();
+        private final List<Integer> right = new ArrayList<Integer>();
+        private final List<Double> constants = new ArrayList<Double>();
+        private final List<String> variables = new ArrayList<String>();
+        private final Map<String, Integer> variableSlots = new HashMap<String, Integer>();
+        private final Map<NodeKey, Integer> nodes = new HashMap<NodeKey, Integer>();
+
+        private final Deque<Byte> operators = new ArrayDeque<Byte>();
+        private final Deque<Integer> operands = new ArrayDeque<Integer>();
+        private int openParentheses = 0;
+
+        Compiler(String input) {
+            this.input = input;
+            this.position = 0;
+        }
+
+        CompiledExpression compile() throws ExpressionParseException {
+            if (input == null) {
+                throw new ExpressionParseException("Null expression", 0);
+            }
+            int root = parseExpression();
+            skipWhitespace();
+            if (position < input.length()) {
+                throw new ExpressionParseException("Unexpected character '" + input.charAt(position) + "'", position);
+            }
+            return new CompiledExpression(input,
+                                          toByteArray(opcodes),
+                                          toIntArray(left),
+                                          toIntArray(right),
+                                          toDoubleArray(constants),
+                                          root,
+                                          variables.toArray(new String[variables.size()]));
+        }
+
+        /**
+         * Alternately reads an operand (preceded by any prefix operators and
+         * opening parentheses) and a binary operator (preceded by any closing
+         * parentheses), until the expression is over.
+         */
+        private int parseExpression() throws ExpressionParseException {
+            while (true) {
+                parsePrefixes();
+                operands.push(parsePrimary());
+                byte operator = parseSuffixes();
+                if (operator == PARENTHESIS) {
+                    if (openParentheses > 0) {
+                        throw new ExpressionParseException("Missing closing parenthesis", position);
+                    }
+                    reduceWhile(PARENTHESIS);
+                    return operands.pop();
+                }
+                reduceWhile(operator);
+                operators.push(operator);
+            }
+        }
+
+        private void parsePrefixes() {
+            while (true) {
+                if (accept("(")) {
+                    operators.push(PARENTHESIS);
+                    openParentheses++;
+                } else if (accept("-")) {
+                    operators.push(NEGATE);
+                } else if (accept("!")) {
+                    operators.push(NOT);
+                } else if (!accept("+")) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return the binary operator after the current operand, or
+         *          {@link #PARENTHESIS} if there is none.
+         */
+        private byte parseSuffixes() {
+            while (openParentheses > 0 && accept(")")) {
+                reduceWhile(PARENTHESIS);
+                operators.pop();
+                openParentheses--;
+            }
+            if (accept("||")) {
+                return OR;
+            } else if (accept("&&")) {
+                return AND;
+            } else if (accept("+")) {
+                return ADD;
+            } else if (accept("-")) {
+                return SUBTRACT;
+            } else if (accept("*")) {
+                return MULTIPLY;
+            } else if (accept("/")) {
+                return DIVIDE;
+            } else if (accept("^")) {
+                return POWER;
+            }
+            return PARENTHESIS;
+        }
+
+        /**
+         * Applies the pending operators which bind tighter than {@code next}
+         * (or as tight, if it is left-associative) to their operands. Passing
+         * {@link #PARENTHESIS} applies all operators up to the innermost open
+         * parenthesis.
+         */
+        private void reduceWhile(byte next) {
+            while (!operators.isEmpty() && operators.peek() != PARENTHESIS) {
+                byte pending = operators.peek();
+                if (next != PARENTHESIS
+                        && (precedence(pending) < precedence(next)
+                            || precedence(pending) == precedence(next) && next == POWER)) {
+                    return;
+                }
+                operators.pop();
+                if (pending == NEGATE || pending == NOT) {
+                    operands.push(makeNode(pending, operands.pop(), -1));
+                } else {
+                    int b = operands.pop();
+                    int a = operands.pop();
+                    operands.push(makeNode(pending, a, b));
+                }
+            }
+        }
+
+        private static int precedence(byte operator) {
+            switch (operator) {
+            case OR:
+                return 1;
+            case AND:
+                return 2;
+            case ADD:
+            case SUBTRACT:
+                return 3;
+            case MULTIPLY:
+            case DIVIDE:
+                return 4;
+            case NEGATE:
+            case NOT:
+                return 5;
+            case POWER:
+                // Right-associative, and binds tighter than unary minus on its left.
+                return 6;
+            default:
+                throw new IllegalArgumentException("Not an operator: " + operator);
+            }
+        }
+
+        private int parsePrimary() throws ExpressionParseException {
+            skipWhitespace();
+            if (position >= input.length()) {
+                throw new ExpressionParseException("Unexpected end of expression", position);
+            }
+            char current = input.charAt(position);
+            if (Character.isDigit(current) || current == '.') {
+                return makeConstant(readNumber());
+            } else if (Character.isLetter(current) || current == '_') {
+                int start = position;
+                while (position < input.length() && isIdentifierPart(input.charAt(position))) {
+                    position++;
+                }
+                return makeVariable(input.substring(start, position));
+            }
+            throw new ExpressionParseException("Unexpected character '" + current + "'", position);
+        }
+
+        private double readNumber() throws ExpressionParseException {
+            int start = position;
+            while (position < input.length()
+                    && (Character.isDigit(input.charAt(position)) || input.charAt(position) == '.')) {
+                position++;
+            }
+            if (position < input.length() && (input.charAt(position) == 'e' || input.charAt(position) == 'E')) {
+                int mark = position;
+                position++;
+                if (position < input.length() && (input.charAt(position) == '-' || input.charAt(position) == '+')) {
+                    position++;
+                }
+                if (position < input.length() && Character.isDigit(input.charAt(position))) {
+                    while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                        position++;
+                    }
+                } else {
+                    position = mark;
+                }
+            }
+            try {
+                return Double.parseDouble(input.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw new ExpressionParseException("Malformed number", start);
+            }
+        }
+
+        private int makeConstant(double value) {
+            NodeKey key = new NodeKey(CONSTANT, -1, -1, Double.doubleToLongBits(value));
+            Integer existing = nodes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            return append(key, value);
+        }
+
+        private int makeVariable(String name) {
+            Integer slot = variableSlots.get(name);
+            if (slot == null) {
+                slot = variables.size();
+                variables.add(name);
+                variableSlots.put(name, slot);
+            }
+            NodeKey key = new NodeKey(VARIABLE, slot, -1, 0);
+            Integer existing = nodes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            return append(key, 0);
+        }
+
+        private int makeNode(byte opcode, int a, int b) {
+            if (opcode == ADD || opcode == MULTIPLY || opcode == AND) {
+                // Commutative operators get a canonical operand order,
+                // so that a*b and b*a share the same node.
+                if (a > b) {
+                    int tmp = a;
+                    a = b;
+                    b = tmp;
+                }
+            }
+            NodeKey key = new NodeKey(opcode, a, b, 0);
+            Integer existing = nodes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            return append(key, 0);
+        }
+
+        private int append(NodeKey key, double constant) {
+            int index = opcodes.size();
+            opcodes.add(key.opcode);
+            left.add(key.left);
+            right.add(key.right);
+            constants.add(constant);
+            nodes.put(key, index);
+            return index;
+        }
+
+        private boolean accept(String token) {
+            skipWhitespace();
+            if (input.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private static byte[] toByteArray(List<Byte> list) {
+            byte[] array = new byte[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        private static int[] toIntArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        private static double[] toDoubleArray(List<Double> list) {
+            double[] array = new double[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Structural identity of a DAG node, used for hash-consing.
+     */
+    private static final class NodeKey {
+        final byte opcode;
+        final int left;
+        final int right;
+        final long payload;
+
+        NodeKey(byte opcode, int left, int right, long payload) {
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+            this.payload = payload;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof NodeKey) {
+                NodeKey other = (NodeKey) obj;
+                return opcode == other.opcode
+                        && left == other.left
+                        && right == other.right
+                        && payload == other.payload;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(opcode, left, right, payload);
+        }
+    }
+
+}
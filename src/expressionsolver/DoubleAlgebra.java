@@ -0,0 +1,61 @@
+package expressionsolver;
+
+/**
+ * Floating-point interpretation of expressions.
+ *
+ * Logical operators follow the semantics of their 0,1-ADD counterparts,
+ * so that expressions evaluate consistently over both algebras.
+ */
+public class DoubleAlgebra implements ExpressionAlgebra<Double> {
+
+    @Override
+    public Double constant(double value) {
+        return value;
+    }
+
+    @Override
+    public Double add(Double a, Double b) {
+        return a + b;
+    }
+
+    @Override
+    public Double subtract(Double a, Double b) {
+        return a - b;
+    }
+
+    @Override
+    public Double multiply(Double a, Double b) {
+        return a * b;
+    }
+
+    @Override
+    public Double divide(Double a, Double b) {
+        return a / b;
+    }
+
+    @Override
+    public Double power(Double base, Double exponent) {
+        return Math.pow(base, exponent);
+    }
+
+    @Override
+    public Double negate(Double a) {
+        return -a;
+    }
+
+    @Override
+    public Double and(Double a, Double b) {
+        return CompiledExpression.and(a, b);
+    }
+
+    @Override
+    public Double or(Double a, Double b) {
+        return CompiledExpression.or(a, b);
+    }
+
+    @Override
+    public Double not(Double a) {
+        return CompiledExpression.not(a);
+    }
+
+}
@@ -1,49 +1,72 @@
 package expressionsolver;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import org.nfunk.jep.JEP;
-import org.nfunk.jep.SymbolTable;
-
+/**
+ * Handle to a compiled expression, to be evaluated over values
+ * of type {@code T} (e.g., Double, ADD).
+ *
+ * Expressions are immutable, so they can be shared among threads
+ * as long as the underlying algebra can.
+ */
 public class Expression<T> {
     private static final Logger LOGGER = Logger.getLogger(Expression.class.getName());
 
-    private JEP parser;
-    private Class<? extends T> type;
+    private CompiledExpression compiledExpression;
+    private ExpressionAlgebra<T> algebra;
 
     /**
-     * Creates a new Expression with the underlying {@code parser},
-     * which operates on the given {@code type} (e.g., Double, ADD).
-     * @param parser
+     * Creates a new Expression which evaluates {@code compiledExpression}
+     * according to the given {@code algebra}.
+     * @param compiledExpression
+     * @param algebra
      */
-    public Expression(JEP parser, Class<? extends T> type) {
-        this.parser = parser;
-        this.type = type;
+    public Expression(CompiledExpression compiledExpression, ExpressionAlgebra<T> algebra) {
+        this.compiledExpression = compiledExpression;
+        this.algebra = algebra;
     }
 
     /**
      * Solves an expression with respect to the given interpretation of variables.
      * Here, variables are interpreted in the algebraic sense, not as boolean ADD-variables.
-     * @param <T>
      *
-     * @param expression
      * @param interpretation A map from variable names to the respective values
      *          to be considered during evaluation.
      * @return the result of applying the operations in the expression as defined
-     *          for type {@code T}.
+     *          for type {@code T}, or null if some variable has no interpretation.
      */
     public T solve(Map<String, T> interpretation) {
-        SymbolTable symbolTable = parser.getSymbolTable();
-        for (Object var: symbolTable.keySet()) {
-            String varName = (String)var;
-            if (interpretation.containsKey(varName)) {
-                parser.addVariableAsObject(varName, interpretation.get(varName));
-            } else {
+        List<String> variables = compiledExpression.getVariables();
+        List<T> values = new ArrayList<T>(variables.size());
+        boolean missingVariables = false;
+        for (String varName: variables) {
+            T value = interpretation.get(varName);
+            if (value == null) {
                 LOGGER.warning("No interpretation for variable <"+varName+"> was provided");
+                missingVariables = true;
             }
+            values.add(value);
+        }
+        if (missingVariables) {
+            return null;
         }
-        Object result = parser.getValueAsObject();
-        return type.cast(result);
+        try {
+            return compiledExpression.evaluate(values, algebra);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Evaluation error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the underlying compiled expression, for evaluation with
+     *          positional (slot-indexed) variables.
+     */
+    public CompiledExpression getCompiledExpression() {
+        return compiledExpression;
     }
+
 }
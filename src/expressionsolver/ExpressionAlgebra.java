@@ -0,0 +1,43 @@
+package expressionsolver;
+
+/**
+ * Interpretation of the operators of a {@link CompiledExpression} over
+ * values of type {@code T} (e.g., Double, ADD).
+ *
+ * @param <T> Type of the values.
+ */
+public interface ExpressionAlgebra<T> {
+
+    public T constant(double value);
+
+    public T add(T a, T b);
+
+    public T subtract(T a, T b);
+
+    public T multiply(T a, T b);
+
+    public T divide(T a, T b);
+
+    /**
+     * @throws IllegalArgumentException if the exponent is not supported
+     *          by this algebra.
+     */
+    public T power(T base, T exponent);
+
+    public T negate(T a);
+
+    public T and(T a, T b);
+
+    public T or(T a, T b);
+
+    public T not(T a);
+
+    /**
+     * Disposes of an intermediate result which is no longer needed.
+     * By default, it is left to the garbage collector.
+     */
+    public default void release(T value) {
+        // NO-OP
+    }
+
+}
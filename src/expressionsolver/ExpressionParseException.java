@@ -0,0 +1,26 @@
+package expressionsolver;
+
+/**
+ * Exception thrown whenever an expression cannot be compiled.
+ */
+public class ExpressionParseException extends Exception {
+
+    /**
+     * UUID for warning resolution.
+     */
+    private static final long serialVersionUID = 2312683095716405287L;
+    private final int position;
+
+    public ExpressionParseException(String message, int position) {
+        super(message + " at position " + position);
+        this.position = position;
+    }
+
+    /**
+     * @return the offset in the expression at which the error was detected.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+}
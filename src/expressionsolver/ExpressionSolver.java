@@ -3,26 +3,16 @@ package expressionsolver;
 import jadd.ADD;
 import jadd.JADD;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
-import org.nfunk.jep.JEP;
-import org.nfunk.jep.SymbolTable;
-import org.nfunk.jep.type.DoubleNumberFactory;
-
-import expressionsolver.functions.ADDAdd;
-import expressionsolver.functions.ADDDivide;
-import expressionsolver.functions.ADDMultiply;
-import expressionsolver.functions.ADDPower;
-import expressionsolver.functions.ADDSubtract;
-import expressionsolver.functions.LogicalAnd;
-import expressionsolver.functions.LogicalNot;
-import expressionsolver.functions.LogicalOr;
-import expressionsolver.functions.UnaryMinus;
-
 /**
  * @author thiago
  *
@@ -31,12 +21,27 @@ public class ExpressionSolver {
     private static final Logger LOGGER = Logger.getLogger(ExpressionSolver.class.getName());
 
     private JADD jadd;
+    private ADDAlgebra addAlgebra;
+    private DoubleAlgebra doubleAlgebra;
+
+    /**
+     * Compiled formulas, by normalized text.
+     */
+    private final Map<String, CompiledExpression> compiledFormulas = new ConcurrentHashMap<String, CompiledExpression>();
+    /**
+     * Formula encodings, by normalized text. Entries are evicted once the
+     * respective ADD is closed or becomes unreachable (and, thus, released).
+     */
+    private final Map<String, EncodingReference> encodings = new ConcurrentHashMap<String, EncodingReference>();
+    private final ReferenceQueue<ADD> unreachableEncodings = new ReferenceQueue<ADD>();
 
     /**
      * Solves expressions using the provided ADD manager.
      */
     public ExpressionSolver(JADD jadd) {
         this.jadd = jadd;
+        this.addAlgebra = new ADDAlgebra(jadd);
+        this.doubleAlgebra = new DoubleAlgebra();
     }
 
     /**
@@ -106,37 +111,105 @@ public class ExpressionSolver {
      * variables. These are internally indexed by name, so that multiple
      * references in (possibly multiple) expressions are taken to be the same.
      *
+     * Encodings are memoized by formula text (disregarding whitespace), so
+     * that repeated formulas, such as recurring presence conditions, yield
+     * the very same ADD without being encoded again. Thus, the returned ADD
+     * is shared and should not be closed by the caller. An encoding is only
+     * kept while it is in use elsewhere: once it becomes unreachable (or is
+     * closed nonetheless), the next request encodes the formula anew.
+     *
      * @param formula
      *            Propositional logic formula to be encoded. The valid boolean
      *            operators are && (AND), || (OR) and !(NOT).
      * @return
      */
     public ADD encodeFormula(String formula) {
-        JEP parser = makeADDParser(jadd);
-        parser.parseExpression(formula);
-        if (parser.hasError()) {
-            LOGGER.warning("Parser error: " + parser.getErrorInfo());
+        String key = normalize(formula);
+        EncodingReference cached = encodings.get(key);
+        ADD encoding = (cached != null) ? cached.get() : null;
+        if (encoding != null && !encoding.isClosed()) {
+            return encoding;
+        }
+        expungeUnreachableEncodings();
+
+        CompiledExpression compiledFormula = compileFormula(formula);
+        if (compiledFormula == null) {
             return null;
         }
+        encoding = encodeFormula(compiledFormula);
+        encodings.put(key, new EncodingReference(key, encoding, unreachableEncodings));
+        return encoding;
+    }
+
+    /**
+     * Lower level alternative for {@link encodeFormula(String)}, for
+     * formulas which are already compiled.
+     *
+     * @param compiledFormula
+     * @return
+     */
+    public ADD encodeFormula(CompiledExpression compiledFormula) {
+        List<ADD> variables = new ArrayList<ADD>();
+        for (String varName : compiledFormula.getVariables()) {
+            ADD variable;
+            if (isTrueLiteral(varName)) {
+                variable = jadd.makeConstant(1);
+            } else if (isFalseLiteral(varName)) {
+                variable = jadd.makeConstant(0);
+            } else {
+                variable = jadd.getVariable(varName);
+            }
+            variables.add(variable);
+        }
+        ADD encoding = compiledFormula.evaluate(variables, addAlgebra);
+        // Boolean literals are constants created just for this encoding.
+        for (int i = 0; i < variables.size(); i++) {
+            String varName = compiledFormula.getVariables().get(i);
+            if (variables.get(i) != encoding && (isTrueLiteral(varName) || isFalseLiteral(varName))) {
+                variables.get(i).close();
+            }
+        }
+        return encoding;
+    }
 
-        parser.addVariableAsObject("true", jadd.makeConstant(1));
-        parser.addVariableAsObject("True", jadd.makeConstant(1));
-        parser.addVariableAsObject("false", jadd.makeConstant(0));
-        parser.addVariableAsObject("False", jadd.makeConstant(0));
-        SymbolTable symbolTable = parser.getSymbolTable();
-        @SuppressWarnings("unchecked")
-        Set<String> variables = new HashSet<String>(symbolTable.keySet());
-        variables.remove("true");
-        variables.remove("True");
-        variables.remove("false");
-        variables.remove("False");
-
-        for (Object var : variables) {
-            String varName = (String) var;
-            ADD variable = jadd.getVariable(varName);
-            parser.addVariableAsObject(varName, variable);
+    /**
+     * Compiles a propositional logic formula for later encoding or evaluation.
+     *
+     * @param formula
+     * @return the compiled formula or {@code null} if there is a parsing error.
+     */
+    public CompiledExpression compileFormula(String formula) {
+        String key = normalize(formula);
+        CompiledExpression compiledFormula = compiledFormulas.get(key);
+        if (compiledFormula == null) {
+            compiledFormula = compile(formula);
+            if (compiledFormula != null) {
+                compiledFormulas.put(key, compiledFormula);
+            }
         }
-        return (ADD) parser.getValueAsObject();
+        return compiledFormula;
+    }
+
+    /**
+     * @return the number of formula encodings currently memoized.
+     */
+    public int getCachedEncodingsCount() {
+        expungeUnreachableEncodings();
+        return encodings.size();
+    }
+
+    /**
+     * @return whether {@code variable} actually stands for the boolean constant true.
+     */
+    public static boolean isTrueLiteral(String variable) {
+        return "true".equals(variable) || "True".equals(variable);
+    }
+
+    /**
+     * @return whether {@code variable} actually stands for the boolean constant false.
+     */
+    public static boolean isFalseLiteral(String variable) {
+        return "false".equals(variable) || "False".equals(variable);
     }
 
     /**
@@ -150,13 +223,11 @@ public class ExpressionSolver {
      *      is a parsing error.
      */
     public Expression<Double> parseExpression(String expression) {
-        JEP parser = makeFloatingPointParser();
-        parser.parseExpression(expression);
-        if (parser.hasError()) {
-            LOGGER.warning("Parser error: " + parser.getErrorInfo());
+        CompiledExpression compiledExpression = compile(expression);
+        if (compiledExpression == null) {
             return null;
         }
-        return new Expression<Double>(parser, Double.class);
+        return new Expression<Double>(compiledExpression, doubleAlgebra);
     }
 
     /**
@@ -169,40 +240,65 @@ public class ExpressionSolver {
      *      is a parsing error.
      */
     public Expression<ADD> parseExpressionForFunctions(String expression) {
-        JEP parser = makeADDParser(jadd);
-        parser.parseExpression(expression);
-        if (parser.hasError()) {
-            LOGGER.warning("Parser error: " + parser.getErrorInfo());
+        CompiledExpression compiledExpression = compile(expression);
+        if (compiledExpression == null) {
             return null;
         }
-        return new Expression<ADD>(parser, ADD.class);
+        return new Expression<ADD>(compiledExpression, addAlgebra);
     }
 
     /**
-     * @param jadd
+     * Removes whitespace from a formula, except for the one which separates
+     * two identifiers (so that "A B" does not become the valid "AB").
      */
-    private JEP makeADDParser(JADD jadd) {
-        JEP parser = new JEP(false, true, true, new ADDNumberFactory(jadd));
-        parser.addFunction("\"+\"", new ADDAdd());
-        parser.addFunction("\"-\":2", new ADDSubtract());
-        parser.addFunction("\"-\":1", new UnaryMinus());
-        parser.addFunction("\"*\"", new ADDMultiply());
-        parser.addFunction("\"^\"", new ADDPower(jadd));
-        parser.addFunction("\"/\"", new ADDDivide());
+    static String normalize(String formula) {
+        StringBuilder normalized = new StringBuilder(formula.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < formula.length(); i++) {
+            char c = formula.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace
+                    && isIdentifierPart(normalized.charAt(normalized.length() - 1))
+                    && isIdentifierPart(c)) {
+                normalized.append(' ');
+            }
+            pendingSpace = false;
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
 
-        parser.addFunction("\"&&\"", new LogicalAnd());
-        parser.addFunction("\"||\"", new LogicalOr());
-        parser.addFunction("\"!\"", new LogicalNot());
-        return parser;
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
     }
 
-    /**
-     * Makes a standard floating-point-based parser.
-     */
-    private JEP makeFloatingPointParser() {
-        JEP parser = new JEP(false, true, true, new DoubleNumberFactory());
-        parser.setAllowUndeclared(true);
-        return parser;
+    private void expungeUnreachableEncodings() {
+        Reference<? extends ADD> reference;
+        while ((reference = unreachableEncodings.poll()) != null) {
+            EncodingReference encodingReference = (EncodingReference) reference;
+            encodings.remove(encodingReference.key, encodingReference);
+        }
+    }
+
+    private static class EncodingReference extends WeakReference<ADD> {
+        final String key;
+
+        EncodingReference(String key, ADD encoding, ReferenceQueue<ADD> queue) {
+            super(encoding, queue);
+            this.key = key;
+        }
+    }
+
+    private CompiledExpression compile(String expression) {
+        try {
+            return CompiledExpression.compile(expression);
+        } catch (ExpressionParseException e) {
+            LOGGER.warning("Parser error: " + e.getMessage());
+            return null;
+        }
     }
 
 }
@@ -264,6 +264,13 @@ public class FDTMC {
 		return transitionSystem;
 	}
 
+    /**
+     * Interface occurrences indexed by the id of the abstracted FDTMC.
+     */
+    public Map<String, List<Interface>> getInterfaces() {
+        return interfaces;
+    }
+
 	/**
 	 * Inlines the given FDTMCs whenever there is an interface corresponding
 	 * to the string in the respective index.
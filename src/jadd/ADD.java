@@ -1,14 +1,20 @@
 package jadd;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.Spliterator;
-import java.util.Spliterators.AbstractSpliterator;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -17,87 +23,166 @@ import org.bridj.Pointer;
 
 import tool.UnknownFeatureException;
 import bigcudd.BigcuddLibrary;
+import bigcudd.BigcuddLibrary.Cudd_ErrorType;
 import bigcudd.BigcuddLibrary.Cudd_addApply_arg1_callback;
 import bigcudd.BigcuddLibrary.DdGen;
 import bigcudd.BigcuddLibrary.DdManager;
+import bigcudd.DdChildren;
 import bigcudd.DdNode;
 
 /**
  * ADD - constant, variable or function alike.
+ *
+ * ADDs may be used concurrently, as all operations on the underlying
+ * CUDD manager are guarded by a lock shared by the ADDs of the same {@link JADD}.
+ *
+ * Each ADD holds a CUDD reference to its node. Intermediate results should be
+ * {@link #close() closed} as soon as they are no longer needed, so that CUDD can
+ * reclaim dead nodes. ADDs which are simply dropped are released anyway, but
+ * only after the JVM finds them to be unreachable.
+ *
+ * Operations which CUDD fails to carry out (e.g., for lack of memory)
+ * throw a {@link CuddException}.
+ *
  * @author thiago
  *
  */
-public class ADD {
+public class ADD implements Closeable {
     private static double FLOATING_POINT_PRECISION = 1E-14;
 
     private Pointer<DdNode> function;
     private Pointer<DdManager> dd;
     private VariableStore variableStore;
+    private CuddLock lock;
+    private NodeReleaser releaser;
+    /**
+     * Handle for releasing the node, or null if this ADD is never released.
+     */
+    private NodeReleaser.NodeReference reference;
+    private volatile boolean closed;
 
-    ADD(Pointer<DdManager> dd, Pointer<DdNode> function, VariableStore variableStore) {
+    /**
+     * Must be called with exclusive access to the manager, right after the
+     * operation which yielded {@code function}.
+     *
+     * @param function Resulting node, or null if the operation failed, in
+     *          which case a {@link CuddException} is thrown.
+     * @param releaser Releaser for the nodes of this ADD and of those derived from it.
+     * @param permanent Whether the node must live as long as the manager
+     *          (e.g., for variables), in which case it is never released.
+     */
+    ADD(Pointer<DdManager> dd, Pointer<DdNode> function, VariableStore variableStore, CuddLock lock, NodeReleaser releaser, boolean permanent) {
         this.dd = dd;
         this.function = function;
         this.variableStore = variableStore;
-        BigcuddLibrary.Cudd_Ref(this.function);
+        this.lock = lock;
+        this.releaser = releaser;
+        if (function == null) {
+            throw new CuddException(readErrorType(dd));
+        }
+        BigcuddLibrary.Cudd_Ref(this.node());
+        if (!permanent) {
+            this.reference = releaser.track(this, function);
+        }
     }
 
     /**
-     * Overriding finalize in order to free CUDD allocated memory.
+     * Reads and clears the code of the last error of the manager.
+     */
+    private static Cudd_ErrorType readErrorType(Pointer<DdManager> dd) {
+        long code = BigcuddLibrary.Cudd_ReadErrorCode(dd).value();
+        BigcuddLibrary.Cudd_ClearErrorCode(dd);
+        for (Cudd_ErrorType errorType : Cudd_ErrorType.values()) {
+            if (errorType.value() == code) {
+                return errorType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Releases this ADD's reference to the underlying node, so that it can
+     * be reclaimed by CUDD (if no other ADD shares it). Using a closed ADD
+     * results in an {@link IllegalStateException}.
+     *
+     * Variables are never released, so closing them has no effect. Closing
+     * an ADD more than once has no further effect either.
      */
     @Override
-    protected void finalize() throws Throwable {
-//        BigcuddLibrary.Cudd_Deref(function);
-        super.finalize();
+    public void close() {
+        if (reference == null || closed) {
+            return;
+        }
+        closed = true;
+        lock.exclusive(() -> {
+            releaser.release(reference);
+        });
+    }
+
+    /**
+     * @return whether this ADD has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private ADD wrap(Pointer<DdNode> node) {
+        return new ADD(dd, node, variableStore, lock, releaser, false);
+    }
+
+    private Pointer<DdNode> node() {
+        if (closed) {
+            throw new IllegalStateException("ADD has already been closed");
+        }
+        return function;
     }
 
     public ADD plus(ADD other) {
-        return apply(other, PLUS);
+        return apply(other, CuddOperators.PLUS);
     }
 
     public ADD minus(ADD other) {
-        return apply(other, MINUS);
+        return apply(other, CuddOperators.MINUS);
     }
 
     public ADD times(ADD other) {
-        return apply(other, TIMES);
+        return apply(other, CuddOperators.TIMES);
     }
 
     public ADD dividedBy(ADD other) {
-        return apply(other, DIVIDE);
+        return apply(other, CuddOperators.DIVIDE);
     }
 
     public ADD and(ADD other) {
-        return apply(other, TIMES);
+        return apply(other, CuddOperators.TIMES);
     }
 
     public ADD or(ADD other) {
-        return apply(other, LOGICAL_OR);
+        return apply(other, CuddOperators.LOGICAL_OR);
     }
 
-    private ADD apply(ADD other, Cudd_addApply_arg1_callback operation) {
-        Pointer<DdNode> result = BigcuddLibrary.Cudd_addApply(dd,
-                                                              Pointer.getPointer(operation),
-                                                              this.function,
-                                                              other.function);
-        return new ADD(dd, result, variableStore);
+    private ADD apply(ADD other, Pointer<Cudd_addApply_arg1_callback> operation) {
+        return lock.exclusive(() -> {
+            Pointer<DdNode> result = BigcuddLibrary.Cudd_addApply(dd,
+                                                                  operation,
+                                                                  this.node(),
+                                                                  other.node());
+            return wrap(result);
+        });
     }
 
     /**
      * @return negated form (corresponding to unary minus).
      */
     public ADD negate() {
-        return new ADD(dd,
-                       BigcuddLibrary.Cudd_addNegate(dd, this.function),
-                       variableStore);
+        return lock.exclusive(() -> wrap(BigcuddLibrary.Cudd_addNegate(dd, node())));
     }
 
     /**
      * @return complemented form (corresponding to logical not).
      */
     public ADD complement() {
-        return new ADD(dd,
-                       BigcuddLibrary.Cudd_addCmpl(dd, this.function),
-                       variableStore);
+        return lock.exclusive(() -> wrap(BigcuddLibrary.Cudd_addCmpl(dd, node())));
     }
 
     /**
@@ -105,23 +190,28 @@ public class ADD {
      * as the conditional.
      */
     public ADD ifThenElse(ADD ifTrue, ADD ifFalse) {
-        Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
-                                                            this.function,
-                                                            ifTrue.function,
-                                                            ifFalse.function);
-        return new ADD(dd, result, variableStore);
+        return lock.exclusive(() -> {
+            Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
+                                                                this.node(),
+                                                                ifTrue.node(),
+                                                                ifFalse.node());
+            return wrap(result);
+        });
     }
 
     /**
      * Overloading for constant fallbacks.
      */
     public ADD ifThenElse(ADD ifTrue, double ifFalse) {
-        Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
-                                                            this.function,
-                                                            ifTrue.function,
-                                                            BigcuddLibrary.Cudd_addConst(dd,
-                                                                                         ifFalse));
-        return new ADD(dd, result, variableStore);
+        return lock.exclusive(() -> {
+            // The constant must be referenced, lest it be collected during the operation.
+            ADD constant = wrap(BigcuddLibrary.Cudd_addConst(dd, ifFalse));
+            try {
+                return ifThenElse(ifTrue, constant);
+            } finally {
+                constant.close();
+            }
+        });
     }
 
     /**
@@ -134,9 +224,12 @@ public class ADD {
     public Set<String> getVariables() {
         Set<String> variables = new HashSet<String>();
 
-        Pointer<Integer> variablesPtr = BigcuddLibrary.Cudd_SupportIndex(dd, this.function);
-        int numVars = BigcuddLibrary.Cudd_ReadSize(dd);
-        int[] variablesPresence = variablesPtr.getInts(numVars);
+        // Support computation marks nodes, so it cannot share the manager.
+        int[] variablesPresence = lock.exclusive(() -> {
+            Pointer<Integer> variablesPtr = BigcuddLibrary.Cudd_SupportIndex(dd, this.node());
+            return variablesPtr.getInts(BigcuddLibrary.Cudd_ReadSize(dd));
+        });
+        int numVars = variablesPresence.length;
         for (short i = 0; i < numVars; i++) {
             if (variablesPresence[i] == 1) {
                 variables.add(variableStore.getName(i));
@@ -146,28 +239,80 @@ public class ADD {
     }
 
     public List<String> getVariableOrder() {
-        List<String> variables = new ArrayList<String>();
-        for (int pos = 0; pos < variableStore.getNumberOfVariables(); pos++) {
-            int varIndex = BigcuddLibrary.Cudd_ReadInvPerm(dd, pos);
-            String varName = variableStore.getName((short)varIndex);
-            variables.add(varName);
-        }
-        return variables;
+        return lock.shared(() -> {
+            List<String> variables = new ArrayList<String>();
+            for (int pos = 0; pos < variableStore.getNumberOfVariables(); pos++) {
+                int varIndex = BigcuddLibrary.Cudd_ReadInvPerm(dd, pos);
+                String varName = variableStore.getName((short)varIndex);
+                variables.add(varName);
+            }
+            return variables;
+        });
     }
 
     public double eval(String[] variables) throws UnrecognizedVariableException {
-        int[] presenceVector = variableStore.toPresenceVector(variables);
-        Pointer<DdNode> terminal = BigcuddLibrary.Cudd_Eval(dd,
-                                                            function,
-                                                            Pointer.pointerToInts(presenceVector));
-        DdNode terminalNode = terminal.get();
-        return terminalNode.type().value();
+        return eval(variableStore.toPresenceVector(variables));
     }
 
     public double eval(List<String> variables) throws UnrecognizedVariableException {
         return eval(variables.toArray(new String[variables.size()]));
     }
 
+    /**
+     * Evaluates this ADD for the given configuration, avoiding
+     * name lookups if it was built by the same manager.
+     */
+    public double eval(Configuration configuration) throws UnrecognizedVariableException {
+        Configuration ownConfiguration = Configuration.fromFeatures(variableStore, configuration);
+        int[] presenceVector = ownConfiguration.toPresenceVector(variableStore.getNumberOfVariables());
+        return eval(presenceVector);
+    }
+
+    /**
+     * Evaluates this ADD for many configurations at once, reusing a single
+     * (native) presence vector.
+     *
+     * @return the values, in the same order as the configurations.
+     */
+    public double[] evalAll(List<String[]> configurations) throws UnrecognizedVariableException {
+        int numVariables = variableStore.getNumberOfVariables();
+        int[][] indices = new int[configurations.size()][];
+        for (int i = 0; i < indices.length; i++) {
+            String[] configuration = configurations.get(i);
+            indices[i] = new int[configuration.length];
+            for (int j = 0; j < configuration.length; j++) {
+                indices[i][j] = variableStore.getIndex(configuration[j]);
+                if (indices[i][j] < 0) {
+                    throw new UnrecognizedVariableException(configuration[j]);
+                }
+            }
+        }
+        Pointer<Integer> inputs = Pointer.pointerToInts(new int[Math.max(1, numVariables)]);
+        double[] values = new double[indices.length];
+        lock.shared(() -> {
+            for (int i = 0; i < indices.length; i++) {
+                for (int index : indices[i]) {
+                    inputs.setIntAtIndex(index, 1);
+                }
+                values[i] = BigcuddLibrary.Cudd_Eval(dd, node(), inputs).get().type().value();
+                for (int index : indices[i]) {
+                    inputs.setIntAtIndex(index, 0);
+                }
+            }
+            return values;
+        });
+        return values;
+    }
+
+    private double eval(int[] presenceVector) {
+        Pointer<Integer> inputs = Pointer.pointerToInts(presenceVector);
+        return lock.shared(() -> {
+            Pointer<DdNode> terminal = BigcuddLibrary.Cudd_Eval(dd, node(), inputs);
+            DdNode terminalNode = terminal.get();
+            return terminalNode.type().value();
+        });
+    }
+
     /**
      * Checks if a configuration is valid (non-zero).
      * @param configuration
@@ -177,7 +322,7 @@ public class ADD {
     public boolean isValidConfiguration(Collection<String> configuration) throws UnknownFeatureException {
         double validity;
         try {
-            validity = eval(configuration.toArray(new String[configuration.size()]));
+            validity = eval(Configuration.fromFeatures(variableStore, configuration));
         } catch (UnrecognizedVariableException e) {
             throw new UnknownFeatureException(e.getVariableName());
         }
@@ -190,6 +335,10 @@ public class ADD {
      *
      * For instance, the configuration ["A", "(B)", "C"] would be returned as
      * two different configurations: ["A", "B", "C"] and ["A", "C"].
+     *
+     * The returned collections are instances of {@link Configuration}.
+     * The stream holds references of its own to the nodes yet to be traversed,
+     * so this ADD may be closed, and variables reordered, while it is consumed.
      * @return
      */
     public Stream<Collection<String>> getExpandedConfigurations() {
@@ -201,7 +350,7 @@ public class ADD {
     * @return
     */
     public int getNodeCount() {
-        return BigcuddLibrary.Cudd_DagSize(function);
+        return lock.exclusive(() -> BigcuddLibrary.Cudd_DagSize(node()));
     }
 
     /**
@@ -209,7 +358,7 @@ public class ADD {
      * @return
      */
     public boolean isConstant() {
-        return 1 != BigcuddLibrary.Cudd_IsNonConstant(function);
+        return 1 != BigcuddLibrary.Cudd_IsNonConstant(node());
     }
 
     static Collection<List<String>> expandDontCares(List<String> config) {
@@ -265,40 +414,47 @@ public class ADD {
             return false;
         }
         ADD other = (ADD) obj;
-        return this.function.equals(other.function)
-                || (BigcuddLibrary.Cudd_EqualSupNorm(dd,
-                                                     this.function,
-                                                     other.function,
-                                                     ADD.FLOATING_POINT_PRECISION,
-                                                     1) == 1);
+        return this.function.equals(other.node())
+                || lock.exclusive(() -> BigcuddLibrary.Cudd_EqualSupNorm(dd,
+                                                                         this.node(),
+                                                                         other.node(),
+                                                                         ADD.FLOATING_POINT_PRECISION,
+                                                                         1) == 1);
     }
 
     public int getDeadNodesCount() {
-    	return BigcuddLibrary.Cudd_ReadDead(dd);
+    	return lock.shared(() -> BigcuddLibrary.Cudd_ReadDead(dd));
     }
 
     public int getTerminalsDifferentThanZeroCount() {
-    	return BigcuddLibrary.Cudd_CountLeaves(function) - 1;
+    	return lock.exclusive(() -> BigcuddLibrary.Cudd_CountLeaves(node())) - 1;
     }
 
     public double getPathsToNonZeroTerminalsCount() {
-    	return BigcuddLibrary.Cudd_CountPathsToNonZero(function);
+    	return lock.exclusive(() -> BigcuddLibrary.Cudd_CountPathsToNonZero(node()));
     }
 
     public double getPathsToZeroTerminalCount() {
-    	return BigcuddLibrary.Cudd_CountPath(function) - getPathsToNonZeroTerminalsCount();
+    	return lock.exclusive(() -> BigcuddLibrary.Cudd_CountPath(node()) - BigcuddLibrary.Cudd_CountPathsToNonZero(node()));
     }
 
     public int getReorderingsCount() {
-    	return BigcuddLibrary.Cudd_ReadReorderings(dd);
+    	return lock.shared(() -> BigcuddLibrary.Cudd_ReadReorderings(dd));
     }
 
     public int getGarbageCollectionsCount() {
-    	return BigcuddLibrary.Cudd_ReadGarbageCollections(dd);
+    	return lock.shared(() -> BigcuddLibrary.Cudd_ReadGarbageCollections(dd));
+    }
+
+    /**
+     * @return the peak number of live (i.e., referenced) nodes in the manager so far.
+     */
+    public int getPeakLiveNodeCount() {
+        return lock.shared(() -> BigcuddLibrary.Cudd_ReadPeakLiveNodeCount(dd));
     }
 
     public long getAddSizeInBytes() {
-    	return BigcuddLibrary.Cudd_ReadMemoryInUse(dd);
+    	return lock.shared(() -> BigcuddLibrary.Cudd_ReadMemoryInUse(dd));
     }
 
     @Override
@@ -306,115 +462,341 @@ public class ADD {
         return this.function.hashCode();
     }
 
+    /**
+     * Writes this function to a binary file, from which it can be loaded as
+     * an {@link ADDTable} (and evaluated with no manager at all).
+     */
+    public void export(Path file) throws IOException {
+        snapshot().write(file);
+    }
+
+    /**
+     * Copies this ADD into a table which can be evaluated in pure Java, with
+     * no native calls. It pays off when the ADD is to be evaluated many times.
+     */
+    public ADDTable snapshot() {
+        return lock.shared(() -> ADDTable.of(node(), variableStore));
+    }
+
     Pointer<DdNode> getUnderlyingNode() {
-        return this.function;
+        return node();
     }
 
-    /**************************************************************
-     *** Operators definitions
-     *************************************************************/
+    /**
+     * Sub-function of this ADD whose cubes are yet to be enumerated, along
+     * with the variables fixed by the path from the root of the ADD to it.
+     * It holds a reference of its own, so that it survives reordering as
+     * well as the closing of the ADD it was taken from.
+     */
+    private static final class SubFunction {
+        final ADD function;
+        final long[] fixedBits;
+        final long[] fixedMask;
+        // Number of configurations of the sub-function.
+        final long size;
+
+        SubFunction(ADD function, long[] fixedBits, long[] fixedMask, long size) {
+            this.function = function;
+            this.fixedBits = fixedBits;
+            this.fixedMask = fixedMask;
+            this.size = size;
+        }
+    }
 
-    private static final BigcuddLibrary.Cudd_addApply_arg1_callback TIMES = new BigcuddLibrary.Cudd_addApply_arg1_callback() {
-        @Override
-        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
-                                      Pointer<Pointer<DdNode > > node1,
-                                      Pointer<Pointer<DdNode > > node2) {
-            return BigcuddLibrary.Cudd_addTimes(dd, node1, node2);
+    /**
+     * Cube whose "don't care" variables are yet to be expanded.
+     */
+    private static final class Cube {
+        final long[] bits;
+        final int[] dontCares;
+
+        Cube(long[] bits, int[] dontCares) {
+            this.bits = bits;
+            this.dontCares = dontCares;
         }
-    };
+    }
 
-    private static final BigcuddLibrary.Cudd_addApply_arg1_callback PLUS = new BigcuddLibrary.Cudd_addApply_arg1_callback() {
-        @Override
-        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
-                                      Pointer<Pointer<DdNode > > node1,
-                                      Pointer<Pointer<DdNode > > node2) {
-            return BigcuddLibrary.Cudd_addPlus(dd, node1, node2);
+    /**
+     * Enumerates the expanded non-zero cubes of sub-functions of this ADD.
+     *
+     * Cubes are read in batches, each under a single acquisition of the lock,
+     * and the CUDD generator is freed before the batch is handed out. Thus,
+     * nodes cannot be moved or reclaimed under a generator: in between batches,
+     * pending sub-functions are kept alive by their own references, so that
+     * reordering or closing ADDs (this one included) is harmless. Sub-functions
+     * with more than {@link #MAX_CUBES_PER_BATCH} cubes are split on their top
+     * variable before being read.
+     *
+     * Unless it is in the middle of a batch, a spliterator can be split: either
+     * its pending sub-functions are shared with a new spliterator, or its only
+     * one is split on its top variable. The "else" cofactor is handed over to
+     * the new spliterator, and the "then" one is kept. Each partition then
+     * enumerates disjoint cubes, so that partitions can be traversed in parallel.
+     */
+    private class CubeSpliterator implements Spliterator<Collection<String>> {
+        private static final int MAX_CUBES_PER_BATCH = 4096;
+
+        private final int numVars;
+        private final Pointer<DdNode> zero;
+
+        // Sub-functions yet to be read, in CUDD's enumeration order.
+        private final Deque<SubFunction> pending;
+        // Cubes of the current batch yet to be expanded.
+        private final Deque<Cube> cubes = new ArrayDeque<Cube>();
+
+        /**
+         * Number of configurations yet to be enumerated, computed when this
+         * spliterator is created or split (see {@link #estimateSize()}).
+         */
+        private long estimatedSize;
+
+        // Expansion of "don't care" variables in the current cube, as a
+        // binary counter with one bit per variable (whatever their number).
+        private Cube cube;
+        private long[] expansion;
+
+        CubeSpliterator() {
+            this.numVars = lock.shared(() -> BigcuddLibrary.Cudd_ReadSize(dd));
+            this.zero = lock.shared(() -> BigcuddLibrary.Cudd_ReadZero(dd));
+            this.pending = new ArrayDeque<SubFunction>();
+            SubFunction whole = lock.exclusive(() -> subFunction(wrap(node()),
+                                                                 new long[Configuration.wordsFor(numVars)],
+                                                                 new long[Configuration.wordsFor(numVars)]));
+            pending.add(whole);
+            this.estimatedSize = whole.size;
+        }
+
+        private CubeSpliterator(CubeSpliterator parent, Deque<SubFunction> pending) {
+            this.numVars = parent.numVars;
+            this.zero = parent.zero;
+            this.pending = pending;
+            for (SubFunction function : pending) {
+                estimatedSize += function.size;
+                if (estimatedSize < 0) {
+                    estimatedSize = Long.MAX_VALUE;
+                }
+            }
         }
-    };
 
-    private static final BigcuddLibrary.Cudd_addApply_arg1_callback DIVIDE = new BigcuddLibrary.Cudd_addApply_arg1_callback() {
         @Override
-        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
-                                      Pointer<Pointer<DdNode > > node1,
-                                      Pointer<Pointer<DdNode > > node2) {
-            return BigcuddLibrary.Cudd_addDivide(dd, node1, node2);
+        public Spliterator<Collection<String>> trySplit() {
+            // Cubes of a batch in progress precede those of pending sub-functions.
+            if (cube != null || !cubes.isEmpty() || pending.isEmpty()) {
+                return null;
+            }
+            if (pending.size() == 1 && !lock.exclusive(this::splitOnTopVariable)) {
+                return null;
+            }
+            Deque<SubFunction> prefixPending = new ArrayDeque<SubFunction>();
+            for (int i = pending.size() / 2; i > 0; i--) {
+                prefixPending.add(pending.pollFirst());
+            }
+            CubeSpliterator prefix = new CubeSpliterator(this, prefixPending);
+            // Partitions are disjoint, so only one of them must be counted.
+            estimatedSize = Math.max(0, estimatedSize - prefix.estimatedSize);
+            return prefix;
+        }
+
+        /**
+         * Replaces the only pending sub-function by its cofactors on the first
+         * variable for which none of them is zero. Must be called with exclusive
+         * access to the manager.
+         *
+         * @return false if there is no such variable (i.e., the sub-function
+         *          has a single cube).
+         */
+        private boolean splitOnTopVariable() {
+            SubFunction function = pending.pollFirst();
+            List<SubFunction> cofactors = cofactors(function);
+            while (cofactors.size() == 1) {
+                function = cofactors.get(0);
+                cofactors = cofactors(function);
+            }
+            if (cofactors.isEmpty()) {
+                pending.add(function);
+                return false;
+            }
+            pending.addAll(cofactors);
+            return true;
+        }
+
+        /**
+         * Splits a sub-function on its top variable, closing it. Zero cofactors
+         * have no cubes, so they are left out. Must be called with exclusive
+         * access to the manager.
+         *
+         * @return the non-zero cofactors, in CUDD's enumeration order ("else"
+         *          first), or an empty list if the sub-function is constant
+         *          (in which case it is not closed).
+         */
+        private List<SubFunction> cofactors(SubFunction function) {
+            Pointer<DdNode> node = function.function.node();
+            if (BigcuddLibrary.Cudd_IsNonConstant(node) != 1) {
+                return Collections.emptyList();
+            }
+            int index = BigcuddLibrary.Cudd_NodeReadIndex(node);
+            DdChildren children = node.get().type().kids();
+            long[] fixedMask = function.fixedMask.clone();
+            fixedMask[index >>> 6] |= 1L << index;
+
+            List<SubFunction> cofactors = new ArrayList<SubFunction>(2);
+            if (!isZero(children.E())) {
+                cofactors.add(subFunction(wrap(children.E()), function.fixedBits.clone(), fixedMask));
+            }
+            if (!isZero(children.T())) {
+                long[] fixedBits = function.fixedBits.clone();
+                fixedBits[index >>> 6] |= 1L << index;
+                cofactors.add(subFunction(wrap(children.T()), fixedBits, fixedMask));
+            }
+            function.function.close();
+            return cofactors;
+        }
+
+        private SubFunction subFunction(ADD function, long[] fixedBits, long[] fixedMask) {
+            return new SubFunction(function,
+                                   fixedBits,
+                                   fixedMask,
+                                   countConfigurations(function.node(), fixedMask));
         }
-    };
 
-    private static final BigcuddLibrary.Cudd_addApply_arg1_callback MINUS = new BigcuddLibrary.Cudd_addApply_arg1_callback() {
         @Override
-        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
-                                      Pointer<Pointer<DdNode > > node1,
-                                      Pointer<Pointer<DdNode > > node2) {
-            return BigcuddLibrary.Cudd_addMinus(dd, node1, node2);
+        public boolean tryAdvance(Consumer<? super Collection<String>> action) {
+            if (cube == null) {
+                while (cubes.isEmpty()) {
+                    if (pending.isEmpty()) {
+                        return false;
+                    }
+                    lock.exclusive(this::readBatch);
+                }
+                cube = cubes.pollFirst();
+                expansion = new long[Configuration.wordsFor(cube.dontCares.length)];
+            }
+            action.accept(nextExpandedConfiguration());
+            return true;
         }
-    };
 
-    private static final BigcuddLibrary.Cudd_addApply_arg1_callback LOGICAL_OR = new BigcuddLibrary.Cudd_addApply_arg1_callback() {
+        /**
+         * Sub-functions are counted exactly, and so is every configuration
+         * enumerated since, so the estimate is exact (unless it overflows).
+         */
         @Override
-        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
-                                      Pointer<Pointer<DdNode > > node1,
-                                      Pointer<Pointer<DdNode > > node2) {
-            return BigcuddLibrary.Cudd_addOr(dd, node1, node2);
+        public long estimateSize() {
+            return estimatedSize;
         }
-    };
 
-    private class CubeSpliterator extends AbstractSpliterator<Collection<String>> {
+        /**
+         * Counts the configurations of a sub-function. Must be called with
+         * exclusive access to the manager, since counting minterms creates
+         * (and then releases) constant nodes.
+         */
+        private long countConfigurations(Pointer<DdNode> node, long[] fixedMask) {
+            // Minterms of the sub-function over all variables, including the
+            // fixed ones (which are not in its support).
+            double minterms = BigcuddLibrary.Cudd_CountMinterm(dd, node, numVars);
+            int numFixed = 0;
+            for (long word : fixedMask) {
+                numFixed += Long.bitCount(word);
+            }
+            double estimate = Math.scalb(minterms, -numFixed);
+            return (estimate >= Long.MAX_VALUE) ? Long.MAX_VALUE : (long) estimate;
+        }
 
-        private Pointer<Pointer<Integer>> cubePtr;
-        private Pointer<Double> valuePtr;
-        private Pointer<DdGen> generator;
-        private int numVars;
-        private Iterator<List<String>> expandedIterator;
+        @Override
+        public int characteristics() {
+            return Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED | Spliterator.DISTINCT;
+        }
 
-        protected CubeSpliterator() {
-            super((long) BigcuddLibrary.Cudd_CountPathsToNonZero(function),
-                  Spliterator.SIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED);
+        /**
+         * Reads all cubes of the next pending sub-function, once it has been
+         * split into small enough cofactors (the others being left pending).
+         * Must be called with exclusive access to the manager.
+         */
+        private void readBatch() {
+            SubFunction function = pending.pollFirst();
+            while (BigcuddLibrary.Cudd_CountPathsToNonZero(function.function.node()) > MAX_CUBES_PER_BATCH) {
+                List<SubFunction> cofactors = cofactors(function);
+                function = cofactors.get(0);
+                for (int i = cofactors.size() - 1; i > 0; i--) {
+                    pending.addFirst(cofactors.get(i));
+                }
+            }
 
-            Pointer<Integer> dummy = Pointer.allocateInt();
             // A pointer to a freshly allocated pointer to int.
             // As Cudd_FirstCube and Cudd_NextCube allocate the returned cubes,
             // allocating a whole int[] here makes no sense. Thus, we allocate
             // only the position where the address to the generated cubes are
             // to be stored.
-            cubePtr = Pointer.pointerToPointer(dummy);
+            Pointer<Pointer<Integer>> cubePtr = Pointer.pointerToPointer(Pointer.allocateInt());
             // A pointer to a freshly allocated double.
-            valuePtr = Pointer.pointerToDouble(0);
+            Pointer<Double> valuePtr = Pointer.pointerToDouble(0);
+            Pointer<DdGen> generator = BigcuddLibrary.Cudd_FirstCube(dd, function.function.node(), cubePtr, valuePtr);
+            try {
+                while (BigcuddLibrary.Cudd_IsGenEmpty(generator) == 0) {
+                    int[] presenceVector = cubePtr.getPointer(Integer.class).getInts(numVars);
+                    cubes.add(toCube(presenceVector, function));
+                    BigcuddLibrary.Cudd_NextCube(generator, cubePtr, valuePtr);
+                }
+            } finally {
+                BigcuddLibrary.Cudd_GenFree(generator);
+                function.function.close();
+            }
+        }
 
-            // So let's start the iteration!
-            generator = BigcuddLibrary.Cudd_FirstCube(dd,
-                                                      function,
-                                                      cubePtr,
-                                                      valuePtr);
-            numVars = BigcuddLibrary.Cudd_ReadSize(dd);
+        private boolean isZero(Pointer<DdNode> child) {
+            return child.getPeer() == zero.getPeer();
+        }
 
+        /**
+         * Prepares the expansion of a cube's "don't care" literals
+         * (represented by the value 2) into concrete configurations.
+         * Variables fixed by splitting are not in the sub-function's support,
+         * so they show up as "don't care" and must be overridden.
+         */
+        private Cube toCube(int[] presenceVector, SubFunction function) {
+            long[] cubeBits = function.fixedBits.clone();
+            int numDontCares = 0;
+            int[] dontCareIndices = new int[presenceVector.length];
+            for (int i = 0; i < presenceVector.length; i++) {
+                if ((function.fixedMask[i >>> 6] & (1L << i)) != 0) {
+                    continue;
+                }
+                if (presenceVector[i] == 1) {
+                    cubeBits[i >>> 6] |= 1L << i;
+                } else if (presenceVector[i] == 2 && variableStore.getName((short) i) != null) {
+                    dontCareIndices[numDontCares++] = i;
+                }
+            }
+            return new Cube(cubeBits, Arrays.copyOf(dontCareIndices, numDontCares));
         }
 
-        @Override
-        public boolean tryAdvance(Consumer<? super Collection<String>> action) {
-            if (expandedIterator == null || !expandedIterator.hasNext()) {
-                if (BigcuddLibrary.Cudd_IsGenEmpty(generator) == 0) {
-                    Pointer<Integer> cube = cubePtr.getPointer(Integer.class);
-                    int[] presenceVector = cube.getInts(numVars);
-                    List<String> configuration = variableStore.fromPresenceVector(presenceVector);
-
-                    Collection<List<String>> expanded = expandDontCares(configuration);
-                    expandedIterator = expanded.iterator();
-
-                    BigcuddLibrary.Cudd_NextCube(generator,
-                            cubePtr,
-                            valuePtr);
-                } else {
-                    if (generator != null) {
-                        BigcuddLibrary.Cudd_GenFree(generator);
-                        generator = null;
-                    }
-                    return false;
+        private Configuration nextExpandedConfiguration() {
+            long[] bits = cube.bits.clone();
+            int[] dontCares = cube.dontCares;
+            for (int i = 0; i < dontCares.length; i++) {
+                if ((expansion[i >>> 6] & (1L << i)) != 0) {
+                    bits[dontCares[i] >>> 6] |= 1L << dontCares[i];
                 }
             }
+            if (!nextExpansion(dontCares.length)) {
+                cube = null;
+            }
+            estimatedSize = Math.max(0, estimatedSize - 1);
+            return new Configuration(variableStore, bits);
+        }
 
-            action.accept(expandedIterator.next());
-            return true;
+        /**
+         * Increments the expansion counter.
+         *
+         * @return false if it wrapped around, i.e., the cube is fully expanded.
+         */
+        private boolean nextExpansion(int numDontCares) {
+            for (int i = 0; i < numDontCares; i++) {
+                expansion[i >>> 6] ^= 1L << i;
+                if ((expansion[i >>> 6] & (1L << i)) != 0) {
+                    return true;
+                }
+            }
+            return false;
         }
 
     }
@@ -0,0 +1,675 @@
+package jadd;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.bridj.Pointer;
+
+import bigcudd.BigcuddLibrary;
+import bigcudd.DdChildren;
+import bigcudd.DdNode;
+
+/**
+ * Read-only snapshot of an ADD as a flat table of nodes, along with the
+ * names of its variables.
+ *
+ * A table is evaluated in pure Java, with no CUDD manager at all: each lookup
+ * is a tight loop over primitive arrays, with no native calls or allocation.
+ * Evaluation only reads the table, so it is thread-safe.
+ *
+ * Tables can also be stored, so that an ADD {@link ADD#export(Path) exported}
+ * by a run can be {@link #load(Path) loaded} by a later one and queried with no
+ * recomputation. Files are laid out as follows:
+ *
+ * <pre>
+ * int      magic number ("RADD")
+ * int      format version
+ * int      number of variables (V)
+ * int      number of nodes (N)
+ * int      index of the root node
+ * int      offset of the node table, in bytes
+ * V times  variable name (unsigned short length + UTF-8 bytes), by variable index
+ * N times  node (16 bytes), either
+ *              int variable index, int "then" node, int "else" node, int unused
+ *          or, for terminals,
+ *              int -1, int unused, double value
+ * </pre>
+ *
+ * Children always come before their parents.
+ *
+ * Aggregates over all configurations (such as the extreme values, the
+ * histogram of values or the lowest-valued configurations) are computed
+ * by passes over the table, rather than by enumerating configurations.
+ * Configurations which evaluate to zero are regarded as invalid, so they
+ * are left out of every aggregate.
+ */
+public class ADDTable {
+    private static final int MAGIC = 0x52414444;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * 4;
+    private static final int NODE_SIZE = 16;
+    private static final int TERMINAL = -1;
+
+    private final String[] variableNames;
+    private final Map<String, Integer> variableIndices;
+    /**
+     * Variable index, "then" child and "else" child of each node, in sequence.
+     * Terminals have {@link #TERMINAL} as variable index.
+     */
+    private final int[] nodes;
+    /**
+     * Values of the terminal nodes, by node.
+     */
+    private final double[] values;
+    private final int root;
+    /**
+     * Presence vector reused by the lookups of each thread.
+     */
+    private final ThreadLocal<boolean[]> presenceVectors;
+
+    private ADDTable(String[] variableNames, int[] nodes, double[] values, int root) {
+        this.variableNames = variableNames;
+        this.nodes = nodes;
+        this.values = values;
+        this.root = root;
+        this.variableIndices = new HashMap<String, Integer>();
+        for (int i = 0; i < variableNames.length; i++) {
+            variableIndices.put(variableNames[i], i);
+        }
+        this.presenceVectors = ThreadLocal.withInitial(() -> new boolean[variableNames.length]);
+    }
+
+    /**
+     * Loads a table written by {@link #write(Path)}. The table is validated,
+     * so that lookups cannot go astray, whatever the contents of the file.
+     *
+     * @throws IOException if the file cannot be read or is not a valid exported ADD.
+     */
+    public static ADDTable load(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an exported ADD: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported exported ADD version: " + buffer.getInt(4));
+        }
+        int numVariables = buffer.getInt(8);
+        int numNodes = buffer.getInt(12);
+        int root = buffer.getInt(16);
+        int nodesOffset = buffer.getInt(20);
+        if (numVariables < 0 || numNodes <= 0 || nodesOffset < HEADER_SIZE) {
+            throw new IOException("Corrupt exported ADD header: " + file);
+        }
+        if ((long) nodesOffset + (long) numNodes * NODE_SIZE > buffer.limit()) {
+            throw new IOException("Truncated exported ADD: " + file);
+        }
+        if (root < 0 || root >= numNodes) {
+            throw new IOException("Corrupt exported ADD: root " + root + " is not one of the " + numNodes + " nodes");
+        }
+
+        String[] variableNames = new String[numVariables];
+        buffer.position(HEADER_SIZE);
+        buffer.limit(nodesOffset);
+        try {
+            for (int i = 0; i < numVariables; i++) {
+                byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                variableNames[i] = new String(name, StandardCharsets.UTF_8);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt exported ADD: variable names overlap the nodes", e);
+        }
+        buffer.clear();
+        int[] nodes = new int[3 * numNodes];
+        double[] values = new double[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            int offset = nodesOffset + i * NODE_SIZE;
+            nodes[3 * i] = buffer.getInt(offset);
+            if (nodes[3 * i] == TERMINAL) {
+                values[i] = buffer.getDouble(offset + 8);
+            } else {
+                int variable = nodes[3 * i];
+                int thenChild = buffer.getInt(offset + 4);
+                int elseChild = buffer.getInt(offset + 8);
+                if (variable < 0 || variable >= numVariables) {
+                    throw new IOException("Corrupt exported ADD: node " + i + " has unknown variable " + variable);
+                }
+                // Children must come before their parents, so that lookups always terminate.
+                if (thenChild < 0 || thenChild >= i || elseChild < 0 || elseChild >= i) {
+                    throw new IOException("Corrupt exported ADD: node " + i + " has children "
+                                          + thenChild + " and " + elseChild);
+                }
+                nodes[3 * i + 1] = thenChild;
+                nodes[3 * i + 2] = elseChild;
+            }
+        }
+        return new ADDTable(variableNames, nodes, values, root);
+    }
+
+    /**
+     * Builds the table of a function. Must be called with (at least shared)
+     * access to the manager.
+     */
+    static ADDTable of(Pointer<DdNode> function, VariableStore variableStore) {
+        String[] variableNames = new String[variableStore.getNumberOfVariables()];
+        for (short i = 0; i < variableNames.length; i++) {
+            variableNames[i] = variableStore.getName(i);
+        }
+        Builder builder = new Builder();
+        int root = builder.add(function);
+        return new ADDTable(variableNames,
+                            Arrays.copyOf(builder.nodes, 3 * builder.size),
+                            Arrays.copyOf(builder.values, builder.size),
+                            root);
+    }
+
+    /**
+     * Numbers the nodes of a function, children first, as they are added to
+     * the table. Numbers are kept by node address in an open-addressed hash
+     * table of primitives, as functions may have millions of nodes.
+     */
+    private static class Builder {
+        private int[] nodes = new int[3 * 1024];
+        private double[] values = new double[1024];
+        private int size;
+
+        private long[] addresses = new long[2048];
+        private int[] numbers = new int[2048];
+
+        /**
+         * @return the number of {@code node}.
+         */
+        int add(Pointer<DdNode> node) {
+            long address = node.getPeer();
+            int slot = find(address);
+            if (addresses[slot] == address) {
+                return numbers[slot];
+            }
+            int variable = TERMINAL;
+            int thenChild = 0;
+            int elseChild = 0;
+            double value = 0;
+            if (BigcuddLibrary.Cudd_IsNonConstant(node) == 1) {
+                DdChildren children = node.get().type().kids();
+                variable = BigcuddLibrary.Cudd_NodeReadIndex(node);
+                thenChild = add(children.T());
+                elseChild = add(children.E());
+                // Adding the children may have rehashed the numbers.
+                slot = find(address);
+            } else {
+                value = node.get().type().value();
+            }
+
+            if (size == values.length) {
+                nodes = Arrays.copyOf(nodes, 6 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            nodes[3 * size] = variable;
+            nodes[3 * size + 1] = thenChild;
+            nodes[3 * size + 2] = elseChild;
+            values[size] = value;
+            addresses[slot] = address;
+            numbers[slot] = size;
+            size++;
+            if (2 * size > addresses.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        /**
+         * @return the slot holding {@code address} or, if there is none,
+         *          the empty one where it belongs.
+         */
+        private int find(long address) {
+            int mask = addresses.length - 1;
+            // Nodes are aligned, so the lowest bits carry no information.
+            int slot = (int) ((address >>> 4) * 0x9E3779B97F4A7C15L >>> 33) & mask;
+            while (addresses[slot] != 0 && addresses[slot] != address) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            long[] oldAddresses = addresses;
+            int[] oldNumbers = numbers;
+            addresses = new long[2 * oldAddresses.length];
+            numbers = new int[2 * oldNumbers.length];
+            for (int i = 0; i < oldAddresses.length; i++) {
+                if (oldAddresses[i] != 0) {
+                    int slot = find(oldAddresses[i]);
+                    addresses[slot] = oldAddresses[i];
+                    numbers[slot] = oldNumbers[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes this table to a file, so that it can be {@link #load(Path) loaded} later.
+     *
+     * @throws IOException if the file cannot be written, or if the table
+     *          does not fit in a file of up to 2 GB (the size of a ByteBuffer).
+     */
+    public void write(Path file) throws IOException {
+        List<byte[]> names = new ArrayList<byte[]>(variableNames.length);
+        long namesSize = 0;
+        for (String variableName : variableNames) {
+            byte[] name = variableName.getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) {
+                throw new IOException("Variable name too long to be exported: " + variableName.substring(0, 32) + "...");
+            }
+            names.add(name);
+            namesSize += 2 + name.length;
+        }
+        int numNodes = values.length;
+        // Aligned, so that terminal values are too.
+        long nodesOffset = (HEADER_SIZE + namesSize + 7) & ~7L;
+        long fileSize = nodesOffset + (long) numNodes * NODE_SIZE;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("ADD too large to be exported (" + numNodes + " nodes, "
+                                  + fileSize + " bytes): the limit is 2 GB");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+        buffer.putInt(MAGIC)
+              .putInt(VERSION)
+              .putInt(variableNames.length)
+              .putInt(numNodes)
+              .putInt(root)
+              .putInt((int) nodesOffset);
+        for (byte[] name : names) {
+            buffer.putShort((short) name.length).put(name);
+        }
+        for (int i = 0; i < numNodes; i++) {
+            int offset = (int) nodesOffset + i * NODE_SIZE;
+            buffer.putInt(offset, nodes[3 * i]);
+            if (nodes[3 * i] == TERMINAL) {
+                buffer.putDouble(offset + 8, values[i]);
+            } else {
+                buffer.putInt(offset + 4, nodes[3 * i + 1]);
+                buffer.putInt(offset + 8, nodes[3 * i + 2]);
+            }
+        }
+
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the function for the given configuration, i.e., the
+     * variables which are true.
+     *
+     * @throws UnrecognizedVariableException if some variable is not in this table.
+     */
+    public double eval(Collection<String> configuration) throws UnrecognizedVariableException {
+        return eval(configuration.toArray(new String[configuration.size()]));
+    }
+
+    public double eval(String[] configuration) throws UnrecognizedVariableException {
+        boolean[] presence = presenceVectors.get();
+        try {
+            for (String variable : configuration) {
+                Integer index = variableIndices.get(variable);
+                if (index == null) {
+                    throw new UnrecognizedVariableException(variable);
+                }
+                presence[index] = true;
+            }
+            return eval(presence);
+        } finally {
+            // Only the entries which were set need to be cleared for the next lookup.
+            for (String variable : configuration) {
+                Integer index = variableIndices.get(variable);
+                if (index != null) {
+                    presence[index] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the function for many configurations at once.
+     *
+     * @return the values, in the same order as the configurations.
+     * @throws UnrecognizedVariableException if some variable is not in this table.
+     */
+    public double[] evalAll(List<String[]> configurations) throws UnrecognizedVariableException {
+        double[] values = new double[configurations.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = eval(configurations.get(i));
+        }
+        return values;
+    }
+
+    private double eval(boolean[] presence) {
+        int node = root;
+        int variable = nodes[3 * node];
+        while (variable != TERMINAL) {
+            node = presence[variable] ? nodes[3 * node + 1] : nodes[3 * node + 2];
+            variable = nodes[3 * node];
+        }
+        return values[node];
+    }
+
+    /**
+     * @return the least non-zero value of the function, or NaN if it is zero everywhere.
+     */
+    public double getMinimum() {
+        double minimum = Double.NaN;
+        for (int i = 0; i < values.length; i++) {
+            if (isNonZeroTerminal(i) && !(values[i] >= minimum)) {
+                minimum = values[i];
+            }
+        }
+        return minimum;
+    }
+
+    /**
+     * @return the greatest non-zero value of the function, or NaN if it is zero everywhere.
+     */
+    public double getMaximum() {
+        double maximum = Double.NaN;
+        for (int i = 0; i < values.length; i++) {
+            if (isNonZeroTerminal(i) && !(values[i] <= maximum)) {
+                maximum = values[i];
+            }
+        }
+        return maximum;
+    }
+
+    /**
+     * Finds a configuration for which the function has a given value,
+     * with as few variables as possible along the way set to true.
+     *
+     * @return the variables which are true in such a configuration,
+     *          or null if the function never has this value.
+     */
+    public List<String> findConfiguration(double value) {
+        int target = -1;
+        for (int i = 0; i < values.length && target < 0; i++) {
+            if (nodes[3 * i] == TERMINAL && values[i] == value) {
+                target = i;
+            }
+        }
+        if (target < 0) {
+            return null;
+        }
+        // Children come first, so a single pass tells which nodes lead to the target.
+        boolean[] reachesTarget = new boolean[values.length];
+        reachesTarget[target] = true;
+        for (int i = 0; i < values.length; i++) {
+            if (nodes[3 * i] != TERMINAL) {
+                reachesTarget[i] = reachesTarget[nodes[3 * i + 1]] || reachesTarget[nodes[3 * i + 2]];
+            }
+        }
+        if (!reachesTarget[root]) {
+            return null;
+        }
+        List<String> configuration = new ArrayList<String>();
+        int node = root;
+        while (node != target) {
+            if (reachesTarget[nodes[3 * node + 2]]) {
+                node = nodes[3 * node + 2];
+            } else {
+                configuration.add(variableNames[nodes[3 * node]]);
+                node = nodes[3 * node + 1];
+            }
+        }
+        return configuration;
+    }
+
+    /**
+     * @return the number of configurations for which the function has each
+     *          of its non-zero values, by value.
+     */
+    public SortedMap<Double, Double> getHistogram() {
+        double[] reachingFractions = getReachingFractions(uniformProbabilities());
+        SortedMap<Double, Double> histogram = new TreeMap<Double, Double>();
+        for (int i = 0; i < values.length; i++) {
+            if (isNonZeroTerminal(i)) {
+                histogram.merge(values[i],
+                                Math.scalb(reachingFractions[i], variableNames.length),
+                                Double::sum);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the number of configurations for which the function is not zero.
+     */
+    public double getNonZeroCount() {
+        double count = 0;
+        for (double configurations : getHistogram().values()) {
+            count += configurations;
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum of the function over all configurations.
+     */
+    public double getSum() {
+        double sum = 0;
+        for (Map.Entry<Double, Double> bin : getHistogram().entrySet()) {
+            sum += bin.getKey() * bin.getValue();
+        }
+        return sum;
+    }
+
+    /**
+     * @return the mean of the function over the configurations for which it
+     *          is not zero, or NaN if there are none.
+     */
+    public double getMean() {
+        return getMean(uniformProbabilities());
+    }
+
+    /**
+     * Weighted mean of the function over the configurations for which it is
+     * not zero. Each configuration is weighted by its probability, given that
+     * variables are independently true with the given probabilities.
+     *
+     * @param probabilities Probability of each variable being true. Variables
+     *          which are not mentioned are true with probability 0.5.
+     * @return the weighted mean, or NaN if the function is zero everywhere.
+     * @throws UnrecognizedVariableException if some variable is not in this table.
+     */
+    public double getMean(Map<String, Double> probabilities) throws UnrecognizedVariableException {
+        double[] probabilityVector = uniformProbabilities();
+        for (Map.Entry<String, Double> probability : probabilities.entrySet()) {
+            Integer index = variableIndices.get(probability.getKey());
+            if (index == null) {
+                throw new UnrecognizedVariableException(probability.getKey());
+            }
+            probabilityVector[index] = probability.getValue();
+        }
+        return getMean(probabilityVector);
+    }
+
+    private double getMean(double[] probabilities) {
+        double[] reachingFractions = getReachingFractions(probabilities);
+        double weightedSum = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (isNonZeroTerminal(i)) {
+                weightedSum += values[i] * reachingFractions[i];
+                totalWeight += reachingFractions[i];
+            }
+        }
+        return weightedSum / totalWeight;
+    }
+
+    /**
+     * Finds the configurations with the lowest non-zero values, lowest first.
+     *
+     * Paths are explored best-first, guided by the least non-zero value
+     * below each node, so only the paths which lead to the results are
+     * ever followed.
+     *
+     * @param k Maximum number of configurations.
+     * @return the variables which are true in each configuration.
+     */
+    public List<List<String>> getLowestConfigurations(int k) {
+        // Least non-zero value reachable from each node (infinity if there is none).
+        double[] lowest = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (nodes[3 * i] == TERMINAL) {
+                lowest[i] = (values[i] != 0) ? values[i] : Double.POSITIVE_INFINITY;
+            } else {
+                lowest[i] = Math.min(lowest[nodes[3 * i + 1]], lowest[nodes[3 * i + 2]]);
+            }
+        }
+
+        List<List<String>> configurations = new ArrayList<List<String>>();
+        PriorityQueue<PartialPath> paths = new PriorityQueue<PartialPath>(Comparator.comparingDouble(path -> lowest[path.node]));
+        if (lowest[root] != Double.POSITIVE_INFINITY) {
+            paths.add(new PartialPath(root, TERMINAL, false, null));
+        }
+        while (!paths.isEmpty() && configurations.size() < k) {
+            PartialPath path = paths.poll();
+            int variable = nodes[3 * path.node];
+            if (variable == TERMINAL) {
+                expand(path, k, configurations);
+            } else {
+                int thenChild = nodes[3 * path.node + 1];
+                int elseChild = nodes[3 * path.node + 2];
+                if (lowest[elseChild] != Double.POSITIVE_INFINITY) {
+                    paths.add(new PartialPath(elseChild, variable, false, path));
+                }
+                if (lowest[thenChild] != Double.POSITIVE_INFINITY) {
+                    paths.add(new PartialPath(thenChild, variable, true, path));
+                }
+            }
+        }
+        return configurations;
+    }
+
+    /**
+     * Path from the root to a node, as a list of decisions from the node up.
+     */
+    private static class PartialPath {
+        final int node;
+        final int variable;
+        final boolean value;
+        final PartialPath parent;
+
+        PartialPath(int node, int variable, boolean value, PartialPath parent) {
+            this.node = node;
+            this.variable = variable;
+            this.value = value;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Adds the configurations which follow a complete path, up to a total of
+     * {@code k}. Variables not decided along the path may take any value.
+     */
+    private void expand(PartialPath path, int k, List<List<String>> configurations) {
+        boolean[] decided = new boolean[variableNames.length];
+        List<String> selected = new ArrayList<String>();
+        for (PartialPath step = path; step.parent != null; step = step.parent) {
+            decided[step.variable] = true;
+            if (step.value) {
+                selected.add(variableNames[step.variable]);
+            }
+        }
+        Collections.reverse(selected);
+        List<String> free = new ArrayList<String>();
+        for (int i = 0; i < variableNames.length; i++) {
+            if (!decided[i]) {
+                free.add(variableNames[i]);
+            }
+        }
+
+        long combinations = (free.size() < Long.SIZE - 1) ? 1L << free.size() : Long.MAX_VALUE;
+        for (long combination = 0; combination < combinations && configurations.size() < k; combination++) {
+            List<String> configuration = new ArrayList<String>(selected);
+            for (int j = 0; (combination >>> j) != 0; j++) {
+                if ((combination & (1L << j)) != 0) {
+                    configuration.add(free.get(j));
+                }
+            }
+            configurations.add(configuration);
+        }
+    }
+
+    /**
+     * Computes the fraction of configurations (weighted by the probabilities
+     * of the variables) which reach each node from the root, in a single
+     * pass from parents to children.
+     */
+    private double[] getReachingFractions(double[] probabilities) {
+        double[] fractions = new double[values.length];
+        fractions[root] = 1;
+        for (int i = values.length - 1; i >= 0; i--) {
+            int variable = nodes[3 * i];
+            if (variable != TERMINAL && fractions[i] != 0) {
+                fractions[nodes[3 * i + 1]] += fractions[i] * probabilities[variable];
+                fractions[nodes[3 * i + 2]] += fractions[i] * (1 - probabilities[variable]);
+            }
+        }
+        return fractions;
+    }
+
+    private double[] uniformProbabilities() {
+        double[] probabilities = new double[variableNames.length];
+        Arrays.fill(probabilities, 0.5);
+        return probabilities;
+    }
+
+    private boolean isNonZeroTerminal(int node) {
+        return nodes[3 * node] == TERMINAL && values[node] != 0;
+    }
+
+    /**
+     * @return the names of the variables, by index.
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variableNames));
+    }
+
+    /**
+     * @return the number of nodes, including terminals.
+     */
+    public int getNodeCount() {
+        return values.length;
+    }
+
+    /**
+     * @return the size of the node table, in bytes.
+     */
+    public long getSizeInBytes() {
+        return 4L * nodes.length + 8L * values.length;
+    }
+
+}
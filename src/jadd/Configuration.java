@@ -0,0 +1,196 @@
+package jadd;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of selected features (i.e., a product configuration), backed
+ * by a bit set over the indices of the respective ADD variables.
+ *
+ * Since it is a {@link java.util.Set} of feature names, a Configuration can
+ * be used wherever a collection of features is expected. Nonetheless,
+ * equality, hashing and ADD evaluation are much cheaper than for
+ * general-purpose collections, because no strings are involved.
+ *
+ * Configurations are only comparable (by bits) to others stemming from the
+ * same {@link JADD}. Otherwise, the usual {@link java.util.Set} semantics apply.
+ */
+public final class Configuration extends AbstractSet<String> {
+    private static final long[] EMPTY = new long[0];
+
+    private final VariableStore variableStore;
+    /**
+     * Selected variables' indices. Trailing zero words are trimmed,
+     * so that equal configurations have equal arrays.
+     */
+    private final long[] bits;
+    private final int size;
+    private int hash;
+
+    Configuration(VariableStore variableStore, long[] bits) {
+        this.variableStore = variableStore;
+        this.bits = trim(bits);
+        int cardinality = 0;
+        for (long word : this.bits) {
+            cardinality += Long.bitCount(word);
+        }
+        this.size = cardinality;
+    }
+
+    /**
+     * Builds the configuration in which exactly the given features are selected.
+     *
+     * @throws UnrecognizedVariableException if some feature has no corresponding ADD variable.
+     */
+    static Configuration fromFeatures(VariableStore variableStore, Collection<String> features) throws UnrecognizedVariableException {
+        if (features instanceof Configuration && ((Configuration) features).variableStore == variableStore) {
+            return (Configuration) features;
+        }
+        long[] bits = new long[wordsFor(variableStore.getNumberOfVariables())];
+        for (String feature : features) {
+            int index = variableStore.getIndex(feature);
+            if (index < 0) {
+                throw new UnrecognizedVariableException(feature);
+            }
+            bits[index >>> 6] |= 1L << index;
+        }
+        return new Configuration(variableStore, bits);
+    }
+
+    /**
+     * @return whether the variable with the given index is selected.
+     */
+    public boolean isSelected(int variableIndex) {
+        int word = variableIndex >>> 6;
+        return word < bits.length && (bits[word] & (1L << variableIndex)) != 0;
+    }
+
+    /**
+     * @return the number of 64-bit words needed to represent this configuration,
+     *          i.e., (the highest selected variable index / 64) + 1.
+     */
+    public int getWordCount() {
+        return bits.length;
+    }
+
+    /**
+     * @return the {@code i}-th 64-bit word of this configuration's bit set, in which
+     *          bit {@code j} stands for the variable of index {@code 64*i + j}.
+     */
+    public long getWord(int i) {
+        return (i < bits.length) ? bits[i] : 0;
+    }
+
+    /**
+     * Returns a 0-1 int[] suitable for CUDD functions.
+     * @see VariableStore#toPresenceVector(String[])
+     */
+    int[] toPresenceVector(int numVariables) {
+        int[] presenceVector = new int[numVariables];
+        for (int i = nextSelected(0); i >= 0 && i < numVariables; i = nextSelected(i + 1)) {
+            presenceVector[i] = 1;
+        }
+        return presenceVector;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int index = variableStore.getIndex((String) o);
+        return index >= 0 && isSelected(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterates over the names of the selected features, in order of variable index.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = nextSelected(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                String name = variableStore.getName((short) next);
+                next = nextSelected(next + 1);
+                return name;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof Configuration && ((Configuration) o).variableStore == variableStore) {
+            return Arrays.equals(bits, ((Configuration) o).bits);
+        }
+        return super.equals(o);
+    }
+
+    /**
+     * Same as {@link java.util.Set#hashCode()}, so that it is consistent
+     * with other sets of feature names, but computed only once.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = super.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    private int nextSelected(int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        long remaining = bits[word] & (-1L << from);
+        while (true) {
+            if (remaining != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(remaining);
+            }
+            word++;
+            if (word == bits.length) {
+                return -1;
+            }
+            remaining = bits[word];
+        }
+    }
+
+    static int wordsFor(int numVariables) {
+        return (numVariables + 63) >>> 6;
+    }
+
+    private static long[] trim(long[] bits) {
+        int length = bits.length;
+        while (length > 0 && bits[length - 1] == 0) {
+            length--;
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        return (length == bits.length) ? bits : Arrays.copyOf(bits, length);
+    }
+
+}
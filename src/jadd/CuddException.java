@@ -0,0 +1,29 @@
+package jadd;
+
+import bigcudd.BigcuddLibrary.Cudd_ErrorType;
+
+/**
+ * Exception thrown whenever a CUDD operation fails (i.e., returns no node),
+ * e.g., because memory ran out.
+ */
+public class CuddException extends RuntimeException {
+
+    /**
+     * UUID for warning resolution.
+     */
+    private static final long serialVersionUID = 3260962580416305178L;
+    private final Cudd_ErrorType errorType;
+
+    public CuddException(Cudd_ErrorType errorType) {
+        super("CUDD operation failed: " + errorType);
+        this.errorType = errorType;
+    }
+
+    /**
+     * @return the error code reported by CUDD, or null if it is unknown.
+     */
+    public Cudd_ErrorType getErrorType() {
+        return errorType;
+    }
+
+}
@@ -0,0 +1,71 @@
+package jadd;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Guards the access to a CUDD manager, which is not thread-safe.
+ *
+ * Operations which may create or free nodes (and thus trigger garbage
+ * collection or dynamic reordering), which write to the computed table, or
+ * which temporarily mark nodes during traversal, must be run exclusively.
+ * This includes some seemingly read-only calls, such as Cudd_CountMinterm
+ * (which creates and releases constants) and Cudd_EqualSupNorm (which
+ * caches its results). Only evaluation (Cudd_Eval), path counting
+ * (Cudd_CountPath), cube enumeration (the generator calls) and plain reads
+ * of nodes or of the manager's parameters may share the manager.
+ *
+ * Shared access cannot be upgraded to exclusive access.
+ *
+ * Whenever exclusive access is granted (and not already held), deferred
+ * maintenance work, such as releasing nodes of unreachable ADDs, is carried
+ * out first.
+ */
+final class CuddLock {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Runnable maintenance;
+
+    CuddLock(Runnable maintenance) {
+        this.maintenance = maintenance;
+    }
+
+    <T> T exclusive(Supplier<T> operation) {
+        acquireExclusive();
+        try {
+            return operation.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void exclusive(Runnable operation) {
+        acquireExclusive();
+        try {
+            operation.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void acquireExclusive() {
+        lock.writeLock().lock();
+        if (lock.getWriteHoldCount() == 1) {
+            try {
+                maintenance.run();
+            } catch (RuntimeException e) {
+                lock.writeLock().unlock();
+                throw e;
+            }
+        }
+    }
+
+    <T> T shared(Supplier<T> operation) {
+        lock.readLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package jadd;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bridj.BridJ;
+import org.bridj.NativeLibrary;
+import org.bridj.Pointer;
+
+import bigcudd.BigcuddLibrary;
+import bigcudd.BigcuddLibrary.Cudd_addApply_arg1_callback;
+import bigcudd.DdNode;
+
+/**
+ * Binary operators for Cudd_addApply.
+ *
+ * Operators are bound to the addresses of CUDD's own native implementations
+ * (e.g., Cudd_addTimes), so that an apply runs entirely in native code.
+ * Passing Java callbacks instead would cost an upcall into the JVM for
+ * every pair of nodes visited during the apply's recursion.
+ *
+ * If some native symbol cannot be resolved, the respective operator falls
+ * back to a Java callback which simply delegates to the native function.
+ */
+final class CuddOperators {
+    private static final Logger LOGGER = Logger.getLogger(CuddOperators.class.getName());
+
+    static final Pointer<Cudd_addApply_arg1_callback> TIMES = bind("Cudd_addTimes", new Cudd_addApply_arg1_callback() {
+        @Override
+        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
+                                      Pointer<Pointer<DdNode > > node1,
+                                      Pointer<Pointer<DdNode > > node2) {
+            return BigcuddLibrary.Cudd_addTimes(dd, node1, node2);
+        }
+    });
+
+    static final Pointer<Cudd_addApply_arg1_callback> PLUS = bind("Cudd_addPlus", new Cudd_addApply_arg1_callback() {
+        @Override
+        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
+                                      Pointer<Pointer<DdNode > > node1,
+                                      Pointer<Pointer<DdNode > > node2) {
+            return BigcuddLibrary.Cudd_addPlus(dd, node1, node2);
+        }
+    });
+
+    static final Pointer<Cudd_addApply_arg1_callback> DIVIDE = bind("Cudd_addDivide", new Cudd_addApply_arg1_callback() {
+        @Override
+        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
+                                      Pointer<Pointer<DdNode > > node1,
+                                      Pointer<Pointer<DdNode > > node2) {
+            return BigcuddLibrary.Cudd_addDivide(dd, node1, node2);
+        }
+    });
+
+    static final Pointer<Cudd_addApply_arg1_callback> MINUS = bind("Cudd_addMinus", new Cudd_addApply_arg1_callback() {
+        @Override
+        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
+                                      Pointer<Pointer<DdNode > > node1,
+                                      Pointer<Pointer<DdNode > > node2) {
+            return BigcuddLibrary.Cudd_addMinus(dd, node1, node2);
+        }
+    });
+
+    static final Pointer<Cudd_addApply_arg1_callback> LOGICAL_OR = bind("Cudd_addOr", new Cudd_addApply_arg1_callback() {
+        @Override
+        public Pointer<DdNode > apply(Pointer<BigcuddLibrary.DdManager > dd,
+                                      Pointer<Pointer<DdNode > > node1,
+                                      Pointer<Pointer<DdNode > > node2) {
+            return BigcuddLibrary.Cudd_addOr(dd, node1, node2);
+        }
+    });
+
+    private CuddOperators() {
+        // Not instantiable.
+    }
+
+    private static Pointer<Cudd_addApply_arg1_callback> bind(String symbol, Cudd_addApply_arg1_callback fallback) {
+        try {
+            NativeLibrary library = BridJ.getNativeLibrary(BigcuddLibrary.class);
+            Pointer<?> address = library.getSymbolPointer(symbol);
+            if (address != null) {
+                return address.as(Cudd_addApply_arg1_callback.class);
+            }
+            LOGGER.warning("Could not find " + symbol + " in the CUDD library. Falling back to a Java callback.");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load the CUDD library for binding " + symbol
+                       + ". Falling back to a Java callback.", e);
+        }
+        return Pointer.getPointer(fallback);
+    }
+
+}
@@ -1,17 +1,29 @@
 package jadd;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.bridj.IntValuedEnum;
 import org.bridj.Pointer;
 
 import bigcudd.BigcuddLibrary;
-import bigcudd.BigcuddLibrary.Cudd_ReorderingType;
 import bigcudd.DdNode;
 
 /**
  * Interface to basic ADD operations.
  *
+ * This class is thread-safe: CUDD itself is not, so operations on the
+ * manager (including those on its ADDs) are serialized, except for a few
+ * read-only ones, such as evaluation, which may run concurrently
+ * (see {@link CuddLock}).
+ *
  * @author thiago
  *
  */
@@ -19,6 +31,8 @@ public class JADD {
 
     private Pointer<BigcuddLibrary.DdManager> dd;
     private VariableStore variableStore = new VariableStore();
+    private NodeReleaser releaser;
+    private CuddLock lock;
 
     public JADD() {
         dd = BigcuddLibrary.Cudd_Init(0,
@@ -26,25 +40,56 @@ public class JADD {
                                       BigcuddLibrary.CUDD_UNIQUE_SLOTS,
                                       BigcuddLibrary.CUDD_CACHE_SLOTS,
                                       0);
-        IntValuedEnum<Cudd_ReorderingType> method = Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT;
-//        BigcuddLibrary.Cudd_AutodynEnable(dd, method);
+        releaser = new NodeReleaser(dd);
+        lock = new CuddLock(releaser::releaseUnreachable);
     }
 
     public ADD makeConstant(double constant) {
-        return new ADD(dd,
-                       BigcuddLibrary.Cudd_addConst(dd,  constant),
-                       variableStore);
+        return lock.exclusive(() -> new ADD(dd,
+                                            BigcuddLibrary.Cudd_addConst(dd,  constant),
+                                            variableStore,
+                                            lock,
+                                            releaser,
+                                            false));
     }
 
     public ADD getVariable(String varName) {
-        if (variableStore.contains(varName)) {
-            return variableStore.get(varName);
-        } else {
+        ADD variable = variableStore.get(varName);
+        if (variable != null) {
+            return variable;
+        }
+        return lock.exclusive(() -> {
+            // Another thread may have created it in the meantime.
+            if (variableStore.contains(varName)) {
+                return variableStore.get(varName);
+            }
             Pointer<DdNode> var = BigcuddLibrary.Cudd_addNewVar(dd);
-            ADD varADD = new ADD(dd, var, variableStore);
+            // Variables live as long as the manager.
+            ADD varADD = new ADD(dd, var, variableStore, lock, releaser, true);
             variableStore.put(var.get().index(), varName, varADD);
             return varADD;
-        }
+        });
+    }
+
+    public int getNumberOfVariables() {
+        return variableStore.getNumberOfVariables();
+    }
+
+    /**
+     * @return the index of the variable named {@code varName}, or -1 if there is none.
+     */
+    public int getVariableIndex(String varName) {
+        return variableStore.getIndex(varName);
+    }
+
+    /**
+     * Converts a collection of selected features into a {@link Configuration}
+     * over the variables of this manager.
+     *
+     * @throws UnrecognizedVariableException if some feature is not a variable.
+     */
+    public Configuration toConfiguration(Collection<String> features) throws UnrecognizedVariableException {
+        return Configuration.fromFeatures(variableStore, features);
     }
 
     /**
@@ -52,8 +97,72 @@ public class JADD {
     * based on the sifting heuristic.
     */
     public void reorderVariables() {
-        IntValuedEnum<Cudd_ReorderingType> heuristic = Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT;
-        BigcuddLibrary.Cudd_ReduceHeap(dd, heuristic, 1);
+        reorderVariables(ReorderingHeuristic.SYMM_SIFT);
+    }
+
+    /**
+     * Reorders the variables for the managed ADDs right away,
+     * based on the given heuristic.
+     */
+    public void reorderVariables(ReorderingHeuristic heuristic) {
+        lock.exclusive(() -> BigcuddLibrary.Cudd_ReduceHeap(dd, heuristic.toCudd(), 1));
+    }
+
+    /**
+     * Enables automatic dynamic reordering: CUDD reorders the variables
+     * whenever the number of nodes reaches a threshold, which then grows
+     * along with the number of nodes after each reordering.
+     *
+     * @param heuristic Heuristic to be used in each reordering.
+     * @param maxGrowth Maximum factor by which the number of nodes may
+     *          temporarily grow while a variable is sifted (e.g., 1.2 for 20%).
+     *          CUDD's default is used if it is not positive.
+     * @param firstThreshold Number of nodes which triggers the first
+     *          reordering. CUDD's default is used if it is not positive.
+     */
+    public void enableDynamicReordering(ReorderingHeuristic heuristic, double maxGrowth, int firstThreshold) {
+        lock.exclusive(() -> {
+            if (maxGrowth > 0) {
+                BigcuddLibrary.Cudd_SetMaxGrowth(dd, maxGrowth);
+            }
+            if (firstThreshold > 0) {
+                BigcuddLibrary.Cudd_SetNextReordering(dd, firstThreshold);
+            }
+            BigcuddLibrary.Cudd_AutodynEnable(dd, heuristic.toCudd());
+        });
+    }
+
+    public void disableDynamicReordering() {
+        lock.exclusive(() -> BigcuddLibrary.Cudd_AutodynDisable(dd));
+    }
+
+    /**
+     * @return the number of times variables have been reordered so far,
+     *          either explicitly or dynamically.
+     */
+    public int getReorderingsCount() {
+        return lock.shared(() -> BigcuddLibrary.Cudd_ReadReorderings(dd));
+    }
+
+    /**
+     * @return the total time spent reordering variables, in milliseconds.
+     */
+    public long getReorderingTime() {
+        return lock.shared(() -> BigcuddLibrary.Cudd_ReadReorderingTime(dd));
+    }
+
+    /**
+     * @return the names of the variables, from the top of the ADDs to the bottom.
+     */
+    public List<String> getVariableOrder() {
+        return lock.shared(() -> {
+            int numVariables = variableStore.getNumberOfVariables();
+            List<String> order = new ArrayList<String>(numVariables);
+            for (int level = 0; level < numVariables; level++) {
+                order.add(variableStore.getName((short) BigcuddLibrary.Cudd_ReadInvPerm(dd, level)));
+            }
+            return order;
+        });
     }
 
     /**
@@ -64,7 +173,48 @@ public class JADD {
      */
     public void setVariableOrder(String[] orderedVariables) throws UnrecognizedVariableException {
         int[] permutationVector = variableStore.toPermutationVector(orderedVariables);
-        BigcuddLibrary.Cudd_ShuffleHeap(dd, Pointer.pointerToInts(permutationVector));
+        lock.exclusive(() -> BigcuddLibrary.Cudd_ShuffleHeap(dd, Pointer.pointerToInts(permutationVector)));
+    }
+
+    /**
+     * Writes the current variable order to a file, one variable name per line.
+     */
+    public void saveVariableOrder(Path file) throws IOException {
+        Files.write(file, getVariableOrder(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reorders the variables according to a file written by {@link #saveVariableOrder(Path)}.
+     * The file need not match the current variables exactly (see {@link #applyVariableOrder(Collection)}),
+     * so an order saved for a previous version of a product line remains useful.
+     */
+    public void loadVariableOrder(Path file) throws IOException {
+        List<String> order = new ArrayList<String>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            order.add(line.trim());
+        }
+        applyVariableOrder(order);
+    }
+
+    /**
+     * Reorders the variables so that those in {@code preferredOrder} come first,
+     * in the given order. Unknown names are ignored, and variables which are
+     * not mentioned keep their relative order below the mentioned ones.
+     */
+    public void applyVariableOrder(Collection<String> preferredOrder) {
+        Set<String> order = new LinkedHashSet<String>();
+        for (String name : preferredOrder) {
+            if (variableStore.contains(name)) {
+                order.add(name);
+            }
+        }
+        order.addAll(getVariableOrder());
+        try {
+            setVariableOrder(order.toArray(new String[order.size()]));
+        } catch (UnrecognizedVariableException e) {
+            // Only known variables were taken into account.
+            throw new IllegalStateException(e);
+        }
     }
 
     public void dumpDot(String[] functionNames, ADD[] functions, String fileName) {
@@ -79,12 +229,12 @@ public class JADD {
         }
 
         String[] orderedVariableNames = variableStore.getOrderedNames();
-        BigcuddLibrary.Cudd_DumpDot(dd,
-                                    functions.length,
-                                    Pointer.pointerToPointers(nodes),
-                                    Pointer.pointerToCStrings(orderedVariableNames),
-                                    Pointer.pointerToCStrings(functionNames),
-                                    output);
+        lock.exclusive(() -> BigcuddLibrary.Cudd_DumpDot(dd,
+                                                         functions.length,
+                                                         Pointer.pointerToPointers(nodes),
+                                                         Pointer.pointerToCStrings(orderedVariableNames),
+                                                         Pointer.pointerToCStrings(functionNames),
+                                                         output));
 
         CUtils.fclose(output);
     }
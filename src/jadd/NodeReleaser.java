@@ -0,0 +1,94 @@
+package jadd;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bridj.Pointer;
+
+import bigcudd.BigcuddLibrary;
+import bigcudd.BigcuddLibrary.DdManager;
+import bigcudd.DdNode;
+
+/**
+ * Releases the CUDD references held by ADDs, so that CUDD's garbage
+ * collection can reclaim dead nodes.
+ *
+ * References are released either explicitly (see {@link ADD#close()}) or,
+ * as a safety net, once the respective ADD becomes unreachable. Since CUDD
+ * is not thread-safe, unreachable ADDs are only queued by the JVM and then
+ * actually dereferenced when exclusive access to the manager is granted
+ * (see {@link CuddLock}). This is akin to java.lang.ref.Cleaner, but keeps
+ * native calls under the manager's lock.
+ */
+final class NodeReleaser {
+    private final Pointer<DdManager> dd;
+    private final ReferenceQueue<ADD> unreachable = new ReferenceQueue<ADD>();
+    /**
+     * Keeps the phantom references themselves reachable until they are processed.
+     */
+    private final Set<NodeReference> pending = Collections.newSetFromMap(new ConcurrentHashMap<NodeReference, Boolean>());
+
+    NodeReleaser(Pointer<DdManager> dd) {
+        this.dd = dd;
+    }
+
+    /**
+     * Tracks the (already referenced) node of {@code add}.
+     * @return a handle for explicit release.
+     */
+    NodeReference track(ADD add, Pointer<DdNode> node) {
+        NodeReference reference = new NodeReference(add, node, unreachable);
+        pending.add(reference);
+        return reference;
+    }
+
+    /**
+     * Dereferences a node right away. Must be called with exclusive access
+     * to the manager.
+     *
+     * @return false if the node had already been released.
+     */
+    boolean release(NodeReference reference) {
+        if (!reference.released.compareAndSet(false, true)) {
+            return false;
+        }
+        pending.remove(reference);
+        reference.clear();
+        BigcuddLibrary.Cudd_RecursiveDeref(dd, reference.node);
+        return true;
+    }
+
+    /**
+     * Dereferences the nodes of all ADDs found to be unreachable so far.
+     * Must be called with exclusive access to the manager.
+     */
+    void releaseUnreachable() {
+        Reference<? extends ADD> reference;
+        while ((reference = unreachable.poll()) != null) {
+            release((NodeReference) reference);
+        }
+    }
+
+    /**
+     * @return the number of tracked nodes not yet released.
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    static final class NodeReference extends PhantomReference<ADD> {
+        private final Pointer<DdNode> node;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        NodeReference(ADD referent, Pointer<DdNode> node, ReferenceQueue<ADD> queue) {
+            super(referent, queue);
+            this.node = node;
+        }
+    }
+
+}
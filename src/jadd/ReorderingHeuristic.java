@@ -0,0 +1,38 @@
+package jadd;
+
+import org.bridj.IntValuedEnum;
+
+import bigcudd.BigcuddLibrary.Cudd_ReorderingType;
+
+/**
+ * Variable reordering heuristics supported by CUDD.
+ *
+ * The *_CONVERGE variants repeat the base heuristic until no further
+ * improvement is found.
+ */
+public enum ReorderingHeuristic {
+    SIFT(Cudd_ReorderingType.CUDD_REORDER_SIFT),
+    SIFT_CONVERGE(Cudd_ReorderingType.CUDD_REORDER_SIFT_CONVERGE),
+    SYMM_SIFT(Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT),
+    SYMM_SIFT_CONVERGE(Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT_CONV),
+    GROUP_SIFT(Cudd_ReorderingType.CUDD_REORDER_GROUP_SIFT),
+    GROUP_SIFT_CONVERGE(Cudd_ReorderingType.CUDD_REORDER_GROUP_SIFT_CONV),
+    WINDOW2(Cudd_ReorderingType.CUDD_REORDER_WINDOW2),
+    WINDOW3(Cudd_ReorderingType.CUDD_REORDER_WINDOW3),
+    WINDOW4(Cudd_ReorderingType.CUDD_REORDER_WINDOW4),
+    LINEAR(Cudd_ReorderingType.CUDD_REORDER_LINEAR),
+    ANNEALING(Cudd_ReorderingType.CUDD_REORDER_ANNEALING),
+    GENETIC(Cudd_ReorderingType.CUDD_REORDER_GENETIC),
+    EXACT(Cudd_ReorderingType.CUDD_REORDER_EXACT);
+
+    private final Cudd_ReorderingType cuddType;
+
+    private ReorderingHeuristic(Cudd_ReorderingType cuddType) {
+        this.cuddType = cuddType;
+    }
+
+    IntValuedEnum<Cudd_ReorderingType> toCudd() {
+        return cuddType;
+    }
+
+}
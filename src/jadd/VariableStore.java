@@ -2,22 +2,28 @@ package jadd;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
+/**
+ * Mapping between variable names, indices and ADDs.
+ *
+ * Lookups are thread-safe. Variables are only added by {@link JADD},
+ * one at a time.
+ */
 public class VariableStore {
     private Map<String, ADD> variables;
     private SortedMap<Short, String> variableNames;
     private Map<String, Short> variableIndices;
 
     public VariableStore() {
-        variables = new HashMap<String, ADD>();
-        variableNames = new TreeMap<Short, String>();
-        variableIndices = new HashMap<String, Short>();
+        variables = new ConcurrentHashMap<String, ADD>();
+        variableNames = new ConcurrentSkipListMap<Short, String>();
+        variableIndices = new ConcurrentHashMap<String, Short>();
     }
 
     public int getNumberOfVariables() {
@@ -32,14 +38,23 @@ public class VariableStore {
         return variables.get(varName);
     }
 
+    /**
+     * @return the index of the variable named {@code varName}, or -1 if there is none.
+     */
+    public int getIndex(String varName) {
+        Short index = variableIndices.get(varName);
+        return (index != null) ? index : -1;
+    }
+
     public String getName(short varIndex) {
         return variableNames.get(varIndex);
     }
 
     public void put(short varIndex, String varName, ADD varADD) {
-        variables.put(varName, varADD);
         variableNames.put(varIndex, varName);
         variableIndices.put(varName, varIndex);
+        // Last, so that a contained variable is fully indexed.
+        variables.put(varName, varADD);
     }
 
     public String[] getOrderedNames() {
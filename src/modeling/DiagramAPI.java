@@ -1,13 +1,22 @@
 package modeling;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
 import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
+import parsing.ProbabilityEnergyTimeProfileReader;
 import parsing.activitydiagrams.ADReader;
 import parsing.activitydiagrams.Activity;
 import parsing.exceptions.InvalidNodeClassException;
@@ -49,12 +58,11 @@ public class DiagramAPI implements IModelerAPI {
 		 * @see modeling.IModelerAPI#transform()
 		 */
 		public RDGNode transform() throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
-			RDGNode topLevel = transformer.transformSingleAD(adParser);
+			List<Fragment> sequenceDiagrams = new ArrayList<Fragment>();
 			for (SDReader sdParser : this.sdParsers) {
-				RDGNode sdRDG = transformer.transformSingleSD(sdParser.getSD());
-				topLevel.addDependency(sdRDG);
+				sequenceDiagrams.add(sdParser.getSD());
 			}
-			return topLevel;
+			return transformer.transform(adParser, sequenceDiagrams);
 		}
 
 		/* (non-Javadoc)
@@ -83,14 +91,18 @@ public class DiagramAPI implements IModelerAPI {
 		 * @throws DOMException
 		 */
 		private void initialize() throws UnsupportedFragmentTypeException, InvalidTagException {
-		    ADReader tmpAdParser = new ADReader(this.xmlFile, 0);
+		    // The file is parsed only once, and the document is shared by all readers.
+		    Document doc = parse(this.xmlFile);
+		    ProbabilityEnergyTimeProfileReader profileReader = new ProbabilityEnergyTimeProfileReader(doc);
+		    ADReader tmpAdParser = new ADReader(doc, profileReader, 0);
 		    tmpAdParser.retrieveActivities();
 		    this.adParser = tmpAdParser;
 
+		    NodeList sequenceDiagrams = doc.getElementsByTagName("ownedBehavior");
 		    boolean hasNext = false;
 		    int index = 0;
 		    do {
-		        SDReader sdParser = new SDReader(this.xmlFile, index);
+		        SDReader sdParser = new SDReader(doc, sequenceDiagrams, profileReader, index);
 		        sdParser.traceDiagram();
 		        sdByID.put(sdParser.getSD().getId(), sdParser.getSD());
 		        this.sdParsers.add(sdParser);
@@ -100,6 +112,17 @@ public class DiagramAPI implements IModelerAPI {
 		    linkSdToActivity(this.adParser);
 		}
 
+		private static Document parse(File xmlFile) {
+		    try {
+		        DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		        Document doc = db.parse(xmlFile);
+		        doc.getDocumentElement().normalize();
+		        return doc;
+		    } catch (ParserConfigurationException | SAXException | IOException e) {
+		        throw new IllegalArgumentException("Could not parse the UML models at " + xmlFile, e);
+		    }
+		}
+
 		/**
 		 * Links activities of an AD to their respective SD
 		 * @param ad
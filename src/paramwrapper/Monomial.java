@@ -0,0 +1,162 @@
+package paramwrapper;
+
+import java.util.Arrays;
+
+/**
+ * Power product of parameters (e.g., r0^2*rFail), with variables kept in
+ * lexicographic order.
+ *
+ * Monomials are ordered by decreasing total degree and then lexicographically,
+ * which is the order in which polynomial terms are printed.
+ */
+final class Monomial implements Comparable<Monomial> {
+    static final Monomial ONE = new Monomial(new String[0], new int[0]);
+
+    private final String[] variables;
+    private final int[] exponents;
+    private final int degree;
+
+    private Monomial(String[] variables, int[] exponents) {
+        this.variables = variables;
+        this.exponents = exponents;
+        int totalDegree = 0;
+        for (int exponent : exponents) {
+            totalDegree += exponent;
+        }
+        this.degree = totalDegree;
+    }
+
+    static Monomial variable(String name) {
+        return new Monomial(new String[] {name}, new int[] {1});
+    }
+
+    int getDegree() {
+        return degree;
+    }
+
+    boolean isOne() {
+        return variables.length == 0;
+    }
+
+    String[] getVariables() {
+        return variables;
+    }
+
+    Monomial multiply(Monomial other) {
+        if (isOne()) {
+            return other;
+        } else if (other.isOne()) {
+            return this;
+        }
+        String[] newVariables = new String[variables.length + other.variables.length];
+        int[] newExponents = new int[newVariables.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < variables.length || j < other.variables.length) {
+            int cmp;
+            if (i == variables.length) {
+                cmp = 1;
+            } else if (j == other.variables.length) {
+                cmp = -1;
+            } else {
+                cmp = variables[i].compareTo(other.variables[j]);
+            }
+            if (cmp < 0) {
+                newVariables[k] = variables[i];
+                newExponents[k++] = exponents[i++];
+            } else if (cmp > 0) {
+                newVariables[k] = other.variables[j];
+                newExponents[k++] = other.exponents[j++];
+            } else {
+                newVariables[k] = variables[i];
+                newExponents[k++] = exponents[i++] + other.exponents[j++];
+            }
+        }
+        return new Monomial(Arrays.copyOf(newVariables, k), Arrays.copyOf(newExponents, k));
+    }
+
+    /**
+     * Returns this / {@code other}, or null if {@code other} does not divide this monomial.
+     */
+    Monomial divide(Monomial other) {
+        String[] newVariables = new String[variables.length];
+        int[] newExponents = new int[variables.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < variables.length) {
+            int exponent = exponents[i];
+            if (j < other.variables.length) {
+                int cmp = variables[i].compareTo(other.variables[j]);
+                if (cmp > 0) {
+                    // other has a variable which this monomial lacks.
+                    return null;
+                } else if (cmp == 0) {
+                    exponent -= other.exponents[j++];
+                    if (exponent < 0) {
+                        return null;
+                    }
+                }
+            }
+            if (exponent > 0) {
+                newVariables[k] = variables[i];
+                newExponents[k++] = exponent;
+            }
+            i++;
+        }
+        if (j < other.variables.length) {
+            return null;
+        }
+        return new Monomial(Arrays.copyOf(newVariables, k), Arrays.copyOf(newExponents, k));
+    }
+
+    @Override
+    public int compareTo(Monomial other) {
+        if (degree != other.degree) {
+            return Integer.compare(other.degree, degree);
+        }
+        int common = Math.min(variables.length, other.variables.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = variables[i].compareTo(other.variables[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+            if (exponents[i] != other.exponents[i]) {
+                return Integer.compare(other.exponents[i], exponents[i]);
+            }
+        }
+        return Integer.compare(variables.length, other.variables.length);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Monomial) {
+            Monomial other = (Monomial) obj;
+            return Arrays.equals(variables, other.variables)
+                    && Arrays.equals(exponents, other.exponents);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(variables) + Arrays.hashCode(exponents);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < variables.length; i++) {
+            if (i > 0) {
+                builder.append('*');
+            }
+            builder.append(variables[i]);
+            if (exponents[i] > 1) {
+                builder.append('^').append(exponents[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+}
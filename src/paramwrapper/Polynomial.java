@@ -0,0 +1,269 @@
+package paramwrapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable multivariate polynomial with exact rational coefficients.
+ */
+final class Polynomial {
+    static final Polynomial ZERO = new Polynomial(new TreeMap<Monomial, Rational>());
+    static final Polynomial ONE = constant(Rational.ONE);
+
+    /**
+     * Terms sorted by monomial order, so the first key is the leading monomial.
+     * Zero coefficients are never stored.
+     */
+    private final SortedMap<Monomial, Rational> terms;
+
+    private Polynomial(SortedMap<Monomial, Rational> terms) {
+        this.terms = terms;
+    }
+
+    static Polynomial constant(Rational value) {
+        TreeMap<Monomial, Rational> terms = new TreeMap<Monomial, Rational>();
+        if (!value.isZero()) {
+            terms.put(Monomial.ONE, value);
+        }
+        return new Polynomial(terms);
+    }
+
+    static Polynomial variable(String name) {
+        TreeMap<Monomial, Rational> terms = new TreeMap<Monomial, Rational>();
+        terms.put(Monomial.variable(name), Rational.ONE);
+        return new Polynomial(terms);
+    }
+
+    boolean isZero() {
+        return terms.isEmpty();
+    }
+
+    boolean isConstant() {
+        return terms.isEmpty() || (terms.size() == 1 && terms.firstKey().isOne());
+    }
+
+    /**
+     * Value of a constant polynomial.
+     */
+    Rational getConstant() {
+        return terms.isEmpty() ? Rational.ZERO : terms.get(terms.firstKey());
+    }
+
+    Map<Monomial, Rational> getTerms() {
+        return Collections.unmodifiableMap(terms);
+    }
+
+    Set<String> getVariables() {
+        Set<String> variables = new TreeSet<String>();
+        for (Monomial monomial : terms.keySet()) {
+            Collections.addAll(variables, monomial.getVariables());
+        }
+        return variables;
+    }
+
+    Polynomial add(Polynomial other) {
+        if (isZero()) {
+            return other;
+        } else if (other.isZero()) {
+            return this;
+        }
+        TreeMap<Monomial, Rational> sum = new TreeMap<Monomial, Rational>(terms);
+        for (Map.Entry<Monomial, Rational> term : other.terms.entrySet()) {
+            addTerm(sum, term.getKey(), term.getValue());
+        }
+        return new Polynomial(sum);
+    }
+
+    Polynomial subtract(Polynomial other) {
+        return add(other.negate());
+    }
+
+    Polynomial negate() {
+        TreeMap<Monomial, Rational> negated = new TreeMap<Monomial, Rational>();
+        for (Map.Entry<Monomial, Rational> term : terms.entrySet()) {
+            negated.put(term.getKey(), term.getValue().negate());
+        }
+        return new Polynomial(negated);
+    }
+
+    Polynomial multiply(Polynomial other) {
+        if (isZero() || other.isZero()) {
+            return ZERO;
+        }
+        TreeMap<Monomial, Rational> product = new TreeMap<Monomial, Rational>();
+        for (Map.Entry<Monomial, Rational> term : terms.entrySet()) {
+            for (Map.Entry<Monomial, Rational> otherTerm : other.terms.entrySet()) {
+                addTerm(product,
+                        term.getKey().multiply(otherTerm.getKey()),
+                        term.getValue().multiply(otherTerm.getValue()));
+            }
+        }
+        return new Polynomial(product);
+    }
+
+    Polynomial multiply(Rational factor) {
+        if (factor.isZero()) {
+            return ZERO;
+        }
+        TreeMap<Monomial, Rational> product = new TreeMap<Monomial, Rational>();
+        for (Map.Entry<Monomial, Rational> term : terms.entrySet()) {
+            product.put(term.getKey(), term.getValue().multiply(factor));
+        }
+        return new Polynomial(product);
+    }
+
+    /**
+     * Divides this polynomial by {@code divisor} using multivariate long division.
+     *
+     * @return the quotient if the division is exact, or null otherwise.
+     */
+    Polynomial divideExactly(Polynomial divisor) {
+        if (divisor.isZero()) {
+            throw new ArithmeticException("Division by zero polynomial");
+        }
+        Monomial leadingMonomial = divisor.terms.firstKey();
+        Rational leadingCoefficient = divisor.terms.get(leadingMonomial);
+
+        TreeMap<Monomial, Rational> remainder = new TreeMap<Monomial, Rational>(terms);
+        TreeMap<Monomial, Rational> quotient = new TreeMap<Monomial, Rational>();
+        while (!remainder.isEmpty()) {
+            Monomial dividendLeading = remainder.firstKey();
+            Monomial factor = dividendLeading.divide(leadingMonomial);
+            if (factor == null) {
+                // The leading term can never be cancelled, so there will be a remainder.
+                return null;
+            }
+            Rational coefficient = remainder.get(dividendLeading).divide(leadingCoefficient);
+            addTerm(quotient, factor, coefficient);
+            for (Map.Entry<Monomial, Rational> term : divisor.terms.entrySet()) {
+                addTerm(remainder,
+                        term.getKey().multiply(factor),
+                        term.getValue().multiply(coefficient).negate());
+            }
+        }
+        return new Polynomial(quotient);
+    }
+
+    /**
+     * Least common multiple of the denominators of all coefficients.
+     */
+    BigInteger getCoefficientsDenominatorLcm() {
+        BigInteger lcm = BigInteger.ONE;
+        for (Rational coefficient : terms.values()) {
+            BigInteger denominator = coefficient.getDenominator();
+            lcm = lcm.multiply(denominator).divide(lcm.gcd(denominator));
+        }
+        return lcm;
+    }
+
+    /**
+     * Greatest common divisor of the numerators of all coefficients.
+     */
+    BigInteger getCoefficientsNumeratorGcd() {
+        BigInteger gcd = BigInteger.ZERO;
+        for (Rational coefficient : terms.values()) {
+            gcd = gcd.gcd(coefficient.getNumerator());
+        }
+        return gcd;
+    }
+
+    Rational getLeadingCoefficient() {
+        return terms.isEmpty() ? Rational.ZERO : terms.get(terms.firstKey());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Polynomial) {
+            return terms.equals(((Polynomial) obj).terms);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return terms.hashCode();
+    }
+
+    /**
+     * Prints the polynomial in PARAM's output format (e.g., "-1*r0*rFail+1*r0").
+     * Coefficients are expected to be integers at this point; fractional ones
+     * are printed as parenthesized quotients.
+     */
+    @Override
+    public String toString() {
+        if (terms.isEmpty()) {
+            return "0";
+        }
+        StringBuilder builder = new StringBuilder();
+        boolean first = true;
+        for (Map.Entry<Monomial, Rational> term : terms.entrySet()) {
+            Rational coefficient = term.getValue();
+            if (!first && coefficient.signum() > 0) {
+                builder.append('+');
+            }
+            first = false;
+            builder.append(coefficient);
+            if (!term.getKey().isOne()) {
+                builder.append('*').append(term.getKey());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Whether all coefficients are integers which can be represented
+     * exactly by a double.
+     */
+    boolean hasDoubleExactIntegerCoefficients() {
+        for (Rational coefficient : terms.values()) {
+            if (!coefficient.isInteger() || coefficient.getNumerator().abs().bitLength() > 53) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prints the polynomial with coefficients rounded to decimal
+     * numbers in plain (non-scientific) notation.
+     */
+    String toDecimalString(MathContext precision) {
+        if (terms.isEmpty()) {
+            return "0";
+        }
+        StringBuilder builder = new StringBuilder();
+        boolean first = true;
+        for (Map.Entry<Monomial, Rational> term : terms.entrySet()) {
+            Rational coefficient = term.getValue();
+            if (!first && coefficient.signum() > 0) {
+                builder.append('+');
+            }
+            first = false;
+            BigDecimal decimal = new BigDecimal(coefficient.getNumerator())
+                    .divide(new BigDecimal(coefficient.getDenominator()), precision);
+            builder.append(decimal.stripTrailingZeros().toPlainString());
+            if (!term.getKey().isOne()) {
+                builder.append('*').append(term.getKey());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void addTerm(TreeMap<Monomial, Rational> terms, Monomial monomial, Rational coefficient) {
+        Rational current = terms.get(monomial);
+        Rational sum = (current == null) ? coefficient : current.add(coefficient);
+        if (sum.isZero()) {
+            terms.remove(monomial);
+        } else {
+            terms.put(monomial, sum);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package paramwrapper;
+
+/**
+ * Recursive-descent parser for transition probabilities (e.g., "1 - rFail",
+ * "0.99*r0" or "(1-n3)/2") into exact rational functions.
+ *
+ * Grammar:
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('*' | '/') unary)*
+ * unary      := ('-' | '+') unary | power
+ * power      := primary ('^' unary)?
+ * primary    := number | identifier | '(' expression ')'
+ * </pre>
+ * Exponents must be non-negative integer constants.
+ */
+class ProbabilityParser {
+    private final String input;
+    private int position;
+
+    private ProbabilityParser(String input) {
+        this.input = input;
+        this.position = 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code probability} is not a valid expression.
+     */
+    static RationalFunction parse(String probability) {
+        ProbabilityParser parser = new ProbabilityParser(probability);
+        RationalFunction result = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.position < parser.input.length()) {
+            throw parser.error("Unexpected character '" + parser.input.charAt(parser.position) + "'");
+        }
+        return result;
+    }
+
+    private RationalFunction parseExpression() {
+        RationalFunction result = parseTerm();
+        while (true) {
+            if (accept('+')) {
+                result = result.add(parseTerm());
+            } else if (accept('-')) {
+                result = result.subtract(parseTerm());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private RationalFunction parseTerm() {
+        RationalFunction result = parseUnary();
+        while (true) {
+            if (accept('*')) {
+                result = result.multiply(parseUnary());
+            } else if (accept('/')) {
+                RationalFunction divisor = parseUnary();
+                if (divisor.isZero()) {
+                    throw error("Division by zero");
+                }
+                result = result.divide(divisor);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private RationalFunction parseUnary() {
+        if (accept('-')) {
+            return parseUnary().negate();
+        } else if (accept('+')) {
+            return parseUnary();
+        }
+        return parsePower();
+    }
+
+    private RationalFunction parsePower() {
+        RationalFunction base = parsePrimary();
+        if (accept('^')) {
+            RationalFunction exponent = parseUnary();
+            if (!exponent.isConstant()
+                    || !exponent.getConstant().isInteger()
+                    || exponent.getConstant().signum() < 0) {
+                throw error("Exponents must be non-negative integer constants");
+            }
+            return base.pow(exponent.getConstant().getNumerator().intValueExact());
+        }
+        return base;
+    }
+
+    private RationalFunction parsePrimary() {
+        skipWhitespace();
+        if (position >= input.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char current = input.charAt(position);
+        if (accept('(')) {
+            RationalFunction result = parseExpression();
+            if (!accept(')')) {
+                throw error("Missing closing parenthesis");
+            }
+            return result;
+        } else if (Character.isDigit(current) || current == '.') {
+            return RationalFunction.constant(readNumber());
+        } else if (Character.isLetter(current) || current == '_') {
+            int start = position;
+            while (position < input.length()
+                    && (Character.isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_')) {
+                position++;
+            }
+            return RationalFunction.variable(input.substring(start, position));
+        }
+        throw error("Unexpected character '" + current + "'");
+    }
+
+    private Rational readNumber() {
+        int start = position;
+        while (position < input.length()
+                && (Character.isDigit(input.charAt(position)) || input.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < input.length() && (input.charAt(position) == 'e' || input.charAt(position) == 'E')) {
+            int mark = position;
+            position++;
+            if (position < input.length() && (input.charAt(position) == '-' || input.charAt(position) == '+')) {
+                position++;
+            }
+            if (position < input.length() && Character.isDigit(input.charAt(position))) {
+                while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                    position++;
+                }
+            } else {
+                position = mark;
+            }
+        }
+        try {
+            return Rational.valueOf(input.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Malformed number");
+        }
+    }
+
+    private boolean accept(char expected) {
+        skipWhitespace();
+        if (position < input.length() && input.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of \"" + input + "\"");
+    }
+
+}
@@ -0,0 +1,133 @@
+package paramwrapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Exact rational number, always kept in lowest terms with a positive denominator.
+ */
+final class Rational implements Comparable<Rational> {
+    static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+    static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+
+    private Rational(BigInteger numerator, BigInteger denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    static Rational valueOf(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (numerator.signum() == 0) {
+            return ZERO;
+        }
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if (!gcd.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    static Rational valueOf(long value) {
+        return valueOf(BigInteger.valueOf(value), BigInteger.ONE);
+    }
+
+    /**
+     * Parses a decimal literal (e.g., "0.9947" or "1E-4") without any loss of precision.
+     */
+    static Rational valueOf(String decimal) {
+        BigDecimal value = new BigDecimal(decimal);
+        if (value.scale() > 0) {
+            return valueOf(value.unscaledValue(), BigInteger.TEN.pow(value.scale()));
+        }
+        return valueOf(value.toBigIntegerExact(), BigInteger.ONE);
+    }
+
+    BigInteger getNumerator() {
+        return numerator;
+    }
+
+    BigInteger getDenominator() {
+        return denominator;
+    }
+
+    int signum() {
+        return numerator.signum();
+    }
+
+    boolean isZero() {
+        return numerator.signum() == 0;
+    }
+
+    boolean isInteger() {
+        return denominator.equals(BigInteger.ONE);
+    }
+
+    Rational add(Rational other) {
+        if (isZero()) {
+            return other;
+        } else if (other.isZero()) {
+            return this;
+        }
+        return valueOf(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                       denominator.multiply(other.denominator));
+    }
+
+    Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    Rational multiply(Rational other) {
+        if (isZero() || other.isZero()) {
+            return ZERO;
+        }
+        return valueOf(numerator.multiply(other.numerator),
+                       denominator.multiply(other.denominator));
+    }
+
+    Rational divide(Rational other) {
+        return valueOf(numerator.multiply(other.denominator),
+                       denominator.multiply(other.numerator));
+    }
+
+    Rational negate() {
+        return new Rational(numerator.negate(), denominator);
+    }
+
+    @Override
+    public int compareTo(Rational other) {
+        return numerator.multiply(other.denominator).compareTo(other.numerator.multiply(denominator));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Rational) {
+            Rational other = (Rational) obj;
+            return numerator.equals(other.numerator) && denominator.equals(other.denominator);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * numerator.hashCode() + denominator.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (isInteger()) {
+            return numerator.toString();
+        }
+        return "(" + numerator + ")/(" + denominator + ")";
+    }
+
+}
@@ -0,0 +1,188 @@
+package paramwrapper;
+
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable quotient of two polynomials.
+ *
+ * Cancellation is not complete (that would require multivariate GCDs), but
+ * constant denominators are always folded into the numerator and exact
+ * polynomial divisions are carried out. This covers the acyclic models
+ * we get from behavioral diagrams and the simple loops seen in practice.
+ */
+final class RationalFunction {
+    static final RationalFunction ZERO = new RationalFunction(Polynomial.ZERO, Polynomial.ONE);
+    static final RationalFunction ONE = new RationalFunction(Polynomial.ONE, Polynomial.ONE);
+
+    /**
+     * Precision used when exact coefficients would not survive
+     * the conversion to double by whoever parses the formula.
+     */
+    private static final MathContext DECIMAL_PRECISION = new MathContext(17);
+
+    private final Polynomial numerator;
+    private final Polynomial denominator;
+
+    private RationalFunction(Polynomial numerator, Polynomial denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    static RationalFunction valueOf(Polynomial numerator, Polynomial denominator) {
+        if (denominator.isZero()) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (numerator.isZero()) {
+            return ZERO;
+        }
+        if (denominator.isConstant()) {
+            Rational factor = denominator.getConstant();
+            return new RationalFunction(numerator.multiply(Rational.ONE.divide(factor)), Polynomial.ONE);
+        }
+        Polynomial quotient = numerator.divideExactly(denominator);
+        if (quotient != null) {
+            return new RationalFunction(quotient, Polynomial.ONE);
+        }
+        // Keeps the denominator monic so that equal functions tend to look equal.
+        Rational leading = denominator.getLeadingCoefficient();
+        if (!leading.equals(Rational.ONE)) {
+            Rational factor = Rational.ONE.divide(leading);
+            numerator = numerator.multiply(factor);
+            denominator = denominator.multiply(factor);
+        }
+        return new RationalFunction(numerator, denominator);
+    }
+
+    static RationalFunction constant(Rational value) {
+        return new RationalFunction(Polynomial.constant(value), Polynomial.ONE);
+    }
+
+    static RationalFunction variable(String name) {
+        return new RationalFunction(Polynomial.variable(name), Polynomial.ONE);
+    }
+
+    boolean isZero() {
+        return numerator.isZero();
+    }
+
+    boolean isConstant() {
+        return numerator.isConstant() && denominator.isConstant();
+    }
+
+    /**
+     * Value of a constant function.
+     */
+    Rational getConstant() {
+        return numerator.getConstant().divide(denominator.getConstant());
+    }
+
+    Set<String> getVariables() {
+        Set<String> variables = new TreeSet<String>(numerator.getVariables());
+        variables.addAll(denominator.getVariables());
+        return variables;
+    }
+
+    RationalFunction add(RationalFunction other) {
+        if (isZero()) {
+            return other;
+        } else if (other.isZero()) {
+            return this;
+        } else if (denominator.equals(other.denominator)) {
+            return valueOf(numerator.add(other.numerator), denominator);
+        }
+        return valueOf(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                       denominator.multiply(other.denominator));
+    }
+
+    RationalFunction subtract(RationalFunction other) {
+        return add(other.negate());
+    }
+
+    RationalFunction multiply(RationalFunction other) {
+        if (isZero() || other.isZero()) {
+            return ZERO;
+        }
+        return valueOf(numerator.multiply(other.numerator),
+                       denominator.multiply(other.denominator));
+    }
+
+    RationalFunction divide(RationalFunction other) {
+        return valueOf(numerator.multiply(other.denominator),
+                       denominator.multiply(other.numerator));
+    }
+
+    RationalFunction negate() {
+        return new RationalFunction(numerator.negate(), denominator);
+    }
+
+    RationalFunction pow(int exponent) {
+        RationalFunction result = ONE;
+        for (int i = 0; i < exponent; i++) {
+            result = result.multiply(this);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof RationalFunction) {
+            RationalFunction other = (RationalFunction) obj;
+            return numerator.equals(other.numerator) && denominator.equals(other.denominator);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * numerator.hashCode() + denominator.hashCode();
+    }
+
+    /**
+     * Prints the function the way PARAM does: integer coefficients only, and
+     * either a bare polynomial or "(numerator)/(denominator)".
+     *
+     * Products of many decimal probabilities easily yield integers beyond
+     * the range of a double, which would evaluate to NaN later on. In this
+     * case, coefficients are printed as decimal numbers instead.
+     */
+    @Override
+    public String toString() {
+        if (numerator.isZero()) {
+            return "0";
+        }
+        BigInteger lcm = numerator.getCoefficientsDenominatorLcm()
+                .multiply(denominator.getCoefficientsDenominatorLcm());
+        Polynomial integerNumerator = numerator.multiply(Rational.valueOf(lcm, BigInteger.ONE));
+        Polynomial integerDenominator = denominator.multiply(Rational.valueOf(lcm, BigInteger.ONE));
+
+        BigInteger gcd = integerNumerator.getCoefficientsNumeratorGcd()
+                .gcd(integerDenominator.getCoefficientsNumeratorGcd());
+        if (integerDenominator.getLeadingCoefficient().signum() < 0) {
+            gcd = gcd.negate();
+        }
+        Rational normalization = Rational.valueOf(BigInteger.ONE, gcd);
+        integerNumerator = integerNumerator.multiply(normalization);
+        integerDenominator = integerDenominator.multiply(normalization);
+
+        if (!integerNumerator.hasDoubleExactIntegerCoefficients()
+                || !integerDenominator.hasDoubleExactIntegerCoefficients()) {
+            return toDecimalString();
+        }
+        if (integerDenominator.equals(Polynomial.ONE)) {
+            return integerNumerator.toString();
+        }
+        return "(" + integerNumerator + ")/(" + integerDenominator + ")";
+    }
+
+    private String toDecimalString() {
+        if (denominator.isConstant()) {
+            return numerator.toDecimalString(DECIMAL_PRECISION);
+        }
+        return "(" + numerator.toDecimalString(DECIMAL_PRECISION) + ")/("
+                + denominator.toDecimalString(DECIMAL_PRECISION) + ")";
+    }
+
+}
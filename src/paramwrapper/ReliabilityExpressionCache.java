@@ -0,0 +1,219 @@
+package paramwrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fdtmc.FDTMC;
+import fdtmc.Interface;
+import fdtmc.State;
+import fdtmc.Transition;
+
+/**
+ * Persistent, content-addressed cache of reliability expressions.
+ *
+ * Each entry is a file in the cache directory, named after the SHA-256 hash
+ * of a canonical serialization of the FDTMC (states, labels, transitions with
+ * their probabilities and the interface structure). Action names and the
+ * state variable name do not influence the reliability, so they are left out.
+ *
+ * The number of entries is bounded; when the bound is exceeded, the least
+ * recently used entries (according to the files' modification times) are
+ * evicted. This class is thread-safe.
+ */
+public class ReliabilityExpressionCache {
+    private static final Logger LOGGER = Logger.getLogger(ReliabilityExpressionCache.class.getName());
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    /**
+     * Changing the canonical serialization must invalidate old entries.
+     */
+    private static final String FORMAT_VERSION = "fdtmc-v1";
+    private static final String ENTRY_SUFFIX = ".expr";
+
+    private final Path directory;
+    private final int maxEntries;
+    /**
+     * Known entries (file names) in least-recently-used order.
+     */
+    private final LinkedHashMap<String, Boolean> entries;
+
+    /**
+     * @param directory Directory in which to persist entries. It is created if needed.
+     * @param maxEntries Maximum number of entries to keep.
+     * @throws IOException if the directory cannot be created or listed.
+     */
+    public ReliabilityExpressionCache(Path directory, int maxEntries) throws IOException {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+
+        Files.createDirectories(directory);
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (files == null) {
+            throw new IOException("Could not list cache directory " + directory);
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            entries.put(file.getName(), Boolean.TRUE);
+        }
+        evictExcessEntries();
+    }
+
+    /**
+     * Returns the cached reliability expression for an FDTMC,
+     * or null if there is none.
+     */
+    public String get(FDTMC fdtmc) {
+        String entryName = getEntryName(fdtmc);
+        synchronized (this) {
+            // Lookups also refresh the entry's position in the LRU order.
+            if (entries.get(entryName) == null) {
+                return null;
+            }
+        }
+        Path entryPath = directory.resolve(entryName);
+        try {
+            String expression = new String(Files.readAllBytes(entryPath), CHARSET);
+            // Persists the LRU order for the next runs.
+            entryPath.toFile().setLastModified(System.currentTimeMillis());
+            return expression;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read cache entry " + entryPath, e);
+            synchronized (this) {
+                entries.remove(entryName);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the reliability expression for an FDTMC. Empty expressions
+     * (i.e., model checking failures) are not stored.
+     */
+    public void put(FDTMC fdtmc, String expression) {
+        if (expression == null || expression.isEmpty()) {
+            return;
+        }
+        String entryName = getEntryName(fdtmc);
+        Path entryPath = directory.resolve(entryName);
+        try {
+            // Write-then-rename, so that concurrent runs never see partial entries.
+            Path tmpPath = Files.createTempFile(directory, entryName, ".tmp");
+            Files.write(tmpPath, expression.getBytes(CHARSET));
+            Files.move(tmpPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write cache entry " + entryPath, e);
+            return;
+        }
+        synchronized (this) {
+            entries.put(entryName, Boolean.TRUE);
+            evictExcessEntries();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void evictExcessEntries() {
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            String entryName = eldest.next();
+            eldest.remove();
+            try {
+                Files.deleteIfExists(directory.resolve(entryName));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not evict cache entry " + entryName, e);
+            }
+        }
+    }
+
+    private static String getEntryName(FDTMC fdtmc) {
+        return toHex(computeHash(fdtmc)) + ENTRY_SUFFIX;
+    }
+
+    /**
+     * Hashes a canonical serialization of the FDTMC. States are visited
+     * in index order and transitions are sorted, so that the hash does
+     * not depend on the order in which the model was built.
+     */
+    static byte[] computeHash(FDTMC fdtmc) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        update(digest, FORMAT_VERSION);
+        State initialState = fdtmc.getInitialState();
+        update(digest, "init " + ((initialState != null) ? initialState.getIndex() : -1));
+
+        List<State> states = new ArrayList<State>(fdtmc.getStates());
+        states.sort(Comparator.comparingInt(State::getIndex));
+        Map<State, List<Transition>> transitionSystem = fdtmc.getTransitions();
+        for (State state : states) {
+            update(digest, "state " + state.getIndex() + " " + state.getLabel());
+            List<Transition> transitions = transitionSystem.get(state);
+            if (transitions == null) {
+                continue;
+            }
+            List<String> serializedTransitions = new ArrayList<String>(transitions.size());
+            for (Transition transition : transitions) {
+                serializedTransitions.add(transition.getTarget().getIndex() + " " + transition.getProbability());
+            }
+            serializedTransitions.sort(null);
+            for (String transition : serializedTransitions) {
+                update(digest, "trans " + transition);
+            }
+        }
+
+        Map<String, List<Interface>> interfaces = new TreeMap<String, List<Interface>>(fdtmc.getInterfaces());
+        for (Map.Entry<String, List<Interface>> entry : interfaces.entrySet()) {
+            List<String> occurrences = new ArrayList<String>();
+            for (Interface occurrence : entry.getValue()) {
+                occurrences.add(occurrence.getInitial().getIndex()
+                        + " " + occurrence.getSuccess().getIndex()
+                        + " " + occurrence.getError().getIndex());
+            }
+            occurrences.sort(null);
+            update(digest, "iface " + entry.getKey() + " " + occurrences);
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String line) {
+        digest.update(line.getBytes(CHARSET));
+        digest.update((byte) '\n');
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+}
@@ -0,0 +1,228 @@
+package paramwrapper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+import fdtmc.Transition;
+
+/**
+ * In-process parametric model checker.
+ *
+ * Computes the probability of eventually reaching a "success" state by
+ * eliminating states directly on the FDTMC graph, using exact rational
+ * function arithmetic. The resulting formula is printed in the same
+ * format as PARAM's, so it can be used interchangeably with {@link ParamWrapper}
+ * while avoiding process creation and temporary files.
+ */
+public class StateEliminationModelChecker implements ParametricModelChecker {
+    private static final Logger LOGGER = Logger.getLogger(StateEliminationModelChecker.class.getName());
+
+    /**
+     * Index of the (single) absorbing state that stands for all success states.
+     */
+    private static final int SUCCESS = -1;
+
+    private IModelCollector modelCollector;
+
+    public StateEliminationModelChecker() {
+        this(new NoopModelCollector());
+    }
+
+    public StateEliminationModelChecker(IModelCollector modelCollector) {
+        this.modelCollector = modelCollector;
+    }
+
+    @Override
+    public String getReliability(FDTMC fdtmc) {
+        long startTime = System.nanoTime();
+        String formula;
+        try {
+            formula = computeReliability(fdtmc).toString();
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            LOGGER.severe("Could not model check FDTMC: " + e.getMessage());
+            LOGGER.fine(fdtmc.toString());
+            formula = "";
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+        modelCollector.collectModelCheckingTime(elapsedTime);
+        return formula;
+    }
+
+    private RationalFunction computeReliability(FDTMC fdtmc) {
+        Map<Integer, TreeMap<Integer, RationalFunction>> successors = new HashMap<Integer, TreeMap<Integer, RationalFunction>>();
+        Set<String> parameters = new TreeSet<String>();
+        for (Map.Entry<State, List<Transition>> entry : fdtmc.getTransitions().entrySet()) {
+            State source = entry.getKey();
+            TreeMap<Integer, RationalFunction> outgoing = new TreeMap<Integer, RationalFunction>();
+            successors.put(source.getIndex(), outgoing);
+            if (isSuccess(source) || entry.getValue() == null) {
+                // Success states are absorbing, and states without
+                // transitions are implicit self-loops.
+                continue;
+            }
+            for (Transition transition : entry.getValue()) {
+                RationalFunction probability = ProbabilityParser.parse(transition.getProbability());
+                parameters.addAll(probability.getVariables());
+                int target = isSuccess(transition.getTarget()) ? SUCCESS : transition.getTarget().getIndex();
+                addProbability(outgoing, target, probability);
+            }
+        }
+        modelCollector.collectModel(parameters.size(), fdtmc.getStates().size());
+
+        State initialState = fdtmc.getInitialState();
+        if (initialState == null) {
+            throw new IllegalArgumentException("FDTMC has no initial state");
+        }
+        if (isSuccess(initialState)) {
+            return RationalFunction.ONE;
+        }
+        int initial = initialState.getIndex();
+
+        Set<Integer> relevant = getRelevantStates(initial, successors);
+        if (!relevant.contains(initial)) {
+            return RationalFunction.ZERO;
+        }
+        Map<Integer, TreeMap<Integer, RationalFunction>> predecessors = new HashMap<Integer, TreeMap<Integer, RationalFunction>>();
+        for (Integer state : relevant) {
+            predecessors.put(state, new TreeMap<Integer, RationalFunction>());
+        }
+        predecessors.put(SUCCESS, new TreeMap<Integer, RationalFunction>());
+        for (Integer state : relevant) {
+            TreeMap<Integer, RationalFunction> outgoing = successors.get(state);
+            // Transitions into states which cannot reach success contribute nothing.
+            outgoing.keySet().removeIf(target -> target != SUCCESS && !relevant.contains(target));
+            for (Map.Entry<Integer, RationalFunction> transition : outgoing.entrySet()) {
+                predecessors.get(transition.getKey()).put(state, transition.getValue());
+            }
+        }
+
+        Set<Integer> toEliminate = new TreeSet<Integer>(relevant);
+        toEliminate.remove(initial);
+        while (!toEliminate.isEmpty()) {
+            int state = pickCheapestState(toEliminate, successors, predecessors);
+            eliminate(state, successors, predecessors);
+            toEliminate.remove(state);
+        }
+
+        TreeMap<Integer, RationalFunction> outgoing = successors.get(initial);
+        RationalFunction reachSuccess = outgoing.getOrDefault(SUCCESS, RationalFunction.ZERO);
+        RationalFunction selfLoop = outgoing.get(initial);
+        if (selfLoop != null && !reachSuccess.isZero()) {
+            reachSuccess = reachSuccess.divide(RationalFunction.ONE.subtract(selfLoop));
+        }
+        return reachSuccess;
+    }
+
+    /**
+     * Removes {@code state} from the graph, redirecting each path
+     * pred -> state -> succ to a direct transition pred -> succ with
+     * probability p(pred, state) * p(state, succ) / (1 - p(state, state)).
+     */
+    private void eliminate(int state,
+                           Map<Integer, TreeMap<Integer, RationalFunction>> successors,
+                           Map<Integer, TreeMap<Integer, RationalFunction>> predecessors) {
+        TreeMap<Integer, RationalFunction> outgoing = successors.remove(state);
+        TreeMap<Integer, RationalFunction> incoming = predecessors.remove(state);
+
+        RationalFunction selfLoop = outgoing.remove(state);
+        incoming.remove(state);
+        RationalFunction loopFactor = (selfLoop == null) ? RationalFunction.ONE
+                : RationalFunction.ONE.divide(RationalFunction.ONE.subtract(selfLoop));
+
+        for (Integer successor : outgoing.keySet()) {
+            predecessors.get(successor).remove(state);
+        }
+        for (Map.Entry<Integer, RationalFunction> predecessorEntry : incoming.entrySet()) {
+            int predecessor = predecessorEntry.getKey();
+            TreeMap<Integer, RationalFunction> predecessorOutgoing = successors.get(predecessor);
+            predecessorOutgoing.remove(state);
+            RationalFunction toState = predecessorEntry.getValue().multiply(loopFactor);
+            for (Map.Entry<Integer, RationalFunction> successorEntry : outgoing.entrySet()) {
+                int successor = successorEntry.getKey();
+                addProbability(predecessorOutgoing, successor, toState.multiply(successorEntry.getValue()));
+                RationalFunction updated = predecessorOutgoing.get(successor);
+                if (updated == null) {
+                    predecessors.get(successor).remove(predecessor);
+                } else {
+                    predecessors.get(successor).put(predecessor, updated);
+                }
+            }
+        }
+    }
+
+    /**
+     * Min-fill style heuristic: eliminating a state with few in * out
+     * transitions keeps the intermediate graph (and formulas) small.
+     */
+    private int pickCheapestState(Set<Integer> candidates,
+                                  Map<Integer, TreeMap<Integer, RationalFunction>> successors,
+                                  Map<Integer, TreeMap<Integer, RationalFunction>> predecessors) {
+        int best = 0;
+        long bestCost = Long.MAX_VALUE;
+        for (Integer state : candidates) {
+            long cost = (long) successors.get(state).size() * predecessors.get(state).size();
+            if (cost < bestCost) {
+                best = state;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * States which are reachable from the initial state and from which
+     * a success state is reachable.
+     */
+    private Set<Integer> getRelevantStates(int initial, Map<Integer, TreeMap<Integer, RationalFunction>> successors) {
+        Map<Integer, Set<Integer>> reverse = new HashMap<Integer, Set<Integer>>();
+        Set<Integer> forward = new TreeSet<Integer>();
+        Deque<Integer> pending = new ArrayDeque<Integer>();
+        pending.push(initial);
+        forward.add(initial);
+        while (!pending.isEmpty()) {
+            int state = pending.pop();
+            for (Integer target : successors.get(state).keySet()) {
+                reverse.computeIfAbsent(target, k -> new TreeSet<Integer>()).add(state);
+                if (target != SUCCESS && forward.add(target)) {
+                    pending.push(target);
+                }
+            }
+        }
+
+        Set<Integer> relevant = new TreeSet<Integer>();
+        pending.push(SUCCESS);
+        while (!pending.isEmpty()) {
+            int state = pending.pop();
+            for (Integer source : reverse.getOrDefault(state, new TreeSet<Integer>())) {
+                if (relevant.add(source)) {
+                    pending.push(source);
+                }
+            }
+        }
+        return relevant;
+    }
+
+    private static void addProbability(TreeMap<Integer, RationalFunction> transitions, int target, RationalFunction probability) {
+        RationalFunction current = transitions.get(target);
+        RationalFunction sum = (current == null) ? probability : current.add(probability);
+        if (sum.isZero()) {
+            transitions.remove(target);
+        } else {
+            transitions.put(target, sum);
+        }
+    }
+
+    private static boolean isSuccess(State state) {
+        return FDTMC.SUCCESS_LABEL.equals(state.getLabel());
+    }
+
+}
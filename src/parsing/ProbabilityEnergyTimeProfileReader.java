@@ -1,61 +1,109 @@
 package parsing;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
 
 import parsing.exceptions.InvalidTagException;
 
+/**
+ * Reads the MARTE annotations (probability, energy and execution time) of
+ * the elements of a behavioral model.
+ *
+ * The annotations are indexed by the id of the annotated element in a single
+ * traversal of the document, so that each lookup takes constant time.
+ */
 public class ProbabilityEnergyTimeProfileReader {
+    /**
+     * Annotation tags, in the order in which they are applied: when an element
+     * has more than one annotation, values from the latter ones prevail.
+     */
+    private static final String[] ANNOTATION_TAGS = {"GQAM:GaStep", "PAM:PaStep", "GRM:ResourceUsage", "PAM:PaCommStep"};
+
+    /**
+     * The first annotation of each tag (or null) for each element, by element id.
+     */
+    private Map<String, org.w3c.dom.Node[]> annotationsById;
+
+    public ProbabilityEnergyTimeProfileReader(Document doc) {
+        this.annotationsById = new HashMap<String, org.w3c.dom.Node[]>();
+        index(doc.getDocumentElement());
+    }
 
     /**
-     * Trigger for retrieveProbEnergyTimeHelper
-     * @param n
+     * Indexes the annotations under a node, in document order.
+     */
+    private void index(org.w3c.dom.Node node) {
+        for (org.w3c.dom.Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() != org.w3c.dom.Node.ELEMENT_NODE) {
+                continue;
+            }
+            for (int tag = 0; tag < ANNOTATION_TAGS.length; tag++) {
+                if (ANNOTATION_TAGS[tag].equals(child.getNodeName())) {
+                    org.w3c.dom.Node annotatedElement = child.getAttributes().getNamedItem("base_NamedElement");
+                    if (annotatedElement != null) {
+                        org.w3c.dom.Node[] annotations = annotationsById.computeIfAbsent(annotatedElement.getTextContent(),
+                                                                                         id -> new org.w3c.dom.Node[ANNOTATION_TAGS.length]);
+                        if (annotations[tag] == null) {
+                            annotations[tag] = child;
+                        }
+                    }
+                }
+            }
+            index(child);
+        }
+    }
+
+    /**
+     * Gets the annotations of a given element.
+     * @param nodeId Id of the element
+     * @return the profile of the element, which is empty if it has no annotations.
      * @throws InvalidTagException
      */
-    public static ProbabilityEnergyTimeProfile retrieveProbEnergyTime(String nodeId, Document doc) throws InvalidTagException {
+    public ProbabilityEnergyTimeProfile retrieveProbEnergyTime(String nodeId) throws InvalidTagException {
         ProbabilityEnergyTimeProfile profile = new ProbabilityEnergyTimeProfile();
 
-        retrieveProbEnergyTimeHelper(doc.getElementsByTagName("GQAM:GaStep"), nodeId, profile);
-        retrieveProbEnergyTimeHelper(doc.getElementsByTagName("PAM:PaStep"), nodeId, profile);
-        retrieveProbEnergyTimeHelper(doc.getElementsByTagName("GRM:ResourceUsage"), nodeId, profile);
-        retrieveProbEnergyTimeHelper(doc.getElementsByTagName("PAM:PaCommStep"), nodeId, profile);
+        org.w3c.dom.Node[] annotations = annotationsById.get(nodeId);
+        if (annotations != null) {
+            for (org.w3c.dom.Node annotation : annotations) {
+                if (annotation != null) {
+                    retrieveProbEnergyTimeHelper(annotation, profile);
+                }
+            }
+        }
 
         return profile;
     }
 
     /**
-     * Parses the xmi file in search for pertinent annotations of an behavioral diagram
-     * $nodes indicates the xmi nodes to be analyzed
-     * $n indicates the object in which the resultant data will be put
-     * @param nodes
-     * @param n
+     * Parses an annotation of a behavioral diagram's element
+     * $item indicates the xmi node to be analyzed
+     * $profile indicates the object in which the resultant data will be put
+     * @param item
+     * @param profile
      * @throws InvalidTagException
      */
-    private static void retrieveProbEnergyTimeHelper(NodeList nodes, String nodeId, ProbabilityEnergyTimeProfile profile)  throws InvalidTagException {
-        for (int k = 0; k < nodes.getLength(); k++) {
-            org.w3c.dom.Node tmp;
-            org.w3c.dom.Node item = nodes.item(k);
-            NamedNodeMap kAttrs = item.getAttributes();
+    private static void retrieveProbEnergyTimeHelper(org.w3c.dom.Node item, ProbabilityEnergyTimeProfile profile)  throws InvalidTagException {
+        org.w3c.dom.Node tmp;
+        NamedNodeMap kAttrs = item.getAttributes();
 
-            if (kAttrs.getNamedItem("base_NamedElement").getTextContent().equals(nodeId)) {
-                if (kAttrs.getNamedItem("prob") != null) {
-                    profile.setProb(parseTag(kAttrs.getNamedItem("prob").getTextContent(), "prob").floatValue());
-                }
+        if (kAttrs.getNamedItem("prob") != null) {
+            profile.setProb(parseTag(kAttrs.getNamedItem("prob").getTextContent(), "prob").floatValue());
+        }
 
-                if (item.hasChildNodes()) {
-                    NodeList kChilds = item.getChildNodes();
-                    for (int i = 0; i < kChilds.getLength(); i++) {
-                        tmp = kChilds.item(i);
-                        if (tmp.getNodeName() != null && tmp.getNodeName().equals("energy")) {
-                            profile.setEnergy(parseTag(tmp.getTextContent(), "energy").floatValue());
-                        }
-                        if (tmp.getNodeName() != null && tmp.getNodeName().equals("execTime")) {
-                            profile.setExecTime(parseTag(tmp.getTextContent(), "execTime"));
-                        }
-                    }
+        if (item.hasChildNodes()) {
+            NodeList kChilds = item.getChildNodes();
+            for (int i = 0; i < kChilds.getLength(); i++) {
+                tmp = kChilds.item(i);
+                if (tmp.getNodeName() != null && tmp.getNodeName().equals("energy")) {
+                    profile.setEnergy(parseTag(tmp.getTextContent(), "energy").floatValue());
+                }
+                if (tmp.getNodeName() != null && tmp.getNodeName().equals("execTime")) {
+                    profile.setExecTime(parseTag(tmp.getTextContent(), "execTime"));
                 }
-                break;
             }
         }
     }
@@ -1,12 +1,11 @@
 package parsing.SplGeneratorModels;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import parsing.SplGeneratorModels.Activity;
 import parsing.SplGeneratorModels.ActivityDiagram;
@@ -15,124 +14,143 @@ import parsing.SplGeneratorModels.SequenceDiagram;
 import parsing.SplGeneratorModels.StartNode;
 import parsing.SplGeneratorModels.Transition;
 
+/**
+ * Builds the activity diagram of an SPL from a stream of XML events, as
+ * they are read.
+ *
+ * Activity diagrams usually come before the sequence diagrams they refer to,
+ * so activities are only linked to their sequence diagrams by
+ * {@link #getActivityDiagram()}, after the whole document has been read.
+ */
 public class ActivityDiagramParser {
 
-	private ActivityDiagram instance; 
-	
-	private static String activityDiagramName; 
-	private static HashSet<ActivityDiagramElement> elements; 
-	private static HashSet<Transition> transitions; 
-	
-	public static ActivityDiagram parse(Document doc) {
-		ActivityDiagram answer = new ActivityDiagram(); 
-		elements = new HashSet<ActivityDiagramElement>();
-		transitions = new HashSet<Transition>(); 
-		 
-		NodeList nNode = doc.getElementsByTagName("ActivityDiagram");
-		
-		for (int i = 0; i<nNode.getLength(); i++) {
-			//for each activity diagram found, we should get its name, parse its
-			//elements and transitions and rebuild it in memory. 
-			Node nActDiag = nNode.item(i);
-			
-			//extracting the name of the activity diagram
-			NamedNodeMap actDiagAttributes = nActDiag.getAttributes();
-			Node actDiagName = actDiagAttributes.getNamedItem("name");
-			activityDiagramName = actDiagName.getNodeValue();
-			answer.setName(activityDiagramName);
-			
-			//parse the document seeking for <ActivityDiagramElement> and 
-			//<Transition> elements. Later, ActivityDiagramElement and 
-			//Transition objects will be created for representing them.
-			NodeList setOfElements;
-			NodeList setOfTransitions;
-			
-			Element e = (Element) nActDiag; 
-			setOfElements = e.getElementsByTagName("ActivityDiagramElement"); 
-			setOfTransitions = e.getElementsByTagName("Transition"); 
-			
-			for (int j = 0; j<setOfElements.getLength(); j++) {
-				ActivityDiagramElement ade = null;
-				
-				Element el = (Element) setOfElements.item(j);
-				NamedNodeMap map = el.getAttributes(); 
-				String elementName = map.getNamedItem("name").getNodeValue();
-				
-				switch (map.getNamedItem("type").getNodeValue()) {
-				case "Activity":
-					ade = ActivityDiagramElement.createElement(ActivityDiagramElement.ACTIVITY, 
-							elementName);
-					if (el.hasChildNodes()) {
-						//parse the sequence diagrams associated with it
-						NodeList children = el.getElementsByTagName("RepresentedBy"); 
-						 for (int k=0; k<children.getLength(); k++) {
-							 if (children.item(k).getNodeType() == Node.ELEMENT_NODE && 
-									 children.item(k).getNodeName().equals("RepresentedBy")){
-								 Element repBy = (Element) children.item(k); 
-								 NamedNodeMap attributes = repBy.getAttributes(); 
-								 String seqDiagName = attributes.getNamedItem("seqDiagName").getNodeValue(); 
-								 SequenceDiagram sd = SequenceDiagram.getSequenceDiagramByName(seqDiagName);
-								 Activity a = (Activity) ade; 
-								 a.addSequenceDiagram(sd); 
-							 }
-						 }
-						 answer.addElement(ade); 
+	private ActivityDiagram answer = new ActivityDiagram();
+
+	private List<Activity> representedActivities = new ArrayList<Activity>();
+	private List<String> representingDiagrams = new ArrayList<String>();
+
+	/**
+	 * Parses an <ActivityDiagram> element, along with its elements and
+	 * transitions. The reader must be at the element's start, and is left at
+	 * its end.
+	 */
+	void parse(XMLStreamReader reader) throws XMLStreamException {
+		//extracting the name of the activity diagram
+		answer.setName(reader.getAttributeValue(null, "name"));
+
+		//Transitions are only created once all elements they may connect
+		//have been read.
+		List<String[]> transitions = new ArrayList<String[]>();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (reader.getLocalName().equals("ActivityDiagramElement")) {
+					parseElement(reader);
+				} else {
+					depth++;
+					if (reader.getLocalName().equals("Transition")) {
+						transitions.add(new String[] {
+								reader.getAttributeValue(null, "name"),
+								reader.getAttributeValue(null, "probability"),
+								reader.getAttributeValue(null, "source"),
+								reader.getAttributeValue(null, "target") });
 					}
-					break;
-				
-				case "DecisionNode":
-					ade = ActivityDiagramElement.createElement(ActivityDiagramElement.DECISION_NODE, 
-							elementName); 
-					answer.addElement(ade); 
-					break;
-				
-				case "EndNode":
-					ade = ActivityDiagramElement.createElement(ActivityDiagramElement.END_NODE, 
-							elementName);
-					answer.addElement(ade);
-					break;
-				
-				case "MergeNode":
-					ade = ActivityDiagramElement.createElement(ActivityDiagramElement.MERGE_NODE, 
-							elementName);
-					answer.addElement(ade);
-					break;
-				
-				case "StartNode":
-					StartNode sn = (StartNode)answer.getStartNode();
-					sn.setElementName(elementName);
-					break;
-				
-				case "Transition":
-					ade = ActivityDiagramElement.createElement(ActivityDiagramElement.TRANSITION, 
-							elementName);
-					answer.addElement(ade);
-					break;
-
-				default:
-					System.out.println(map.getNamedItem("type").getNodeValue() + 
-							" not yet implemented! ");
-					break;
 				}
-				elements.add(ade);
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
 			}
-			
-			for (int j=0; j<setOfTransitions.getLength(); j++) {
-				Element f = (Element) setOfTransitions.item(j);
-				NamedNodeMap map = f.getAttributes(); 
-				
-				String transitionName = map.getNamedItem("name").getNodeValue();
-				double transitionProbability = Double.parseDouble(
-						map.getNamedItem("probability").getNodeValue()); 
-				String sourceElement = map.getNamedItem("source").getNodeValue(); 
-				String targetElement = map.getNamedItem("target").getNodeValue();
-				
-				ActivityDiagramElement source = answer.getElementByName(sourceElement);
-				ActivityDiagramElement target = answer.getElementByName(targetElement);
-				Transition t = source.createTransition(target, transitionName, transitionProbability);
-				answer.addElement(t);
+		}
+
+		for (String[] transition : transitions) {
+			double transitionProbability = Double.parseDouble(transition[1]);
+			ActivityDiagramElement source = answer.getElementByName(transition[2]);
+			ActivityDiagramElement target = answer.getElementByName(transition[3]);
+			Transition t = source.createTransition(target, transition[0], transitionProbability);
+			answer.addElement(t);
+		}
+	}
+
+	/**
+	 * Parses an <ActivityDiagramElement> element. The reader must be at the
+	 * element's start, and is left at its end.
+	 */
+	private void parseElement(XMLStreamReader reader) throws XMLStreamException {
+		ActivityDiagramElement ade = null;
+		String elementName = reader.getAttributeValue(null, "name");
+		String elementType = reader.getAttributeValue(null, "type");
+
+		switch (String.valueOf(elementType)) {
+		case "Activity":
+			ade = ActivityDiagramElement.createElement(ActivityDiagramElement.ACTIVITY,
+					elementName);
+			answer.addElement(ade);
+			break;
+
+		case "DecisionNode":
+			ade = ActivityDiagramElement.createElement(ActivityDiagramElement.DECISION_NODE,
+					elementName);
+			answer.addElement(ade);
+			break;
+
+		case "EndNode":
+			ade = ActivityDiagramElement.createElement(ActivityDiagramElement.END_NODE,
+					elementName);
+			answer.addElement(ade);
+			break;
+
+		case "MergeNode":
+			ade = ActivityDiagramElement.createElement(ActivityDiagramElement.MERGE_NODE,
+					elementName);
+			answer.addElement(ade);
+			break;
+
+		case "StartNode":
+			StartNode sn = (StartNode)answer.getStartNode();
+			sn.setElementName(elementName);
+			break;
+
+		case "Transition":
+			ade = ActivityDiagramElement.createElement(ActivityDiagramElement.TRANSITION,
+					elementName);
+			answer.addElement(ade);
+			break;
+
+		default:
+			System.out.println(elementType + " not yet implemented! ");
+			break;
+		}
+
+		//the sequence diagrams associated with an activity are linked later
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (ade instanceof Activity && reader.getLocalName().equals("RepresentedBy")) {
+					representedActivities.add((Activity) ade);
+					representingDiagrams.add(reader.getAttributeValue(null, "seqDiagName"));
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
 			}
 		}
+	}
+
+	/**
+	 * Links the activities to their sequence diagrams. Must be called once
+	 * the whole document has been read.
+	 *
+	 * @return the activity diagram.
+	 */
+	ActivityDiagram getActivityDiagram() {
+		for (int i = 0; i < representedActivities.size(); i++) {
+			SequenceDiagram sd = SequenceDiagram
+					.getSequenceDiagramByName(representingDiagrams.get(i));
+			representedActivities.get(i).addSequenceDiagram(sd);
+		}
+		representedActivities.clear();
+		representingDiagrams.clear();
 		return answer;
 	}
 
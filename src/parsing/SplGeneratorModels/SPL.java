@@ -2,6 +2,8 @@ package parsing.SplGeneratorModels;
 
 import java.io.StringWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -11,6 +13,9 @@ import javax.sound.midi.Sequence;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -20,8 +25,6 @@ import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import parsing.SplGeneratorModels.ActivityDiagramParser;
 import parsing.SplGeneratorModels.SequenceDiagramParser;
@@ -181,30 +184,54 @@ public class SPL implements Cloneable{
 	 */
 	public static SPL getSplFromXml(String fileName) {
 
-		try {
-			File xmlFile = new File(fileName);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory
-					.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-			Document doc = dBuilder.parse(xmlFile);
-
-			// get the root element and extract the SPL name from it
-			Element root = doc.getDocumentElement();
-			Node nSplName = root.getAttributeNode("name");
-			String splName = nSplName.getNodeValue();
-			instance = new SPL(splName);
-
-			// Call the parser of sequence diagrams elements initially, so it
-			// allows to create in memory all the objects representing the SPL's
-			// sequence diagrams.
-			// Later, such objects will be linked to Activity Diagrams objects.
-			SequenceDiagramParser.parse(doc);
-
-			// build the activity diagram from the <ActivityDiagram> tag.
-			NodeList nActivityDiagram = root
-					.getElementsByTagName("ActivityDiagram");
-			ActivityDiagram a = ActivityDiagramParser.parse(doc);
-			instance.ad = a;
+		try (InputStream input = new FileInputStream(fileName)) {
+			// The document is read in a single forward pass, so that memory
+			// use does not grow with the size of the file. Each element is
+			// handed to the parser of the diagrams it belongs to, and
+			// references between diagrams are resolved at the end.
+			XMLStreamReader reader = XMLInputFactory.newInstance()
+					.createXMLStreamReader(input);
+			SequenceDiagramParser sequenceDiagramParser = new SequenceDiagramParser();
+			ActivityDiagramParser activityDiagramParser = new ActivityDiagramParser();
+			SPL spl = null;
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+					if (spl == null) {
+						// get the root element and extract the SPL name from it
+						spl = new SPL(reader.getAttributeValue(null, "name"));
+						continue;
+					}
+					switch (reader.getLocalName()) {
+					case "ActivityDiagram":
+						activityDiagramParser.parse(reader);
+						break;
+
+					case "SequenceDiagram":
+						sequenceDiagramParser.parseSequenceDiagram(reader);
+						break;
+
+					case "Lifeline":
+						sequenceDiagramParser.parseLifeline(reader);
+						break;
+
+					case "Fragments":
+						sequenceDiagramParser.parseFragments(reader);
+						break;
+
+					default:
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+
+			sequenceDiagramParser.linkFragments();
+			spl.ad = activityDiagramParser.getActivityDiagram();
+			instance = spl;
 
 		} catch (Exception e) {
 			e.printStackTrace();
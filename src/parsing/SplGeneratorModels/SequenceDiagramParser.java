@@ -1,12 +1,11 @@
 package parsing.SplGeneratorModels;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import parsing.SplGeneratorModels.Fragment;
 import parsing.SplGeneratorModels.Lifeline;
@@ -14,99 +13,140 @@ import parsing.SplGeneratorModels.Message;
 import parsing.SplGeneratorModels.SequenceDiagram;
 import parsing.SplGeneratorModels.SequenceDiagramElement;
 
+/**
+ * Builds the sequence diagrams of an SPL (and their lifelines and fragments)
+ * from a stream of XML events, as they are read.
+ *
+ * Elements may be referred to before they are declared: lifelines are
+ * created as soon as a message mentions them, and their reliabilities are
+ * set once their declarations are read. Links from fragments to the sequence
+ * diagrams which represent them are only resolved by {@link #linkFragments()},
+ * after the whole document has been read.
+ */
 public class SequenceDiagramParser {
 
-	static HashMap<String, Lifeline> lifelineById;
-	static HashMap<String, SequenceDiagram> seqDiagById;
-	static HashMap<String, Fragment> fragmentById;
+	private List<Fragment> representedFragments = new ArrayList<Fragment>();
+	private List<String> representingDiagrams = new ArrayList<String>();
+
+	/**
+	 * Parses a <SequenceDiagram> element, along with its messages and
+	 * fragments. The reader must be at the element's start, and is left at
+	 * its end.
+	 */
+	void parseSequenceDiagram(XMLStreamReader reader) throws XMLStreamException {
+		String seqDiagName = reader.getAttributeValue(null, "name");
+		String seqDiagGuard = reader.getAttributeValue(null, "guard");
+		SequenceDiagram sd = SequenceDiagram.createSequenceDiagram(
+				seqDiagName, seqDiagGuard);
+
+		// For each message of the sequence diagram, we create it in memory
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (depth == 2 && reader.getLocalName().equals("Message")) {
+					parseMessage(sd, reader);
+				} else if (depth == 2 && reader.getLocalName().equals("Fragment")) {
+					sd.addFragment(getFragment(reader.getAttributeValue(null, "name"),
+							reader.getAttributeValue(null, "type")));
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
 
-	public static void parse(Document doc) {
-		lifelineById = new HashMap<String, Lifeline>();
-		seqDiagById = new HashMap<String, SequenceDiagram>();
+	private void parseMessage(SequenceDiagram sd, XMLStreamReader reader) {
+		String messageName = reader.getAttributeValue(null, "name");
+		String probability = reader.getAttributeValue(null, "probability");
+		String sourceName = reader.getAttributeValue(null, "source");
+		String targetName = reader.getAttributeValue(null, "target");
+		int type;
+		switch (String.valueOf(reader.getAttributeValue(null, "type"))) {
+		case "asynchronous":
+			type = Message.ASYNCHRONOUS;
+			break;
+
+		case "synchronous":
+			type = Message.SYNCHRONOUS;
+			break;
+
+		case "reply":
+			type = Message.REPLY;
+			break;
+
+		default:
+			type = -1;
+			System.out.println("Message type is not defined.");
+			break;
+		}
 
-		// initially parse the lifelines used by the sequence diagrams.
-		parseAllLifelines(doc);
+		// Lifelines may be declared later on in the document.
+		Lifeline source = (Lifeline) SequenceDiagramElement.createElement(
+				SequenceDiagramElement.LIFELINE, sourceName);
+		Lifeline target = (Lifeline) SequenceDiagramElement.createElement(
+				SequenceDiagramElement.LIFELINE, targetName);
 
-		// parse the sequence diagrams (and its children) and then recreate the
-		// sequence diagrams in memory
-		parseAllSequenceDiagrams(doc);
+		sd.createMessage(source, target, type, messageName,
+				Double.parseDouble(probability));
+	}
+
+	/**
+	 * Parses a <Lifeline> element. The reader must be at the element's start.
+	 */
+	void parseLifeline(XMLStreamReader reader) {
+		String name = reader.getAttributeValue(null, "name");
+		double reliability = Double.parseDouble(reader.getAttributeValue(null, "reliability"));
 
-		// parsing the fragments used by the sequence diagrams.
-		parseAllFragments(doc);
+		Lifeline l = (Lifeline) SequenceDiagramElement.createElement(
+				SequenceDiagramElement.LIFELINE, name);
+		l.setReliability(reliability);
 	}
 
-	private static void parseAllSequenceDiagrams(Document doc) {
-		NodeList listOfSeqDiags = doc.getElementsByTagName("SequenceDiagram");
-		for (int i = 0; i < listOfSeqDiags.getLength(); i++) {
-			Element seqDiag = (Element) listOfSeqDiags.item(i);
-			NamedNodeMap seqDiagAttributes = seqDiag.getAttributes();
-			String seqDiagName = seqDiagAttributes.getNamedItem("name")
-					.getNodeValue();
-			String seqDiagGuard = seqDiagAttributes.getNamedItem("guard")
-					.getNodeValue();
-
-			SequenceDiagram sd = SequenceDiagram.createSequenceDiagram(
-					seqDiagName, seqDiagGuard);
-
-			// For each message of the sequence diagram, we create it in memory
-			NodeList seqDiagChildren = seqDiag.getChildNodes();
-			for (int j = 0; j < seqDiagChildren.getLength(); j++) {
-				Node n = seqDiagChildren.item(j);
-				if (n.getNodeType() == Node.ELEMENT_NODE
-						&& n.getNodeName().equals("Message")) {
-					Element e = (Element) n;
-					String messageName = e.getAttribute("name");
-					String probability = e.getAttribute("probability");
-					String sourceName = e.getAttribute("source");
-					String targetName = e.getAttribute("target");
-					int type;
-					switch (e.getAttribute("type")) {
-					case "asynchronous":
-						type = Message.ASYNCHRONOUS;
-						break;
-
-					case "synchronous":
-						type = Message.SYNCHRONOUS;
-						break;
-
-					case "reply":
-						type = Message.REPLY;
-						break;
-
-					default:
-						type = -1;
-						System.out.println("Message type is not defined.");
-						break;
-					}
-
-					Lifeline source = (Lifeline) SequenceDiagramElement
-							.getElementByName(sourceName);
-					Lifeline target = (Lifeline) SequenceDiagramElement
-							.getElementByName(targetName);
-
-					sd.createMessage(source, target, type, messageName,
-							Double.parseDouble(probability));
-				} else if (n.getNodeType() == Node.ELEMENT_NODE
-						&& n.getNodeName().equals("Fragment")) {
-					parseFragment(sd, n);
+	/**
+	 * Parses the <Fragments> element, which tells the sequence diagrams
+	 * representing each fragment. The reader must be at the element's start,
+	 * and is left at its end.
+	 */
+	void parseFragments(XMLStreamReader reader) throws XMLStreamException {
+		Fragment f = null;
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if (reader.getLocalName().equals("Fragment")) {
+					f = getFragment(reader.getAttributeValue(null, "name"),
+							reader.getAttributeValue(null, "type"));
+				} else if (reader.getLocalName().equals("RepresentedBy") && f != null) {
+					representedFragments.add(f);
+					representingDiagrams.add(reader.getAttributeValue(null, "seqDiagName"));
 				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
 			}
+		}
+	}
 
-			// Add the sequence diagram into the set of sequence diagram created
-			// for the SPL
-			seqDiagById.put(sd.getName(), sd);
+	/**
+	 * Links the fragments to the sequence diagrams which represent them.
+	 * Must be called once the whole document has been read.
+	 */
+	void linkFragments() {
+		for (int i = 0; i < representedFragments.size(); i++) {
+			SequenceDiagram sd = SequenceDiagram
+					.getSequenceDiagramByName(representingDiagrams.get(i));
+			representedFragments.get(i).addSequenceDiagram(sd);
 		}
 	}
 
-	private static void parseFragment(SequenceDiagram sd, Node n) {
-		Element e = (Element) n;
-		String fragName = e.getAttribute("name");
+	private static Fragment getFragment(String fragName, String fragmentStrType) {
 		Fragment f = (Fragment) SequenceDiagramElement
 				.getElementByName(fragName);
 		if (f == null) {
-			String fragmentStrType = e.getAttribute("type");
 			int fragmentType;
-			switch (fragmentStrType) {
+			switch (String.valueOf(fragmentStrType)) {
 			case "optional":
 				fragmentType = Fragment.OPTIONAL;
 				break;
@@ -131,49 +171,7 @@ public class SequenceDiagramParser {
 					SequenceDiagramElement.FRAGMENT, fragName);
 			f.setType(fragmentType);
 		}
-		sd.addFragment(f);
-	}
-
-
-	private static void parseAllFragments(Document doc) {
-		Element fragments = (Element) doc.getElementsByTagName("Fragments")
-				.item(0);
-		NodeList setOfFragments = fragments.getElementsByTagName("Fragment");
-		for (int i = 0; i < setOfFragments.getLength(); i++) { // for each
-																// fragment
-																// found
-			Element e = (Element) setOfFragments.item(i);
-			String fragmentName = e.getAttribute("name");
-
-			Fragment f = (Fragment) SequenceDiagramElement
-					.getElementByName(fragmentName);
-
-			NodeList setOfRepresentations = e
-					.getElementsByTagName("RepresentedBy");
-			for (int j = 0; j < setOfRepresentations.getLength(); j++) {
-				Element r = (Element) setOfRepresentations.item(j);
-				String seqDiagName = r.getAttribute("seqDiagName");
-
-				SequenceDiagram sd = SequenceDiagram
-						.getSequenceDiagramByName(seqDiagName);
-				f.addSequenceDiagram(sd);
-			}
-		}
-	}
-
-	private static void parseAllLifelines(Document doc) {
-		NodeList listOfLifelines = doc.getElementsByTagName("Lifeline");
-		for (int i = 0; i < listOfLifelines.getLength(); i++) {
-			Element lif = (Element) listOfLifelines.item(i);
-			NamedNodeMap attributes = lif.getAttributes();
-			String name = attributes.getNamedItem("name").getNodeValue();
-			double reliability = Double.parseDouble(attributes.getNamedItem(
-					"reliability").getNodeValue());
-
-			Lifeline l = (Lifeline) SequenceDiagramElement.createElement(
-					SequenceDiagramElement.LIFELINE, name);
-			l.setReliability(reliability);
-		}
+		return f;
 	}
 
 }
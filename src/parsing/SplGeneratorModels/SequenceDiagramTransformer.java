@@ -12,22 +12,29 @@ import parsing.SplGeneratorModels.SequenceDiagram;
 import parsing.SplGeneratorModels.SequenceDiagramElement;
 import parsing.SplGeneratorModels.SPLFilePersistence;
 import tool.RDGNode;
+import tool.RdgContext;
 import fdtmc.*;
 
 public class SequenceDiagramTransformer {
 
 	RDGNode root;
 	HashMap<String, fdtmc.State> fdtmcStateById;
+	RdgContext rdgContext;
 
 	public SequenceDiagramTransformer() {
+		this(new RdgContext());
+	}
+
+	public SequenceDiagramTransformer(RdgContext rdgContext) {
 		fdtmcStateById = new HashMap<String, fdtmc.State>();
 		root = null;
+		this.rdgContext = rdgContext;
 	}
 
 	public RDGNode transformSD(SequenceDiagram s, String id) {
 		FDTMC f = new FDTMC();
 		f.setVariableName(s.getName() + "_s");
-		RDGNode answer = new RDGNode(id, s.getGuardCondition(), f);
+		RDGNode answer = rdgContext.createNode(id, s.getGuardCondition(), f);
 		root = answer;
 
 		State s0 = f.createInitialState();
@@ -78,8 +85,8 @@ public class SequenceDiagramTransformer {
 			if (fr.getType() == Fragment.OPTIONAL) {
 				SequenceDiagram onlySD = fr.getSequenceDiagrams()
 						.getFirst();
-				SequenceDiagramTransformer transformer = new SequenceDiagramTransformer();
-				RDGNode dependencyNode = transformer.transformSD(onlySD, RDGNode.getNextId());
+				SequenceDiagramTransformer transformer = new SequenceDiagramTransformer(rdgContext);
+				RDGNode dependencyNode = transformer.transformSD(onlySD, rdgContext.getNextId());
 				this.root.addDependency(dependencyNode);
 
 				String dependencyName = dependencyNode.getId();
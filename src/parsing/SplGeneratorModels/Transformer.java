@@ -16,12 +16,14 @@ import parsing.SplGeneratorModels.Transition;
 import parsing.SplGeneratorModels.SPLFilePersistence;
 //import splGenerator.transformation.SequenceDiagramTransformer;
 import tool.RDGNode;
+import tool.RdgContext;
 
 public class Transformer {
 
 	private HashMap<String, fdtmc.State> fdtmcStateById = new HashMap<String, fdtmc.State>();
 	private RDGNode root;
 	private HashMap<ActivityDiagramElement, State> stateByAdElement = new HashMap<ActivityDiagramElement, State>();
+	private RdgContext rdgContext = new RdgContext();
 
 	/**
 	 * This method is responsible for creating an RDG structure for a whole SPL
@@ -35,7 +37,7 @@ public class Transformer {
 	public RDGNode transformAD(ActivityDiagram ad) {
 		FDTMC f = new FDTMC();
 		f.setVariableName(ad.getName() + "_s");
-		RDGNode answer = new RDGNode(ad.getName(), "true", f);
+		RDGNode answer = rdgContext.createNode(ad.getName(), "true", f);
 		root = answer;
 
 		// Takes the first element (init) and transform it into its FDTMC
@@ -98,7 +100,7 @@ public class Transformer {
 				fdtmcStateById.put(adElem.getElementName(), source);
 				// TODO Throw exception if there is more than one associated SD
 				SequenceDiagram onlyAssociatedSD = a.getSequenceDiagrams().getFirst();
-				SequenceDiagramTransformer sdt = new SequenceDiagramTransformer();
+				SequenceDiagramTransformer sdt = new SequenceDiagramTransformer(rdgContext);
 				RDGNode dependencyNode = sdt.transformSD(onlyAssociatedSD, onlyAssociatedSD.getName());
 				this.root.addDependency(dependencyNode);
 
@@ -33,6 +33,7 @@ public class ADReader {
 	private Map<String, Activity> activitiesByID;
 	private Map<String, Edge> edgesByID;
 	private Document doc;
+	private ProbabilityEnergyTimeProfileReader profileReader;
 	private List<Activity> activities;
 	private List<Edge> edges;
 
@@ -50,6 +51,24 @@ public class ADReader {
 		}
 	}
 
+	/**
+	 * Reads activity diagrams from an already parsed XMI document, which may
+	 * be shared with the readers of the sequence diagrams in the same file
+	 * (as may the reader of its annotations).
+	 */
+	public ADReader(Document doc, ProbabilityEnergyTimeProfileReader profileReader, int index) {
+		this.index = index;
+		this.doc = doc;
+		this.profileReader = profileReader;
+	}
+
+	private ProbabilityEnergyTimeProfileReader getProfileReader() {
+		if (this.profileReader == null) {
+			this.profileReader = new ProbabilityEnergyTimeProfileReader(this.doc);
+		}
+		return this.profileReader;
+	}
+
 	public int getIndex() {
 		return index;
 	}
@@ -190,7 +209,7 @@ public class ADReader {
 						break;
 					}
 				}
-				ProbabilityEnergyTimeProfile profile = ProbabilityEnergyTimeProfileReader.retrieveProbEnergyTime(tmp.getId(), this.doc);
+				ProbabilityEnergyTimeProfile profile = getProfileReader().retrieveProbEnergyTime(tmp.getId());
 				if (profile.hasProbability()) {
 				    tmp.setProbability(profile.getProbability());
 				}
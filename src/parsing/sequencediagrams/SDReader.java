@@ -38,6 +38,8 @@ public class SDReader {
 		private Map<String, Lifeline> lifelinesByID;
 		private Map<String, Message> messagesByID;
 		private Document doc;
+		private NodeList sequenceDiagrams;
+		private ProbabilityEnergyTimeProfileReader profileReader;
 		private List<Lifeline> lifelines;
 		private List<Message> messages;
 		private Fragment sd;
@@ -45,19 +47,40 @@ public class SDReader {
 	// Construtores
 
 		public SDReader(File xmiFile, int index) {
-			this.index = index;
+			this(index);
 			try {
-				this.coverage = new HashMap<Lifeline, List<String>>();
-				this.lifelinesByID = new HashMap<String, Lifeline>();
-				this.messagesByID = new HashMap<String, Message>();
-				this.lifelines = new ArrayList<Lifeline>();
-				this.messages = new ArrayList<Message>();
 				setDoc(xmiFile);
 			} catch (Exception e) {
 	            LOGGER.log(Level.SEVERE, e.toString(), e);
 			}
 		}
 
+		/**
+		 * Reads a sequence diagram from an already parsed XMI document, so that
+		 * the readers of all diagrams in a file may share a single parse.
+		 * @param doc The parsed XMI document
+		 * @param sequenceDiagrams The document's "ownedBehavior" elements. The same
+		 * 	list should be shared by all readers, as it caches the elements found so far.
+		 * @param profileReader Reader of the document's annotations, also to be shared
+		 * 	by all readers, as it indexes the whole document.
+		 * @param index Index of the diagram to be read in {@code sequenceDiagrams}
+		 */
+		public SDReader(Document doc, NodeList sequenceDiagrams, ProbabilityEnergyTimeProfileReader profileReader, int index) {
+			this(index);
+			this.doc = doc;
+			this.sequenceDiagrams = sequenceDiagrams;
+			this.profileReader = profileReader;
+		}
+
+		private SDReader(int index) {
+			this.index = index;
+			this.coverage = new HashMap<Lifeline, List<String>>();
+			this.lifelinesByID = new HashMap<String, Lifeline>();
+			this.messagesByID = new HashMap<String, Message>();
+			this.lifelines = new ArrayList<Lifeline>();
+			this.messages = new ArrayList<Message>();
+		}
+
 	// Public relevant methods
 
 		/**
@@ -68,7 +91,7 @@ public class SDReader {
 		 * @throws DOMException
 		 */
 		public void traceDiagram() throws UnsupportedFragmentTypeException, InvalidTagException {
-			NodeList nodes = this.doc.getElementsByTagName("ownedBehavior");
+			NodeList nodes = getSequenceDiagrams();
 			this.next = (this.index == nodes.getLength() - 1) ? false : true;
 
 			org.w3c.dom.Node n = nodes.item(this.index);
@@ -106,7 +129,7 @@ public class SDReader {
 										extractName(cAttrs)
 								);
 
-						ProbabilityEnergyTimeProfile profile = ProbabilityEnergyTimeProfileReader.retrieveProbEnergyTime(newFragment.getId(), this.doc);
+						ProbabilityEnergyTimeProfile profile = getProfileReader().retrieveProbEnergyTime(newFragment.getId());
 						newFragment.setProfile(profile);
 						this.sd.addNode(newFragment);
 						traceFragment(newFragment, child);
@@ -116,6 +139,20 @@ public class SDReader {
 			}
 		}
 
+        private NodeList getSequenceDiagrams() {
+            if (this.sequenceDiagrams == null) {
+                this.sequenceDiagrams = this.doc.getElementsByTagName("ownedBehavior");
+            }
+            return this.sequenceDiagrams;
+        }
+
+        private ProbabilityEnergyTimeProfileReader getProfileReader() {
+            if (this.profileReader == null) {
+                this.profileReader = new ProbabilityEnergyTimeProfileReader(this.doc);
+            }
+            return this.profileReader;
+        }
+
         private String extractId(NamedNodeMap nAttrs) {
             return nAttrs.getNamedItem("xmi:id").getTextContent();
         }
@@ -212,7 +249,7 @@ public class SDReader {
 						message.setType(MessageType.SYNCHRONOUS);
 					}
 
-					ProbabilityEnergyTimeProfile profile = ProbabilityEnergyTimeProfileReader.retrieveProbEnergyTime(message.getId(), this.doc);
+					ProbabilityEnergyTimeProfile profile = getProfileReader().retrieveProbEnergyTime(message.getId());
 					message.setProfile(profile);
 					this.messages.add(message);
 					this.messagesByID.put(message.getId(), message);
@@ -253,7 +290,7 @@ public class SDReader {
 										extractName(kAttrs)
 									);
 
-						ProbabilityEnergyTimeProfile profile = ProbabilityEnergyTimeProfileReader.retrieveProbEnergyTime(innerFragment.getId(), this.doc);
+						ProbabilityEnergyTimeProfile profile = getProfileReader().retrieveProbEnergyTime(innerFragment.getId());
                         innerFragment.setProfile(profile);
 						operand.addNode(innerFragment);
 						traceFragment(innerFragment, itemK);
@@ -348,12 +385,14 @@ public class SDReader {
 
 		public void setDoc(Document doc) {
 			this.doc = doc;
+			this.sequenceDiagrams = null;
+			this.profileReader = null;
 		}
 
 		public void setDoc(File xmiFile) throws ParserConfigurationException, SAXException, IOException {
 			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 			DocumentBuilder db = dbf.newDocumentBuilder();
-			this.doc = db.parse(xmiFile);
+			setDoc(db.parse(xmiFile));
 			this.doc.getDocumentElement().normalize();
 		}
 
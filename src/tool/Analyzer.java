@@ -7,24 +7,32 @@ import jadd.ADD;
 import jadd.JADD;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.ObjDoubleConsumer;
 import java.util.stream.Stream;
 
 import paramwrapper.IModelCollector;
-import paramwrapper.ParamWrapper;
 import paramwrapper.ParametricModelChecker;
+import paramwrapper.ReliabilityExpressionCache;
 import tool.analyzers.IPruningStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.ReorderingPolicy;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
 import tool.analyzers.strategies.FamilyBasedAnalyzer;
 import tool.analyzers.strategies.FamilyProductBasedAnalyzer;
 import tool.analyzers.strategies.FeatureFamilyBasedAnalyzer;
 import tool.analyzers.strategies.FeatureProductBasedAnalyzer;
 import tool.analyzers.strategies.ProductBasedAnalyzer;
+import tool.ordering.IVariableOrderingHeuristic;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import tool.stats.NoopFormulaCollector;
 import tool.stats.NoopTimeCollector;
+import expressionsolver.CnfEncoder;
 import expressionsolver.ExpressionSolver;
 
 /**
@@ -40,10 +48,14 @@ public class Analyzer {
     private ADD featureModel;
     private ParametricModelChecker modelChecker;
     private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
     private JADD jadd;
 
     private ConcurrencyStrategy concurrencyStrategy = ConcurrencyStrategy.PARALLEL;
 
+    private String variableOrderingName;
+    private long variableOrderingTime;
+
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
 
@@ -62,7 +74,43 @@ public class Analyzer {
      * @throws IOException if there is a problem reading the file.
      */
     public Analyzer(String featureModel, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
-        this(new JADD(), featureModel, paramPath, timeCollector, formulaCollector, modelCollector);
+        this(featureModel, ModelCheckerStrategy.PARAM, paramPath, timeCollector, formulaCollector, modelCollector);
+    }
+
+    /**
+     * Creates an Analyzer which will follow the logical rules
+     * encoded in the provided feature model file, using the selected
+     * parametric model checker.
+     *
+     * @param featureModel String containing a CNF view of the Feature Model
+     *          expressed using Java logical operators.
+     * @param modelCheckerStrategy Which parametric model checker to use.
+     * @param paramPath Path to PARAM or Prism (only used if {@code modelCheckerStrategy} is PARAM).
+     */
+    public Analyzer(String featureModel, ModelCheckerStrategy modelCheckerStrategy, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
+        this(featureModel, modelCheckerStrategy, paramPath, null, timeCollector, formulaCollector, modelCollector);
+    }
+
+    /**
+     * Creates an Analyzer which will follow the logical rules
+     * encoded in the provided feature model file, using the selected
+     * parametric model checker and a static variable ordering heuristic.
+     *
+     * @param featureModel String containing a CNF view of the Feature Model
+     *          expressed using Java logical operators.
+     * @param modelCheckerStrategy Which parametric model checker to use.
+     * @param paramPath Path to PARAM or Prism (only used if {@code modelCheckerStrategy} is PARAM).
+     * @param variableOrdering Heuristic which determines the order of ADD variables
+     *          before the feature model is encoded. If null, the feature model is
+     *          encoded first and then its variables are reordered by sifting.
+     */
+    public Analyzer(String featureModel, ModelCheckerStrategy modelCheckerStrategy, String paramPath, IVariableOrderingHeuristic variableOrdering, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
+        this(new JADD(),
+             featureModel,
+             variableOrdering,
+             ModelCheckerFactory.createModelChecker(modelCheckerStrategy, paramPath, modelCollector),
+             timeCollector,
+             formulaCollector);
     }
 
     /**
@@ -72,7 +120,12 @@ public class Analyzer {
      * @param featureModel
      */
     Analyzer(JADD jadd, String featureModel, String paramPath) {
-        this(jadd, featureModel, paramPath, null, null, null);
+        this(jadd,
+             featureModel,
+             null,
+             ModelCheckerFactory.createModelChecker(ModelCheckerStrategy.PARAM, paramPath, null),
+             null,
+             null);
     }
 
 
@@ -81,37 +134,60 @@ public class Analyzer {
      * @param jadd
      * @param featureModel
      */
-    private Analyzer(JADD jadd, String featureModel, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
+    private Analyzer(JADD jadd, String featureModel, IVariableOrderingHeuristic variableOrdering, ParametricModelChecker modelChecker, ITimeCollector timeCollector, IFormulaCollector formulaCollector) {
         this.jadd = jadd;
         this.expressionSolver = new ExpressionSolver(jadd);
-        this.featureModel = expressionSolver.encodeFormula(featureModel);
-        // The feature model contains all used variables, so we expect to
-        // be able to generate an optimal ordering right after parsing it.
-        jadd.reorderVariables();
+        CnfEncoder cnfEncoder = new CnfEncoder(jadd, expressionSolver);
+        long orderingStart = System.nanoTime();
+        if (variableOrdering != null) {
+            // Variables are created in the computed order (and, if some
+            // already existed, shuffled into it), so that the feature model
+            // is encoded under that order from the start.
+            List<String> order = variableOrdering.computeOrder(featureModel);
+            order.forEach(jadd::getVariable);
+            jadd.applyVariableOrder(order);
+            this.featureModel = cnfEncoder.encode(featureModel);
+            this.variableOrderingName = variableOrdering.getClass().getSimpleName();
+        } else {
+            this.featureModel = cnfEncoder.encode(featureModel);
+            // The feature model contains all used variables, so we expect to
+            // be able to generate an optimal ordering right after parsing it.
+            jadd.reorderVariables();
+            this.variableOrderingName = "Sifting";
+        }
+        this.variableOrderingTime = (System.nanoTime() - orderingStart) / 1000000;
+        // Shared by all strategies, so that each distinct presence
+        // condition is encoded only once.
+        this.presenceConditionIndex = new PresenceConditionIndex(jadd, expressionSolver);
 
         this.timeCollector = (timeCollector != null) ? timeCollector : new NoopTimeCollector();
         this.formulaCollector = (formulaCollector != null) ? formulaCollector : new NoopFormulaCollector();
-        this.modelChecker = (modelCollector != null) ? new ParamWrapper(paramPath, modelCollector) : new ParamWrapper(paramPath);
+        this.modelChecker = modelChecker;
 
         this.featureFamilyBasedAnalyzerImpl = new FeatureFamilyBasedAnalyzer(this.jadd,
                                                                              this.featureModel,
+                                                                             this.presenceConditionIndex,
                                                                              this.modelChecker,
                                                                              this.timeCollector,
                                                                              this.formulaCollector);
         this.featureProductBasedAnalyzerImpl = new FeatureProductBasedAnalyzer(this.jadd,
+                                                                               this.presenceConditionIndex,
                                                                                this.modelChecker,
                                                                                this.timeCollector,
                                                                                this.formulaCollector);
         this.productBasedAnalyzerImpl = new ProductBasedAnalyzer(this.jadd,
+                                                                 this.presenceConditionIndex,
                                                                  this.modelChecker,
                                                                  this.timeCollector,
                                                                  this.formulaCollector);
         this.familyBasedAnalyzerImpl = new FamilyBasedAnalyzer(this.jadd,
                                                                this.featureModel,
+                                                               this.presenceConditionIndex,
                                                                this.modelChecker,
                                                                this.timeCollector,
                                                                this.formulaCollector);
         this.familyProductBasedAnalyzerImpl = new FamilyProductBasedAnalyzer(this.jadd,
+                                                                             this.presenceConditionIndex,
                                                                              this.modelChecker,
                                                                              this.timeCollector,
                                                                              this.formulaCollector);
@@ -149,6 +225,76 @@ public class Analyzer {
         this.featureFamilyBasedAnalyzerImpl.setPruningStrategy(pruningStrategy);
     }
 
+    /**
+     * Sets a persistent cache of reliability expressions, so that
+     * feature-based analyses only model check FDTMCs which changed
+     * since a previous run.
+     *
+     * @param expressionCache the cache to use, or null for none.
+     */
+    public void setExpressionCache(ReliabilityExpressionCache expressionCache) {
+        this.featureFamilyBasedAnalyzerImpl.setExpressionCache(expressionCache);
+        this.featureProductBasedAnalyzerImpl.setExpressionCache(expressionCache);
+    }
+
+    /**
+     * Sets a directory in which product-based analyses store their results
+     * in memory-mapped files, instead of the heap. This allows for analyzing
+     * very large configuration spaces.
+     *
+     * @param resultsDirectory the directory to use, or null for in-heap results.
+     */
+    public void setResultsDirectory(Path resultsDirectory) {
+        this.productBasedAnalyzerImpl.setResultsDirectory(resultsDirectory);
+        this.featureProductBasedAnalyzerImpl.setResultsDirectory(resultsDirectory);
+        this.familyProductBasedAnalyzerImpl.setResultsDirectory(resultsDirectory);
+    }
+
+    /**
+     * Sets the policy for reordering ADD variables during feature-family-based
+     * analyses, in addition to the reordering right after the feature model
+     * is encoded.
+     *
+     * @param reorderingPolicy the reorderingPolicy to set
+     */
+    public void setReorderingPolicy(ReorderingPolicy reorderingPolicy) {
+        this.featureFamilyBasedAnalyzerImpl.setReorderingPolicy(reorderingPolicy);
+    }
+
+    /**
+     * Reorders ADD variables according to an order saved by a previous run
+     * (see {@link #saveVariableOrder(Path)}), so that reordering heuristics
+     * can start off from a good order.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    public void loadVariableOrder(Path file) throws IOException {
+        jadd.loadVariableOrder(file);
+    }
+
+    /**
+     * Saves the current order of ADD variables, which is the best one found
+     * so far by reordering.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void saveVariableOrder(Path file) throws IOException {
+        jadd.saveVariableOrder(file);
+    }
+
+    /**
+     * Prints how ADD variables were initially ordered (including the encoding
+     * of the feature model) and how many times (and for how long) they were
+     * reordered afterwards.
+     */
+    public void printVariableOrderingStats(PrintStream output) {
+        output.println("Variable ordering: " + variableOrderingName
+                       + " (" + variableOrderingTime + " ms, including feature model encoding)");
+        output.println("Feature model ADD size in # of nodes: " + featureModel.getNodeCount());
+        output.println("Variable reorderings: " + jadd.getReorderingsCount());
+        output.println("Variable reordering time: " + jadd.getReorderingTime() + " ms");
+    }
+
     public void setConcurrencyStrategy(ConcurrencyStrategy concurrencyStrategy) {
         this.concurrencyStrategy = concurrencyStrategy;
     }
@@ -192,6 +338,19 @@ public class Analyzer {
         return featureProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
     }
 
+    /**
+     * Streaming version of {@link #evaluateFeatureProductBasedReliability(RDGNode, Stream)}:
+     * each configuration's reliability is handed over to {@code results} as soon
+     * as it is computed, so that memory usage does not grow with the number
+     * of configurations.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public void evaluateFeatureProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations, ObjDoubleConsumer<Collection<String>> results) throws CyclicRdgException, UnknownFeatureException {
+        featureProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy, results);
+    }
+
     /**
      * Evaluates the product-based reliability value of an RDG node, based
      * on the derived model for the given configuration.
@@ -205,6 +364,19 @@ public class Analyzer {
         return productBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
     }
 
+    /**
+     * Streaming version of {@link #evaluateProductBasedReliability(RDGNode, Stream)}:
+     * each configuration's reliability is handed over to {@code results} as soon
+     * as it is computed, so that memory usage does not grow with the number
+     * of configurations.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public void evaluateProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations, ObjDoubleConsumer<Collection<String>> results) throws CyclicRdgException, UnknownFeatureException {
+        productBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy, results);
+    }
+
     /**
      * Evaluates the family-based reliability value of an RDG node, based
      * on the derived 150% model.
@@ -231,6 +403,19 @@ public class Analyzer {
         return familyProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
     }
 
+    /**
+     * Streaming version of {@link #evaluateFamilyProductBasedReliability(RDGNode, Stream)}:
+     * each configuration's reliability is handed over to {@code results} as soon
+     * as it is computed, so that memory usage does not grow with the number
+     * of configurations.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public void evaluateFamilyProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations, ObjDoubleConsumer<Collection<String>> results) throws CyclicRdgException, UnknownFeatureException {
+        familyProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy, results);
+    }
+
     /**
      * Dumps the computed family reliability function to the output file
      * in the specified path.
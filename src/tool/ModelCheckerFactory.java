@@ -0,0 +1,31 @@
+package tool;
+
+import paramwrapper.IModelCollector;
+import paramwrapper.NoopModelCollector;
+import paramwrapper.ParamWrapper;
+import paramwrapper.ParametricModelChecker;
+import paramwrapper.StateEliminationModelChecker;
+
+public class ModelCheckerFactory {
+
+    private ModelCheckerFactory() {
+        // NO-OP
+    }
+
+    /**
+     * @param strategySelection Which model checker to use.
+     * @param paramPath Path to the PARAM or Prism executable. Only used by the PARAM strategy.
+     * @param modelCollector May be null.
+     */
+    public static ParametricModelChecker createModelChecker(ModelCheckerStrategy strategySelection, String paramPath, IModelCollector modelCollector) {
+        IModelCollector collector = (modelCollector != null) ? modelCollector : new NoopModelCollector();
+        switch (strategySelection) {
+        case PARAM:
+            return new ParamWrapper(paramPath, collector);
+        case STATE_ELIMINATION:
+        default:
+            return new StateEliminationModelChecker(collector);
+        }
+    }
+
+}
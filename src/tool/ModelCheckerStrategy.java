@@ -0,0 +1,12 @@
+package tool;
+
+public enum ModelCheckerStrategy {
+    /**
+     * In-process state elimination over the FDTMC graph.
+     */
+    STATE_ELIMINATION,
+    /**
+     * External PARAM (or Prism) executable.
+     */
+    PARAM
+}
@@ -13,11 +13,8 @@ import fdtmc.FDTMC;
 
 public class RDGNode {
 
-	//This reference is used to store all the RDGnodes created during the evaluation
-	private static Map<String, RDGNode> rdgNodes = new HashMap<String, RDGNode>();
-	private static List<RDGNode> nodesInCreationOrder = new LinkedList<RDGNode>();
-
-    private static int lastNodeIndex = 0;
+	// Context of the nodes created without an explicit one (shared by the whole JVM).
+	private static final RdgContext defaultContext = new RdgContext();
 
 	// Node identifier
 	private String id;
@@ -47,14 +44,21 @@ public class RDGNode {
 	 *             this node.
 	 */
 	public RDGNode(String id, String presenceCondition, FDTMC fdtmc) {
+	    this(id, presenceCondition, fdtmc, defaultContext);
+	}
+
+	/**
+	 * Creates a node which belongs to the given context.
+	 * @see RdgContext#createNode(String, String, FDTMC)
+	 */
+	RDGNode(String id, String presenceCondition, FDTMC fdtmc, RdgContext context) {
 	    this.id = id;
 	    this.presenceCondition = presenceCondition;
 	    this.fdtmc = fdtmc;
 		this.dependencies = new HashSet<RDGNode>();
 		this.height = 0;
 
-		rdgNodes.put(id, this);
-		nodesInCreationOrder.add(this);
+		context.register(this);
 	}
 
     public FDTMC getFDTMC() {
@@ -87,12 +91,19 @@ public class RDGNode {
         return height;
     }
 
+    /**
+     * Looks a node up in the default context (i.e., among the nodes
+     * created without an explicit {@link RdgContext}).
+     */
     public static RDGNode getById(String id) {
-        return rdgNodes.get(id);
+        return defaultContext.getById(id);
     }
 
+    /**
+     * Generates an id in the default context.
+     */
     public static String getNextId() {
-        return "n" + lastNodeIndex++;
+        return defaultContext.getNextId();
     }
 
     /**
@@ -224,20 +235,13 @@ public class RDGNode {
     }
 
     /**
-     * Returns the first RDG node (in crescent order of creation time) which is similar
-     * to the one provided.
+     * Returns the first RDG node of the default context (in crescent order of
+     * creation time) which is similar to the one provided.
      *
-     * A similar RDG node is one for which equals() returns true.
-     * @param rdgNode
-     * @return a similar RDG node or null in case there is none.
+     * @see RdgContext#getSimilarNode(RDGNode)
      */
     public static RDGNode getSimilarNode(RDGNode target) {
-        for (RDGNode candidate: nodesInCreationOrder) {
-            if (candidate != target && candidate.equals(target)) {
-                return candidate;
-            }
-        }
-        return null;
+        return defaultContext.getSimilarNode(target);
     }
 
     /**
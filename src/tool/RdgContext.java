@@ -0,0 +1,117 @@
+package tool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import fdtmc.FDTMC;
+import fdtmc.Interface;
+
+/**
+ * Registry of the RDG nodes built for a single analysis.
+ *
+ * A context creates nodes, generates fresh ids and indexes complete nodes
+ * by similarity, so that equal nodes can be shared instead of analyzed
+ * twice. Nodes of different contexts never interfere with each other,
+ * so analyses with their own contexts can run concurrently, and all nodes
+ * of an analysis are released along with its context.
+ */
+public class RdgContext {
+
+    private Map<String, RDGNode> nodesById = new HashMap<String, RDGNode>();
+    private List<RDGNode> nodesInCreationOrder = new LinkedList<RDGNode>();
+    // Shared (complete) nodes, indexed by a hash which is consistent with RDGNode.equals().
+    private Map<Integer, List<RDGNode>> sharedNodesByHash = new HashMap<Integer, List<RDGNode>>();
+
+    private int lastNodeIndex = 0;
+
+    /**
+     * Creates a node which belongs to this context.
+     *
+     * @see RDGNode#RDGNode(String, String, FDTMC)
+     */
+    public RDGNode createNode(String id, String presenceCondition, FDTMC fdtmc) {
+        return new RDGNode(id, presenceCondition, fdtmc, this);
+    }
+
+    synchronized void register(RDGNode node) {
+        nodesById.put(node.getId(), node);
+        nodesInCreationOrder.add(node);
+    }
+
+    /**
+     * @return the node last created with the given id, or null if there is none.
+     */
+    public synchronized RDGNode getById(String id) {
+        return nodesById.get(id);
+    }
+
+    /**
+     * @return an id which is unique among the generated ones.
+     */
+    public synchronized String getNextId() {
+        return "n" + lastNodeIndex++;
+    }
+
+    /**
+     * Returns the first RDG node (in crescent order of creation time) which is similar
+     * to the one provided. Nodes may have changed since they were created, so all
+     * of them are compared to the target.
+     *
+     * A similar RDG node is one for which equals() returns true.
+     * @param target
+     * @return a similar RDG node or null in case there is none.
+     */
+    public synchronized RDGNode getSimilarNode(RDGNode target) {
+        for (RDGNode candidate: nodesInCreationOrder) {
+            if (candidate != target && candidate.equals(target)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hash-consing of complete RDG nodes: returns the first shared node which is
+     * similar to the given one or, if there is none, shares the given node itself.
+     *
+     * Only nodes shared so far are looked up, so nodes must be shared in the
+     * order in which they are to be preferred (e.g., creation order), and must
+     * not change afterwards.
+     *
+     * @param node A node whose model and dependencies are complete.
+     * @return the node to be used in place of the given one.
+     */
+    public synchronized RDGNode share(RDGNode node) {
+        int hash = similarityHash(node);
+        List<RDGNode> candidates = sharedNodesByHash.get(hash);
+        if (candidates == null) {
+            candidates = new ArrayList<RDGNode>(1);
+            sharedNodesByHash.put(hash, candidates);
+        }
+        for (RDGNode candidate: candidates) {
+            if (candidate == node || candidate.equals(node)) {
+                return candidate;
+            }
+        }
+        candidates.add(node);
+        return node;
+    }
+
+    /**
+     * Hash code which, unlike RDGNode.hashCode(), disregards ids (of the node
+     * and of the FDTMC interfaces), just like RDGNode.equals() does.
+     */
+    private static int similarityHash(RDGNode node) {
+        FDTMC fdtmc = node.getFDTMC();
+        int hash = node.getPresenceCondition().hashCode();
+        hash = 31 * hash + fdtmc.getStates().hashCode();
+        hash = 31 * hash + fdtmc.getTransitions().hashCode();
+        hash = 31 * hash + new ArrayList<List<Interface>>(fdtmc.getInterfaces().values()).hashCode();
+        hash = 31 * hash + node.getDependencies().hashCode();
+        return hash;
+    }
+
+}
@@ -0,0 +1,18 @@
+package tool;
+
+public enum ReorderingStrategy {
+    /**
+     * Reorder variables only once, right after the feature model is encoded.
+     */
+    INITIAL,
+    /**
+     * Also reorder variables between groups of independent components
+     * while solving feature-family-based reliability expressions.
+     */
+    CHECKPOINTS,
+    /**
+     * Let CUDD reorder variables automatically while solving
+     * feature-family-based reliability expressions.
+     */
+    DYNAMIC
+}
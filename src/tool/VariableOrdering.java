@@ -0,0 +1,24 @@
+package tool;
+
+public enum VariableOrdering {
+    /**
+     * Order of appearance in the feature model, improved by sifting right after encoding it.
+     */
+    SIFTING,
+    /**
+     * Order of appearance in the feature model, with no reordering.
+     */
+    APPEARANCE,
+    /**
+     * FORCE heuristic over the clauses of the feature model.
+     */
+    FORCE,
+    /**
+     * Depth-first traversal of the feature tree.
+     */
+    FEATURE_TREE,
+    /**
+     * Greedy placement of the variables most connected by clauses.
+     */
+    CLAUSE_CONNECTIVITY
+}
@@ -0,0 +1,44 @@
+package tool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import tool.ordering.AppearanceOrdering;
+import tool.ordering.ClauseConnectivityOrdering;
+import tool.ordering.FeatureTreeOrdering;
+import tool.ordering.ForceOrdering;
+import tool.ordering.IVariableOrderingHeuristic;
+
+public class VariableOrderingFactory {
+
+    private VariableOrderingFactory() {
+        // NO-OP
+    }
+
+    /**
+     * @param featureTreeFile FeatureIDE model with the feature tree
+     *          (only used by FEATURE_TREE).
+     * @return the static ordering heuristic, or null for SIFTING (which
+     *          is not static, but carried out by the Analyzer itself).
+     * @throws IOException if the feature tree cannot be read.
+     */
+    public static IVariableOrderingHeuristic createVariableOrderingHeuristic(VariableOrdering orderingSelection, Path featureTreeFile) throws IOException {
+        switch (orderingSelection) {
+        case APPEARANCE:
+            return new AppearanceOrdering();
+        case FORCE:
+            return new ForceOrdering();
+        case FEATURE_TREE:
+            if (featureTreeFile == null) {
+                throw new IOException("FEATURE_TREE ordering requires a feature tree file");
+            }
+            return FeatureTreeOrdering.fromFile(featureTreeFile);
+        case CLAUSE_CONNECTIVITY:
+            return new ClauseConnectivityOrdering();
+        case SIFTING:
+        default:
+            return null;
+        }
+    }
+
+}
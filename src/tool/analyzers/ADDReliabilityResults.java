@@ -1,14 +1,32 @@
 package tool.analyzers;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import tool.UnknownFeatureException;
 import jadd.ADD;
+import jadd.ADDTable;
 import jadd.UnrecognizedVariableException;
 
-public class ADDReliabilityResults implements IReliabilityAnalysisResults {
+/**
+ * Reliability function computed as an ADD.
+ *
+ * Looking up results in a pure-Java {@link ADDTable snapshot} of the ADD is
+ * several times faster than evaluating it through CUDD, but taking the
+ * snapshot costs about as much as a lookup per node. Thus, lookups go
+ * through CUDD until they outnumber the nodes of the ADD, and only then is
+ * the snapshot taken. Aggregates are computed over the snapshot right away,
+ * as they take a pass over the whole diagram anyway.
+ */
+public class ADDReliabilityResults implements IFamilyReliabilityResults {
 
     private ADD results;
+    private volatile ADDTable snapshot;
+    private final AtomicLong lookups = new AtomicLong();
+    private volatile long snapshotThreshold = -1;
 
     public ADDReliabilityResults(ADD results) {
         this.results = results;
@@ -17,17 +35,68 @@ public class ADDReliabilityResults implements IReliabilityAnalysisResults {
     @Override
     public Double getResult(String[] configuration) throws UnknownFeatureException {
         try {
-            return results.eval(configuration);
+            ADDTable table = getSnapshot(1);
+            return (table != null) ? table.eval(configuration) : results.eval(configuration);
         } catch (UnrecognizedVariableException e) {
             throw new UnknownFeatureException(e.getVariableName());
         }
     }
 
+    /**
+     * Writes the reliability function to a file, so that it can be queried
+     * later on with no recomputation (see {@link ADDTableReliabilityResults}).
+     */
+    public void export(Path file) throws IOException {
+        results.export(file);
+    }
+
+    @Override
+    public double[] getResults(List<String[]> configurations) throws UnknownFeatureException {
+        try {
+            ADDTable table = getSnapshot(configurations.size());
+            return (table != null) ? table.evalAll(configurations) : results.evalAll(configurations);
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    /**
+     * Accounts for new lookups.
+     *
+     * @return the snapshot, or null if it does not pay off yet.
+     */
+    private ADDTable getSnapshot(int newLookups) {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (snapshotThreshold < 0) {
+            snapshotThreshold = results.getNodeCount();
+        }
+        if (lookups.addAndGet(newLookups) < snapshotThreshold) {
+            return null;
+        }
+        return getDecisionDiagram();
+    }
+
+    @Override
+    public ADDTable getDecisionDiagram() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = results.snapshot();
+            }
+        }
+        return snapshot;
+    }
+
     @Override
     public void printStats(PrintStream output) {
         int numVariables = results.getVariables().size();
         int numNodes = results.getNodeCount();
         int numDeadNodes = results.getDeadNodesCount();
+        int numPeakLiveNodes = results.getPeakLiveNodeCount();
         int numTerminalsNonZero = results.getTerminalsDifferentThanZeroCount();
         double numPathsToNonZeroTerminals = results.getPathsToNonZeroTerminalsCount();
         double numPathsToZeroTerminal = results.getPathsToZeroTerminalCount();
@@ -38,6 +107,7 @@ public class ADDReliabilityResults implements IReliabilityAnalysisResults {
         output.println("# variables: " + numVariables);
         output.println("# internal nodes: " + numNodes);
         output.println("# dead nodes: " + numDeadNodes);
+        output.println("# peak live nodes: " + numPeakLiveNodes);
         output.println("# terminals different than zero: " + numTerminalsNonZero);
         output.println("# paths to non-zero terminals: " + numPathsToNonZeroTerminals);
         output.println("# paths to zero terminal: " + numPathsToZeroTerminal);
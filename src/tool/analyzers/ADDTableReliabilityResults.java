@@ -0,0 +1,64 @@
+package tool.analyzers;
+
+import jadd.ADDTable;
+import jadd.UnrecognizedVariableException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import tool.UnknownFeatureException;
+
+/**
+ * Reliability function previously exported by {@link ADDReliabilityResults#export(Path)}.
+ *
+ * Results are looked up in a snapshot of the decision diagram, with no
+ * need for the behavioral models, the model checker or even CUDD.
+ */
+public class ADDTableReliabilityResults implements IFamilyReliabilityResults {
+
+    private ADDTable results;
+
+    public ADDTableReliabilityResults(ADDTable results) {
+        this.results = results;
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or is not an exported ADD.
+     */
+    public static ADDTableReliabilityResults load(Path file) throws IOException {
+        return new ADDTableReliabilityResults(ADDTable.load(file));
+    }
+
+    @Override
+    public ADDTable getDecisionDiagram() {
+        return results;
+    }
+
+    @Override
+    public Double getResult(String[] configuration) throws UnknownFeatureException {
+        try {
+            return results.eval(configuration);
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    @Override
+    public double[] getResults(List<String[]> configurations) throws UnknownFeatureException {
+        try {
+            return results.evalAll(configurations);
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    @Override
+    public void printStats(PrintStream output) {
+        output.println("# variables: " + results.getVariables().size());
+        output.println("# nodes: " + results.getNodeCount());
+        output.println("ADD's size in # of bytes: " + results.getSizeInBytes());
+    }
+
+}
@@ -0,0 +1,97 @@
+package tool.analyzers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import jadd.ADDTable;
+import jadd.UnrecognizedVariableException;
+import tool.UnknownFeatureException;
+
+/**
+ * Reliability function of a whole product line, kept as a decision diagram.
+ *
+ * Besides looking up single products, it can be summarized without
+ * enumerating the configurations: aggregates take time proportional to the
+ * size of the diagram. Invalid configurations have zero reliability, so
+ * aggregates only range over valid ones.
+ */
+public interface IFamilyReliabilityResults extends IReliabilityAnalysisResults {
+
+    /**
+     * @return the decision diagram of the reliability function.
+     */
+    public ADDTable getDecisionDiagram();
+
+    /**
+     * @return the least reliability of a valid configuration, or NaN if there are none.
+     */
+    public default double getMinimumReliability() {
+        return getDecisionDiagram().getMinimum();
+    }
+
+    /**
+     * @return the greatest reliability of a valid configuration, or NaN if there are none.
+     */
+    public default double getMaximumReliability() {
+        return getDecisionDiagram().getMaximum();
+    }
+
+    /**
+     * Finds a witness of a given reliability, such as the minimum or the maximum.
+     *
+     * @return the features of a configuration with this reliability, or null if there is none.
+     */
+    public default List<String> findConfiguration(double reliability) {
+        return getDecisionDiagram().findConfiguration(reliability);
+    }
+
+    /**
+     * @return the number of valid configurations with each reliability, by reliability.
+     */
+    public default SortedMap<Double, Double> getReliabilityHistogram() {
+        return getDecisionDiagram().getHistogram();
+    }
+
+    public default double getValidConfigurationsCount() {
+        return getDecisionDiagram().getNonZeroCount();
+    }
+
+    /**
+     * @return the sum of the reliabilities of all valid configurations.
+     */
+    public default double getReliabilitySum() {
+        return getDecisionDiagram().getSum();
+    }
+
+    /**
+     * @return the mean reliability of the valid configurations, or NaN if there are none.
+     */
+    public default double getMeanReliability() {
+        return getDecisionDiagram().getMean();
+    }
+
+    /**
+     * Mean reliability of the valid configurations, each of which weighted by
+     * its probability given that features are independently selected with the
+     * given probabilities (0.5 for those not mentioned).
+     *
+     * @throws UnknownFeatureException in case some feature is unknown.
+     */
+    public default double getMeanReliability(Map<String, Double> featureProbabilities) throws UnknownFeatureException {
+        try {
+            return getDecisionDiagram().getMean(featureProbabilities);
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    /**
+     * @return the features of (at most) the {@code k} least reliable valid
+     *          configurations, least reliable first.
+     */
+    public default List<List<String>> getLeastReliableConfigurations(int k) {
+        return getDecisionDiagram().getLowestConfigurations(k);
+    }
+
+}
@@ -1,6 +1,7 @@
 package tool.analyzers;
 
 import java.io.PrintStream;
+import java.util.List;
 
 import tool.UnknownFeatureException;
 
@@ -18,6 +19,23 @@ public interface IReliabilityAnalysisResults {
      */
     public Double getResult(String[] configuration) throws UnknownFeatureException;
 
+    /**
+     * Gets the results for many configurations at once. Implementations
+     * may share work among the lookups.
+     *
+     * @param configurations
+     * @return the results, in the same order as the configurations.
+     * @throws UnknownFeatureException in case some configuration relies on an
+     *      unknown feature.
+     */
+    public default double[] getResults(List<String[]> configurations) throws UnknownFeatureException {
+        double[] results = new double[configurations.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = getResult(configurations.get(i));
+        }
+        return results;
+    }
+
     public void printStats(PrintStream output);
 
 }
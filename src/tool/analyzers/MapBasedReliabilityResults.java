@@ -1,5 +1,7 @@
 package tool.analyzers;
 
+import jadd.Configuration;
+
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.Collection;
@@ -16,6 +18,9 @@ import tool.UnknownFeatureException;
 public class MapBasedReliabilityResults implements IReliabilityAnalysisResults {
 
     private Map<Set<String>, Double> results;
+    /**
+     * All features in the results, lazily computed.
+     */
     private Set<String> features;
 
     public MapBasedReliabilityResults() {
@@ -23,14 +28,14 @@ public class MapBasedReliabilityResults implements IReliabilityAnalysisResults {
         this.features = new HashSet<String>();
     }
 
+    /**
+     * Configurations which are instances of {@link Configuration} are immutable
+     * sets, so they are used as keys as they are. Any other collection is copied.
+     */
     public MapBasedReliabilityResults(Map<Collection<String>, Double> backup) {
         this.results = backup.entrySet().stream()
-                .collect(Collectors.toMap(e -> new HashSet<String>(e.getKey()),
+                .collect(Collectors.toMap(e -> toSet(e.getKey()),
                                           e -> e.getValue()));
-        this.features = backup.keySet().stream()
-                .map(Collection::stream)
-                .flatMap(Function.identity())
-                .collect(Collectors.toSet());
     }
 
     @Override
@@ -47,7 +52,9 @@ public class MapBasedReliabilityResults implements IReliabilityAnalysisResults {
     public synchronized void putResult(List<String> configuration, Double value) {
         Set<String> configurationAsSet = new HashSet<String>(configuration);
         results.put(configurationAsSet, value);
-        features.addAll(configurationAsSet);
+        if (features != null) {
+            features.addAll(configurationAsSet);
+        }
 
     }
 
@@ -68,8 +75,21 @@ public class MapBasedReliabilityResults implements IReliabilityAnalysisResults {
         output.println("Result's size in bytes: " + size);
     }
 
-    private boolean hasUnknownFeature(Set<String> configuration) {
+    private synchronized boolean hasUnknownFeature(Set<String> configuration) {
+        if (features == null) {
+            features = results.keySet().stream()
+                    .map(Collection::stream)
+                    .flatMap(Function.identity())
+                    .collect(Collectors.toSet());
+        }
         return features.containsAll(configuration);
     }
 
+    private static Set<String> toSet(Collection<String> configuration) {
+        if (configuration instanceof Configuration) {
+            return (Configuration) configuration;
+        }
+        return new HashSet<String>(configuration);
+    }
+
 }
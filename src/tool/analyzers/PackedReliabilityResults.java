@@ -0,0 +1,360 @@
+package tool.analyzers;
+
+import jadd.Configuration;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+import tool.UnknownFeatureException;
+
+/**
+ * Reliability results stored in an open-addressed hash table of packed
+ * configurations (see {@link Configuration}) and primitive double values.
+ *
+ * Each slot takes only 8 * (2 + number of 64-bit words per configuration)
+ * bytes, with no per-result objects. The table lives either in the heap or,
+ * if a directory is given, off-heap in a memory-mapped temporary file, so that
+ * results for very large configuration spaces put no pressure on the GC.
+ * The mapped table grows within a single file, which also holds a copy of
+ * the previous table while growing (i.e., up to 1.5 times the table size),
+ * and which is deleted on exit.
+ *
+ * In both cases, the table is limited to 2 GB (the maximum size of a
+ * ByteBuffer) and kept at most half full, which allows for roughly
+ * 2^30 / slot size results. Storing more results than that throws an
+ * {@link IllegalStateException}.
+ *
+ * Reading and writing results is thread-safe. Slots are guarded by striped
+ * locks, so that threads working on different slots do not contend, and
+ * only growing the table excludes all other accesses.
+ */
+public class PackedReliabilityResults implements IReliabilityAnalysisResults {
+    private static final Logger LOGGER = Logger.getLogger(PackedReliabilityResults.class.getName());
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long OCCUPIED = 1;
+    private static final int NUM_STRIPES = 64;
+
+    private final JADD jadd;
+    private final int wordsPerKey;
+    private final int slotSize;
+
+    /**
+     * Guards the slots: the lock of slot {@code i} is {@code stripes[i % NUM_STRIPES]}.
+     */
+    private final Object[] stripes = new Object[NUM_STRIPES];
+    /**
+     * Shared by slot accesses, and exclusively held while the table grows.
+     */
+    private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private ByteBuffer table;
+    private int capacity;
+    /**
+     * Backing file of a memory-mapped table, or null if it is in the heap.
+     */
+    private FileChannel channel;
+
+    /**
+     * Creates an in-heap result store for configurations of the variables
+     * currently known to {@code jadd}.
+     */
+    public PackedReliabilityResults(JADD jadd) {
+        this.jadd = jadd;
+        this.wordsPerKey = Math.max(1, (jadd.getNumberOfVariables() + 63) / 64);
+        this.slotSize = 8 * (2 + wordsPerKey);
+        initStripes();
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a result store backed by a memory-mapped file in {@code directory},
+     * which is deleted on exit.
+     *
+     * @throws IOException if the backing file cannot be created.
+     */
+    public PackedReliabilityResults(JADD jadd, Path directory) throws IOException {
+        this.jadd = jadd;
+        this.wordsPerKey = Math.max(1, (jadd.getNumberOfVariables() + 63) / 64);
+        this.slotSize = 8 * (2 + wordsPerKey);
+        initStripes();
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "results", ".bin");
+        file.toFile().deleteOnExit();
+        this.channel = FileChannel.open(file,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        this.table = map(0, DEFAULT_CAPACITY);
+        this.capacity = DEFAULT_CAPACITY;
+    }
+
+    private void initStripes() {
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Creates a result store which is memory-mapped if {@code directory} is
+     * not null. If mapping fails, it falls back to an in-heap store.
+     */
+    public static PackedReliabilityResults create(JADD jadd, Path directory) {
+        if (directory != null) {
+            try {
+                return new PackedReliabilityResults(jadd, directory);
+            } catch (IOException e) {
+                LOGGER.warning("Could not create a memory-mapped result store in " + directory
+                               + ". Proceeding with an in-heap one: " + e.getMessage());
+            }
+        }
+        return new PackedReliabilityResults(jadd);
+    }
+
+    /**
+     * Stores the reliability of a configuration, overwriting any previous value.
+     *
+     * @throws UnknownFeatureException in case the configuration relies on an
+     *      unknown feature.
+     */
+    public void putResult(Collection<String> configuration, double value) throws UnknownFeatureException {
+        Configuration key = toConfiguration(configuration);
+        if (key.getWordCount() > wordsPerKey) {
+            throw new IllegalArgumentException("Configuration has features created after the result store: " + configuration);
+        }
+        ensureRoomForOneMore();
+        tableLock.readLock().lock();
+        try {
+            int mask = capacity - 1;
+            int slot = hash(key) & mask;
+            while (true) {
+                // Slots are only ever claimed (never emptied), and a slot is
+                // claimed under its stripe's lock. So writers of the same key
+                // probe the same sequence and agree on the slot to be claimed.
+                synchronized (stripes[slot % NUM_STRIPES]) {
+                    if (table.getLong(offset(slot)) != OCCUPIED) {
+                        writeKey(slot, key);
+                        table.putDouble(valueOffset(slot), value);
+                        size.incrementAndGet();
+                        return;
+                    }
+                    if (keyEquals(slot, key)) {
+                        table.putDouble(valueOffset(slot), value);
+                        return;
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Double getResult(String[] configuration) throws UnknownFeatureException {
+        Configuration key = toConfiguration(Arrays.asList(configuration));
+        if (key.getWordCount() > wordsPerKey) {
+            return 0.0;
+        }
+        tableLock.readLock().lock();
+        try {
+            int mask = capacity - 1;
+            int slot = hash(key) & mask;
+            while (true) {
+                synchronized (stripes[slot % NUM_STRIPES]) {
+                    if (table.getLong(offset(slot)) != OCCUPIED) {
+                        return 0.0;
+                    }
+                    if (keyEquals(slot, key)) {
+                        return table.getDouble(valueOffset(slot));
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of stored results.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void printStats(PrintStream output) {
+        tableLock.readLock().lock();
+        try {
+            output.println("Result's size in bytes: " + (long) capacity * slotSize
+                           + ((channel != null) ? " (memory-mapped)" : ""));
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    private Configuration toConfiguration(Collection<String> configuration) {
+        try {
+            return jadd.toConfiguration(configuration);
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    private boolean keyEquals(int slot, Configuration key) {
+        int keyOffset = offset(slot) + 8;
+        for (int i = 0; i < wordsPerKey; i++) {
+            if (table.getLong(keyOffset + 8 * i) != key.getWord(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeKey(int slot, Configuration key) {
+        int keyOffset = offset(slot) + 8;
+        table.putLong(offset(slot), OCCUPIED);
+        for (int i = 0; i < wordsPerKey; i++) {
+            table.putLong(keyOffset + 8 * i, key.getWord(i));
+        }
+    }
+
+    private int hash(Configuration key) {
+        long h = 0;
+        for (int i = 0; i < wordsPerKey; i++) {
+            h = 31 * h + key.getWord(i);
+        }
+        return mix(h);
+    }
+
+    private int hashOfStoredKey(ByteBuffer table, int slot) {
+        int keyOffset = offset(slot) + 8;
+        long h = 0;
+        for (int i = 0; i < wordsPerKey; i++) {
+            h = 31 * h + table.getLong(keyOffset + 8 * i);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Final mixing step of MurmurHash3, as configurations
+     * often differ only in a few bits.
+     */
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private int offset(int slot) {
+        return slot * slotSize;
+    }
+
+    private int valueOffset(int slot) {
+        return offset(slot) + 8 * (1 + wordsPerKey);
+    }
+
+    /**
+     * Grows the table if storing one more result would make it more than
+     * half full. Concurrent writers may each store one result beyond that,
+     * which linear probing tolerates as long as there are empty slots.
+     */
+    private void ensureRoomForOneMore() {
+        tableLock.readLock().lock();
+        try {
+            if (size.get() + 1 <= capacity / 2) {
+                return;
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        tableLock.writeLock().lock();
+        try {
+            if (size.get() + 1 > capacity / 2) {
+                grow();
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Doubles the capacity. Must be called with the table lock held exclusively.
+     */
+    private void grow() {
+        int oldCapacity = capacity;
+        int newCapacity = oldCapacity * 2;
+        if ((long) newCapacity * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Result store is full (" + size + " results): "
+                                            + "tables are limited to 2 GB");
+        }
+        ByteBuffer oldTable;
+        if (channel == null) {
+            oldTable = table;
+            allocate(newCapacity);
+        } else {
+            try {
+                // The old table is copied past the end of the new one, which then
+                // takes its place at the start of the same file.
+                oldTable = map((long) newCapacity * slotSize, oldCapacity);
+                ByteBuffer wholeTable = table.duplicate();
+                wholeTable.clear();
+                oldTable.put(wholeTable);
+                // Buffers cannot be unmapped explicitly: the previous mapping and
+                // the one of the copy are left to the GC, which unmaps them once
+                // they are unreachable. The region of the copy becomes part of
+                // the table at the next growth.
+                table = map(0, newCapacity);
+                capacity = newCapacity;
+                for (int slot = 0; slot < newCapacity; slot++) {
+                    table.putLong(offset(slot), 0);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not grow memory-mapped result store", e);
+            }
+        }
+        int mask = capacity - 1;
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            if (oldTable.getLong(offset(oldSlot)) == OCCUPIED) {
+                int slot = hashOfStoredKey(oldTable, oldSlot) & mask;
+                while (table.getLong(offset(slot)) == OCCUPIED) {
+                    slot = (slot + 1) & mask;
+                }
+                for (int i = 0; i < slotSize; i += 8) {
+                    table.putLong(offset(slot) + i, oldTable.getLong(offset(oldSlot) + i));
+                }
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        this.table = ByteBuffer.allocate(newCapacity * slotSize);
+        this.capacity = newCapacity;
+    }
+
+    /**
+     * Maps a region of the backing file which holds {@code numSlots} slots,
+     * extending the file if needed.
+     */
+    private ByteBuffer map(long position, int numSlots) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, position, (long) numSlots * slotSize);
+    }
+
+}
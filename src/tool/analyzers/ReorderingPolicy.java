@@ -0,0 +1,82 @@
+package tool.analyzers;
+
+import jadd.JADD;
+import jadd.ReorderingHeuristic;
+import tool.ReorderingStrategy;
+
+/**
+ * Determines when variables are reordered while feature-family-based
+ * reliability expressions are solved.
+ *
+ * Reordering is confined to expression solving, which is where ADDs grow.
+ * Configurations may still be enumerated meanwhile, as enumeration keeps the
+ * nodes it is yet to traverse referenced (see {@link jadd.ADD#getExpandedConfigurations()}).
+ *
+ * @see ReorderingStrategy
+ */
+public class ReorderingPolicy {
+    /**
+     * No reordering other than the initial one.
+     */
+    public static final ReorderingPolicy INITIAL = new ReorderingPolicy(ReorderingStrategy.INITIAL,
+                                                                        ReorderingHeuristic.SYMM_SIFT);
+
+    private final ReorderingStrategy strategy;
+    private final ReorderingHeuristic heuristic;
+    private final double maxGrowth;
+    private final int firstThreshold;
+
+    public ReorderingPolicy(ReorderingStrategy strategy, ReorderingHeuristic heuristic) {
+        this(strategy, heuristic, 0, 0);
+    }
+
+    /**
+     * @param maxGrowth Maximum growth factor of the number of nodes while
+     *          sifting a variable (see {@link JADD#enableDynamicReordering(ReorderingHeuristic, double, int)}).
+     *          Not positive means CUDD's default.
+     * @param firstThreshold Number of nodes which triggers the first dynamic
+     *          reordering. Not positive means CUDD's default.
+     */
+    public ReorderingPolicy(ReorderingStrategy strategy, ReorderingHeuristic heuristic, double maxGrowth, int firstThreshold) {
+        this.strategy = strategy;
+        this.heuristic = heuristic;
+        this.maxGrowth = maxGrowth;
+        this.firstThreshold = firstThreshold;
+    }
+
+    public ReorderingStrategy getStrategy() {
+        return strategy;
+    }
+
+    public ReorderingHeuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Called right before expressions start being solved.
+     */
+    public void beforeSolving(JADD jadd) {
+        if (strategy == ReorderingStrategy.DYNAMIC) {
+            jadd.enableDynamicReordering(heuristic, maxGrowth, firstThreshold);
+        }
+    }
+
+    /**
+     * Called between groups of independent expressions, when none is being solved.
+     */
+    public void checkpoint(JADD jadd) {
+        if (strategy == ReorderingStrategy.CHECKPOINTS) {
+            jadd.reorderVariables(heuristic);
+        }
+    }
+
+    /**
+     * Called once all expressions are solved (even if solving fails).
+     */
+    public void afterSolving(JADD jadd) {
+        if (strategy == ReorderingStrategy.DYNAMIC) {
+            jadd.disableDynamicReordering();
+        }
+    }
+
+}
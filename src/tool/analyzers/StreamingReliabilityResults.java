@@ -0,0 +1,93 @@
+package tool.analyzers;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Sink of reliability results, which writes them out as soon as they are
+ * computed instead of keeping them in memory. Thus, memory usage does not
+ * depend on the number of analyzed configurations. Since results are not
+ * retained, they cannot be queried afterwards (i.e., this is not an
+ * {@link IReliabilityAnalysisResults}).
+ *
+ * Each result takes one line, in the form {@code [A, B, C] --> 0.99}
+ * (or {@code [A, B, C] --> INVALID}, for a zero reliability). Lines appear
+ * in order of computation, which is not deterministic for parallel analyses,
+ * so any sorting must be done externally (e.g., by piping into {@code sort}).
+ *
+ * Writing results is thread-safe.
+ */
+public class StreamingReliabilityResults implements ObjDoubleConsumer<Collection<String>>, Closeable {
+    private final Writer writer;
+    private long size;
+
+    public StreamingReliabilityResults(Writer writer) {
+        this.writer = (writer instanceof BufferedWriter) ? writer : new BufferedWriter(writer);
+    }
+
+    public StreamingReliabilityResults(OutputStream output) {
+        this(new OutputStreamWriter(output, Charset.forName("UTF-8")));
+    }
+
+    /**
+     * Writes the reliability of a configuration.
+     *
+     * @throws UncheckedIOException if the underlying writer fails.
+     */
+    @Override
+    public void accept(Collection<String> configuration, double value) {
+        String line = formatResult(configuration.toString(), value);
+        synchronized (this) {
+            try {
+                writer.write(line);
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size++;
+        }
+    }
+
+    /**
+     * @return the number of results written so far.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Writes out any buffered results.
+     */
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Flushes buffered results and closes the underlying writer.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Formats a single result the way it is reported to the user.
+     */
+    public static String formatResult(String configuration, double reliability) {
+        String message = configuration + " --> ";
+        if (Double.doubleToRawLongBits(reliability) != 0) {
+            return message + reliability;
+        } else {
+            return message + "INVALID";
+        }
+    }
+
+}
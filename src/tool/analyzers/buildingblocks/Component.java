@@ -1,12 +1,16 @@
 package tool.analyzers.buildingblocks;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Represents a component in an asset base.
@@ -78,6 +82,149 @@ public class Component<T> {
                 .get();
     }
 
+    /**
+     * Same as {@link #deriveFromMany(List, DerivationFunction, IsPresent)}, but,
+     * if the concurrency strategy is PARALLEL, components which do not depend on
+     * one another (i.e., those at the same height in the dependency graph) are
+     * derived concurrently. Thus, {@code derive} and {@code isPresent} must be
+     * thread-safe. Derivations only overlap as far as they do not serialize
+     * on some shared resource (e.g., ADD operations, which JADD runs one at
+     * a time).
+     *
+     * @param dependencies Components in topological order (i.e., dependencies first).
+     *          The last one is the root.
+     */
+    public static <P, A, V> V deriveFromMany(List<Component<A>> dependencies,
+                                             DerivationFunction<P, A, V> derive,
+                                             IsPresent<A, P> isPresent,
+                                             ConcurrencyStrategy concurrencyStrategy) {
+        if (concurrencyStrategy != ConcurrencyStrategy.PARALLEL) {
+            return deriveFromMany(dependencies, derive, isPresent);
+        }
+        return deriveFromMany(dependencies, derive, isPresent, concurrencyStrategy, () -> {});
+    }
+
+    /**
+     * Same as {@link #deriveFromMany(List, DerivationFunction, IsPresent, ConcurrencyStrategy)},
+     * but runs {@code checkpoint} between each group of independent components
+     * (i.e., whenever no derivation is in progress).
+     *
+     * @param dependencies Components in topological order (i.e., dependencies first).
+     *          The last one is the root.
+     */
+    public static <P, A, V> V deriveFromMany(List<Component<A>> dependencies,
+                                             DerivationFunction<P, A, V> derive,
+                                             IsPresent<A, P> isPresent,
+                                             ConcurrencyStrategy concurrencyStrategy,
+                                             Runnable checkpoint) {
+        return deriveFromMany(dependencies, derive, isPresent, concurrencyStrategy, checkpoint, v -> {});
+    }
+
+    /**
+     * Same as {@link #deriveFromMany(List, DerivationFunction, IsPresent, ConcurrencyStrategy, Runnable)},
+     * but hands each derived value over to {@code release} as soon as all components
+     * which depend on it are derived. The root's value is never released, and
+     * neither is a value which is (as the very same object) the derived value
+     * of some component still in use.
+     *
+     * @param dependencies Components in topological order (i.e., dependencies first).
+     *          The last one is the root.
+     */
+    public static <P, A, V> V deriveFromMany(List<Component<A>> dependencies,
+                                             DerivationFunction<P, A, V> derive,
+                                             IsPresent<A, P> isPresent,
+                                             ConcurrencyStrategy concurrencyStrategy,
+                                             Runnable checkpoint,
+                                             Consumer<V> release) {
+        Map<String, V> derivedModels = new ConcurrentHashMap<String, V>();
+        String rootId = dependencies.get(dependencies.size() - 1).getId();
+        Map<String, Integer> remainingDependents = countDependents(dependencies);
+        List<List<Component<A>>> layers = toLayers(dependencies);
+        for (int i = 0; i < layers.size(); i++) {
+            Stream<Component<A>> layer = (concurrencyStrategy == ConcurrencyStrategy.PARALLEL)
+                    ? layers.get(i).parallelStream()
+                    : layers.get(i).stream();
+            layer.forEach(c -> deriveSingle(c, isPresent, derive, derivedModels));
+            releaseConsumed(layers.get(i), rootId, remainingDependents, derivedModels, release);
+            if (i < layers.size() - 1) {
+                checkpoint.run();
+            }
+        }
+        return derivedModels.get(rootId);
+    }
+
+    /**
+     * Counts, for each component, how many of the given components depend on it.
+     */
+    private static <A> Map<String, Integer> countDependents(List<Component<A>> components) {
+        Map<String, Integer> dependents = new HashMap<String, Integer>();
+        for (Component<A> component : components) {
+            for (Component<A> dependency : component.getDependencies()) {
+                dependents.merge(dependency.getId(), 1, Integer::sum);
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Releases the values of the dependencies of freshly derived components,
+     * once these were their last dependents.
+     */
+    private static <A, V> void releaseConsumed(List<Component<A>> derived,
+                                               String rootId,
+                                               Map<String, Integer> remainingDependents,
+                                               Map<String, V> derivedModels,
+                                               Consumer<V> release) {
+        for (Component<A> component : derived) {
+            for (Component<A> dependency : component.getDependencies()) {
+                String id = dependency.getId();
+                if (remainingDependents.merge(id, -1, Integer::sum) > 0 || id.equals(rootId)) {
+                    continue;
+                }
+                V value = derivedModels.remove(id);
+                if (value != null && !isDerivedValue(value, derivedModels)) {
+                    release.accept(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Values are compared by identity, since derivation may pass a value on as is.
+     */
+    private static <V> boolean isDerivedValue(V value, Map<String, V> derivedModels) {
+        for (V derivedValue : derivedModels.values()) {
+            if (derivedValue == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Groups components by height, so that each one only depends
+     * on components of previous groups.
+     */
+    private static <A> List<List<Component<A>>> toLayers(List<Component<A>> components) {
+        Map<String, Integer> heights = new HashMap<String, Integer>();
+        List<List<Component<A>>> layers = new ArrayList<List<Component<A>>>();
+        for (Component<A> component : components) {
+            int height = 0;
+            for (Component<A> dependency : component.getDependencies()) {
+                Integer dependencyHeight = heights.get(dependency.getId());
+                if (dependencyHeight != null) {
+                    height = Math.max(height, dependencyHeight + 1);
+                }
+            }
+            heights.put(component.getId(), height);
+            if (height == layers.size()) {
+                layers.add(new ArrayList<Component<A>>());
+            }
+            layers.get(height).add(component);
+        }
+        return layers;
+    }
+
     // TODO Candidate!
     private static <P, A, V> V deriveSingle(Component<A> component,
                                             IsPresent<A, P> isPresent,
@@ -0,0 +1,242 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+import jadd.Configuration;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import tool.UnknownFeatureException;
+import expressionsolver.CompiledExpression;
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Index of the distinct presence conditions seen during an analysis.
+ *
+ * Each presence condition is encoded as an ADD only once. Besides, it is compiled
+ * into a boolean circuit over the bits of a {@link Configuration}, so that checking
+ * the presence of a component in a given configuration does not involve CUDD at all.
+ *
+ * Registration of new presence conditions (and, thus, encoding) is serialized,
+ * whereas checking presence is lock-free.
+ */
+public class PresenceConditionIndex {
+    private static final int TRUE_LITERAL = -1;
+    private static final int FALSE_LITERAL = -2;
+
+    private final JADD jadd;
+    private final ExpressionSolver expressionSolver;
+
+    private final Map<String, Integer> conditionIndices = new ConcurrentHashMap<String, Integer>();
+    private final List<Condition> conditions = new CopyOnWriteArrayList<Condition>();
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    public PresenceConditionIndex(JADD jadd) {
+        this(jadd, new ExpressionSolver(jadd));
+    }
+
+    /**
+     * Creates an index which encodes presence conditions by means of
+     * {@code expressionSolver}, thus sharing its memoized encodings.
+     */
+    public PresenceConditionIndex(JADD jadd, ExpressionSolver expressionSolver) {
+        this.jadd = jadd;
+        this.expressionSolver = expressionSolver;
+    }
+
+    /**
+     * Adds a presence condition to the index, if it is not already there.
+     *
+     * @return the index of {@code presenceCondition}.
+     */
+    public int register(String presenceCondition) {
+        Integer index = conditionIndices.get(presenceCondition);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = conditionIndices.get(presenceCondition);
+            if (index == null) {
+                conditions.add(compile(presenceCondition));
+                index = conditions.size() - 1;
+                conditionIndices.put(presenceCondition, index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the 0,1-ADD encoding of {@code presenceCondition}.
+     */
+    public ADD getEncoding(String presenceCondition) {
+        return conditions.get(register(presenceCondition)).encoding;
+    }
+
+    /**
+     * Converts a set of selected features into a {@link Configuration}
+     * suitable for {@link #isPresent(int, Configuration)}.
+     *
+     * @throws UnknownFeatureException if some feature is unknown.
+     */
+    public Configuration toConfiguration(Collection<String> features) throws UnknownFeatureException {
+        try {
+            return jadd.toConfiguration(features);
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+    }
+
+    /**
+     * @return the position of {@code feature} in a presence vector
+     *          (see {@link #isPresent(int, boolean[])}).
+     * @throws UnknownFeatureException if the feature is unknown.
+     */
+    public int getFeatureIndex(String feature) throws UnknownFeatureException {
+        int index = jadd.getVariableIndex(feature);
+        if (index < 0) {
+            throw new UnknownFeatureException(feature);
+        }
+        return index;
+    }
+
+    /**
+     * @return the length of a presence vector which can hold all known features.
+     */
+    public int getNumberOfFeatures() {
+        return jadd.getNumberOfVariables();
+    }
+
+    /**
+     * Checks whether a presence condition is satisfied by a configuration.
+     * This method is thread-safe.
+     *
+     * @param presenceCondition Index of the presence condition, as returned by {@link #register(String)}.
+     * @param configuration Configuration, as returned by {@link #toConfiguration(Collection)}.
+     */
+    public boolean isPresent(int presenceCondition, Configuration configuration) {
+        Condition condition = conditions.get(presenceCondition);
+        Workspace workspace = workspaces.get();
+        double[] values = workspace.getValues(condition.literals.length);
+        for (int slot = 0; slot < condition.literals.length; slot++) {
+            int literal = condition.literals[slot];
+            if (literal == TRUE_LITERAL) {
+                values[slot] = 1;
+            } else if (literal == FALSE_LITERAL) {
+                values[slot] = 0;
+            } else {
+                values[slot] = configuration.isSelected(literal) ? 1 : 0;
+            }
+        }
+        return evaluate(condition, values, workspace);
+    }
+
+    /**
+     * Checks whether a presence condition is satisfied by the configuration
+     * whose selected features are marked in a presence vector. This spares
+     * callers which evaluate many configurations the allocation of a
+     * {@link Configuration} for each of them, as the vector can be reused.
+     * This method is thread-safe.
+     *
+     * @param presenceCondition Index of the presence condition, as returned by {@link #register(String)}.
+     * @param presenceVector Selection of each feature, indexed by {@link #getFeatureIndex(String)}.
+     *          It must hold at least {@link #getNumberOfFeatures()} entries.
+     */
+    public boolean isPresent(int presenceCondition, boolean[] presenceVector) {
+        Condition condition = conditions.get(presenceCondition);
+        Workspace workspace = workspaces.get();
+        double[] values = workspace.getValues(condition.literals.length);
+        for (int slot = 0; slot < condition.literals.length; slot++) {
+            int literal = condition.literals[slot];
+            if (literal == TRUE_LITERAL) {
+                values[slot] = 1;
+            } else if (literal == FALSE_LITERAL) {
+                values[slot] = 0;
+            } else {
+                values[slot] = presenceVector[literal] ? 1 : 0;
+            }
+        }
+        return evaluate(condition, values, workspace);
+    }
+
+    private static boolean evaluate(Condition condition, double[] values, Workspace workspace) {
+        double value = condition.circuit.evaluate(values,
+                                                  workspace.getScratch(condition.circuit.size()));
+        return Double.compare(value, 1.0) == 0;
+    }
+
+    /**
+     * Convenience method for single checks. For multiple checks against the same
+     * configuration, {@link #isPresent(int, Configuration)} should be preferred.
+     */
+    public boolean isPresent(String presenceCondition, Collection<String> configuration) throws UnknownFeatureException {
+        int index = register(presenceCondition);
+        return isPresent(index, toConfiguration(configuration));
+    }
+
+    private Condition compile(String presenceCondition) {
+        CompiledExpression circuit = expressionSolver.compileFormula(presenceCondition);
+        if (circuit == null) {
+            throw new IllegalArgumentException("Invalid presence condition: " + presenceCondition);
+        }
+        ADD encoding = expressionSolver.encodeFormula(presenceCondition);
+        List<String> variables = circuit.getVariables();
+        int[] literals = new int[variables.size()];
+        for (int slot = 0; slot < literals.length; slot++) {
+            String variable = variables.get(slot);
+            if (ExpressionSolver.isTrueLiteral(variable)) {
+                literals[slot] = TRUE_LITERAL;
+            } else if (ExpressionSolver.isFalseLiteral(variable)) {
+                literals[slot] = FALSE_LITERAL;
+            } else {
+                // Encoding has already created all variables.
+                literals[slot] = jadd.getVariableIndex(variable);
+            }
+        }
+        return new Condition(encoding, circuit, literals);
+    }
+
+    private static class Condition {
+        final ADD encoding;
+        final CompiledExpression circuit;
+        /**
+         * Variable index bound to each variable slot of the circuit,
+         * or one of the boolean literal markers.
+         */
+        final int[] literals;
+
+        Condition(ADD encoding, CompiledExpression circuit, int[] literals) {
+            this.encoding = encoding;
+            this.circuit = circuit;
+            this.literals = literals;
+        }
+    }
+
+    /**
+     * Per-thread buffers, grown on demand.
+     */
+    private static class Workspace {
+        private double[] values = new double[0];
+        private double[] scratch = new double[0];
+
+        double[] getValues(int size) {
+            if (values.length < size) {
+                values = new double[size];
+            }
+            return values;
+        }
+
+        double[] getScratch(int size) {
+            if (scratch.length < size) {
+                scratch = new double[size];
+            }
+            return scratch;
+        }
+    }
+
+}
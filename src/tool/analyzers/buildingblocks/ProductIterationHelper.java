@@ -1,24 +1,29 @@
 package tool.analyzers.buildingblocks;
 
 import java.util.Collection;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
 public class ProductIterationHelper {
 
-    public static <T> Map<Collection<String>, Double> evaluate(Function<Collection<String>, Double> eval,
-                                                               Stream<Collection<String>> configurations,
-                                                               ConcurrencyStrategy concurrencyStrategy) {
+    /**
+     * Evaluates each configuration and hands the result over to {@code results}
+     * as soon as it is computed, so that no intermediate collection is needed.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public static void evaluate(ToDoubleFunction<Collection<String>> eval,
+                                Stream<Collection<String>> configurations,
+                                ConcurrencyStrategy concurrencyStrategy,
+                                ObjDoubleConsumer<Collection<String>> results) {
         Stream<Collection<String>> configs = concurrencyStrategy == ConcurrencyStrategy.PARALLEL ?
                                                         configurations.parallel()
                                                         : configurations.sequential();
 
-        Map<Collection<String>, Double> results = configs
-                .collect(Collectors.toMap(Function.identity(),
-                                          eval));
-        return results;
+        configs.forEach(configuration -> results.accept(configuration,
+                                                        eval.applyAsDouble(configuration)));
     }
 
 }
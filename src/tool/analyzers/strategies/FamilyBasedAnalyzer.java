@@ -16,6 +16,7 @@ import tool.analyzers.ADDReliabilityResults;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.FamilyBasedHelper;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
 import tool.analyzers.buildingblocks.PresenceConditions;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
@@ -31,6 +32,7 @@ public class FamilyBasedAnalyzer {
 
     private ADD featureModel;
     private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
     ParametricModelChecker modelChecker;
 
     private FamilyBasedFirstPhase firstPhase;
@@ -41,11 +43,13 @@ public class FamilyBasedAnalyzer {
 
     public FamilyBasedAnalyzer(JADD jadd,
                                ADD featureModel,
+                               PresenceConditionIndex presenceConditionIndex,
                                ParametricModelChecker modelChecker,
                                ITimeCollector timeCollector,
                                IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
         this.featureModel = featureModel;
+        this.presenceConditionIndex = presenceConditionIndex;
         this.modelChecker = modelChecker;
 
         this.timeCollector = timeCollector;
@@ -88,7 +92,7 @@ public class FamilyBasedAnalyzer {
 
         Map<String, ADD> values = eqClassToPC.entrySet().stream()
                 .collect(Collectors.toMap(e -> e.getKey(),
-                                          e -> expressionSolver.encodeFormula(e.getValue())));
+                                          e -> presenceConditionIndex.getEncoding(e.getValue())));
 
         // Sigma'_v
         ADD reliability = liftedExpression.solve(values);
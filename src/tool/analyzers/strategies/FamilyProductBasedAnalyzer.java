@@ -1,11 +1,14 @@
 package tool.analyzers.strategies;
 
+import jadd.Configuration;
 import jadd.JADD;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -14,8 +17,9 @@ import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.analyzers.IReliabilityAnalysisResults;
-import tool.analyzers.MapBasedReliabilityResults;
+import tool.analyzers.PackedReliabilityResults;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
 import tool.analyzers.buildingblocks.PresenceConditions;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
@@ -31,17 +35,24 @@ public class FamilyProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(FamilyProductBasedAnalyzer.class.getName());
 
     private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
 
     private FamilyBasedFirstPhase firstPhase;
 
+    private JADD jadd;
+    private Path resultsDirectory;
+
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
 
     public FamilyProductBasedAnalyzer(JADD jadd,
+                               PresenceConditionIndex presenceConditionIndex,
                                ParametricModelChecker modelChecker,
                                ITimeCollector timeCollector,
                                IFormulaCollector formulaCollector) {
+        this.jadd = jadd;
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionIndex = presenceConditionIndex;
 
         this.firstPhase = new FamilyBasedFirstPhase(modelChecker);
 
@@ -57,6 +68,20 @@ public class FamilyProductBasedAnalyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
+        PackedReliabilityResults results = PackedReliabilityResults.create(jadd, resultsDirectory);
+        evaluateReliability(node, configurations, concurrencyStrategy, results::putResult);
+        return results;
+    }
+
+    /**
+     * Same as {@link #evaluateReliability(RDGNode, Stream, ConcurrencyStrategy)},
+     * but hands each result over to {@code results} as soon as it is computed,
+     * instead of storing it.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public void evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy, ObjDoubleConsumer<Collection<String>> results) throws CyclicRdgException {
         if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
             LOGGER.info("Solving the family-wide expression for each product in parallel.");
         }
@@ -74,47 +99,42 @@ public class FamilyProductBasedAnalyzer {
                 .map(RDGNode::getPresenceCondition)
                 .collect(Collectors.toList());
         Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
-        Map<String, String> eqClassToPC = pcEquivalence.entrySet().stream()
+        Map<String, Integer> eqClassToPC = pcEquivalence.entrySet().stream()
                 .collect(Collectors.toMap(e -> e.getValue(),
-                                          e -> e.getKey(),
+                                          e -> presenceConditionIndex.register(e.getKey()),
                                           (a, b) -> a));
 
-        Map<Collection<String>, Double> results;
-        if (concurrencyStrategy == ConcurrencyStrategy.SEQUENTIAL) {
-            Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
-            results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(parsedExpression,
-                                                                                      configuration,
-                                                                                      eqClassToPC),
-                                                      configurations,
-                                                      concurrencyStrategy);
-        } else {
-            results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(expression,
-                                                                                      configuration,
-                                                                                      eqClassToPC),
-                                                      configurations,
-                                                      concurrencyStrategy);
-        }
+        // Compiled expressions are immutable, so a single one can be
+        // shared by all (possibly concurrent) evaluations.
+        Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
+        ProductIterationHelper.evaluate(configuration -> evaluateSingle(parsedExpression,
+                                                                        configuration,
+                                                                        eqClassToPC),
+                                        configurations,
+                                        concurrencyStrategy,
+                                        results);
 
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
         LOGGER.info("Formulae evaluation ok...");
-        return new MapBasedReliabilityResults(results);
     }
 
-    private Double evaluateSingle(Expression<Double> expression, Collection<String> configuration, Map<String, String> eqClassToPC) {
-        Function<Map.Entry<String, String>, Boolean> isPresent = e -> PresenceConditions.isPresent(e.getValue(),
-                                                                                                   configuration,
-                                                                                                   expressionSolver);
+    /**
+     * @param resultsDirectory directory in which to memory-map the results,
+     *          or null to keep them in the heap.
+     */
+    public void setResultsDirectory(Path resultsDirectory) {
+        this.resultsDirectory = resultsDirectory;
+    }
+
+    private Double evaluateSingle(Expression<Double> expression, Collection<String> configuration, Map<String, Integer> eqClassToPC) {
+        Configuration features = presenceConditionIndex.toConfiguration(configuration);
+        Function<Map.Entry<String, Integer>, Boolean> isPresent = e -> presenceConditionIndex.isPresent(e.getValue(),
+                                                                                                    features);
         Map<String, Double> values = eqClassToPC.entrySet().stream()
             .collect(Collectors.toMap(e -> e.getKey(),
                                       isPresent.andThen(present -> present ? 1.0 : 0.0)));
 
         return expression.solve(values);
-
-    }
-
-    private Double evaluateSingle(String expression, Collection<String> configuration, Map<String, String> eqClassToPC) {
-        Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
-        return evaluateSingle(parsedExpression, configuration, eqClassToPC);
     }
 
 }
@@ -7,6 +7,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
+import paramwrapper.ReliabilityExpressionCache;
 import tool.Analyzer;
 import tool.RDGNode;
 import tool.analyzers.buildingblocks.Component;
@@ -22,6 +23,7 @@ public class FeatureBasedFirstPhase {
 
     ParametricModelChecker modelChecker;
     private IFormulaCollector formulaCollector;
+    private ReliabilityExpressionCache expressionCache;
 
     public FeatureBasedFirstPhase(ParametricModelChecker modelChecker,
                                   IFormulaCollector formulaCollector) {
@@ -29,6 +31,14 @@ public class FeatureBasedFirstPhase {
         this.formulaCollector = formulaCollector;
     }
 
+    /**
+     * Sets a persistent cache to be consulted before model checking each FDTMC.
+     * @param expressionCache the cache to use, or null for none.
+     */
+    public void setExpressionCache(ReliabilityExpressionCache expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
     /**
      * Computes the reliability expression for the model of the given RDG nodes,
      * returning them in a map which is conveniently sorted in the same order as
@@ -68,7 +78,21 @@ public class FeatureBasedFirstPhase {
      */
     private String getReliabilityExpression(RDGNode node) {
         FDTMC model = node.getFDTMC();
-        String reliabilityExpression = modelChecker.getReliability(model);
+        String reliabilityExpression = null;
+        if (expressionCache != null) {
+            reliabilityExpression = expressionCache.get(model);
+            if (reliabilityExpression != null) {
+                formulaCollector.collectCacheHit(node);
+            } else {
+                formulaCollector.collectCacheMiss(node);
+            }
+        }
+        if (reliabilityExpression == null) {
+            reliabilityExpression = modelChecker.getReliability(model);
+            if (expressionCache != null) {
+                expressionCache.put(model, reliabilityExpression);
+            }
+        }
 
         formulaCollector.collectFormula(node, reliabilityExpression);
         LOGGER.fine("Reliability expression for "+ node.getId() + " -> " + reliabilityExpression);
@@ -4,20 +4,24 @@ import jadd.ADD;
 import jadd.JADD;
 
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import paramwrapper.ParametricModelChecker;
+import paramwrapper.ReliabilityExpressionCache;
 import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.analyzers.ADDReliabilityResults;
 import tool.analyzers.IPruningStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.NoPruningStrategy;
-import tool.analyzers.buildingblocks.AssetProcessor;
+import tool.analyzers.ReorderingPolicy;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.DerivationFunction;
 import tool.analyzers.buildingblocks.FamilyBasedHelper;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
@@ -28,11 +32,14 @@ import expressionsolver.ExpressionSolver;
  * Orchestrator of feature-family-based analyses.
  */
 public class FeatureFamilyBasedAnalyzer {
+    private static final Logger LOGGER = Logger.getLogger(FeatureFamilyBasedAnalyzer.class.getName());
 
     private ADD featureModel;
     private JADD jadd;
     private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
     private IPruningStrategy pruningStrategy;
+    private ReorderingPolicy reorderingPolicy = ReorderingPolicy.INITIAL;
 
     private FeatureBasedFirstPhase firstPhase;
     private FamilyBasedHelper helper;
@@ -47,12 +54,14 @@ public class FeatureFamilyBasedAnalyzer {
 
     public FeatureFamilyBasedAnalyzer(JADD jadd,
                                       ADD featureModel,
+                                      PresenceConditionIndex presenceConditionIndex,
                                       ParametricModelChecker modelChecker,
                                       ITimeCollector timeCollector,
                                       IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
         this.jadd = jadd;
         this.featureModel = featureModel;
+        this.presenceConditionIndex = presenceConditionIndex;
 
         this.timeCollector = timeCollector;
         this.pruningStrategy = new NoPruningStrategy();
@@ -61,14 +70,20 @@ public class FeatureFamilyBasedAnalyzer {
                                                      formulaCollector);
         this.helper = new FamilyBasedHelper(expressionSolver);
 
-        AssetProcessor<Expression<ADD>, ADD> evalAndPrune = (expr, values) -> {
-            return this.pruningStrategy.pruneInvalidConfigurations(null,
-                                                                   expr.solve(values),
-                                                                   featureModel);
+        ADD one = jadd.makeConstant(1.0);
+        solve = (presence, expr, values) -> {
+            ADD solved = expr.solve(values);
+            ADD pruned = this.pruningStrategy.pruneInvalidConfigurations(null,
+                                                                         solved,
+                                                                         featureModel);
+            // Intermediate results are released right away, so that CUDD can reclaim them.
+            if (pruned != solved) {
+                releaseIntermediate(solved, values);
+            }
+            ADD result = ADD.ite(presence, pruned, one);
+            releaseIntermediate(pruned, values);
+            return result;
         };
-        solve = DerivationFunction.abstractDerivation(ADD::ite,
-                                                      evalAndPrune,
-                                                      jadd.makeConstant(1.0));
     }
 
     /**
@@ -98,8 +113,12 @@ public class FeatureFamilyBasedAnalyzer {
                 .map(helper::lift)
                 .collect(Collectors.toList());
         // Sigma_v
-        ADD reliability = solveFromMany(liftedExpressions);
+        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
+            LOGGER.fine("Solving independent expressions in parallel.");
+        }
+        ADD reliability = solveFromMany(liftedExpressions, concurrencyStrategy);
         ADD result = featureModel.times(reliability);
+        reliability.close();
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
 
         if (dotOutput != null) {
@@ -123,6 +142,21 @@ public class FeatureFamilyBasedAnalyzer {
         this.pruningStrategy = pruningStrategy;
     }
 
+    /**
+     * Sets the policy for reordering variables while solving expressions.
+     * If none is set, variables are not reordered at this stage.
+     */
+    public void setReorderingPolicy(ReorderingPolicy reorderingPolicy) {
+        this.reorderingPolicy = reorderingPolicy;
+    }
+
+    /**
+     * @param expressionCache cache of reliability expressions, or null for none.
+     */
+    public void setExpressionCache(ReliabilityExpressionCache expressionCache) {
+        this.firstPhase.setExpressionCache(expressionCache);
+    }
+
     /**
      * Dumps the computed family reliability function to the output file
      * in the specified path.
@@ -135,10 +169,43 @@ public class FeatureFamilyBasedAnalyzer {
         jadd.dumpDot("Family Reliability", familyReliability, outputFile);
     }
 
-    private ADD solveFromMany(List<Component<Expression<ADD>>> dependencies) {
-        return Component.deriveFromMany(dependencies,
-                                        solve,
-                                        c -> expressionSolver.encodeFormula(c.getPresenceCondition()));
+    /**
+     * Closes an intermediate ADD, unless it is (as is the case of expressions
+     * which amount to a single variable) the value of some dependency.
+     */
+    private static void releaseIntermediate(ADD intermediate, Map<String, ADD> values) {
+        for (ADD value : values.values()) {
+            if (value == intermediate) {
+                return;
+            }
+        }
+        intermediate.close();
+    }
+
+    /**
+     * Solves the lifted expressions of all components, dependencies first.
+     * The ADD of each component is closed as soon as all components which
+     * depend on it are solved.
+     *
+     * With the PARALLEL strategy, independent components are solved by
+     * concurrent threads. However, JADD serializes ADD operations on its
+     * single CUDD manager, so the ADD arithmetic itself still runs one
+     * operation at a time: threads only overlap the work done on the Java
+     * side (e.g., looking up presence conditions and values, and walking
+     * the compiled expressions).
+     */
+    private ADD solveFromMany(List<Component<Expression<ADD>>> dependencies, ConcurrencyStrategy concurrencyStrategy) {
+        reorderingPolicy.beforeSolving(jadd);
+        try {
+            return Component.deriveFromMany(dependencies,
+                                            solve,
+                                            c -> presenceConditionIndex.getEncoding(c.getPresenceCondition()),
+                                            concurrencyStrategy,
+                                            () -> reorderingPolicy.checkpoint(jadd),
+                                            ADD::close);
+        } finally {
+            reorderingPolicy.afterSolving(jadd);
+        }
     }
 
 }
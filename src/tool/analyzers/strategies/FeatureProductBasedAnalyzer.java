@@ -2,27 +2,29 @@ package tool.analyzers.strategies;
 
 import jadd.JADD;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.function.ObjDoubleConsumer;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
+import paramwrapper.ReliabilityExpressionCache;
 import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.UnknownFeatureException;
 import tool.analyzers.IReliabilityAnalysisResults;
-import tool.analyzers.MapBasedReliabilityResults;
+import tool.analyzers.PackedReliabilityResults;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
-import tool.analyzers.buildingblocks.DerivationFunction;
-import tool.analyzers.buildingblocks.IfOperator;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
+import expressionsolver.Expression;
 import expressionsolver.ExpressionSolver;
 
 /**
@@ -32,30 +34,27 @@ public class FeatureProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(FeatureProductBasedAnalyzer.class.getName());
 
     private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
     private FeatureBasedFirstPhase firstPhase;
 
-    /**
-     * Sigma
-     */
-    private DerivationFunction<Boolean, String, Double> solve;
+    private JADD jadd;
+    private Path resultsDirectory;
 
     private ITimeCollector timeCollector;
 
     public FeatureProductBasedAnalyzer(JADD jadd,
+                                       PresenceConditionIndex presenceConditionIndex,
                                        ParametricModelChecker modelChecker,
                                        ITimeCollector timeCollector,
                                        IFormulaCollector formulaCollector) {
+        this.jadd = jadd;
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionIndex = presenceConditionIndex;
 
         this.timeCollector = timeCollector;
 
         this.firstPhase = new FeatureBasedFirstPhase(modelChecker,
                                                      formulaCollector);
-
-
-        solve = DerivationFunction.abstractDerivation(new IfOperator<Double>(),
-                                                      expressionSolver::solveExpression,
-                                                      1.0);
     }
 
     /**
@@ -68,6 +67,20 @@ public class FeatureProductBasedAnalyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
+        PackedReliabilityResults results = PackedReliabilityResults.create(jadd, resultsDirectory);
+        evaluateReliability(node, configurations, concurrencyStrategy, results::putResult);
+        return results;
+    }
+
+    /**
+     * Same as {@link #evaluateReliability(RDGNode, Stream, ConcurrencyStrategy)},
+     * but hands each result over to {@code results} as soon as it is computed,
+     * instead of storing it.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public void evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy, ObjDoubleConsumer<Collection<String>> results) throws CyclicRdgException, UnknownFeatureException {
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
@@ -76,26 +89,36 @@ public class FeatureProductBasedAnalyzer {
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
+        // Expressions are compiled only once and then shared by all products.
+        List<Component<Expression<Double>>> compiledExpressions = expressions.stream()
+                .map(c -> c.fmap(expressionSolver::parseExpression))
+                .collect(Collectors.toList());
+        SlotBasedProductEvaluator evaluator = new SlotBasedProductEvaluator(compiledExpressions, presenceConditionIndex);
 
         if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
             LOGGER.info("Evaluating all expressions for each product in parallel.");
         }
-        Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
-                                                                                                                  configuration,
-                                                                                                                  expressions),
-                                                                                  configurations,
-                                                                                  concurrencyStrategy);
+        ProductIterationHelper.evaluate(evaluator::evaluate,
+                                        configurations,
+                                        concurrencyStrategy,
+                                        results);
 
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
-        return new MapBasedReliabilityResults(results);
     }
 
-    private Double evaluateSingle(RDGNode node, Collection<String> configuration, List<Component<String>> expressions) {
-        return Component.deriveFromMany(expressions,
-                                        solve,
-                                        c -> PresenceConditions.isPresent(c.getPresenceCondition(),
-                                                                          configuration,
-                                                                          expressionSolver));
+    /**
+     * @param resultsDirectory directory in which to memory-map the results,
+     *          or null to keep them in the heap.
+     */
+    public void setResultsDirectory(Path resultsDirectory) {
+        this.resultsDirectory = resultsDirectory;
+    }
+
+    /**
+     * @param expressionCache cache of reliability expressions, or null for none.
+     */
+    public void setExpressionCache(ReliabilityExpressionCache expressionCache) {
+        this.firstPhase.setExpressionCache(expressionCache);
     }
 
 }
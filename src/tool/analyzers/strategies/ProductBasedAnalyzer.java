@@ -1,10 +1,12 @@
 package tool.analyzers.strategies;
 
+import jadd.Configuration;
 import jadd.JADD;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.function.ObjDoubleConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -13,12 +15,12 @@ import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.UnknownFeatureException;
 import tool.analyzers.IReliabilityAnalysisResults;
-import tool.analyzers.MapBasedReliabilityResults;
+import tool.analyzers.PackedReliabilityResults;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.DerivationFunction;
 import tool.analyzers.buildingblocks.IfOperator;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
@@ -34,6 +36,7 @@ public class ProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(ProductBasedAnalyzer.class.getName());
 
     private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
     ParametricModelChecker modelChecker;
     /**
      * LAMBDA
@@ -41,14 +44,20 @@ public class ProductBasedAnalyzer {
     private DerivationFunction<Boolean, FDTMC, FDTMC> derive;
 
 
+    private JADD jadd;
+    private Path resultsDirectory;
+
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
 
     public ProductBasedAnalyzer(JADD jadd,
+                                PresenceConditionIndex presenceConditionIndex,
                                 ParametricModelChecker modelChecker,
                                 ITimeCollector timeCollector,
                                 IFormulaCollector formulaCollector) {
+        this.jadd = jadd;
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionIndex = presenceConditionIndex;
         this.modelChecker = modelChecker;
 
         this.timeCollector = timeCollector;
@@ -68,21 +77,46 @@ public class ProductBasedAnalyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
+        PackedReliabilityResults results = PackedReliabilityResults.create(jadd, resultsDirectory);
+        evaluateReliability(node, configurations, concurrencyStrategy, results::putResult);
+        return results;
+    }
+
+    /**
+     * Same as {@link #evaluateReliability(RDGNode, Stream, ConcurrencyStrategy)},
+     * but hands each result over to {@code results} as soon as it is computed,
+     * instead of storing it.
+     *
+     * @param results Consumer of results. It must be thread-safe if the
+     *          concurrency strategy is PARALLEL.
+     */
+    public void evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy, ObjDoubleConsumer<Collection<String>> results) throws CyclicRdgException, UnknownFeatureException {
         if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
             LOGGER.info("Running the whole analysis of each product in parallel.");
         }
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        // Presence conditions are registered beforehand, so that products can
+        // be checked concurrently without further encoding.
+        dependencies.forEach(d -> presenceConditionIndex.register(d.getPresenceCondition()));
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
-        Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
-                                                                                                                  configuration,
-                                                                                                                  dependencies),
-                                                                                  configurations,
-                                                                                  concurrencyStrategy);
+        ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
+                                                                        configuration,
+                                                                        dependencies),
+                                        configurations,
+                                        concurrencyStrategy,
+                                        results);
 
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
-        return new MapBasedReliabilityResults(results);
+    }
+
+    /**
+     * @param resultsDirectory directory in which to memory-map the results,
+     *          or null to keep them in the heap.
+     */
+    public void setResultsDirectory(Path resultsDirectory) {
+        this.resultsDirectory = resultsDirectory;
     }
 
     private Double evaluateSingle(RDGNode node, Collection<String> configuration, List<RDGNode> dependencies) throws UnknownFeatureException {
@@ -97,11 +131,11 @@ public class ProductBasedAnalyzer {
     }
 
     private FDTMC deriveFromMany(List<Component<FDTMC>> dependencies, Collection<String> configuration) {
+        Configuration features = presenceConditionIndex.toConfiguration(configuration);
         return Component.deriveFromMany(dependencies,
                                         derive,
-                                        c -> PresenceConditions.isPresent(c.getPresenceCondition(),
-                                                                          configuration,
-                                                                          expressionSolver));
+                                        c -> presenceConditionIndex.isPresent(presenceConditionIndex.register(c.getPresenceCondition()),
+                                                                          features));
     }
 
     private FDTMC trivialFdtmc() {
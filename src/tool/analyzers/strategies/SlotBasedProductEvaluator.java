@@ -0,0 +1,207 @@
+package tool.analyzers.strategies;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import tool.analyzers.buildingblocks.Component;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
+import expressionsolver.CompiledExpression;
+import expressionsolver.Expression;
+
+/**
+ * Evaluates the reliability expressions of a list of components for a single
+ * product at a time, without per-component allocations.
+ *
+ * Each component is assigned a slot in an array of values, and each variable
+ * of its expression is bound beforehand to the slot of the component it stands
+ * for. Thus, evaluating a product amounts to filling this array in (topological)
+ * order, using per-thread buffers for the selected features and for
+ * intermediate results.
+ *
+ * Variables with no corresponding component, as well as present components
+ * whose expression could not be parsed (e.g., because model checking failed),
+ * evaluate to NaN, which then propagates to the components depending on them.
+ */
+class SlotBasedProductEvaluator {
+    private static final Logger LOGGER = Logger.getLogger(SlotBasedProductEvaluator.class.getName());
+
+    /**
+     * Value assumed by absent components.
+     */
+    private static final double ABSENT_VALUE = 1.0;
+
+    // Memoized presence of each distinct presence condition.
+    private static final byte UNKNOWN = 0;
+    private static final byte PRESENT = 1;
+    private static final byte ABSENT = 2;
+
+    private final PresenceConditionIndex presenceConditionIndex;
+
+    private final CompiledExpression[] expressions;
+    /**
+     * Slot in the values array for each variable of each expression.
+     */
+    private final int[][] bindings;
+    /**
+     * Index of the presence condition of each component in {@link #presenceConditions}.
+     */
+    private final int[] presenceConditionIndices;
+    /**
+     * Distinct presence conditions (as indices in {@link #presenceConditionIndex}),
+     * so that each one is evaluated only once per product.
+     */
+    private final int[] presenceConditions;
+    /**
+     * Slot which holds NaN, bound to variables with no corresponding component.
+     */
+    private final int unboundSlot;
+
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * @param components Components in topological order (i.e., dependencies first).
+     *          The last one is the root, whose value is the result of the evaluation.
+     * @param presenceConditionIndex Index used to evaluate presence conditions.
+     */
+    public SlotBasedProductEvaluator(List<Component<Expression<Double>>> components, PresenceConditionIndex presenceConditionIndex) {
+        this.presenceConditionIndex = presenceConditionIndex;
+
+        int numComponents = components.size();
+        Map<String, Integer> componentSlots = new HashMap<String, Integer>();
+        for (int i = 0; i < numComponents; i++) {
+            componentSlots.put(components.get(i).getId(), i);
+        }
+        this.unboundSlot = numComponents;
+
+        this.expressions = new CompiledExpression[numComponents];
+        this.bindings = new int[numComponents][];
+        this.presenceConditionIndices = new int[numComponents];
+        Map<String, Integer> distinctPresenceConditions = new HashMap<String, Integer>();
+        int maxExpressionSize = 0;
+        for (int i = 0; i < numComponents; i++) {
+            Component<Expression<Double>> component = components.get(i);
+            Expression<Double> asset = component.getAsset();
+            CompiledExpression expression = (asset != null) ? asset.getCompiledExpression() : null;
+            if (expression == null) {
+                LOGGER.warning("No valid reliability expression for component <" + component.getId()
+                               + ">, so its reliability is unknown (NaN)");
+                bindings[i] = new int[0];
+            } else {
+                List<String> variables = expression.getVariables();
+                int[] binding = new int[variables.size()];
+                for (int slot = 0; slot < binding.length; slot++) {
+                    Integer componentSlot = componentSlots.get(variables.get(slot));
+                    if (componentSlot == null || componentSlot >= i) {
+                        LOGGER.warning("No interpretation for variable <" + variables.get(slot) + "> was provided");
+                        binding[slot] = unboundSlot;
+                    } else {
+                        binding[slot] = componentSlot;
+                    }
+                }
+                bindings[i] = binding;
+                maxExpressionSize = Math.max(maxExpressionSize, expression.size());
+            }
+            expressions[i] = expression;
+
+            String presenceCondition = component.getPresenceCondition();
+            Integer distinctIndex = distinctPresenceConditions.get(presenceCondition);
+            if (distinctIndex == null) {
+                distinctIndex = distinctPresenceConditions.size();
+                distinctPresenceConditions.put(presenceCondition, distinctIndex);
+            }
+            presenceConditionIndices[i] = distinctIndex;
+        }
+        this.presenceConditions = new int[distinctPresenceConditions.size()];
+        for (Map.Entry<String, Integer> entry : distinctPresenceConditions.entrySet()) {
+            presenceConditions[entry.getValue()] = presenceConditionIndex.register(entry.getKey());
+        }
+
+        final int scratchSize = maxExpressionSize;
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(numComponents + 1,
+                                                                      scratchSize,
+                                                                      presenceConditions.length));
+    }
+
+    /**
+     * Evaluates the value of the root component for the given configuration.
+     * This method is thread-safe.
+     */
+    public double evaluate(Collection<String> configuration) {
+        Workspace workspace = workspaces.get();
+        double[] values = workspace.values;
+        byte[] presences = workspace.presences;
+        Arrays.fill(presences, UNKNOWN);
+        boolean[] features = workspace.getFeatures(presenceConditionIndex.getNumberOfFeatures());
+        int[] selected = workspace.getSelected(configuration.size());
+        int numSelected = 0;
+        try {
+            for (String feature : configuration) {
+                int index = presenceConditionIndex.getFeatureIndex(feature);
+                features[index] = true;
+                selected[numSelected++] = index;
+            }
+
+            for (int i = 0; i < expressions.length; i++) {
+                int distinctIndex = presenceConditionIndices[i];
+                if (presences[distinctIndex] == UNKNOWN) {
+                    boolean isPresent = presenceConditionIndex.isPresent(presenceConditions[distinctIndex], features);
+                    presences[distinctIndex] = isPresent ? PRESENT : ABSENT;
+                }
+                if (presences[distinctIndex] != PRESENT) {
+                    values[i] = ABSENT_VALUE;
+                } else if (expressions[i] == null) {
+                    values[i] = Double.NaN;
+                } else {
+                    values[i] = expressions[i].evaluate(values, bindings[i], workspace.scratch);
+                }
+            }
+            return values[expressions.length - 1];
+        } finally {
+            // Only the entries which were set need to be cleared for the next product.
+            for (int i = 0; i < numSelected; i++) {
+                features[selected[i]] = false;
+            }
+        }
+    }
+
+    /**
+     * Per-thread buffers.
+     */
+    private static class Workspace {
+        final double[] values;
+        final double[] scratch;
+        final byte[] presences;
+        /**
+         * Presence vector of the features, which is clear between evaluations.
+         */
+        private boolean[] features = new boolean[0];
+        private int[] selected = new int[0];
+
+        Workspace(int numValues, int scratchSize, int numPresenceConditions) {
+            this.values = new double[numValues];
+            // The last slot is the unbound one.
+            this.values[numValues - 1] = Double.NaN;
+            this.scratch = new double[scratchSize];
+            this.presences = new byte[numPresenceConditions];
+        }
+
+        boolean[] getFeatures(int size) {
+            if (features.length < size) {
+                features = new boolean[size];
+            }
+            return features;
+        }
+
+        int[] getSelected(int size) {
+            if (selected.length < size) {
+                selected = new int[size];
+            }
+            return selected;
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package tool.ordering;
+
+import java.util.List;
+
+/**
+ * Orders variables as they first appear in the feature model's CNF, which is
+ * the order obtained by simply encoding it. Useful as a baseline for
+ * comparing other heuristics.
+ */
+public class AppearanceOrdering implements IVariableOrderingHeuristic {
+
+    @Override
+    public List<String> computeOrder(String featureModel) {
+        return CnfClauses.parse(featureModel).getVariables();
+    }
+
+}
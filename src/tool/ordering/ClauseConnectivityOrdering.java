@@ -0,0 +1,64 @@
+package tool.ordering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy ordering by clause connectivity: it starts off with the variable
+ * which appears in the most clauses and then repeatedly picks the variable
+ * which shares the most clauses with the variables already placed. Ties are
+ * broken by number of clauses and then by order of first appearance.
+ *
+ * Thus, variables which constrain each other end up close together, which
+ * tends to keep the intermediate ADDs of the feature model small.
+ */
+public class ClauseConnectivityOrdering implements IVariableOrderingHeuristic {
+
+    @Override
+    public List<String> computeOrder(String featureModel) {
+        CnfClauses cnf = CnfClauses.parse(featureModel);
+        List<String> variables = cnf.getVariables();
+        int numVariables = variables.size();
+        int[][] clauses = ForceOrdering.toIndices(cnf);
+
+        int[] clauseCount = new int[numVariables];
+        List<List<Integer>> clausesOf = new ArrayList<List<Integer>>();
+        for (int v = 0; v < numVariables; v++) {
+            clausesOf.add(new ArrayList<Integer>());
+        }
+        for (int c = 0; c < clauses.length; c++) {
+            for (int variable : clauses[c]) {
+                clauseCount[variable]++;
+                clausesOf.get(variable).add(c);
+            }
+        }
+
+        // connectivity[v] is the number of clauses shared by v and some placed variable.
+        int[] connectivity = new int[numVariables];
+        boolean[] placed = new boolean[numVariables];
+        boolean[] touched = new boolean[clauses.length];
+        List<String> order = new ArrayList<String>(numVariables);
+        for (int i = 0; i < numVariables; i++) {
+            int next = -1;
+            for (int v = 0; v < numVariables; v++) {
+                if (!placed[v] && (next < 0
+                        || connectivity[v] > connectivity[next]
+                        || (connectivity[v] == connectivity[next] && clauseCount[v] > clauseCount[next]))) {
+                    next = v;
+                }
+            }
+            placed[next] = true;
+            order.add(variables.get(next));
+            for (int c : clausesOf.get(next)) {
+                if (!touched[c]) {
+                    touched[c] = true;
+                    for (int variable : clauses[c]) {
+                        connectivity[variable]++;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+}
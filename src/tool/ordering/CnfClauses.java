@@ -0,0 +1,79 @@
+package tool.ordering;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import expressionsolver.ClauseReader;
+import expressionsolver.ExpressionParseException;
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Variable-level view of a formula in conjunctive normal form: each clause
+ * (top-level conjunct) is reduced to the set of variables it mentions.
+ * Signs and boolean literals are disregarded, as they do not matter
+ * to ordering heuristics.
+ */
+public class CnfClauses {
+    private final List<String> variables;
+    private final List<List<String>> clauses;
+
+    private CnfClauses(List<String> variables, List<List<String>> clauses) {
+        this.variables = variables;
+        this.clauses = clauses;
+    }
+
+    /**
+     * Reads the clauses with the same {@link ClauseReader} used for encoding
+     * feature models (see {@link expressionsolver.CnfEncoder}).
+     *
+     * @throws IllegalArgumentException if an operator of the formula lacks an operand.
+     */
+    public static CnfClauses parse(String formula) {
+        Set<String> variables = new LinkedHashSet<String>();
+        List<List<String>> clauses = new ArrayList<List<String>>();
+        try {
+            ClauseReader reader = new ClauseReader(new StringReader(formula));
+            ClauseReader.Conjunct conjunct;
+            while ((conjunct = reader.next()) != null) {
+                Set<String> clause = new LinkedHashSet<String>();
+                for (String name : conjunct.getLiterals()) {
+                    if (!ExpressionSolver.isTrueLiteral(name) && !ExpressionSolver.isFalseLiteral(name)) {
+                        clause.add(name);
+                    }
+                }
+                if (!clause.isEmpty()) {
+                    variables.addAll(clause);
+                    clauses.add(Collections.unmodifiableList(new ArrayList<String>(clause)));
+                }
+            }
+        } catch (IOException e) {
+            // Not thrown by StringReader.
+            throw new UncheckedIOException(e);
+        } catch (ExpressionParseException e) {
+            throw new IllegalArgumentException("Malformed formula: " + e.getMessage(), e);
+        }
+        return new CnfClauses(Collections.unmodifiableList(new ArrayList<String>(variables)),
+                              Collections.unmodifiableList(clauses));
+    }
+
+    /**
+     * @return all variables, in order of first appearance.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the variables of each clause.
+     */
+    public List<List<String>> getClauses() {
+        return clauses;
+    }
+
+}
@@ -0,0 +1,85 @@
+package tool.ordering;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Orders variables by a depth-first (pre-order) traversal of the feature
+ * tree in a FeatureIDE model (such as the fm_*.xml files), so that each
+ * feature comes right before its subtree. Since most clauses of a feature
+ * model relate parents to children or siblings to one another, related
+ * variables end up close together.
+ *
+ * Features which only appear in the CNF (but not in the tree) are placed
+ * below the others. Conversely, features which only appear in the tree
+ * are left out, lest they become variables of their own.
+ */
+public class FeatureTreeOrdering implements IVariableOrderingHeuristic {
+    private final List<String> order;
+
+    FeatureTreeOrdering(List<String> order) {
+        this.order = Collections.unmodifiableList(order);
+    }
+
+    /**
+     * Reads the feature tree from a FeatureIDE model file.
+     *
+     * @throws IOException if the file cannot be read or parsed.
+     */
+    public static FeatureTreeOrdering fromFile(Path featureTreeFile) throws IOException {
+        try {
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document document = builder.parse(featureTreeFile.toFile());
+            NodeList structs = document.getElementsByTagName("struct");
+            if (structs.getLength() == 0) {
+                throw new IOException("No feature tree (<struct> element) found in " + featureTreeFile);
+            }
+            List<String> order = new ArrayList<String>();
+            visit((Element) structs.item(0), order);
+            return new FeatureTreeOrdering(order);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Could not parse feature tree in " + featureTreeFile, e);
+        }
+    }
+
+    @Override
+    public List<String> computeOrder(String featureModel) {
+        Set<String> variables = new HashSet<String>(CnfClauses.parse(featureModel).getVariables());
+        List<String> filteredOrder = new ArrayList<String>();
+        for (String feature : order) {
+            if (variables.contains(feature)) {
+                filteredOrder.add(feature);
+            }
+        }
+        return filteredOrder;
+    }
+
+    private static void visit(Element element, List<String> order) {
+        if (element.hasAttribute("name")) {
+            order.add(element.getAttribute("name"));
+        }
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                visit((Element) child, order);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package tool.ordering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FORCE ordering heuristic (Aloul, Markov and Sakallah, 2003).
+ *
+ * Clauses are regarded as hyperedges which pull their variables together:
+ * at each iteration, every variable moves to the average center of gravity
+ * of the clauses in which it appears. Iterations stop as soon as the total
+ * span of the clauses (i.e., the sum of the distances between the first
+ * and the last variables of each clause) no longer decreases.
+ *
+ * The initial order is that of first appearance in the formula.
+ */
+public class ForceOrdering implements IVariableOrderingHeuristic {
+    private static final int MAX_ITERATIONS = 100;
+
+    @Override
+    public List<String> computeOrder(String featureModel) {
+        CnfClauses cnf = CnfClauses.parse(featureModel);
+        List<String> variables = cnf.getVariables();
+        int numVariables = variables.size();
+        int[][] clauses = toIndices(cnf);
+
+        int[] clauseCount = new int[numVariables];
+        for (int[] clause : clauses) {
+            for (int variable : clause) {
+                clauseCount[variable]++;
+            }
+        }
+
+        // position[v] is the current position of variable v.
+        int[] position = new int[numVariables];
+        for (int v = 0; v < numVariables; v++) {
+            position[v] = v;
+        }
+        int[] best = position.clone();
+        long bestSpan = span(clauses, position);
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double[] target = new double[numVariables];
+            for (int[] clause : clauses) {
+                double centerOfGravity = 0;
+                for (int variable : clause) {
+                    centerOfGravity += position[variable];
+                }
+                centerOfGravity /= clause.length;
+                for (int variable : clause) {
+                    target[variable] += centerOfGravity;
+                }
+            }
+            for (int v = 0; v < numVariables; v++) {
+                target[v] = (clauseCount[v] > 0) ? target[v] / clauseCount[v] : position[v];
+            }
+
+            final int[] current = position;
+            Integer[] sorted = new Integer[numVariables];
+            for (int v = 0; v < numVariables; v++) {
+                sorted[v] = v;
+            }
+            Arrays.sort(sorted, Comparator.<Integer>comparingDouble(v -> target[v])
+                    .thenComparingInt(v -> current[v]));
+            position = new int[numVariables];
+            for (int i = 0; i < numVariables; i++) {
+                position[sorted[i]] = i;
+            }
+
+            long span = span(clauses, position);
+            if (span >= bestSpan) {
+                break;
+            }
+            bestSpan = span;
+            best = position;
+        }
+
+        String[] order = new String[numVariables];
+        for (int v = 0; v < numVariables; v++) {
+            order[best[v]] = variables.get(v);
+        }
+        return Arrays.asList(order);
+    }
+
+    /**
+     * @return the sum of the spans of all clauses.
+     */
+    static long span(int[][] clauses, int[] position) {
+        long total = 0;
+        for (int[] clause : clauses) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int variable : clause) {
+                min = Math.min(min, position[variable]);
+                max = Math.max(max, position[variable]);
+            }
+            total += max - min;
+        }
+        return total;
+    }
+
+    /**
+     * @return the clauses, with variables replaced by their indices in {@link CnfClauses#getVariables()}.
+     */
+    static int[][] toIndices(CnfClauses cnf) {
+        Map<String, Integer> indices = new HashMap<String, Integer>();
+        for (String variable : cnf.getVariables()) {
+            indices.put(variable, indices.size());
+        }
+        List<int[]> clauses = new ArrayList<int[]>();
+        for (List<String> clause : cnf.getClauses()) {
+            clauses.add(clause.stream().mapToInt(indices::get).toArray());
+        }
+        return clauses.toArray(new int[clauses.size()][]);
+    }
+
+}
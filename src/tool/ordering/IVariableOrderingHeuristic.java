@@ -0,0 +1,21 @@
+package tool.ordering;
+
+import java.util.List;
+
+/**
+ * Interface for static variable ordering heuristics, which compute an order
+ * of ADD variables before the feature model is encoded, so that no dynamic
+ * reordering (e.g., sifting) is needed at runtime.
+ */
+public interface IVariableOrderingHeuristic {
+
+    /**
+     * @param featureModel CNF view of the feature model, expressed using
+     *          Java logical operators.
+     * @return the names of the features, in the order in which the respective
+     *          ADD variables should appear from the top of the ADDs to the bottom.
+     *          Features which are left out are placed below the others.
+     */
+    public List<String> computeOrder(String featureModel);
+
+}
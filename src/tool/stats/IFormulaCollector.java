@@ -13,6 +13,18 @@ public interface IFormulaCollector {
 
     public void collectFormula(RDGNode node, String formula);
 
+    /**
+     * Records that the reliability expression of {@code node} was
+     * found in the expression cache.
+     */
+    public void collectCacheHit(RDGNode node);
+
+    /**
+     * Records that the reliability expression of {@code node} was
+     * not found in the expression cache, so it had to be model checked.
+     */
+    public void collectCacheMiss(RDGNode node);
+
     public void printStats(PrintStream out);
 
 }
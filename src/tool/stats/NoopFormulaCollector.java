@@ -11,6 +11,16 @@ public class NoopFormulaCollector implements IFormulaCollector {
         // No-op
     }
 
+    @Override
+    public void collectCacheHit(RDGNode node) {
+        // No-op
+    }
+
+    @Override
+    public void collectCacheMiss(RDGNode node) {
+        // No-op
+    }
+
     @Override
     public void printStats(PrintStream out) {
         // No-op
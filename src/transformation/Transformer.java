@@ -1,12 +1,15 @@
 package transformation;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import parsing.Node;
 import parsing.activitydiagrams.ADReader;
@@ -21,9 +24,22 @@ import parsing.sequencediagrams.Message;
 import parsing.sequencediagrams.MessageType;
 import parsing.sequencediagrams.Operand;
 import tool.RDGNode;
+import tool.RdgContext;
+import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import fdtmc.FDTMC;
 import fdtmc.State;
 
+/**
+ * Transforms activity and sequence diagrams into an RDG.
+ *
+ * The transformation is a pipeline. First, diagrams are walked in order to
+ * name every fragment and create the (still empty) RDG nodes, so that ids
+ * and creation order do not depend on scheduling. Then the FDTMCs are built
+ * one RDG height at a time, those of the same height concurrently (each one
+ * by a single thread, hence with deterministic state numbering). After each
+ * height, RDG edges are linked and nodes are replaced by similar ones, in
+ * creation order.
+ */
 public class Transformer {
     private static final Logger LOGGER = Logger.getLogger(Transformer.class.getName());
 	// Attributes
@@ -32,37 +48,58 @@ public class Transformer {
 	private Map<String, Integer> nCallsByName;
 	private int parNum;
 	private int loopNum;
+	private ConcurrencyStrategy concurrencyStrategy;
+	private RdgContext rdgContext;
+
+	// RDG nodes created, but whose FDTMCs are not built yet (in creation order).
+	private List<Unit> pendingUnits;
+	private Map<RDGNode, Unit> unitByNode;
 
 	// Constructors
 
 	public Transformer () {
+		this(new RdgContext());
+	}
+
+	/**
+	 * @param rdgContext Context in which RDG nodes are to be created.
+	 */
+	public Transformer (RdgContext rdgContext) {
+		this.rdgContext = rdgContext;
 		fdtmcByName = new HashMap<String, FDTMC>();
 		nCallsByName = new HashMap<String, Integer>();
+		concurrencyStrategy = ConcurrencyStrategy.PARALLEL;
+		pendingUnits = new ArrayList<Unit>();
+		unitByNode = new IdentityHashMap<RDGNode, Unit>();
 	}
 
 	// Relevant public methods
 
+	/**
+	 * Transforms an AD and the SDs it refers to into an RDG.
+	 * @param adParser
+	 * @param sequenceDiagrams: the SDs, in the order in which they are linked to the AD
+	 * @return the RDG node of the AD
+	 */
+	public RDGNode transform(ADReader adParser, List<Fragment> sequenceDiagrams) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+		Unit topLevel = planAD(adParser);
+		for (Fragment sd : sequenceDiagrams) {
+			topLevel.addDependency(planSD(sd));
+		}
+		topLevel.finishPlanning();
+		buildPendingUnits();
+		return topLevel.rdgNode;
+	}
+
 	/**
 	 * Transforms an AD to a fDTMC
 	 * @param adParser
 	 */
 	public RDGNode transformSingleAD(ADReader adParser) {
-		FDTMC fdtmc = new FDTMC();
-
-		fdtmc.setVariableName("s" + adParser.getName());
-		fdtmcByName.put(adParser.getName(), fdtmc);
-		nCallsByName.put(adParser.getName(), 1);
-
-		State init = fdtmc.createInitialState();
-        State error = fdtmc.createErrorState();
-
-		transformPath(fdtmc, init, error, adParser.getActivities().get(0).getOutgoing().get(0));
-		LOGGER.finer(fdtmc.toString());
-
-		// The method currently does not support variability in ADs.
-		return new RDGNode(adParser.getName(),
-		                   "true",
-		                   fdtmc);
+		Unit unit = planAD(adParser);
+		unit.finishPlanning();
+		buildPendingUnits();
+		return unit.rdgNode;
 	}
 
 	/**
@@ -72,16 +109,41 @@ public class Transformer {
 	 * @throws InvalidNodeClassException
 	 */
 	public RDGNode transformSingleSD(Fragment fragment) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+		Unit unit = planSD(fragment);
+		buildPendingUnits();
+		return unit.resolved;
+	}
+
+	public void setConcurrencyStrategy(ConcurrencyStrategy concurrencyStrategy) {
+		this.concurrencyStrategy = concurrencyStrategy;
+	}
+
+	// Planning: names and RDG nodes are created in the order of a depth-first walk.
+
+	private Unit planAD(ADReader adParser) {
+		FDTMC fdtmc = new FDTMC();
+
+		fdtmc.setVariableName("s" + adParser.getName());
+		fdtmcByName.put(adParser.getName(), fdtmc);
+		nCallsByName.put(adParser.getName(), 1);
+
+		// The method currently does not support variability in ADs.
+		RDGNode rdgNode = rdgContext.createNode(adParser.getName(),
+		                                        "true",
+		                                        fdtmc);
+		return newUnit(rdgNode, adParser.getActivities().get(0).getOutgoing().get(0), null, false);
+	}
+
+	private Unit planSD(Fragment fragment) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
 		boolean isNew = checkNew (fragment.getName());
 
 		countCallsModel (fragment.getName());
 
 		if (!isNew) { /* Fragmento ja foi modelado */
-			return RDGNode.getById(fragment.getName());
+			return reuse(fragment.getName());
 		}
 
 		FDTMC fdtmc = new FDTMC();
-		State init, error, source;
 		parNum = 0;
 		loopNum = 0;
 
@@ -92,18 +154,165 @@ public class Transformer {
 			fdtmc.setVariableName("s" + fragment.getId());
 			fdtmcByName.put(fragment.getId(), fdtmc);
 		}
-		init = fdtmc.createInitialState();
-		error = fdtmc.createErrorState();
-		source = init;
 
-		RDGNode rdgNode = new RDGNode(fragment.getName(), "true", fdtmc);
-		transformFDTMCNodes(fdtmc, fragment.getNodes(), source, error, rdgNode);
+		RDGNode rdgNode = rdgContext.createNode(fragment.getName(), "true", fdtmc);
+		Unit unit = newUnit(rdgNode, null, fragment.getNodes(), false);
+		planNodes(unit, fragment.getNodes());
+		unit.finishPlanning();
+		return unit;
+	}
+
+	private Unit planOperand (String name, String presenceCondition, Operand operand) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+		boolean isNew = checkNew (name);
+
+		countCallsModel (name);
+
+		if (!isNew) { /* Fragmento ja foi modelado */
+			return reuse(name);
+		}
+
+		FDTMC fdtmc = new FDTMC();
 
+		fdtmc.setVariableName("s" + name);
+		fdtmcByName.put(name, fdtmc);
+
+		RDGNode rdgNode = rdgContext.createNode(name, presenceCondition, fdtmc);
+		Unit unit = newUnit(rdgNode, null, operand.getNodes(), true);
+		planNodes(unit, operand.getNodes());
+		unit.finishPlanning();
+		return unit;
+	}
+
+	/**
+	 * Names the fragments among $nodes and plans the operands they depend on,
+	 * in the same order in which their FDTMC states are later built.
+	 */
+	private void planNodes(Unit unit, List<Node> nodes) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+		for (Node n : nodes) {
+			if (!n.getClass().equals(Fragment.class)) {
+				continue;
+			}
+			Fragment fragment = (Fragment)n;
+			switch(fragment.getType()) {
+				case LOOP:
+					if (fragment.getNodes().size() > 1) {
+					    throw new InvalidNumberOfOperandsException("A Loop fragment can only have 1 operand!");
+					}
+					String loopName = (fragment.getName() != null && !fragment.getName().isEmpty()) ? fragment.getName() : "Loop" + ++loopNum;
+					unit.loopNames.add(loopName);
+					planNodes(unit, ((Operand)fragment.getNodes().get(0)).getNodes());
+					break;
+				case ALTERNATIVE:
+					for (Node node : fragment.getNodes()) {
+						if (!node.getClass().equals(Operand.class)) {
+						    throw new InvalidNodeClassException("An Alt Fragment can only have Operand objects as Nodes!");
+						}
+						Operand operand = (Operand)node;
+						String guard = operand.getGuard();
+						String name = "else".equals(guard) ? fragment.getName() + guard : guard;
+						unit.addDependency(planOperand(name, guard, operand));
+					}
+					break;
+				case OPTIONAL:
+					if (fragment.getNodes().size() > 1) {
+					    throw new InvalidNumberOfOperandsException("An Opt fragment can only have 1 operand!");
+					}
+					Operand operand = (Operand)fragment.getNodes().get(0);
+					unit.addDependency(planOperand(rdgContext.getNextId(), operand.getGuard(), operand));
+					break;
+				case PARALLEL:
+					String fragName = !fragment.getName().isEmpty() ? fragment.getName() : "Par" + ++parNum;
+					int opNum = 0;
+					for (Node node : fragment.getNodes()) {
+						if (!node.getClass().equals(Operand.class)) {
+						    throw new InvalidNodeClassException("A Par Fragment can only have Operand objects as Nodes!");
+						}
+						String opName = fragName + "-Op" + ++opNum;
+						unit.addDependency(planOperand(opName, "true", (Operand)node));
+					}
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	private Unit newUnit(RDGNode rdgNode, Edge adEdge, List<Node> nodes, boolean isReplaceable) {
+		Unit unit = new Unit(rdgNode, adEdge, nodes, isReplaceable);
+		pendingUnits.add(unit);
+		unitByNode.put(rdgNode, unit);
+		return unit;
+	}
+
+	/**
+	 * A previously transformed fragment is reused as it is (even if a similar
+	 * node replaced it elsewhere).
+	 */
+	private Unit reuse(String name) {
+		RDGNode rdgNode = rdgContext.getById(name);
+		Unit unit = unitByNode.get(rdgNode);
+		int height = rdgNode.getHeight();
+		if (unit != null) {
+			// A fragment still being planned is one of the current ancestors,
+			// so it is not taken into account when computing heights.
+			height = unit.isPlanned ? unit.height : -1;
+		}
+		return new Unit(rdgNode, height);
+	}
+
+	// Building: FDTMCs of the same height are built concurrently, then linked.
+
+	private void buildPendingUnits() {
+		List<List<Unit>> layers = new ArrayList<List<Unit>>();
+		for (Unit unit : pendingUnits) {
+			while (layers.size() <= unit.height) {
+				layers.add(new ArrayList<Unit>());
+			}
+			layers.get(unit.height).add(unit);
+		}
+		for (List<Unit> layer : layers) {
+			Stream<Unit> units = (concurrencyStrategy == ConcurrencyStrategy.PARALLEL)
+			        ? layer.parallelStream()
+			        : layer.stream();
+			units.forEach(this::buildFDTMC);
+			for (Unit unit : layer) {
+				link(unit);
+			}
+		}
+		pendingUnits.clear();
+		unitByNode.clear();
+	}
+
+	private void buildFDTMC(Unit unit) {
+		FDTMC fdtmc = unit.rdgNode.getFDTMC();
+		State init = fdtmc.createInitialState();
+		State error = fdtmc.createErrorState();
+
+		if (unit.adEdge != null) {
+			transformPath(fdtmc, init, error, unit.adEdge);
+		} else {
+			transformFDTMCNodes(fdtmc, unit.nodes, init, error, unit);
+		}
 		LOGGER.finer(fdtmc.toString());
-		return rdgNode;
 	}
 
-	public void transformFDTMCNodes(FDTMC fdtmc, List<Node> list, State source, State error, RDGNode currentRDGNode) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+	/**
+	 * Links an RDG node to its dependencies and, if possible, replaces it
+	 * by the first similar node whose transformation is complete.
+	 */
+	private void link(Unit unit) {
+		for (Unit dependency : unit.dependencies) {
+			unit.rdgNode.addDependency(dependency.resolved);
+		}
+		unitByNode.remove(unit.rdgNode);
+		// Every complete node is shared, so that later ones may be replaced by it.
+		RDGNode similarNode = rdgContext.share(unit.rdgNode);
+		if (unit.isReplaceable) {
+			unit.resolved = similarNode;
+		}
+	}
+
+	private void transformFDTMCNodes(FDTMC fdtmc, List<Node> list, State source, State error, Unit unit) {
 		int i = 1;
 		State currentSource = source;
 		for (Node n : list) {
@@ -112,19 +321,19 @@ public class Transformer {
 				if (n.getClass().equals(Message.class)) {
 					transformMessage(fdtmc, (Message)n, currentSource, success, error);
 				} else if (n.getClass().equals(Fragment.class)) {
-					transformFragment(fdtmc, (Fragment)n, currentSource, success, error, currentRDGNode);
+					transformFragment(fdtmc, (Fragment)n, currentSource, success, error, unit);
 				}
 			} else {
 				if (n.getClass().equals(Message.class)) {
 				    currentSource = transformMessage(fdtmc, (Message)n, currentSource, fdtmc.createState(), error);
 				} else if (n.getClass().equals(Fragment.class)) {
-				    currentSource = transformFragment(fdtmc, (Fragment)n, currentSource, fdtmc.createState(), error, currentRDGNode);
+				    currentSource = transformFragment(fdtmc, (Fragment)n, currentSource, fdtmc.createState(), error, unit);
 				}
 			}
 		}
 	}
 
-	public void transformFDTMCNodes(FDTMC fdtmc, List<Node> nodes, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+	private void transformFDTMCNodes(FDTMC fdtmc, List<Node> nodes, State source, State target, State error, Unit unit) {
 		int i = 1;
 		State currentSource = source;
 		for (Node n : nodes) {
@@ -132,13 +341,13 @@ public class Transformer {
 				if (n.getClass().equals(Message.class)) {
 					transformMessage(fdtmc, (Message)n, currentSource, target, error);
 				} else if (n.getClass().equals(Fragment.class)) {
-					transformFragment(fdtmc, (Fragment)n, currentSource, target, error, currentRdgNode);
+					transformFragment(fdtmc, (Fragment)n, currentSource, target, error, unit);
 				}
 			} else {
 				if (n.getClass().equals(Message.class)) {
 				    currentSource = transformMessage(fdtmc, (Message)n, currentSource, fdtmc.createState(), error);
 				} else if (n.getClass().equals(Fragment.class)) {
-				    currentSource = transformFragment(fdtmc, (Fragment)n, currentSource, fdtmc.createState(), error, currentRdgNode);
+				    currentSource = transformFragment(fdtmc, (Fragment)n, currentSource, fdtmc.createState(), error, unit);
 				}
 			}
 		}
@@ -171,19 +380,17 @@ public class Transformer {
 
 	/**
 	 * Distributes the fragment transformation method calls based on the the type of the Fragment
-	 * @throws InvalidNumberOfOperandsException
-	 * @throws InvalidNodeClassException
 	 */
-	private State transformFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+	private State transformFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, Unit unit) {
 		switch(fragment.getType()) {
 			case LOOP:
-				return transformLoopFragment(fdtmc, fragment, source, target, error, currentRdgNode);
+				return transformLoopFragment(fdtmc, fragment, source, target, error, unit);
 			case ALTERNATIVE:
-				return transformAltFragment(fdtmc, fragment, source, target, error, currentRdgNode);
+				return transformAltFragment(fdtmc, fragment, source, target, error, unit);
 			case OPTIONAL:
-				return transformOptFragment(fdtmc, fragment, source, target, error, currentRdgNode);
+				return transformOptFragment(fdtmc, fragment, source, target, error, unit);
 			case PARALLEL:
-				return transformParallelFragment(fdtmc, fragment, source, target, error, currentRdgNode);
+				return transformParallelFragment(fdtmc, fragment, source, target, error, unit);
 			default:
 				break;
 		}
@@ -198,16 +405,10 @@ public class Transformer {
 	 * @param target: the fDTMC node that the fragment should return to
 	 * @param error: the error state where message transmission failure should be transited to
 	 * @return the $target itself, the point in the fDTMC where the execution or not of this $fragment will transit to
-	 * @throws InvalidNumberOfOperandsException
-	 * @throws InvalidNodeClassException
 	 */
-	private State transformLoopFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
-		if (fragment.getNodes().size() > 1) {
-		    throw new InvalidNumberOfOperandsException("A Loop fragment can only have 1 operand!");
-		}
-
+	private State transformLoopFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, Unit unit) {
 		Operand operand = (Operand)fragment.getNodes().get(0);
-		String name = (fragment.getName() != null && !fragment.getName().isEmpty()) ? fragment.getName() : "Loop" + ++loopNum;
+		String name = unit.nextLoopName();
 		State opStart = fdtmc.createState("initial" + name);
 		State opEnd = fdtmc.createState("end" + name);
 
@@ -219,7 +420,7 @@ public class Transformer {
 		fdtmc.createTransition(opEnd, opStart, "", loopProbability); // restarting loop
 		fdtmc.createTransition(opEnd, target, "", "1 - " + loopProbability); // leaving loop
 
-		transformLoopOperand (fdtmc, name, operand, opStart, opEnd, error, currentRdgNode);
+		transformLoopOperand (fdtmc, name, operand, opStart, opEnd, error, unit);
 		return target;
 	}
 
@@ -231,29 +432,20 @@ public class Transformer {
 	 * @param target: the fDTMC node that the fragment should return to
 	 * @param error: the error state where message transmission failure should be transited to
 	 * @return the $target itself, the point in the fDTMC where the execution or not of this $fragment will transit to
-	 * @throws InvalidNodeClassException
-	 * @throws InvalidNumberOfOperandsException
 	 */
-	private State transformAltFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNodeClassException, InvalidNumberOfOperandsException, InvalidNodeType {
+	private State transformAltFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, Unit unit) {
 		List<Node> operands = fragment.getNodes();
 		String name;
 
 		String opElse = "";
 		for(Node node : operands) {
-			if (!node.getClass().equals(Operand.class)) {
-			    throw new InvalidNodeClassException("An Alt Fragment can only have Operand objects as Nodes!");
-			}
 			Operand operand = (Operand)node; // to facilitate the nodes use
 
 			String guard = operand.getGuard();
-			name = "else".equals(guard) ? fragment.getName() + guard : guard;
-
-			RDGNode altNode = transformOperand (name, guard, operand);
-			currentRdgNode.addDependency(altNode);
 	        // There is a possibility that we have found an RDG node similar to the
 	        // one we just transformed. In this case, we reuse the older one.
 	        // Thus, the dependency name must be changed accordingly.
-	        name = altNode.getId();
+			name = unit.nextDependency().getId();
 
 			State opStart = fdtmc.createState("initial" + name);
 			State opEnd = fdtmc.createState("end" + name);
@@ -283,25 +475,12 @@ public class Transformer {
 	 * @param target: the fDTMC node that the fragment should return to
 	 * @param error: the error state where message transmission failure should be transited to
 	 * @return the $target itself, the point in the fDTMC where the execution or not of this $fragment will transit to
-	 * @throws InvalidNumberOfOperandsException
-	 * @throws InvalidNodeClassException
 	 */
-	private State transformOptFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
-		if (fragment.getNodes().size() > 1) {
-		    throw new InvalidNumberOfOperandsException("An Opt fragment can only have 1 operand!");
-		}
-
-		Operand operand = (Operand)fragment.getNodes().get(0);
-		String name = RDGNode.getNextId();
-		String guard = operand.getGuard();
-
-//		creates FDTMC for opt content
-		RDGNode optNode = transformOperand(name, guard, operand);
-		currentRdgNode.addDependency(optNode);
+	private State transformOptFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, Unit unit) {
 		// There is a possibility that we have found an RDG node similar to the
 		// one we just transformed. In this case, we reuse the older one.
 		// Thus, the dependency name must be changed accordingly.
-		name = optNode.getId();
+		String name = unit.nextDependency().getId();
 
 		State featureStart = fdtmc.createState("initial" + name);
 		State featureEnd = fdtmc.createState("end" + name);
@@ -324,27 +503,17 @@ public class Transformer {
 	 * @param error: the error state where message transmission failure should be transited to
 	 * @return the $target itself, the point in the fDTMC where the execution or not of this $fragment will transit to
 	 */
-	private State transformParallelFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNodeClassException, InvalidNumberOfOperandsException, InvalidNodeType {
+	private State transformParallelFragment(FDTMC fdtmc, Fragment fragment, State source, State target, State error, Unit unit) {
 		List<Node> operands = fragment.getNodes();
-		String fragName, opName;
-		int n = operands.size(), opNum;
+		String opName;
+		int n = operands.size();
 		float val = 1/(float)n;
 
-		fragName = !fragment.getName().isEmpty() ? fragment.getName() : "Par" + ++parNum;
-		opNum = 0;
-		for(Node node : operands) {
-			if (!node.getClass().equals(Operand.class)) {
-			    throw new InvalidNodeClassException("A Par Fragment can only have Operand objects as Nodes!");
-			}
-			Operand operand = (Operand)node; // to facilitate the nodes use
-			opName = fragName + "-Op" + ++opNum;
-
-			RDGNode fragmentNode = transformOperand(opName, "true", operand);
-			currentRdgNode.addDependency(fragmentNode);
+		for(int i = 0; i < n; i++) {
 	        // There is a possibility that we have found an RDG node similar to the
 	        // one we just transformed. In this case, we reuse the older one.
 	        // Thus, the dependency name must be changed accordingly.
-	        opName = fragmentNode.getId();
+	        opName = unit.nextDependency().getId();
 
 			State opStart = fdtmc.createState("initial" + opName);
 			State opEnd = fdtmc.createState("end" + opName);
@@ -358,39 +527,9 @@ public class Transformer {
 		return target;
 	}
 
-	private RDGNode transformOperand (String name, String presenceCondition, Operand operand) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
-		boolean isNew = checkNew (name);
-
-		countCallsModel (name);
-
-		if (!isNew) { /* Fragmento ja foi modelado */
-			return RDGNode.getById(name);
-		}
-
-		FDTMC fdtmc = new FDTMC();
-
-		fdtmc.setVariableName("s" + name);
-		fdtmcByName.put(name, fdtmc);
-
-		State init = fdtmc.createInitialState();
-		State error = fdtmc.createErrorState();
-		State source = init;
-
-		RDGNode rdgNode = new RDGNode(name, presenceCondition, fdtmc);
-		transformFDTMCNodes(fdtmc, operand.getNodes(), source, error, rdgNode);
-		LOGGER.finer(fdtmc.toString());
-
-		RDGNode similarNode = RDGNode.getSimilarNode(rdgNode);
-		if (similarNode != null) {
-		    return similarNode;
-		} else {
-		    return rdgNode;
-		}
-	}
-
-	private void transformLoopOperand (FDTMC fdtmc, String name, Operand operand, State source, State target, State error, RDGNode currentRdgNode) throws InvalidNumberOfOperandsException, InvalidNodeClassException, InvalidNodeType {
+	private void transformLoopOperand (FDTMC fdtmc, String name, Operand operand, State source, State target, State error, Unit unit) {
 
-		transformFDTMCNodes(fdtmc, operand.getNodes(), source, target, error, currentRdgNode);
+		transformFDTMCNodes(fdtmc, operand.getNodes(), source, target, error, unit);
 		LOGGER.finer(fdtmc.toString());
 	}
 
@@ -450,4 +589,63 @@ public class Transformer {
 	public Map<String, Integer> getnCallsByName() {
 		return nCallsByName;
 	}
+
+	/**
+	 * An RDG node along with the behavior its FDTMC is built from.
+	 * Dependencies and loop names are kept in the order in which the
+	 * corresponding fragments are met, and consumed in the same order
+	 * while building the FDTMC.
+	 */
+	private static class Unit {
+		final RDGNode rdgNode;
+		final Edge adEdge;
+		final List<Node> nodes;
+		// Whether the node may be replaced by a similar one.
+		final boolean isReplaceable;
+		final List<Unit> dependencies = new ArrayList<Unit>();
+		final List<String> loopNames = new ArrayList<String>();
+		// Node to which dependents are linked.
+		RDGNode resolved;
+		int height;
+		boolean isPlanned;
+
+		private int nextDependencyIndex = 0;
+		private int nextLoopIndex = 0;
+
+		Unit(RDGNode rdgNode, Edge adEdge, List<Node> nodes, boolean isReplaceable) {
+			this.rdgNode = rdgNode;
+			this.adEdge = adEdge;
+			this.nodes = nodes;
+			this.isReplaceable = isReplaceable;
+			this.resolved = rdgNode;
+		}
+
+		/**
+		 * An already transformed node, which is depended upon as it is.
+		 */
+		Unit(RDGNode rdgNode, int height) {
+			this(rdgNode, null, null, false);
+			this.height = height;
+			this.isPlanned = true;
+		}
+
+		void addDependency(Unit dependency) {
+			dependencies.add(dependency);
+		}
+
+		void finishPlanning() {
+			for (Unit dependency : dependencies) {
+				height = Math.max(height, dependency.height + 1);
+			}
+			isPlanned = true;
+		}
+
+		RDGNode nextDependency() {
+			return dependencies.get(nextDependencyIndex++).resolved;
+		}
+
+		String nextLoopName() {
+			return loopNames.get(nextLoopIndex++);
+		}
+	}
 }
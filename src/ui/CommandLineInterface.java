@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
@@ -19,6 +20,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -26,20 +28,18 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import modeling.DiagramAPI;
 import modeling.IModelerAPI;
 
 import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import paramwrapper.IModelCollector;
+import paramwrapper.ReliabilityExpressionCache;
 import parsing.SplGeneratorModels.SplGeneratorModelingAPI;
 import parsing.exceptions.InvalidNodeClassException;
 import parsing.exceptions.InvalidNodeType;
@@ -51,7 +51,14 @@ import tool.CyclicRdgException;
 import tool.PruningStrategyFactory;
 import tool.RDGNode;
 import tool.UnknownFeatureException;
+import tool.VariableOrderingFactory;
+import tool.analyzers.ADDReliabilityResults;
+import tool.analyzers.ADDTableReliabilityResults;
+import tool.analyzers.IFamilyReliabilityResults;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.ReorderingPolicy;
+import tool.ordering.IVariableOrderingHeuristic;
+import tool.analyzers.StreamingReliabilityResults;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.IMemoryCollector;
@@ -89,35 +96,83 @@ public class CommandLineInterface {
         }
         initializeStatsCollectors(options);
 
+        // A previously exported family reliability spares the models altogether.
+        boolean queryMode = options.getFamilyReliabilityPath() != null;
         memoryCollector.takeSnapshot("before model parsing");
-        RDGNode rdgRoot = buildRDG(options);
+        RDGNode rdgRoot = queryMode ? null : buildRDG(options);
         memoryCollector.takeSnapshot("after model parsing");
 
         Analyzer analyzer = makeAnalyzer(options);
         Stream<Collection<String>> targetConfigurations = getTargetConfigurations(options, analyzer);
 
+        boolean streamResults = !queryMode && shouldStreamResults(options);
+
         memoryCollector.takeSnapshot("before evaluation");
         long analysisStartTime = System.currentTimeMillis();
-        Stream<Collection<String>> validConfigs = targetConfigurations.filter(analyzer::isValidConfiguration);
-        IReliabilityAnalysisResults familyReliability = evaluateReliability(analyzer,
-                                                                            rdgRoot,
-                                                                            validConfigs,
-                                                                            options);
+        // Streamed results are not kept, so there is no family reliability to report on.
+        IReliabilityAnalysisResults familyReliability = null;
+        if (queryMode) {
+            familyReliability = loadFamilyReliability(Paths.get(options.getFamilyReliabilityPath()));
+        } else if (streamResults) {
+            streamReliability(analyzer,
+                              rdgRoot,
+                              targetConfigurations,
+                              options);
+        } else {
+            Stream<Collection<String>> validConfigs = targetConfigurations.filter(analyzer::isValidConfiguration);
+            familyReliability = evaluateReliability(analyzer,
+                                                    rdgRoot,
+                                                    validConfigs,
+                                                    options);
+        }
         long totalAnalysisTime = System.currentTimeMillis() - analysisStartTime;
         memoryCollector.takeSnapshot("after evaluation");
 
-        if (!options.hasSuppressReport()) {
+        if (options.getExportFamilyReliabilityPath() != null && !queryMode) {
+            exportFamilyReliability(familyReliability, Paths.get(options.getExportFamilyReliabilityPath()));
+        }
+        if (options.getVariableOrderPath() != null) {
+            saveVariableOrder(analyzer, Paths.get(options.getVariableOrderPath()));
+        }
+
+        if (!options.hasSuppressReport() && !streamResults) {
             Map<Boolean, List<Collection<String>>> splitConfigs = getTargetConfigurations(options, analyzer)
                     .collect(Collectors.partitioningBy(analyzer::isValidConfiguration));
             printAnalysisResults(splitConfigs, familyReliability);
         }
 
+        if (options.hasReliabilitySummary() || options.getLeastReliableCount() > 0) {
+            printReliabilitySummary(familyReliability, options);
+        }
+
         if (options.hasStatsEnabled()) {
-            printStats(OUTPUT, familyReliability, rdgRoot);
+            printStats(OUTPUT, analyzer, familyReliability, rdgRoot);
         }
         long totalRunningTime = System.currentTimeMillis() - startTime;
         OUTPUT.println("Total analysis time: " +  totalAnalysisTime + " ms");
         OUTPUT.println("Total running time: " +  totalRunningTime + " ms");
+
+        if (options.getServePort() != null) {
+            serveQueries(familyReliability, options.getServePort());
+        }
+    }
+
+    /**
+     * Keeps the results resident, answering queries until the process is killed.
+     */
+    private static void serveQueries(IReliabilityAnalysisResults familyReliability, int port) {
+        if (familyReliability == null) {
+            LOGGER.severe("The analysis yielded no results, so there are no reliability queries to serve.");
+            System.exit(1);
+        }
+        try (QueryServer server = new QueryServer(familyReliability, port)) {
+            OUTPUT.println("Serving reliability queries on port " + server.getPort());
+            server.serve();
+        } catch (IOException e) {
+            LOGGER.severe("Error serving reliability queries.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(1);
+        }
     }
 
     /**
@@ -158,6 +213,78 @@ public class CommandLineInterface {
         return results;
     }
 
+    /**
+     * Results can only be streamed by strategies which evaluate one configuration
+     * at a time, and only make sense if a report is wanted.
+     */
+    private static boolean shouldStreamResults(Options options) {
+        if (!options.hasStreamResults() || options.hasSuppressReport()) {
+            return false;
+        }
+        switch (options.getAnalysisStrategy()) {
+        case FEATURE_PRODUCT:
+        case PRODUCT:
+        case FAMILY_PRODUCT:
+            return true;
+        default:
+            LOGGER.warning("Results cannot be streamed for the " + options.getAnalysisStrategy()
+                           + " strategy. Proceeding with a sorted report.");
+            return false;
+        }
+    }
+
+    /**
+     * Evaluates the reliability of the valid target configurations, printing each
+     * result as soon as it is computed. This replaces the (sorted) analysis report,
+     * so that no result needs to be kept in memory.
+     *
+     * Invalid configurations are reported as they are found, in the same pass
+     * over the target configurations.
+     */
+    private static void streamReliability(Analyzer analyzer, RDGNode rdgRoot, Stream<Collection<String>> targetConfigurations, Options options) {
+        StreamingReliabilityResults results = new StreamingReliabilityResults(OUTPUT);
+        AtomicLong invalidCount = new AtomicLong();
+        Stream<Collection<String>> validConfigs = targetConfigurations.filter(configuration -> {
+            if (analyzer.isValidConfiguration(configuration)) {
+                return true;
+            }
+            results.accept(configuration, 0);
+            invalidCount.incrementAndGet();
+            return false;
+        });
+        OUTPUT.println("Configurations:");
+        OUTPUT.println("=========================================");
+        try {
+            switch (options.getAnalysisStrategy()) {
+            case FEATURE_PRODUCT:
+                analyzer.evaluateFeatureProductBasedReliability(rdgRoot, validConfigs, results);
+                break;
+            case PRODUCT:
+                analyzer.evaluateProductBasedReliability(rdgRoot, validConfigs, results);
+                break;
+            case FAMILY_PRODUCT:
+            default:
+                analyzer.evaluateFamilyProductBasedReliability(rdgRoot, validConfigs, results);
+            }
+        } catch (CyclicRdgException e) {
+            LOGGER.severe("Cyclic dependency detected in RDG.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(2);
+        } catch (UnknownFeatureException e) {
+            LOGGER.severe("Unrecognized feature: " + e.getFeatureName());
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+        try {
+            results.flush();
+        } catch (IOException e) {
+            LOGGER.severe("Error writing the analysis results.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+
+        OUTPUT.println("=========================================");
+        OUTPUT.println(">>>> Total valid configurations: " + (results.size() - invalidCount.get()));
+    }
+
     private static IReliabilityAnalysisResults evaluateFeatureFamilyBasedReliability(Analyzer analyzer, RDGNode rdgRoot, Options options) {
         IReliabilityAnalysisResults results = null;
         String dotOutput = "family-reliability.dot";
@@ -173,6 +300,31 @@ public class CommandLineInterface {
         return results;
     }
 
+    private static IReliabilityAnalysisResults loadFamilyReliability(Path file) {
+        IReliabilityAnalysisResults results = null;
+        try {
+            results = ADDTableReliabilityResults.load(file);
+        } catch (IOException e) {
+            LOGGER.severe("Error reading the provided family reliability.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(1);
+        }
+        return results;
+    }
+
+    private static void exportFamilyReliability(IReliabilityAnalysisResults familyReliability, Path file) {
+        if (!(familyReliability instanceof ADDReliabilityResults)) {
+            LOGGER.warning("Only the FEATURE_FAMILY and FAMILY strategies compute a family reliability ADD. Nothing was exported.");
+            return;
+        }
+        try {
+            ((ADDReliabilityResults) familyReliability).export(file);
+        } catch (IOException e) {
+            LOGGER.warning("Could not export the family reliability.");
+            LOGGER.log(Level.WARNING, e.toString(), e);
+        }
+    }
+
     private static IReliabilityAnalysisResults evaluateReliability(BiFunction<RDGNode, Stream<Collection<String>>, IReliabilityAnalysisResults> analyzer,
                                                                    RDGNode rdgRoot,
                                                                    Stream<Collection<String>> validConfigs) {
@@ -200,14 +352,63 @@ public class CommandLineInterface {
 
         String paramPath = options.getParamPath();
         Analyzer analyzer = new Analyzer(featureModel,
+                                         options.getModelCheckerStrategy(),
                                          paramPath,
+                                         makeVariableOrderingHeuristic(options),
                                          timeCollector,
                                          formulaCollector,
                                          modelCollector);
         analyzer.setConcurrencyStrategy(options.getConcurrencyStrategy());
+        if (options.getExpressionCachePath() != null) {
+            try {
+                analyzer.setExpressionCache(new ReliabilityExpressionCache(Paths.get(options.getExpressionCachePath()),
+                                                                           options.getExpressionCacheSize()));
+            } catch (IOException e) {
+                LOGGER.warning("Could not open the expression cache. Proceeding without it.");
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+        if (options.getMappedResultsPath() != null) {
+            analyzer.setResultsDirectory(Paths.get(options.getMappedResultsPath()));
+        }
+        analyzer.setReorderingPolicy(new ReorderingPolicy(options.getReorderingStrategy(),
+                                                          options.getReorderingHeuristic(),
+                                                          options.getReorderingMaxGrowth(),
+                                                          options.getReorderingThreshold()));
+        if (options.getVariableOrderPath() != null) {
+            Path variableOrder = Paths.get(options.getVariableOrderPath());
+            if (Files.exists(variableOrder)) {
+                try {
+                    analyzer.loadVariableOrder(variableOrder);
+                } catch (IOException e) {
+                    LOGGER.warning("Could not load the variable order. Proceeding with the computed one.");
+                    LOGGER.log(Level.WARNING, e.toString(), e);
+                }
+            }
+        }
         return analyzer;
     }
 
+    private static IVariableOrderingHeuristic makeVariableOrderingHeuristic(Options options) {
+        Path featureTree = (options.getFeatureTreeFilePath() != null) ? Paths.get(options.getFeatureTreeFilePath()) : null;
+        try {
+            return VariableOrderingFactory.createVariableOrderingHeuristic(options.getVariableOrdering(), featureTree);
+        } catch (IOException e) {
+            LOGGER.warning("Could not set up " + options.getVariableOrdering() + " variable ordering. Proceeding with sifting.");
+            LOGGER.log(Level.WARNING, e.toString(), e);
+            return null;
+        }
+    }
+
+    private static void saveVariableOrder(Analyzer analyzer, Path variableOrder) {
+        try {
+            analyzer.saveVariableOrder(variableOrder);
+        } catch (IOException e) {
+            LOGGER.warning("Could not save the variable order.");
+            LOGGER.log(Level.WARNING, e.toString(), e);
+        }
+    }
+
     /**
      * @param options
      */
@@ -273,16 +474,47 @@ public class CommandLineInterface {
         OUTPUT.println(">>>> Total valid configurations: " + splitConfigs.get(true).size());
     }
 
-    private static void printSingleConfiguration(String configuration, double reliability) {
-        String message = configuration + " --> ";
-        if (Double.doubleToRawLongBits(reliability) != 0) {
-            OUTPUT.println(message + reliability);
-        } else {
-            OUTPUT.println(message + "INVALID");
+    /**
+     * Summarizes the reliabilities of all valid configurations, straight
+     * from the family reliability decision diagram.
+     */
+    private static void printReliabilitySummary(IReliabilityAnalysisResults familyReliability, Options options) {
+        if (!(familyReliability instanceof IFamilyReliabilityResults)) {
+            LOGGER.warning("Only the FEATURE_FAMILY and FAMILY strategies compute a family reliability ADD. No summary is available.");
+            return;
+        }
+        IFamilyReliabilityResults results = (IFamilyReliabilityResults) familyReliability;
+        OUTPUT.println("Reliability summary:");
+        OUTPUT.println("=========================================");
+        if (options.hasReliabilitySummary()) {
+            double minimum = results.getMinimumReliability();
+            double maximum = results.getMaximumReliability();
+            OUTPUT.println("# valid configurations: " + String.format("%.0f", results.getValidConfigurationsCount()));
+            OUTPUT.println("Minimum reliability: " + minimum + " (e.g., " + results.findConfiguration(minimum) + ")");
+            OUTPUT.println("Maximum reliability: " + maximum + " (e.g., " + results.findConfiguration(maximum) + ")");
+            OUTPUT.println("Mean reliability: " + results.getMeanReliability());
         }
+        if (options.getLeastReliableCount() > 0) {
+            OUTPUT.println("Least reliable configurations:");
+            for (List<String> configuration : results.getLeastReliableConfigurations(options.getLeastReliableCount())) {
+                try {
+                    String[] configurationAsArray = configuration.toArray(new String[configuration.size()]);
+                    printSingleConfiguration(configuration.toString(),
+                                             results.getResult(configurationAsArray));
+                } catch (UnknownFeatureException e) {
+                    // Configurations come from the diagram itself.
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        OUTPUT.println("=========================================");
     }
 
-    private static void printStats(PrintStream out, IReliabilityAnalysisResults familyReliability, RDGNode rdgRoot) {
+    private static void printSingleConfiguration(String configuration, double reliability) {
+        OUTPUT.println(StreamingReliabilityResults.formatResult(configuration, reliability));
+    }
+
+    private static void printStats(PrintStream out, Analyzer analyzer, IReliabilityAnalysisResults familyReliability, RDGNode rdgRoot) {
         out.println("-----------------------------");
         out.println("Stats:");
         out.println("------");
@@ -290,8 +522,13 @@ public class CommandLineInterface {
         formulaCollector.printStats(out);
         modelCollector.printStats(out);
         memoryCollector.printStats(out);
-        printEvaluationReuse(rdgRoot);
-        familyReliability.printStats(out);
+        analyzer.printVariableOrderingStats(out);
+        if (rdgRoot != null) {
+            printEvaluationReuse(rdgRoot);
+        }
+        if (familyReliability != null) {
+            familyReliability.printStats(out);
+        }
     }
 
     private static void printEvaluationReuse(RDGNode rdgRoot) {
@@ -391,32 +628,38 @@ public class CommandLineInterface {
      * @author andlanna
      * This method's role is to identify which behavioral model exporter was 
      * used for generating activity and sequence diagrams.
+     * The file is streamed rather than parsed into a tree, and reading stops
+     * at the first exporter tag (which MagicDraw writes at the very top).
      * @param umlModels - the XML file representing the SPL's activity and sequence diagrams.
      * @return a string with the name of the exporter
      */
 	private static String identifyExporter(File umlModels) {
 		String answer = null; 
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance(); 
-		
-		DocumentBuilder builder;
-		Document doc = null; 
-		try {
-			builder = factory.newDocumentBuilder();
-			doc = builder.parse(umlModels);
-		} catch (ParserConfigurationException | SAXException | IOException e) {
-			e.printStackTrace();
-		} 
-		
-		NodeList nodes = doc.getElementsByTagName("xmi:exporter");
-		if (nodes.getLength() > 0) {
-			Element e = (Element) nodes.item(0);
-			if (e.getTextContent().equals("MagicDraw UML")) {
-				answer = "MagicDraw";
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+		try (InputStream input = new FileInputStream(umlModels)) {
+			XMLStreamReader reader = factory.createXMLStreamReader(input);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT
+							&& "xmi:exporter".equals(reader.getLocalName())) {
+						if (reader.getElementText().equals("MagicDraw UML")) {
+							answer = "MagicDraw";
+						}
+						return answer;
+					}
+				}
+			} finally {
+				reader.close();
 			}
-		} else {
-			answer = "SplGenerator";
+		} catch (XMLStreamException | IOException e) {
+			LOGGER.severe("Error reading the provided UML Models.");
+			LOGGER.log(Level.SEVERE, e.toString(), e);
+			System.exit(1);
 		}
-		
+		answer = "SplGenerator";
 		
 		return answer;
 	}
@@ -2,10 +2,14 @@ package ui;
 
 import java.io.IOException;
 
+import jadd.ReorderingHeuristic;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
+import tool.ModelCheckerStrategy;
 import tool.PruningStrategy;
+import tool.ReorderingStrategy;
+import tool.VariableOrdering;
 import tool.analyzers.AnalysisStrategy;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 
@@ -19,14 +23,31 @@ class Options {
     private String featureModelFilePath;
     private String umlModelsFilePath;
     private String paramPath;
+    private ModelCheckerStrategy modelCheckerStrategy;
+    private String expressionCachePath;
+    private int expressionCacheSize;
+    private String mappedResultsPath;
     private String configuration;
     private String configurationsFilePath;
     private boolean printAllConfigurations;
     private boolean suppressReport;
+    private boolean streamResults;
     private boolean statsEnabled;
     private ConcurrencyStrategy concurrencyStrategy;
     private PruningStrategy pruningStrategy;
     private AnalysisStrategy analysisStrategy;
+    private ReorderingStrategy reorderingStrategy;
+    private ReorderingHeuristic reorderingHeuristic;
+    private double reorderingMaxGrowth;
+    private int reorderingThreshold;
+    private String variableOrderPath;
+    private VariableOrdering variableOrdering;
+    private String featureTreeFilePath;
+    private String exportFamilyReliabilityPath;
+    private String familyReliabilityPath;
+    private Integer servePort;
+    private boolean reliabilitySummary;
+    private int leastReliableCount;
 
     static Options parseOptions(String[] args) throws IOException {
         OptionParser optionParser = new OptionParser();
@@ -46,6 +67,34 @@ class Options {
                 .withRequiredArg()
                 .defaultsTo("/opt/param-2-3-64")
                 .describedAs("Directory");
+        OptionSpec<ModelCheckerStrategy> modelCheckerOption = optionParser
+                .accepts("model-checker",
+                         "The parametric model checker to be used. Can be one of: "
+                                 + "STATE_ELIMINATION (in-process state elimination); "
+                                 + "PARAM (external PARAM or Prism executable given by --param-path)")
+                .withRequiredArg()
+                .ofType(ModelCheckerStrategy.class)
+                .defaultsTo(ModelCheckerStrategy.STATE_ELIMINATION)
+                .describedAs("STATE_ELIMINATION | PARAM");
+
+        OptionSpec<String> expressionCacheOption = optionParser
+                .accepts("expression-cache",
+                         "Directory of a persistent cache of reliability expressions, so that only changed FDTMCs are model checked again")
+                .withRequiredArg()
+                .describedAs("Directory");
+        OptionSpec<Integer> expressionCacheSizeOption = optionParser
+                .accepts("expression-cache-size",
+                         "Maximum number of entries in the expression cache")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(10000)
+                .describedAs("Entries");
+
+        OptionSpec<String> mappedResultsOption = optionParser
+                .accepts("mapped-results",
+                         "Directory in which product-based strategies keep their results in memory-mapped files, instead of the heap")
+                .withRequiredArg()
+                .describedAs("Directory");
 
         OptionSpec<String> configurationsFileOption = optionParser
                 .accepts("configurations-file")
@@ -61,6 +110,9 @@ class Options {
         OptionSpec<Void> suppressReportOption = optionParser
                 .accepts("suppress-report",
                          "Suppress reliabilities report for all evaluated configurations");
+        OptionSpec<Void> streamResultsOption = optionParser
+                .accepts("stream-results",
+                         "Print each configuration's reliability as soon as it is computed, unsorted (product-based strategies only)");
         OptionSpec<Void> statsEnabledOption = optionParser
                 .accepts("stats",
                          "Print profiling stats");
@@ -80,6 +132,89 @@ class Options {
                 .defaultsTo(PruningStrategy.FM)
                 .describedAs("FM | NONE");
 
+        OptionSpec<VariableOrdering> variableOrderingOption = optionParser
+                .accepts("variable-ordering",
+                         "How the initial order of ADD variables is computed. Can be one of: "
+                                 + "SIFTING (order of appearance in the feature model, then sifting); "
+                                 + "APPEARANCE (order of appearance, no sifting); "
+                                 + "FORCE (FORCE heuristic over the feature model's clauses); "
+                                 + "FEATURE_TREE (depth-first traversal of the feature tree given by --feature-tree); "
+                                 + "CLAUSE_CONNECTIVITY (greedy placement of the variables most connected by clauses)")
+                .withRequiredArg()
+                .ofType(VariableOrdering.class)
+                .defaultsTo(VariableOrdering.SIFTING)
+                .describedAs("SIFTING | APPEARANCE | FORCE | FEATURE_TREE | CLAUSE_CONNECTIVITY");
+        OptionSpec<String> featureTreeOption = optionParser
+                .accepts("feature-tree",
+                         "FeatureIDE model with the feature tree (for FEATURE_TREE variable ordering)")
+                .withRequiredArg()
+                .describedAs("File");
+        OptionSpec<ReorderingStrategy> reorderingStrategyOption = optionParser
+                .accepts("reordering",
+                         "When ADD variables should be reordered. Can be one of: "
+                                 + "INITIAL (only after encoding the feature model); "
+                                 + "CHECKPOINTS (also between groups of independent components); "
+                                 + "DYNAMIC (automatically, while solving expressions)")
+                .withRequiredArg()
+                .ofType(ReorderingStrategy.class)
+                .defaultsTo(ReorderingStrategy.INITIAL)
+                .describedAs("INITIAL | CHECKPOINTS | DYNAMIC");
+        OptionSpec<ReorderingHeuristic> reorderingHeuristicOption = optionParser
+                .accepts("reordering-heuristic",
+                         "Heuristic for CHECKPOINTS and DYNAMIC reordering (e.g., SIFT, SYMM_SIFT, GROUP_SIFT, WINDOW3, LINEAR)")
+                .withRequiredArg()
+                .ofType(ReorderingHeuristic.class)
+                .defaultsTo(ReorderingHeuristic.SYMM_SIFT)
+                .describedAs("Heuristic");
+        OptionSpec<Double> reorderingMaxGrowthOption = optionParser
+                .accepts("reordering-max-growth",
+                         "Maximum factor by which the number of ADD nodes may grow while sifting a variable (DYNAMIC only; default is CUDD's)")
+                .withRequiredArg()
+                .ofType(Double.class)
+                .defaultsTo(0.0)
+                .describedAs("Factor");
+        OptionSpec<Integer> reorderingThresholdOption = optionParser
+                .accepts("reordering-threshold",
+                         "Number of ADD nodes which triggers the first dynamic reordering (DYNAMIC only; default is CUDD's)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(0)
+                .describedAs("Nodes");
+        OptionSpec<String> variableOrderOption = optionParser
+                .accepts("variable-order",
+                         "File from which to load the initial order of ADD variables (if it exists) and to which the final order is saved")
+                .withRequiredArg()
+                .describedAs("File");
+
+        OptionSpec<String> exportFamilyReliabilityOption = optionParser
+                .accepts("export-family-reliability",
+                         "File to which the family reliability ADD is exported (FEATURE_FAMILY and FAMILY only)")
+                .withRequiredArg()
+                .describedAs("File");
+        OptionSpec<String> familyReliabilityOption = optionParser
+                .accepts("family-reliability",
+                         "Previously exported family reliability ADD to be queried, instead of analyzing the UML models")
+                .withRequiredArg()
+                .describedAs("File");
+
+        OptionSpec<Integer> serveOption = optionParser
+                .accepts("serve",
+                         "After the analysis, answer reliability queries on this local port (0 for any free one) instead of exiting")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .describedAs("Port");
+
+        OptionSpec<Void> reliabilitySummaryOption = optionParser
+                .accepts("reliability-summary",
+                         "Print the number of valid configurations and their minimum, maximum and mean reliabilities (FEATURE_FAMILY and FAMILY only)");
+        OptionSpec<Integer> leastReliableOption = optionParser
+                .accepts("least-reliable",
+                         "Print this many least reliable configurations (FEATURE_FAMILY and FAMILY only)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(0)
+                .describedAs("Count");
+
         OptionSpec<AnalysisStrategy> analysisStrategyOption = optionParser
                 .accepts("analysis-strategy",
                          "The strategy that should be used for analysis. Can be one of: "
@@ -107,14 +242,43 @@ class Options {
         result.featureModelFilePath = options.valueOf(featureModelOption);
         result.umlModelsFilePath = options.valueOf(umlModelsOption);
         result.paramPath = options.valueOf(paramPathOption);
+        result.modelCheckerStrategy = options.valueOf(modelCheckerOption);
+        result.expressionCachePath = options.valueOf(expressionCacheOption);
+        result.expressionCacheSize = options.valueOf(expressionCacheSizeOption);
+        result.mappedResultsPath = options.valueOf(mappedResultsOption);
         result.configuration = options.valueOf(configurationOption);
         result.configurationsFilePath = options.valueOf(configurationsFileOption);
         result.printAllConfigurations = options.has(allConfigurationsOption);
         result.suppressReport = options.has(suppressReportOption);
+        result.streamResults = options.has(streamResultsOption);
         result.statsEnabled = options.has(statsEnabledOption);
         result.concurrencyStrategy = options.valueOf(concurrencyStrategyOption);
         result.pruningStrategy = options.valueOf(pruningStrategyOption);
         result.analysisStrategy = options.valueOf(analysisStrategyOption);
+        result.reorderingStrategy = options.valueOf(reorderingStrategyOption);
+        result.reorderingHeuristic = options.valueOf(reorderingHeuristicOption);
+        result.reorderingMaxGrowth = options.valueOf(reorderingMaxGrowthOption);
+        result.reorderingThreshold = options.valueOf(reorderingThresholdOption);
+        result.variableOrderPath = options.valueOf(variableOrderOption);
+        result.variableOrdering = options.valueOf(variableOrderingOption);
+        result.featureTreeFilePath = options.valueOf(featureTreeOption);
+        result.exportFamilyReliabilityPath = options.valueOf(exportFamilyReliabilityOption);
+        result.familyReliabilityPath = options.valueOf(familyReliabilityOption);
+        result.servePort = options.valueOf(serveOption);
+        result.reliabilitySummary = options.has(reliabilitySummaryOption);
+        result.leastReliableCount = options.valueOf(leastReliableOption);
+
+        if (result.streamResults) {
+            // Streamed results are not kept, so there would be nothing to serve or summarize.
+            if (result.servePort != null) {
+                System.err.println("Option --serve cannot be used along with --stream-results.");
+                System.exit(1);
+            }
+            if (result.reliabilitySummary || result.leastReliableCount > 0) {
+                System.err.println("Options --reliability-summary and --least-reliable cannot be used along with --stream-results.");
+                System.exit(1);
+            }
+        }
 
         return result;
     }
@@ -131,6 +295,22 @@ class Options {
         return paramPath;
     }
 
+    public ModelCheckerStrategy getModelCheckerStrategy() {
+        return modelCheckerStrategy;
+    }
+
+    public String getExpressionCachePath() {
+        return expressionCachePath;
+    }
+
+    public int getExpressionCacheSize() {
+        return expressionCacheSize;
+    }
+
+    public String getMappedResultsPath() {
+        return mappedResultsPath;
+    }
+
     public boolean hasStatsEnabled() {
         return statsEnabled;
     }
@@ -143,6 +323,10 @@ class Options {
         return suppressReport;
     }
 
+    public boolean hasStreamResults() {
+        return streamResults;
+    }
+
     public String getConfiguration() {
         return configuration;
     }
@@ -163,4 +347,58 @@ class Options {
         return analysisStrategy;
     }
 
+    public ReorderingStrategy getReorderingStrategy() {
+        return reorderingStrategy;
+    }
+
+    public ReorderingHeuristic getReorderingHeuristic() {
+        return reorderingHeuristic;
+    }
+
+    public double getReorderingMaxGrowth() {
+        return reorderingMaxGrowth;
+    }
+
+    public int getReorderingThreshold() {
+        return reorderingThreshold;
+    }
+
+    public String getVariableOrderPath() {
+        return variableOrderPath;
+    }
+
+    public VariableOrdering getVariableOrdering() {
+        return variableOrdering;
+    }
+
+    public String getFeatureTreeFilePath() {
+        return featureTreeFilePath;
+    }
+
+    public String getExportFamilyReliabilityPath() {
+        return exportFamilyReliabilityPath;
+    }
+
+    public String getFamilyReliabilityPath() {
+        return familyReliabilityPath;
+    }
+
+    /**
+     * @return the port on which to serve queries, or null if they are not to be served.
+     */
+    public Integer getServePort() {
+        return servePort;
+    }
+
+    public boolean hasReliabilitySummary() {
+        return reliabilitySummary;
+    }
+
+    /**
+     * @return how many of the least reliable configurations to print (0 for none).
+     */
+    public int getLeastReliableCount() {
+        return leastReliableCount;
+    }
+
 }
@@ -0,0 +1,133 @@
+package ui;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import tool.UnknownFeatureException;
+import tool.analyzers.IReliabilityAnalysisResults;
+
+/**
+ * Answers reliability queries over a local socket, so that computed results
+ * can be looked up many times without running the tool again.
+ *
+ * The protocol is line-based. Each request line holds one or more
+ * configurations separated by semicolons, each of which is a comma-separated
+ * list of features (as in the {@code --configuration} option). The response
+ * is a single line with the respective reliabilities, also separated by
+ * semicolons. Batched configurations are looked up all at once (see
+ * {@link IReliabilityAnalysisResults#getResults(List)}).
+ *
+ * Errors are answered with a line starting with {@code ERROR}, and
+ * {@code QUIT} closes the connection. Clients are served concurrently.
+ */
+public class QueryServer implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(QueryServer.class.getName());
+
+    static final String QUIT = "QUIT";
+    static final String ERROR = "ERROR";
+
+    private final IReliabilityAnalysisResults results;
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+
+    /**
+     * Binds the server to a port of the loopback interface.
+     *
+     * @param port Port to listen on, or 0 for any free one.
+     * @throws IOException if the port cannot be bound.
+     */
+    public QueryServer(IReliabilityAnalysisResults results, int port) throws IOException {
+        this.results = results;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.workers = Executors.newCachedThreadPool();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                Socket client = serverSocket.accept();
+                workers.execute(() -> serve(client));
+            }
+        } catch (SocketException e) {
+            if (!serverSocket.isClosed()) {
+                throw e;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client) {
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            serve(input, output);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error serving reliability queries: " + e.toString(), e);
+        }
+    }
+
+    /**
+     * Answers requests until the input ends or a client quits.
+     */
+    void serve(BufferedReader input, Writer output) throws IOException {
+        String request;
+        while ((request = input.readLine()) != null && !request.trim().equals(QUIT)) {
+            output.write(answer(request));
+            output.write('\n');
+            output.flush();
+        }
+    }
+
+    String answer(String request) {
+        List<String[]> configurations = new ArrayList<String[]>();
+        for (String configuration : request.split(";", -1)) {
+            configurations.add(Arrays.stream(configuration.split(","))
+                               .map(String::trim)
+                               .filter(feature -> !feature.isEmpty())
+                               .toArray(String[]::new));
+        }
+        double[] reliabilities;
+        try {
+            reliabilities = results.getResults(configurations);
+        } catch (UnknownFeatureException e) {
+            return ERROR + " Unrecognized feature: " + e.getFeatureName();
+        }
+        StringBuilder response = new StringBuilder();
+        for (int i = 0; i < reliabilities.length; i++) {
+            if (i > 0) {
+                response.append(';');
+            }
+            response.append(reliabilities[i]);
+        }
+        return response.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        workers.shutdown();
+    }
+
+}
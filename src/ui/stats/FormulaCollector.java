@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import tool.RDGNode;
 import tool.stats.IFormulaCollector;
@@ -12,12 +13,24 @@ import tool.stats.IFormulaCollector;
 public class FormulaCollector implements IFormulaCollector {
 
     private Map<RDGNode, String> formulae = new HashMap<RDGNode, String>();
+    private AtomicLong cacheHits = new AtomicLong();
+    private AtomicLong cacheMisses = new AtomicLong();
 
     @Override
     public synchronized void collectFormula(RDGNode node, String formula) {
         formulae.put(node, formula);
     }
 
+    @Override
+    public void collectCacheHit(RDGNode node) {
+        cacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void collectCacheMiss(RDGNode node) {
+        cacheMisses.incrementAndGet();
+    }
+
     @Override
     public void printStats(PrintStream out) {
         long count = 0;
@@ -51,6 +64,8 @@ public class FormulaCollector implements IFormulaCollector {
         out.println("Sum of formulae sizes: " + sizesSum);
         out.println("Number of formulae: " + count);
         out.println("All formulae sizes: " + allFormulaeSizes);
+        out.println("Expression cache hits: " + cacheHits.get());
+        out.println("Expression cache misses: " + cacheMisses.get());
     }
 
 }
@@ -1,14 +1,28 @@
 
 import jadd.ADDConfigurationsTest;
+import jadd.ConfigurationTest;
+import jadd.JADDTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import paramwrapper.FDTMCToParamTest;
+import paramwrapper.ReliabilityExpressionCacheTest;
 import paramwrapper.ReliabilityFormulaTest;
+import paramwrapper.StateEliminationModelCheckerTest;
 import tool.AnalyzerTest;
 import tool.RDGNodeTest;
+import tool.RdgContextTest;
+import tool.analyzers.PackedReliabilityResultsTest;
+import tool.analyzers.StreamingReliabilityResultsTest;
+import tool.analyzers.buildingblocks.ComponentTest;
+import tool.analyzers.buildingblocks.PresenceConditionIndexTest;
+import tool.analyzers.strategies.SlotBasedProductEvaluatorTest;
+import tool.ordering.VariableOrderingTest;
+import ui.QueryServerTest;
+import expressionsolver.CnfEncoderTest;
+import expressionsolver.CompiledExpressionTest;
 import expressionsolver.ExpressionSolverTest;
 import fdtmc.FDTMCTest;
 
@@ -17,10 +31,24 @@ import fdtmc.FDTMCTest;
     FDTMCTest.class,
     FDTMCToParamTest.class,
     ReliabilityFormulaTest.class,
+    StateEliminationModelCheckerTest.class,
+    ReliabilityExpressionCacheTest.class,
     ExpressionSolverTest.class,
+    CompiledExpressionTest.class,
+    CnfEncoderTest.class,
     AnalyzerTest.class,
     RDGNodeTest.class,
-    ADDConfigurationsTest.class
+    RdgContextTest.class,
+    PresenceConditionIndexTest.class,
+    ComponentTest.class,
+    SlotBasedProductEvaluatorTest.class,
+    ADDConfigurationsTest.class,
+    ConfigurationTest.class,
+    JADDTest.class,
+    PackedReliabilityResultsTest.class,
+    StreamingReliabilityResultsTest.class,
+    VariableOrderingTest.class,
+    QueryServerTest.class
 })
 public class AllTests {
 
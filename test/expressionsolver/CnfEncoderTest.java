@@ -0,0 +1,74 @@
+package expressionsolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import jadd.ADD;
+import jadd.JADD;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CnfEncoderTest {
+    private JADD jadd;
+    private ExpressionSolver solver;
+    private CnfEncoder encoder;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        solver = new ExpressionSolver(jadd);
+        encoder = new CnfEncoder(jadd, solver);
+    }
+
+    @Test
+    public void testClausesAreConjoined() {
+        String formula = "Root  &&  (!A  ||  Root)  &&  (!B  ||  !C)  &&  (A  ||  B  ||  C)";
+        assertEquals(solver.encodeFormula(formula), encoder.encode(formula));
+    }
+
+    @Test
+    public void testVariablesAreCreatedInOrderOfAppearance() {
+        encoder.encode("(!B  ||  A)  &&  C  &&  (A  ||  D)");
+        assertEquals(Arrays.asList("B", "A", "C", "D"), jadd.getVariableOrder());
+    }
+
+    @Test
+    public void testBooleanLiterals() {
+        assertEquals(jadd.getVariable("A"), encoder.encode("A  &&  (B  ||  True)  &&  (C  ||  False  ||  A)"));
+        assertEquals(jadd.makeConstant(0), encoder.encode("A  &&  False  &&  B"));
+        assertEquals(jadd.makeConstant(1), encoder.encode("True"));
+        assertTrue(jadd.getVariableOrder().contains("B"));
+    }
+
+    @Test
+    public void testConjunctsOtherThanClauses() {
+        String formula = "A  &&  ((B  &&  C)  ||  !D)  &&  !(A  &&  E)";
+        assertEquals(solver.encodeFormula(formula), encoder.encode(formula));
+    }
+
+    @Test
+    public void testUnparseableFormula() {
+        assertNull(encoder.encode("A  &&  (B  ||"));
+    }
+
+    @Test
+    public void testOperatorsWithoutOperand() {
+        for (String malformed : new String[] {"(A  ||)", "A  &&  (B  ||  C)  &&", "A  &&  &&  B", "(A  ||  !)", "()"}) {
+            assertNull("Expected a parse error for <" + malformed + ">", encoder.encode(malformed));
+        }
+    }
+
+    @Test
+    public void testFeatureModel() throws IOException {
+        String featureModel = new String(Files.readAllBytes(Paths.get("cnf_12.txt")), Charset.forName("UTF-8"));
+        assertEquals(solver.encodeFormula(featureModel), encoder.encode(featureModel));
+    }
+
+}
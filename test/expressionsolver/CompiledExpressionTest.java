@@ -0,0 +1,149 @@
+package expressionsolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import jadd.ADD;
+import jadd.JADD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CompiledExpressionTest {
+
+    @Test
+    public void testVariablesAreBoundToSlotsInOrderOfAppearance() throws ExpressionParseException {
+        CompiledExpression expression = CompiledExpression.compile("a + b * c - a");
+        assertEquals(Arrays.asList("a", "b", "c"), expression.getVariables());
+        assertEquals(1, expression.getVariableSlot("b"));
+        assertEquals(-1, expression.getVariableSlot("d"));
+
+        assertEquals(6.0, expression.evaluate(new double[] {1, 2, 3}), 1E-12);
+    }
+
+    @Test
+    public void testEvaluationWithBindingToSharedEnvironment() throws ExpressionParseException {
+        CompiledExpression expression = CompiledExpression.compile("x * (1 - y)");
+        double[] environment = {0.1, 0.2, 0.9, 0.5};
+        double[] scratch = new double[expression.size()];
+
+        assertEquals(0.45, expression.evaluate(environment, new int[] {2, 3}, scratch), 1E-12);
+        assertEquals(0.05, expression.evaluate(environment, new int[] {3, 2}, scratch), 1E-12);
+    }
+
+    @Test
+    public void testOperatorPrecedence() throws ExpressionParseException {
+        assertEquals(7.0, CompiledExpression.compile("1 + 2 * 3").evaluate(new double[0]), 1E-12);
+        assertEquals(9.0, CompiledExpression.compile("(1 + 2) * 3").evaluate(new double[0]), 1E-12);
+        assertEquals(-4.0, CompiledExpression.compile("-2^2").evaluate(new double[0]), 1E-12);
+        assertEquals(512.0, CompiledExpression.compile("2^3^2").evaluate(new double[0]), 1E-12);
+        assertEquals(0.5, CompiledExpression.compile("1 - 1/2").evaluate(new double[0]), 1E-12);
+        assertEquals(1.0, CompiledExpression.compile("1 || 0 && 0").evaluate(new double[0]), 1E-12);
+        assertEquals(1.0E-4, CompiledExpression.compile("1E-4").evaluate(new double[0]), 1E-18);
+    }
+
+    @Test
+    public void testSharedSubexpressionsAreCompiledOnce() throws ExpressionParseException {
+        // Nodes: x, y, x*y, 1, 1-x*y, (x*y)*(1-x*y)
+        CompiledExpression expression = CompiledExpression.compile("(x*y) * (1 - y*x)");
+        assertEquals(6, expression.size());
+    }
+
+    @Test
+    public void testLongExpressionsDoNotExhaustTheStack() throws ExpressionParseException {
+        StringBuilder builder = new StringBuilder("0");
+        for (int i = 0; i < 100000; i++) {
+            builder.append("+1*x").append(i % 10);
+        }
+        CompiledExpression expression = CompiledExpression.compile(builder.toString());
+        double[] values = new double[10];
+        Arrays.fill(values, 1);
+        assertEquals(100000.0, expression.evaluate(values), 1E-6);
+    }
+
+    @Test
+    public void testDeeplyNestedExpressionsDoNotExhaustTheStack() throws ExpressionParseException {
+        int depth = 100000;
+        StringBuilder parenthesized = new StringBuilder();
+        StringBuilder negated = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            parenthesized.append('(');
+            negated.append("-(");
+        }
+        parenthesized.append('x');
+        negated.append('x');
+        for (int i = 0; i < depth; i++) {
+            parenthesized.append(" + 1)");
+            negated.append(')');
+        }
+        assertEquals(depth + 2.0, CompiledExpression.compile(parenthesized.toString()).evaluate(new double[] {2}), 1E-6);
+        assertEquals(2.0, CompiledExpression.compile(negated.toString()).evaluate(new double[] {2}), 1E-12);
+    }
+
+    @Test
+    public void testMalformedExpressions() {
+        for (String malformed : new String[] {"", "1 +", "(a", "a b", "2 $ 3", "a)", "()", "(a b)", "-", "2 ^"}) {
+            try {
+                CompiledExpression.compile(malformed);
+                fail("Expected a parse error for <" + malformed + ">");
+            } catch (ExpressionParseException e) {
+                assertTrue(e.getPosition() >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluationOverADDsMatchesDoubles() throws ExpressionParseException {
+        JADD jadd = new JADD();
+        ADD feature = jadd.getVariable("feature");
+        CompiledExpression expression = CompiledExpression.compile("(0.99*a - b/2)^2 + (!c || 0)");
+        ADD result = expression.evaluate(Arrays.asList(feature.ifThenElse(jadd.makeConstant(0.5), 0.3),
+                                                       jadd.makeConstant(0.2),
+                                                       feature.complement()),
+                                         new ADDAlgebra(jadd));
+
+        double whenPresent = expression.evaluate(new double[] {0.5, 0.2, 0});
+        double whenAbsent = expression.evaluate(new double[] {0.3, 0.2, 1});
+        assertEquals(feature.ifThenElse(jadd.makeConstant(whenPresent), whenAbsent), result);
+    }
+
+    @Test
+    public void testSharedIntermediateADDsAreClosedOnceAfterTheirLastUse() throws ExpressionParseException {
+        JADD jadd = new JADD();
+        ADD a = jadd.getVariable("a");
+        ADD b = jadd.makeConstant(0.5);
+        List<ADD> released = new ArrayList<ADD>();
+        ADDAlgebra algebra = new ADDAlgebra(jadd) {
+            @Override
+            public void release(ADD value) {
+                released.add(value);
+                super.release(value);
+            }
+        };
+        // Raising to 1 yields the base as is, so (a*b) is the result of two
+        // instructions, the second of which is used after the first one's last use.
+        CompiledExpression expression = CompiledExpression.compile("(a*b)^1 * 3 + (a*b)^1 + a^0");
+        ADD result = expression.evaluate(Arrays.asList(a, b), algebra);
+
+        assertEquals(a.times(jadd.makeConstant(3)), result);
+        Set<ADD> distinct = Collections.newSetFromMap(new IdentityHashMap<ADD, Boolean>());
+        distinct.addAll(released);
+        // Constants 1, 3 and 0, a*b, (a*b)^1 * 3, the first sum and a^0.
+        assertEquals(7, released.size());
+        assertEquals(released.size(), distinct.size());
+        for (ADD value : released) {
+            assertTrue(value.isClosed());
+            assertTrue(value != a && value != b && value != result);
+        }
+        assertFalse(result.isClosed());
+        assertFalse(b.isClosed());
+    }
+
+}
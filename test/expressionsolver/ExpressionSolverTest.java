@@ -1,20 +1,28 @@
 package expressionsolver;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import jadd.ADD;
 import jadd.JADD;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import expressionsolver.ExpressionSolver;
 
 public class ExpressionSolverTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private JADD jadd;
     private ExpressionSolver solver;
 
@@ -28,7 +36,7 @@ public class ExpressionSolverTest {
     /**
      * This is an example of real use of the API.
      */
-    public void testExpressionWithPresenceConditions() {
+    public void testExpressionWithPresenceConditions() throws IOException {
         ADD presenceCondition = solver.encodeFormula("(sqlite && !memory) || (!sqlite && memory)");
 
         HashMap<String, ADD> interpretations = new HashMap<String, ADD>();
@@ -52,7 +60,7 @@ public class ExpressionSolverTest {
 //        jadd.dumpDot("FM", presenceCondition, "out.dot");
         jadd.dumpDot(new String[]{"Result", "PresenceCondition"},
                      new ADD[]{result, presenceCondition},
-                     "out.dot");
+                     temporaryFolder.newFile("out.dot").getPath());
     }
 
     @Test
@@ -227,4 +235,30 @@ public class ExpressionSolverTest {
         assertEquals(24.0, result, 1E+10);
     }
 
+    @Test
+    public void testRepeatedFormulasAreEncodedOnce() {
+        ADD first = solver.encodeFormula("(A && !B) || C");
+        ADD second = solver.encodeFormula("(A&&!B)  ||  C");
+
+        assertSame(first, second);
+        assertEquals(1, solver.getCachedEncodingsCount());
+        assertNotSame(first, solver.encodeFormula("(A && B) || C"));
+    }
+
+    @Test
+    public void testClosedEncodingsAreEvicted() {
+        ADD first = solver.encodeFormula("A || B");
+        first.close();
+        ADD second = solver.encodeFormula("A || B");
+
+        assertNotSame(first, second);
+        assertEquals(jadd.getVariable("A").or(jadd.getVariable("B")), second);
+    }
+
+    @Test
+    public void testNormalizationKeepsIdentifiersApart() {
+        assertEquals("(A&&!B)||C", ExpressionSolver.normalize(" ( A && ! B )\t||  C "));
+        assertEquals("A B", ExpressionSolver.normalize("A  B"));
+    }
+
 }
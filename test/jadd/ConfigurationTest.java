@@ -0,0 +1,174 @@
+package jadd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigurationTest {
+    private JADD jadd;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        for (String feature : new String[] {"A", "B", "C", "D"}) {
+            jadd.getVariable(feature);
+        }
+    }
+
+    @Test
+    public void testConfigurationIsASetOfFeatures() throws UnrecognizedVariableException {
+        Configuration configuration = jadd.toConfiguration(Arrays.asList("C", "A"));
+
+        Assert.assertEquals(2, configuration.size());
+        Assert.assertTrue(configuration.contains("A"));
+        Assert.assertFalse(configuration.contains("B"));
+        Assert.assertFalse(configuration.contains("Unknown"));
+        Assert.assertEquals(Arrays.asList("A", "C"), configuration.stream().collect(Collectors.toList()));
+        Assert.assertTrue(configuration.isSelected(jadd.getVariableIndex("C")));
+    }
+
+    @Test
+    public void testEqualityIsConsistentWithOtherSets() throws UnrecognizedVariableException {
+        Configuration configuration = jadd.toConfiguration(Arrays.asList("A", "C"));
+        Set<String> set = new HashSet<String>(Arrays.asList("C", "A"));
+
+        Assert.assertEquals(jadd.toConfiguration(set), configuration);
+        Assert.assertEquals(set, configuration);
+        Assert.assertEquals(configuration, set);
+        Assert.assertEquals(set.hashCode(), configuration.hashCode());
+        Assert.assertNotEquals(jadd.toConfiguration(Arrays.asList("A")), configuration);
+        Assert.assertEquals(jadd.toConfiguration(Arrays.asList()), jadd.toConfiguration(new HashSet<String>()));
+    }
+
+    @Test(expected = UnrecognizedVariableException.class)
+    public void testUnknownFeature() throws UnrecognizedVariableException {
+        jadd.toConfiguration(Arrays.asList("A", "Unknown"));
+    }
+
+    @Test
+    public void testExpandedConfigurations() throws UnrecognizedVariableException {
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        // A && !B, with C and D as "don't care" variables.
+        ADD function = a.and(b.complement());
+
+        List<Set<String>> configurations = function.getExpandedConfigurations()
+                .map(c -> new HashSet<String>(c))
+                .collect(Collectors.toList());
+        Assert.assertEquals(4, configurations.size());
+        Assert.assertEquals(4, new HashSet<Set<String>>(configurations).size());
+        Assert.assertTrue(configurations.contains(new HashSet<String>(Arrays.asList("A"))));
+        Assert.assertTrue(configurations.contains(new HashSet<String>(Arrays.asList("A", "C", "D"))));
+
+        function.getExpandedConfigurations().forEach(c -> {
+            Assert.assertTrue(c instanceof Configuration);
+            Assert.assertTrue(function.isValidConfiguration(c));
+        });
+    }
+
+    @Test
+    public void testExpandedConfigurationsAreSplitIntoDisjointPartitions() throws UnrecognizedVariableException {
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        ADD d = jadd.getVariable("D");
+        ADD function = a.or(b).and(c.or(d.complement()));
+
+        Set<Set<String>> expected = new HashSet<Set<String>>();
+        List<String> features = Arrays.asList("A", "B", "C", "D");
+        for (int mask = 0; mask < 16; mask++) {
+            Set<String> configuration = new HashSet<String>();
+            for (int i = 0; i < features.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    configuration.add(features.get(i));
+                }
+            }
+            if (function.isValidConfiguration(configuration)) {
+                expected.add(configuration);
+            }
+        }
+
+        List<Set<String>> configurations = new ArrayList<Set<String>>();
+        Deque<Spliterator<Collection<String>>> partitions = new ArrayDeque<Spliterator<Collection<String>>>();
+        partitions.push(function.getExpandedConfigurations().spliterator());
+        Assert.assertEquals(expected.size(), partitions.peek().estimateSize());
+        int numPartitions = 0;
+        while (!partitions.isEmpty()) {
+            Spliterator<Collection<String>> partition = partitions.pop();
+            Spliterator<Collection<String>> prefix = partition.trySplit();
+            if (prefix != null) {
+                partitions.push(partition);
+                partitions.push(prefix);
+            } else {
+                numPartitions++;
+                long estimatedSize = partition.estimateSize();
+                int previousSize = configurations.size();
+                partition.forEachRemaining(configuration -> configurations.add(new HashSet<String>(configuration)));
+                Assert.assertEquals(estimatedSize, configurations.size() - previousSize);
+            }
+        }
+
+        Assert.assertTrue(numPartitions > 1);
+        Assert.assertEquals(expected.size(), configurations.size());
+        Assert.assertEquals(expected, new HashSet<Set<String>>(configurations));
+        Assert.assertEquals(expected.size(), function.getExpandedConfigurations().parallel().count());
+    }
+
+    @Test
+    public void testEnumerationSurvivesClosingAndReordering() {
+        // Parity of 14 variables has 2^13 cubes, which take more than one batch.
+        List<String> features = new ArrayList<String>();
+        ADD function = jadd.makeConstant(0);
+        for (int i = 0; i < 14; i++) {
+            String feature = "P" + i;
+            features.add(feature);
+            ADD variable = jadd.getVariable(feature);
+            function = variable.ifThenElse(function.complement(), function);
+        }
+
+        Iterator<Collection<String>> configurations = function.getExpandedConfigurations().iterator();
+        Set<Set<String>> enumerated = new HashSet<Set<String>>();
+        enumerated.add(new HashSet<String>(configurations.next()));
+        function.close();
+        jadd.reorderVariables();
+        System.gc();
+        jadd.makeConstant(2).close();
+        configurations.forEachRemaining(configuration -> enumerated.add(new HashSet<String>(configuration)));
+
+        // Half of the assignments to parity variables, times those to A, B, C and D.
+        Assert.assertEquals((1 << 13) * 16, enumerated.size());
+        for (Set<String> configuration : enumerated) {
+            Assert.assertEquals(1, configuration.stream().filter(features::contains).count() % 2);
+        }
+    }
+
+    @Test
+    public void testExpansionOfManyDontCares() {
+        // 64 "don't care" variables, along with A, B, C and D.
+        for (int i = 0; i < 60; i++) {
+            jadd.getVariable("X" + i);
+        }
+        ADD function = jadd.makeConstant(1);
+
+        List<Collection<String>> configurations = function.getExpandedConfigurations()
+                .limit(100)
+                .collect(Collectors.toList());
+        Assert.assertEquals(100, configurations.size());
+        Assert.assertEquals(100, new HashSet<Collection<String>>(configurations).size());
+        Assert.assertTrue(configurations.get(0).isEmpty());
+        Assert.assertEquals(Long.MAX_VALUE, function.getExpandedConfigurations().spliterator().estimateSize());
+    }
+
+}
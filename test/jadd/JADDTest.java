@@ -0,0 +1,412 @@
+package jadd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JADDTest {
+    private static final int NUM_FEATURES = 12;
+
+    private JADD jadd;
+
+    @Before
+    public void setUp() {
+        jadd = new JADD();
+    }
+
+    @Test
+    public void testVariablesAreCreatedOnlyOnceUnderContention() {
+        List<ADD> variables = IntStream.range(0, 1000).parallel()
+                .mapToObj(i -> jadd.getVariable("F" + (i % NUM_FEATURES)))
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(NUM_FEATURES, jadd.getNumberOfVariables());
+        for (int i = 0; i < variables.size(); i++) {
+            Assert.assertSame(jadd.getVariable("F" + (i % NUM_FEATURES)), variables.get(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentConstructionYieldsSameFunctions() {
+        List<ADD> sequential = IntStream.range(0, 200)
+                .mapToObj(this::build)
+                .collect(Collectors.toList());
+        List<ADD> concurrent = IntStream.range(0, 200).parallel()
+                .mapToObj(this::build)
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < sequential.size(); i++) {
+            Assert.assertEquals(sequential.get(i), concurrent.get(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentEvaluation() {
+        ADD function = build(42);
+        List<Configuration> configurations = function.getExpandedConfigurations()
+                .map(c -> (Configuration) c)
+                .collect(Collectors.toList());
+
+        List<Double> sequential = configurations.stream()
+                .map(c -> eval(function, c))
+                .collect(Collectors.toList());
+        List<Double> concurrent = configurations.parallelStream()
+                .map(c -> eval(function, c))
+                .collect(Collectors.toList());
+        Assert.assertEquals(sequential, concurrent);
+    }
+
+    @Test
+    public void testClosedADDsReleaseTheirNodes() {
+        ADD function = build(7);
+        int deadNodesBefore = function.getDeadNodesCount();
+        function.close();
+        function.close();
+
+        Assert.assertTrue(function.isClosed());
+        Assert.assertTrue(jadd.makeConstant(0).getDeadNodesCount() > deadNodesBefore);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedADDCannotBeUsed() {
+        ADD function = build(7);
+        function.close();
+        function.plus(jadd.makeConstant(1));
+    }
+
+    @Test
+    public void testVariablesAreNeverClosed() throws UnrecognizedVariableException {
+        ADD variable = jadd.getVariable("F0");
+        variable.close();
+
+        Assert.assertFalse(variable.isClosed());
+        Assert.assertEquals(1.0, variable.eval(new String[] {"F0"}), 0);
+    }
+
+    @Test
+    public void testFunctionsOfVariablesCanBeClosed() {
+        ADD function = jadd.getVariable("F0").or(jadd.getVariable("F1"));
+        function.close();
+
+        Assert.assertTrue(function.isClosed());
+    }
+
+    @Test
+    public void testArithmeticOperators() throws UnrecognizedVariableException {
+        ADD a = jadd.getVariable("F0").times(jadd.makeConstant(0.5)).plus(jadd.makeConstant(2));
+        ADD b = jadd.getVariable("F1").plus(jadd.makeConstant(4));
+
+        String[][] configurations = {{}, {"F0"}, {"F1"}, {"F0", "F1"}};
+        for (String[] configuration : configurations) {
+            double x = a.eval(configuration);
+            double y = b.eval(configuration);
+            Assert.assertEquals(x + y, a.plus(b).eval(configuration), 1E-14);
+            Assert.assertEquals(x - y, a.minus(b).eval(configuration), 1E-14);
+            Assert.assertEquals(x * y, a.times(b).eval(configuration), 1E-14);
+            Assert.assertEquals(x / y, a.dividedBy(b).eval(configuration), 1E-14);
+        }
+    }
+
+    @Test
+    public void testLogicalOperators() throws UnrecognizedVariableException {
+        ADD f0 = jadd.getVariable("F0");
+        ADD f1 = jadd.getVariable("F1");
+
+        Assert.assertEquals(0.0, f0.and(f1).eval(new String[] {"F0"}), 0);
+        Assert.assertEquals(1.0, f0.and(f1).eval(new String[] {"F0", "F1"}), 0);
+        Assert.assertEquals(0.0, f0.or(f1).eval(new String[] {}), 0);
+        Assert.assertEquals(1.0, f0.or(f1).eval(new String[] {"F1"}), 0);
+        Assert.assertEquals(1.0, f0.or(f1).eval(new String[] {"F0", "F1"}), 0);
+    }
+
+    @Test
+    public void testVariableOrderIsSavedAndLoaded() throws IOException, UnrecognizedVariableException {
+        build(3);
+        jadd.setVariableOrder(new String[] {"F2", "F0", "F1", "F3", "F4", "F5", "F6", "F7", "F8", "F9", "F10", "F11"});
+        List<String> order = jadd.getVariableOrder();
+        Assert.assertEquals(Arrays.asList("F2", "F0", "F1"), order.subList(0, 3));
+
+        Path file = Files.createTempFile("order", ".txt");
+        try {
+            jadd.saveVariableOrder(file);
+
+            JADD other = new JADD();
+            for (int i = NUM_FEATURES - 1; i >= 0; i--) {
+                other.getVariable("F" + i);
+            }
+            other.loadVariableOrder(file);
+            Assert.assertEquals(order, other.getVariableOrder());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadedOrderMayBePartial() throws IOException {
+        build(3);
+        List<String> original = jadd.getVariableOrder();
+
+        Path file = Files.createTempFile("order", ".txt");
+        try {
+            Files.write(file, Arrays.asList("Unknown", "F5"));
+            jadd.loadVariableOrder(file);
+
+            List<String> order = jadd.getVariableOrder();
+            Assert.assertEquals("F5", order.get(0));
+            Assert.assertEquals(NUM_FEATURES, order.size());
+            List<String> rest = order.subList(1, order.size());
+            List<String> expectedRest = original.stream()
+                    .filter(v -> !v.equals("F5"))
+                    .collect(Collectors.toList());
+            Assert.assertEquals(expectedRest, rest);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReorderingPreservesFunctions() throws UnrecognizedVariableException {
+        ADD function = build(5);
+        String[] configuration = {"F1", "F4", "F7"};
+        double before = function.eval(configuration);
+        int reorderings = jadd.getReorderingsCount();
+
+        jadd.reorderVariables(ReorderingHeuristic.SIFT);
+        jadd.enableDynamicReordering(ReorderingHeuristic.WINDOW2, 1.1, 1);
+        ADD rebuilt = build(5);
+        jadd.disableDynamicReordering();
+
+        Assert.assertTrue(jadd.getReorderingsCount() > reorderings);
+        Assert.assertEquals(before, function.eval(configuration), 0);
+        Assert.assertEquals(function, rebuilt);
+    }
+
+    @Test
+    public void testExportedADDEvaluatesTheSame() throws IOException, UnrecognizedVariableException {
+        ADD function = build(11);
+        Path file = Files.createTempFile("function", ".add");
+        try {
+            function.export(file);
+            ADDTable table = ADDTable.load(file);
+
+            Assert.assertEquals(NUM_FEATURES, table.getVariables().size());
+            Assert.assertEquals(function.getNodeCount(), table.getNodeCount());
+            for (int mask = 0; mask < (1 << NUM_FEATURES); mask += 37) {
+                List<String> configuration = new ArrayList<String>();
+                for (int i = 0; i < NUM_FEATURES; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        configuration.add("F" + i);
+                    }
+                }
+                Assert.assertEquals(function.eval(configuration), table.eval(configuration), 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = UnrecognizedVariableException.class)
+    public void testExportedADDRejectsUnknownVariables() throws IOException, UnrecognizedVariableException {
+        Path file = Files.createTempFile("function", ".add");
+        try {
+            build(2).export(file);
+            ADDTable.load(file).eval(new String[] {"F1", "Unknown"});
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCorruptExportedADDIsRejected() throws IOException {
+        Path file = Files.createTempFile("function", ".add");
+        try {
+            build(3).export(file);
+            byte[] exported = Files.readAllBytes(file);
+
+            ByteBuffer cyclic = ByteBuffer.wrap(exported.clone());
+            int root = cyclic.getInt(16);
+            // The root (a decision node) becomes its own "then" child.
+            cyclic.putInt(cyclic.getInt(20) + 16 * root + 4, root);
+            assertRejected(file, cyclic.array());
+
+            ByteBuffer dangling = ByteBuffer.wrap(exported.clone());
+            dangling.putInt(16, dangling.getInt(12));
+            assertRejected(file, dangling.array());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertRejected(Path file, byte[] contents) throws IOException {
+        Files.write(file, contents);
+        try {
+            ADDTable.load(file);
+            Assert.fail("Corrupt exported ADD should be rejected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt exported ADD"));
+        }
+    }
+
+    @Test
+    public void testSnapshotOutlivesTheADD() throws UnrecognizedVariableException {
+        ADD function = build(13);
+        String[] configuration = {"F2", "F3", "F9"};
+        double expected = function.eval(configuration);
+        ADDTable snapshot = function.snapshot();
+        function.close();
+
+        Assert.assertEquals(expected, snapshot.eval(configuration), 0);
+    }
+
+    @Test
+    public void testConcurrentSnapshotEvaluation() {
+        ADD function = build(17);
+        ADDTable snapshot = function.snapshot();
+        List<Configuration> configurations = function.getExpandedConfigurations()
+                .map(c -> (Configuration) c)
+                .collect(Collectors.toList());
+
+        List<Double> expected = configurations.stream()
+                .map(c -> eval(function, c))
+                .collect(Collectors.toList());
+        List<Double> concurrent = configurations.parallelStream()
+                .map(c -> {
+                    try {
+                        return snapshot.eval(c);
+                    } catch (UnrecognizedVariableException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+        Assert.assertEquals(expected, concurrent);
+    }
+
+    @Test
+    public void testAggregatesMatchEnumeration() throws UnrecognizedVariableException {
+        ADDTable snapshot = build(19).snapshot();
+        List<Double> nonZeroValues = new ArrayList<Double>();
+        for (List<String> configuration : allConfigurations()) {
+            double value = snapshot.eval(configuration);
+            if (value != 0) {
+                nonZeroValues.add(value);
+            }
+        }
+        Assert.assertFalse(nonZeroValues.isEmpty());
+
+        double sum = nonZeroValues.stream().mapToDouble(Double::doubleValue).sum();
+        Assert.assertEquals(nonZeroValues.size(), snapshot.getNonZeroCount(), 0);
+        Assert.assertEquals(sum, snapshot.getSum(), 1E-9);
+        Assert.assertEquals(sum / nonZeroValues.size(), snapshot.getMean(), 1E-12);
+        Assert.assertEquals(Collections.min(nonZeroValues), snapshot.getMinimum(), 0);
+        Assert.assertEquals(Collections.max(nonZeroValues), snapshot.getMaximum(), 0);
+
+        Map<Double, Double> histogram = new TreeMap<Double, Double>();
+        for (double value : nonZeroValues) {
+            histogram.merge(value, 1.0, Double::sum);
+        }
+        Assert.assertEquals(histogram, snapshot.getHistogram());
+    }
+
+    @Test
+    public void testWitnessesHaveTheGivenValue() throws UnrecognizedVariableException {
+        ADDTable snapshot = build(23).snapshot();
+        for (double value : snapshot.getHistogram().keySet()) {
+            Assert.assertEquals(value, snapshot.eval(snapshot.findConfiguration(value)), 0);
+        }
+        Assert.assertNull(snapshot.findConfiguration(-1));
+    }
+
+    @Test
+    public void testLowestConfigurationsComeFirst() throws UnrecognizedVariableException {
+        ADDTable snapshot = build(29).snapshot();
+        List<Double> nonZeroValues = new ArrayList<Double>();
+        for (List<String> configuration : allConfigurations()) {
+            double value = snapshot.eval(configuration);
+            if (value != 0) {
+                nonZeroValues.add(value);
+            }
+        }
+        Collections.sort(nonZeroValues);
+
+        int k = 50;
+        List<List<String>> lowest = snapshot.getLowestConfigurations(k);
+        Assert.assertEquals(k, lowest.size());
+        Assert.assertEquals(k, lowest.stream().map(HashSet::new).distinct().count());
+        for (int i = 0; i < k; i++) {
+            Assert.assertEquals(nonZeroValues.get(i), snapshot.eval(lowest.get(i)), 0);
+        }
+        Assert.assertEquals(nonZeroValues.size(), snapshot.getLowestConfigurations(Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testWeightedMean() throws UnrecognizedVariableException {
+        ADDTable snapshot = build(31).snapshot();
+        // Configurations with F0 and without F1 only.
+        Map<String, Double> probabilities = new HashMap<String, Double>();
+        probabilities.put("F0", 1.0);
+        probabilities.put("F1", 0.0);
+        double sum = 0;
+        int count = 0;
+        for (List<String> configuration : allConfigurations()) {
+            double value = snapshot.eval(configuration);
+            if (value != 0 && configuration.contains("F0") && !configuration.contains("F1")) {
+                sum += value;
+                count++;
+            }
+        }
+        Assert.assertEquals(sum / count, snapshot.getMean(probabilities), 1E-12);
+    }
+
+    /**
+     * @return all configurations of the features, as the features which are true.
+     */
+    private List<List<String>> allConfigurations() {
+        List<List<String>> configurations = new ArrayList<List<String>>();
+        for (int bits = 0; bits < (1 << NUM_FEATURES); bits++) {
+            final int selection = bits;
+            configurations.add(IntStream.range(0, NUM_FEATURES)
+                    .filter(i -> (selection & (1 << i)) != 0)
+                    .mapToObj(i -> "F" + i)
+                    .collect(Collectors.toList()));
+        }
+        return configurations;
+    }
+
+    private double eval(ADD function, Configuration configuration) {
+        try {
+            return function.eval(configuration);
+        } catch (UnrecognizedVariableException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds a (pseudo-random) weighted sum of products of variables.
+     */
+    private ADD build(int seed) {
+        ADD result = jadd.makeConstant(0);
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            ADD a = jadd.getVariable("F" + ((seed + i) % NUM_FEATURES));
+            ADD b = jadd.getVariable("F" + ((seed * 7 + i * 3) % NUM_FEATURES));
+            ADD term = a.and(b.complement()).times(jadd.makeConstant((seed % 5 + i) / 10.0));
+            result = result.plus(term);
+        }
+        return result;
+    }
+
+}
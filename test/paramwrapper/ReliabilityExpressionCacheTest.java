@@ -0,0 +1,118 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class ReliabilityExpressionCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    Path cacheDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDirectory = temporaryFolder.newFolder("expression-cache").toPath();
+    }
+
+    @Test
+    public void testEntriesPersistAcrossInstances() throws IOException {
+        ReliabilityExpressionCache cache = new ReliabilityExpressionCache(cacheDirectory, 10);
+        FDTMC fdtmc = createFDTMC("rFail");
+        assertNull(cache.get(fdtmc));
+
+        cache.put(fdtmc, "-1*r0*rFail+1*r0");
+        assertEquals("-1*r0*rFail+1*r0", cache.get(fdtmc));
+
+        ReliabilityExpressionCache reopenedCache = new ReliabilityExpressionCache(cacheDirectory, 10);
+        assertEquals("-1*r0*rFail+1*r0", reopenedCache.get(createFDTMC("rFail")));
+    }
+
+    @Test
+    public void testKeyDependsOnStructureAndProbabilities() throws IOException {
+        ReliabilityExpressionCache cache = new ReliabilityExpressionCache(cacheDirectory, 10);
+        cache.put(createFDTMC("rFail"), "-1*r0*rFail+1*r0");
+
+        assertNull(cache.get(createFDTMC("rOther")));
+
+        FDTMC withInterface = createFDTMC("rFail");
+        State initial = withInterface.getInitialState();
+        withInterface.createInterface("n1", initial, withInterface.createState(), withInterface.createState());
+        assertNull(cache.get(withInterface));
+    }
+
+    @Test
+    public void testKeyIgnoresActionNamesAndTransitionOrder() throws IOException {
+        ReliabilityExpressionCache cache = new ReliabilityExpressionCache(cacheDirectory, 10);
+        cache.put(createFDTMC("rFail"), "-1*r0*rFail+1*r0");
+
+        FDTMC reordered = new FDTMC();
+        reordered.setVariableName("other");
+        State s0 = reordered.createState();
+        State s1 = reordered.createState();
+        State s2 = reordered.createState("success");
+        State s3 = reordered.createState("error");
+        reordered.createTransition(s0, s1, "call", "r0");
+        reordered.createTransition(s0, s3, "fail", "1-r0");
+        reordered.createTransition(s1, s3, "fail", "rFail");
+        reordered.createTransition(s1, s2, "reply", "1-rFail");
+
+        assertEquals("-1*r0*rFail+1*r0", cache.get(reordered));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        ReliabilityExpressionCache cache = new ReliabilityExpressionCache(cacheDirectory, 2);
+        FDTMC first = createFDTMC("a");
+        FDTMC second = createFDTMC("b");
+        FDTMC third = createFDTMC("c");
+
+        cache.put(first, "1*a");
+        cache.put(second, "1*b");
+        assertEquals("1*a", cache.get(first));
+        cache.put(third, "1*c");
+
+        assertEquals(2, cache.size());
+        assertEquals("1*a", cache.get(first));
+        assertNull(cache.get(second));
+        assertEquals("1*c", cache.get(third));
+
+        File[] files = cacheDirectory.toFile().listFiles((dir, name) -> name.endsWith(".expr"));
+        assertEquals(2, files.length);
+    }
+
+    @Test
+    public void testFailedModelCheckingIsNotCached() throws IOException {
+        ReliabilityExpressionCache cache = new ReliabilityExpressionCache(cacheDirectory, 10);
+        FDTMC fdtmc = createFDTMC("rFail");
+        cache.put(fdtmc, "");
+        assertNull(cache.get(fdtmc));
+        assertEquals(0, cache.size());
+    }
+
+    private FDTMC createFDTMC(String failureVariable) {
+        FDTMC fdtmc = new FDTMC();
+        fdtmc.setVariableName("s");
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState();
+        State s2 = fdtmc.createState("success");
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s3, null, "1-r0");
+        fdtmc.createTransition(s0, s1, null, "r0");
+        fdtmc.createTransition(s1, s2, null, "1-" + failureVariable);
+        fdtmc.createTransition(s1, s3, null, failureVariable);
+        return fdtmc;
+    }
+
+}
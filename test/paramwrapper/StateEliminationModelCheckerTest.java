@@ -0,0 +1,156 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+/**
+ * The in-process model checker must yield the same formulas as PARAM
+ * (see {@link ReliabilityFormulaTest}).
+ */
+public class StateEliminationModelCheckerTest {
+
+    ParametricModelChecker modelChecker;
+    FDTMC fdtmc;
+
+    @Before
+    public void setUp() throws Exception {
+        modelChecker = new StateEliminationModelChecker();
+        fdtmc = new FDTMC();
+        fdtmc.setVariableName("s");
+    }
+
+    @Test
+    public void testReliabilityWithOneSuccessState() {
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState();
+        State s2 = fdtmc.createState("success");
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s3, null, "1-r0");
+        fdtmc.createTransition(s0, s1, null, "r0");
+        fdtmc.createTransition(s1, s2, null, "1-rFail");
+        fdtmc.createTransition(s1, s3, null, "rFail");
+        fdtmc.createTransition(s2, s2, null, "1");
+        fdtmc.createTransition(s3, s3, null, "1");
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("-1*r0*rFail+1*r0", formula);
+    }
+
+    @Test
+    public void testReliabilityWithTwoSuccessStates() {
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState("success");
+        State s2 = fdtmc.createState("success");
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s3, null, "1-r0");
+        fdtmc.createTransition(s0, s1, null, "r0");
+        fdtmc.createTransition(s1, s2, null, "1-rFail");
+        fdtmc.createTransition(s1, s3, null, "rFail");
+        fdtmc.createTransition(s2, s2, null, "1");
+        fdtmc.createTransition(s3, s3, null, "1");
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("1*r0", formula);
+    }
+
+    @Test
+    public void testReliabilityWithNoSuccessState() {
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState();
+        State s2 = fdtmc.createState();
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s3, null, "1-r0");
+        fdtmc.createTransition(s0, s1, null, "r0");
+        fdtmc.createTransition(s1, s2, null, "1-rFail");
+        fdtmc.createTransition(s1, s3, null, "rFail");
+        fdtmc.createTransition(s2, s2, null, "1");
+        fdtmc.createTransition(s3, s3, null, "1");
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("0", formula);
+    }
+
+    @Test
+    public void testReliabilityWithNoParameters() {
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState();
+        State s2 = fdtmc.createState("success");
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s3, null, "0.01");
+        fdtmc.createTransition(s0, s1, null, "0.99");
+        fdtmc.createTransition(s1, s2, null, "0.99");
+        fdtmc.createTransition(s1, s3, null, "0.01");
+        fdtmc.createTransition(s2, s2, null, "1");
+        fdtmc.createTransition(s3, s3, null, "1");
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("(9801)/(10000)", formula);
+    }
+
+    @Test
+    public void testReliabilityWithRetryLoop() {
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState();
+        State s2 = fdtmc.createState("success");
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s1, null, "r");
+        fdtmc.createTransition(s0, s3, null, "1-r");
+        fdtmc.createTransition(s1, s1, null, "q");
+        fdtmc.createTransition(s1, s2, null, "(1-q)*p");
+        fdtmc.createTransition(s1, s3, null, "(1-q)*(1-p)");
+        fdtmc.createTransition(s3, s3, null, "1");
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("1*p*r", formula);
+    }
+
+    @Test
+    public void testReliabilityWithCycleThroughInitialState() {
+        State s0 = fdtmc.createState();
+        State s1 = fdtmc.createState();
+        State s2 = fdtmc.createState("success");
+        State s3 = fdtmc.createState("error");
+        fdtmc.createTransition(s0, s1, null, "r");
+        fdtmc.createTransition(s0, s3, null, "1 - r");
+        fdtmc.createTransition(s1, s0, null, "q");
+        fdtmc.createTransition(s1, s2, null, "1 - q");
+
+        // r*(1-q) / (1 - r*q)
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("(1*q*r-1*r)/(1*q*r-1)", formula);
+    }
+
+    @Test
+    public void testReliabilityWithInterface() {
+        State s0 = fdtmc.createInitialState();
+        State s1 = fdtmc.createState();
+        State success = fdtmc.createSuccessState();
+        State error = fdtmc.createErrorState();
+        fdtmc.createTransition(s0, s1, null, "0.5");
+        fdtmc.createTransition(s0, error, null, "0.5");
+        fdtmc.createInterface("n1", s1, success, error);
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals("(1*n1)/(2)", formula);
+    }
+
+    @Test
+    public void testHugeConstantsAreKeptWithinDoubleRange() {
+        State previous = fdtmc.createState();
+        for (int i = 0; i < 100; i++) {
+            State next = fdtmc.createState();
+            fdtmc.createTransition(previous, next, null, "0.9947");
+            previous = next;
+        }
+        previous.setLabel("success");
+
+        String formula = modelChecker.getReliability(fdtmc);
+        assertEquals(Math.pow(0.9947, 100), Double.parseDouble(formula), 1E-12);
+    }
+
+}
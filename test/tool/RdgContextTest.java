@@ -0,0 +1,49 @@
+package tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+
+public class RdgContextTest {
+
+    @Test
+    public void testContextsAreIndependent() {
+        RdgContext first = new RdgContext();
+        RdgContext second = new RdgContext();
+
+        Assert.assertEquals(first.getNextId(), second.getNextId());
+
+        RDGNode sqlite = first.createNode("sqlite", "SQLite", FDTMCStub.createSqliteFDTMC());
+        Assert.assertSame(sqlite, first.getById("sqlite"));
+        Assert.assertNull("Nodes should only be known by their own context",
+                second.getById("sqlite"));
+        Assert.assertNotSame("Nodes with explicit contexts should not leak into the default one",
+                sqlite, RDGNode.getById("sqlite"));
+    }
+
+    @Test
+    public void testSharingSimilarNodes() {
+        RdgContext context = new RdgContext();
+        RDGNode memory = context.createNode("memory", "Memory", FDTMCStub.createMemoryFDTMC());
+        RDGNode file = context.createNode("file", "File", FDTMCStub.createFileFDTMC());
+
+        FDTMC pulseRateFDTMC = FDTMCStub.createPulseRateFDTMC();
+        RDGNode first = context.createNode(context.getNextId(), "PulseRate", pulseRateFDTMC);
+        first.addDependency(memory);
+        RDGNode second = context.createNode(context.getNextId(), "PulseRate", pulseRateFDTMC);
+        second.addDependency(file);
+        RDGNode third = context.createNode(context.getNextId(), "PulseRate", pulseRateFDTMC);
+        third.addDependency(memory);
+
+        Assert.assertSame(memory, context.share(memory));
+        Assert.assertSame(file, context.share(file));
+        Assert.assertSame(first, context.share(first));
+        Assert.assertSame("Nodes with different dependencies should not be shared",
+                second, context.share(second));
+        Assert.assertSame("Similar nodes should be replaced by the first one shared",
+                first, context.share(third));
+        Assert.assertSame(first, context.share(first));
+    }
+
+}
@@ -0,0 +1,127 @@
+package tool.analyzers;
+
+import jadd.JADD;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tool.UnknownFeatureException;
+
+public class PackedReliabilityResultsTest {
+    private static final int NUM_FEATURES = 70;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JADD jadd;
+
+    @Before
+    public void setUp() {
+        jadd = new JADD();
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            jadd.getVariable("F" + i);
+        }
+    }
+
+    @Test
+    public void testInHeapResults() {
+        PackedReliabilityResults results = new PackedReliabilityResults(jadd);
+        fillAndCheck(results);
+    }
+
+    @Test
+    public void testMemoryMappedResults() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        PackedReliabilityResults results = new PackedReliabilityResults(jadd, directory);
+        fillAndCheck(results);
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals("The table should grow within a single file", 1, files.count());
+        }
+    }
+
+    @Test
+    public void testConcurrentWrites() {
+        PackedReliabilityResults results = new PackedReliabilityResults(jadd);
+        IntStream.range(0, 5000).parallel().forEach(i -> {
+            results.putResult(configuration(i), i / 5000.0);
+            // Some configurations are written twice, concurrently with the growth of the table.
+            results.putResult(configuration(i / 2), (i / 2) / 5000.0);
+        });
+
+        Assert.assertEquals(5000, results.size());
+        for (int i = 0; i < 5000; i++) {
+            String[] configuration = configuration(i).toArray(new String[0]);
+            Assert.assertEquals(i / 5000.0, results.getResult(configuration), 0);
+        }
+    }
+
+    @Test
+    public void testResultsAreOverwritten() {
+        PackedReliabilityResults results = new PackedReliabilityResults(jadd);
+        results.putResult(Arrays.asList("F1", "F2"), 0.5);
+        results.putResult(Arrays.asList("F2", "F1"), 0.25);
+
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(0.25, results.getResult(new String[] {"F1", "F2"}), 0);
+    }
+
+    @Test
+    public void testAbsentResultIsZero() {
+        PackedReliabilityResults results = new PackedReliabilityResults(jadd);
+        results.putResult(Arrays.asList("F1"), 0.5);
+
+        Assert.assertEquals(0.0, results.getResult(new String[] {"F2"}), 0);
+        Assert.assertEquals(0.0, results.getResult(new String[] {}), 0);
+    }
+
+    @Test(expected = UnknownFeatureException.class)
+    public void testUnknownFeature() {
+        PackedReliabilityResults results = new PackedReliabilityResults(jadd);
+        results.getResult(new String[] {"F1", "Unknown"});
+    }
+
+    /**
+     * Stores enough results for the table to grow a few times, using
+     * features spread over more than one 64-bit word.
+     */
+    private void fillAndCheck(PackedReliabilityResults results) {
+        List<List<String>> configurations = new ArrayList<List<String>>();
+        for (int i = 0; i < 5000; i++) {
+            List<String> configuration = configuration(i);
+            configurations.add(configuration);
+            results.putResult(configuration, i / 5000.0);
+        }
+
+        Assert.assertEquals(configurations.size(), results.size());
+        for (int i = 0; i < configurations.size(); i++) {
+            String[] configuration = configurations.get(i).toArray(new String[0]);
+            Assert.assertEquals(i / 5000.0, results.getResult(configuration), 0);
+        }
+    }
+
+    /**
+     * @return a distinct configuration for each {@code i} below 2^13.
+     */
+    private static List<String> configuration(int i) {
+        List<String> configuration = new ArrayList<String>();
+        for (int bit = 0; bit < 13; bit++) {
+            if ((i & (1 << bit)) != 0) {
+                configuration.add("F" + (bit * 5 + 3));
+            }
+        }
+        return configuration;
+    }
+
+}
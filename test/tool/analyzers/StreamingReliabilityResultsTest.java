@@ -0,0 +1,44 @@
+package tool.analyzers;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingReliabilityResultsTest {
+
+    @Test
+    public void testResultsAreWrittenInOrderOfArrival() throws IOException {
+        StringWriter output = new StringWriter();
+        StreamingReliabilityResults results = new StreamingReliabilityResults(output);
+
+        results.accept(Arrays.asList("B", "A"), 0.5);
+        results.accept(Arrays.asList("A"), 0);
+        results.flush();
+
+        String expected = "[B, A] --> 0.5" + System.lineSeparator()
+                + "[A] --> INVALID" + System.lineSeparator();
+        Assert.assertEquals(expected, output.toString());
+        Assert.assertEquals(2, results.size());
+    }
+
+    @Test
+    public void testConcurrentResultsAreNotInterleaved() throws IOException {
+        StringWriter output = new StringWriter();
+        StreamingReliabilityResults results = new StreamingReliabilityResults(output);
+
+        IntStream.range(0, 1000).parallel()
+            .forEach(i -> results.accept(Arrays.asList("F" + i), 0.25));
+        results.flush();
+
+        String[] lines = output.toString().split(System.lineSeparator());
+        Assert.assertEquals(1000, lines.length);
+        for (String line : lines) {
+            Assert.assertTrue(line, line.matches("\\[F\\d+\\] --> 0\\.25"));
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package tool.analyzers.buildingblocks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import jadd.ADD;
+import jadd.JADD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ComponentTest {
+    private JADD jadd;
+    private List<ADD> released;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        released = new ArrayList<ADD>();
+    }
+
+    @Test
+    public void testValuesAreReleasedAfterTheirLastDependent() {
+        for (ConcurrencyStrategy concurrencyStrategy : ConcurrencyStrategy.values()) {
+            released.clear();
+            Component<String> a = new Component<String>("a", "true", "0.5");
+            Component<String> b = new Component<String>("b", "true", "a", Arrays.asList(a));
+            Component<String> c = new Component<String>("c", "true", "2*a", Arrays.asList(a));
+            Component<String> root = new Component<String>("root", "true", "b+c", Arrays.asList(b, c));
+
+            Map<String, ADD> derived = new HashMap<String, ADD>();
+            ADD result = Component.deriveFromMany(Arrays.asList(a, b, c, root),
+                                                  (presence, asset, values) -> {
+                                                      ADD value = derive(asset, values);
+                                                      synchronized (derived) {
+                                                          derived.put(asset, value);
+                                                      }
+                                                      return value;
+                                                  },
+                                                  component -> true,
+                                                  concurrencyStrategy,
+                                                  () -> {},
+                                                  this::release);
+
+            assertEquals(jadd.makeConstant(1.5), result);
+            assertFalse(result.isClosed());
+            // The value of "a" is passed on as is by "b", so it must be closed
+            // only once, after the root is derived.
+            assertSame(derived.get("0.5"), derived.get("a"));
+            assertEquals(2, released.size());
+            assertTrue(released.stream().anyMatch(value -> value == derived.get("a")));
+            assertTrue(released.stream().anyMatch(value -> value == derived.get("2*a")));
+        }
+    }
+
+    @Test
+    public void testRootIsNeverReleased() {
+        Component<String> a = new Component<String>("a", "true", "0.5");
+        Component<String> root = new Component<String>("root", "true", "a", Arrays.asList(a));
+
+        ADD result = Component.deriveFromMany(Arrays.asList(a, root),
+                                              (presence, asset, values) -> derive(asset, values),
+                                              component -> true,
+                                              ConcurrencyStrategy.SEQUENTIAL,
+                                              () -> {},
+                                              this::release);
+
+        assertTrue(released.isEmpty());
+        assertFalse(result.isClosed());
+        assertEquals(jadd.makeConstant(0.5), result);
+    }
+
+    private ADD derive(String asset, Map<String, ADD> values) {
+        switch (asset) {
+        case "a":
+            return values.get("a");
+        case "2*a":
+            return values.get("a").times(jadd.makeConstant(2));
+        case "b+c":
+            return values.get("b").plus(values.get("c"));
+        default:
+            return jadd.makeConstant(Double.parseDouble(asset));
+        }
+    }
+
+    private void release(ADD value) {
+        assertFalse("ADD released twice", value.isClosed());
+        synchronized (released) {
+            released.add(value);
+        }
+        value.close();
+    }
+
+}
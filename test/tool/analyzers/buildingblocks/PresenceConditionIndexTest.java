@@ -0,0 +1,90 @@
+package tool.analyzers.buildingblocks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import jadd.ADD;
+import jadd.Configuration;
+import jadd.JADD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.UnknownFeatureException;
+
+public class PresenceConditionIndexTest {
+    private PresenceConditionIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new PresenceConditionIndex(new JADD());
+    }
+
+    @Test
+    public void testEachPresenceConditionIsEncodedOnce() {
+        int first = index.register("A && !B");
+        int second = index.register("C");
+        assertEquals(first, index.register("A && !B"));
+        assertTrue(first != second);
+        assertSame(index.getEncoding("A && !B"), index.getEncoding("A && !B"));
+    }
+
+    @Test
+    public void testCircuitAgreesWithEncoding() throws Exception {
+        String[] presenceConditions = {"A && !B", "(A || C) && !(B && C)", "true", "False || C", "!A"};
+        for (String presenceCondition : presenceConditions) {
+            index.register(presenceCondition);
+        }
+        for (Collection<String> configuration : powerSet("A", "B", "C")) {
+            Configuration features = index.toConfiguration(configuration);
+            boolean[] presenceVector = new boolean[index.getNumberOfFeatures()];
+            for (String feature : configuration) {
+                presenceVector[index.getFeatureIndex(feature)] = true;
+            }
+            for (String presenceCondition : presenceConditions) {
+                ADD encoding = index.getEncoding(presenceCondition);
+                boolean expected = encoding.eval(configuration.toArray(new String[configuration.size()])) == 1.0;
+                assertEquals(presenceCondition + " for " + configuration,
+                             expected,
+                             index.isPresent(index.register(presenceCondition), features));
+                assertEquals(presenceCondition + " for " + configuration,
+                             expected,
+                             index.isPresent(index.register(presenceCondition), presenceVector));
+            }
+        }
+    }
+
+    @Test
+    public void testUnrelatedFeaturesAreIgnored() {
+        index.register("Z");
+        assertTrue(index.isPresent("A", Arrays.asList("A", "Z")));
+        assertFalse(index.isPresent("A && B", Arrays.asList("A", "Z")));
+    }
+
+    @Test(expected = UnknownFeatureException.class)
+    public void testUnknownFeaturesAreReported() {
+        index.register("A");
+        index.toConfiguration(Arrays.asList("A", "Unknown"));
+    }
+
+    private static List<Collection<String>> powerSet(String... features) {
+        List<Collection<String>> subsets = new ArrayList<Collection<String>>();
+        for (int mask = 0; mask < (1 << features.length); mask++) {
+            List<String> subset = new ArrayList<String>();
+            for (int i = 0; i < features.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    subset.add(features[i]);
+                }
+            }
+            subsets.add(subset);
+        }
+        return subsets;
+    }
+
+}
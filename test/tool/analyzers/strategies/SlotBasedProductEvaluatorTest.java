@@ -0,0 +1,63 @@
+package tool.analyzers.strategies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import jadd.JADD;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.analyzers.buildingblocks.Component;
+import tool.analyzers.buildingblocks.PresenceConditionIndex;
+import expressionsolver.Expression;
+import expressionsolver.ExpressionSolver;
+
+public class SlotBasedProductEvaluatorTest {
+    private ExpressionSolver expressionSolver;
+    private PresenceConditionIndex presenceConditionIndex;
+
+    @Before
+    public void setUp() {
+        JADD jadd = new JADD();
+        expressionSolver = new ExpressionSolver(jadd);
+        presenceConditionIndex = new PresenceConditionIndex(jadd, expressionSolver);
+    }
+
+    @Test
+    public void testComponentsAreEvaluatedInOrder() {
+        SlotBasedProductEvaluator evaluator = new SlotBasedProductEvaluator(Arrays.asList(
+                component("a", "A", "0.9"),
+                component("b", "B", "0.5 * a"),
+                component("root", "true", "a * b")), presenceConditionIndex);
+
+        assertEquals(0.9, evaluator.evaluate(Arrays.asList("A")), 1E-12);
+        assertEquals(0.405, evaluator.evaluate(Arrays.asList("A", "B")), 1E-12);
+        assertEquals(1.0, evaluator.evaluate(Collections.<String>emptyList()), 1E-12);
+    }
+
+    @Test
+    public void testUnparseableExpressionsYieldUnknownReliability() {
+        // E.g., the expression of a failed model checking.
+        Component<Expression<Double>> failed = component("b", "B", "");
+        assertNull(failed.getAsset());
+
+        SlotBasedProductEvaluator evaluator = new SlotBasedProductEvaluator(Arrays.asList(
+                component("a", "A", "0.9"),
+                failed,
+                component("root", "true", "a * b")), presenceConditionIndex);
+
+        assertEquals("Absent components should not matter",
+                0.9, evaluator.evaluate(Arrays.asList("A")), 1E-12);
+        assertTrue(Double.isNaN(evaluator.evaluate(Arrays.asList("A", "B"))));
+    }
+
+    private Component<Expression<Double>> component(String id, String presenceCondition, String expression) {
+        return new Component<Expression<Double>>(id, presenceCondition, expressionSolver.parseExpression(expression));
+    }
+
+}
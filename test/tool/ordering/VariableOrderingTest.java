@@ -0,0 +1,96 @@
+package tool.ordering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class VariableOrderingTest {
+    /**
+     * Two chains (A-B-C and X-Y-Z) whose variables appear interleaved.
+     */
+    private static final String CHAINS = "A  &&  (!A  ||  X)  &&  (!B  ||  A)  &&  (!Y  ||  X)  &&  (!C  ||  B)  &&  (!Z  ||  Y)  &&  True  &&  !False";
+
+    @Test
+    public void testClausesIgnoreSignsAndLiterals() {
+        CnfClauses cnf = CnfClauses.parse("R  &&  (!R  ||  g_1  ||  g_2)  &&  True  &&  !False  &&  (g_2  ||  R  ||  True)");
+
+        assertEquals(Arrays.asList("R", "g_1", "g_2"), cnf.getVariables());
+        assertEquals(Arrays.asList(Arrays.asList("R"),
+                                   Arrays.asList("R", "g_1", "g_2"),
+                                   Arrays.asList("g_2", "R")),
+                     cnf.getClauses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClausesWithoutOperandAreRejected() {
+        CnfClauses.parse("R  &&  (!R  ||)");
+    }
+
+    @Test
+    public void testOrdersArePermutationsOfTheVariables() {
+        List<String> variables = CnfClauses.parse(CHAINS).getVariables();
+        List<IVariableOrderingHeuristic> heuristics = Arrays.asList(new AppearanceOrdering(),
+                                                                    new ForceOrdering(),
+                                                                    new ClauseConnectivityOrdering());
+        for (IVariableOrderingHeuristic heuristic : heuristics) {
+            List<String> order = heuristic.computeOrder(CHAINS);
+            assertEquals(variables.size(), order.size());
+            assertEquals(new HashSet<String>(variables), new HashSet<String>(order));
+        }
+    }
+
+    @Test
+    public void testForceDoesNotIncreaseSpan() {
+        CnfClauses cnf = CnfClauses.parse(CHAINS);
+        int[][] clauses = ForceOrdering.toIndices(cnf);
+
+        List<String> order = new ForceOrdering().computeOrder(CHAINS);
+        int[] position = new int[order.size()];
+        for (int v = 0; v < position.length; v++) {
+            position[v] = order.indexOf(cnf.getVariables().get(v));
+        }
+        int[] appearance = new int[order.size()];
+        for (int v = 0; v < appearance.length; v++) {
+            appearance[v] = v;
+        }
+        assertTrue(ForceOrdering.span(clauses, position) <= ForceOrdering.span(clauses, appearance));
+    }
+
+    @Test
+    public void testClauseConnectivityKeepsConstrainedVariablesTogether() {
+        List<String> order = new ClauseConnectivityOrdering().computeOrder(CHAINS);
+
+        // A appears in the most clauses, then its neighbours follow.
+        assertEquals("A", order.get(0));
+        assertEquals(new HashSet<String>(Arrays.asList("X", "B")),
+                     new HashSet<String>(order.subList(1, 3)));
+    }
+
+    @Test
+    public void testFeatureTreeIsTraversedDepthFirst() throws IOException {
+        String featureModel = new String(Files.readAllBytes(Paths.get("cnf_12.txt")));
+        List<String> order = FeatureTreeOrdering.fromFile(Paths.get("fm_12.xml")).computeOrder(featureModel);
+
+        List<String> expected = new ArrayList<String>(Arrays.asList("R", "Gi_1", "g_1_1", "g_1_2", "o_2", "Gi_3"));
+        assertEquals(expected, order.subList(0, expected.size()));
+        assertEquals(16, order.size());
+    }
+
+    @Test
+    public void testFeaturesOutsideTheFeatureModelAreLeftOut() {
+        FeatureTreeOrdering ordering = new FeatureTreeOrdering(Arrays.asList("R", "Abstract", "A", "B"));
+        List<String> order = ordering.computeOrder("R  &&  (!B  ||  R)  &&  (!A  ||  R)");
+
+        assertEquals(Arrays.asList("R", "A", "B"), order);
+    }
+
+}
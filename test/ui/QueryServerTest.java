@@ -0,0 +1,78 @@
+package ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import jadd.ADD;
+import jadd.JADD;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.analyzers.ADDReliabilityResults;
+
+public class QueryServerTest {
+    private QueryServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        JADD jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        // 0.5 if only A, 0.25 if both, 0 otherwise.
+        ADD reliability = a.times(jadd.makeConstant(0.5)).times(b.complement().plus(jadd.makeConstant(0.5).times(b)));
+        server = new QueryServer(new ADDReliabilityResults(reliability), 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testSingleQuery() {
+        assertEquals("0.5", server.answer("A"));
+        assertEquals("0.0", server.answer(""));
+    }
+
+    @Test
+    public void testBatchedQuery() {
+        assertEquals("0.5;0.25;0.0;0.0", server.answer("A; A, B;B;"));
+    }
+
+    @Test
+    public void testUnknownFeature() {
+        assertTrue(server.answer("A;C").startsWith(QueryServer.ERROR));
+    }
+
+    @Test
+    public void testQueriesOverSocket() throws IOException {
+        Thread serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        serving.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            output.write("A,B\nA;B\n" + QueryServer.QUIT + "\n");
+            output.flush();
+            assertEquals("0.25", input.readLine());
+            assertEquals("0.5;0.0", input.readLine());
+            assertEquals(null, input.readLine());
+        }
+    }
+
+}